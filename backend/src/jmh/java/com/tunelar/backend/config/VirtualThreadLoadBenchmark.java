@@ -0,0 +1,190 @@
+package com.tunelar.backend.config;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.tunelar.backend.BackendApplication;
+import com.tunelar.backend.dto.LoginDto;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.model.User;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.service.AuthService;
+
+/**
+ * Load test comparing platform-thread and virtual-thread request handling on the
+ * real application. Each trial boots the application on a random port with
+ * spring.threads.virtual.enabled set by the threads parameter, seeds one user with
+ * a page worth of tracks, and then sends authenticated browse requests over HTTP.
+ * Every request goes through Tomcat, the JWT filter, JPA and, with virtual threads,
+ * {@link JdbcConcurrencyLimiter}. One operation is a burst of requests with at most
+ * clients in flight, so the score is bursts per second.
+ *
+ * The application's own datasource is used, so the database must be running; pass
+ * -jvmArgsAppend -Dspring.profiles.active=ci (or -Dspring.datasource.url=...) in
+ * jmh.args to choose it. Heap in use, resident set size and live platform threads
+ * after each burst are reported as secondary results. Client and server share the
+ * forked JVM, so both count towards them.
+ *
+ * Needs Java 21 (-Pjmh,java21). Add -prof gc to jmh.args to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+
+    private static final int TRACKS = 50;
+    private static final String PASSWORD = "benchmark-password";
+
+    @Param({ "platform", "virtual" })
+    public String threads;
+
+    @Param({ "2000" })
+    public int requests;
+
+    @Param({ "1000" })
+    public int clients;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private HttpRequest browse;
+    private Long userId;
+    private List<Long> trackIds;
+
+    /**
+     * Memory and thread use after the latest burst, reported next to the throughput
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long heapUsedMb;
+        public long rssMb;
+        public long platformThreads;
+
+        void sample() {
+            heapUsedMb = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+            rssMb = residentSetKb() >> 10;
+            platformThreads = ManagementFactory.getThreadMXBean().getThreadCount();
+        }
+
+        /**
+         * Reads VmRSS from /proc, which only Linux has; elsewhere reports 0
+         */
+        private static long residentSetKb() {
+            try {
+                for (final String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                    if (line.startsWith("VmRSS:")) {
+                        return Long.parseLong(line.replaceAll("\\D", ""));
+                    }
+                }
+            }
+            catch (final IOException | NumberFormatException e) {
+                // not available on this platform
+            }
+            return 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(BackendApplication.class)
+                .properties("server.port=0", "spring.threads.virtual.enabled=" + "virtual".equals(threads),
+                        "spring.jpa.show-sql=false")
+                .run();
+        final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        final String username = "load_" + System.nanoTime();
+        final AuthService authService = context.getBean(AuthService.class);
+        authService.register(new RegisterDto("Load", username, username + "@tunelar.com", PASSWORD));
+        final User user = context.getBean(UserRepository.class).findByUsername(username).orElseThrow();
+        userId = user.getId();
+        final List<Track> tracks = new ArrayList<>(TRACKS);
+        for (int i = 0; i < TRACKS; i++) {
+            final Track track = new Track();
+            track.setTitle("Load " + i);
+            track.setFileUrl("/files/load/" + i);
+            track.setFileSize(1024L);
+            track.setFileType("wav");
+            track.setBpm(80 + i);
+            track.setDuration(30);
+            track.setKey("A minor");
+            track.setUser(user);
+            track.setTags(Set.of());
+            tracks.add(track);
+        }
+        trackIds = context.getBean(TrackRepository.class).saveAll(tracks).stream().map(Track::getId).toList();
+        final String token = authService.login(new LoginDto(username, PASSWORD)).getAccessToken();
+
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        browse = HttpRequest
+                .newBuilder(URI.create("http://localhost:" + port + "/api/tracks?size=20&userId=" + userId))
+                .header("Authorization", "Bearer " + token)
+                .GET()
+                .build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            // straight through the repositories: on an empty database the seeded user is the protected first one
+            context.getBean(TrackRepository.class).deleteAllById(trackIds);
+            context.getBean(UserRepository.class).deleteById(userId);
+        }
+        finally {
+            context.close();
+        }
+    }
+
+    @Benchmark
+    public int burst(final Footprint footprint) throws Exception {
+        final Semaphore inFlight = new Semaphore(clients);
+        final List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            responses.add(client.sendAsync(browse, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> inFlight.release()));
+        }
+        for (final CompletableFuture<HttpResponse<Void>> response : responses) {
+            final int status = response.get().statusCode();
+            if (status != 200) {
+                throw new IllegalStateException("Browse answered " + status);
+            }
+        }
+        footprint.sample();
+        return responses.size();
+    }
+}
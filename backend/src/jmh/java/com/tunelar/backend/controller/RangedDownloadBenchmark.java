@@ -0,0 +1,181 @@
+package com.tunelar.backend.controller;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
+
+import com.tunelar.backend.BackendApplication;
+import com.tunelar.backend.audio.TestAudio;
+import com.tunelar.backend.dto.LoginDto;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.service.AuthService;
+import com.tunelar.backend.service.TrackService;
+import com.tunelar.backend.service.UploadService;
+
+/**
+ * Load test for ranged downloads on the real application, the way players scrub
+ * through a track. Each trial boots the application on a random port, uploads one
+ * WAV through the upload service, and then sends authenticated GETs with a random
+ * Range header to the track's fileUrl. Every request goes through Tomcat, the JWT
+ * filter and FileController's conditional and Range handling. One operation is a
+ * burst of requests with at most clients in flight, so the score is bursts per second.
+ *
+ * With transfer=sendfile, local files are handed to Tomcat's sendfile support, which
+ * is the only zero-copy path. With transfer=copy, sendfile is switched off on the
+ * connector, so FileServiceImpl copies each range into the response through a buffer.
+ *
+ * The application's own datasource is used, so the database must be running; pass
+ * -jvmArgsAppend -Dspring.profiles.active=ci (or -Dspring.datasource.url=...) in
+ * jmh.args to choose it. Storage is the configured backend; sendfile only applies
+ * to local storage. Client and server share the forked JVM.
+ *
+ * Add -prof gc to jmh.args to compare allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+public class RangedDownloadBenchmark {
+
+    private static final String PASSWORD = "benchmark-password";
+
+    /**
+     * Two minutes of 16-bit mono at 44.1 kHz, about 10 MB
+     */
+    private static final int SAMPLE_RATE = 44_100;
+    private static final int FRAMES = SAMPLE_RATE * 120;
+
+    @Param({ "sendfile", "copy" })
+    public String transfer;
+
+    @Param({ "262144" })
+    public int rangeSize;
+
+    @Param({ "2000" })
+    public int requests;
+
+    @Param({ "200" })
+    public int clients;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI file;
+    private String authorization;
+    private long fileSize;
+    private Long userId;
+    private Long trackId;
+
+    /**
+     * Turns off sendfile on the connector, so ranges are copied by FileServiceImpl.
+     * Registered as an extra source rather than annotated, so component scanning
+     * never picks it up.
+     */
+    public static class WithoutSendfile {
+        @Bean
+        WebServerFactoryCustomizer<TomcatServletWebServerFactory> disableSendfile() {
+            return factory -> factory.addConnectorCustomizers(
+                    connector -> connector.setProperty("useSendfile", "false"));
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final SpringApplicationBuilder builder = new SpringApplicationBuilder(BackendApplication.class)
+                .properties("server.port=0", "spring.jpa.show-sql=false");
+        if ("copy".equals(transfer)) {
+            builder.sources(WithoutSendfile.class);
+        }
+        context = builder.run();
+        final int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        final String username = "ranged_" + System.nanoTime();
+        final AuthService authService = context.getBean(AuthService.class);
+        authService.register(new RegisterDto("Ranged", username, username + "@tunelar.com", PASSWORD));
+        userId = context.getBean(UserRepository.class).findByUsername(username).orElseThrow().getId();
+
+        final byte[] wav = TestAudio.wav(SAMPLE_RATE, 1, FRAMES, frame -> Math.sin(frame * 0.05) * 0.5);
+        final TrackDto track = context.getBean(UploadService.class).upload(userId,
+                new TrackUploadDto("Ranged", null, 120, "A minor", null, List.of()), wav.length, null,
+                new ByteArrayInputStream(wav));
+        trackId = track.getId();
+        fileSize = track.getFileSize();
+
+        authorization = "Bearer " + authService.login(new LoginDto(username, PASSWORD)).getAccessToken();
+        file = URI.create("http://localhost:" + port + track.getFileUrl());
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        try {
+            // releases the stored audio along with the track
+            context.getBean(TrackService.class).deleteTrack(trackId, userId, true);
+            context.getBean(UserRepository.class).deleteById(userId);
+        }
+        finally {
+            context.close();
+        }
+    }
+
+    private HttpRequest rangeRequest() {
+        final long start = ThreadLocalRandom.current().nextLong(fileSize - rangeSize);
+        return HttpRequest.newBuilder(file)
+                .header(HttpHeaders.AUTHORIZATION, authorization)
+                .header(HttpHeaders.RANGE, "bytes=" + start + "-" + (start + rangeSize - 1))
+                .GET()
+                .build();
+    }
+
+    @Benchmark
+    public int burst() throws Exception {
+        final Semaphore inFlight = new Semaphore(clients);
+        final List<CompletableFuture<HttpResponse<Void>>> responses = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            responses.add(client.sendAsync(rangeRequest(), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, failure) -> inFlight.release()));
+        }
+        for (final CompletableFuture<HttpResponse<Void>> response : responses) {
+            final HttpResponse<Void> ranged = response.get();
+            if (ranged.statusCode() != 206
+                    || ranged.headers().firstValueAsLong(HttpHeaders.CONTENT_LENGTH).orElse(-1) != rangeSize) {
+                throw new IllegalStateException("Range request answered " + ranged.statusCode());
+            }
+        }
+        return responses.size();
+    }
+}
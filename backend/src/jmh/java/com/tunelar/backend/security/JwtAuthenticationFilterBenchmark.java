@@ -0,0 +1,66 @@
+package com.tunelar.backend.security;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Full per-request cost of the authentication filter with mocked servlet objects.
+ * With verifiedClaims=false the principal comes from a user details service that
+ * answers from memory, so the figure excludes the database round trip it replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    @Param({ "true", "false" })
+    public boolean verifiedClaims;
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        final JwtTokenProvider jwtTokenProvider = JwtTokenProviderBenchmark.newProvider();
+        final Authentication authentication = JwtTokenProviderBenchmark.newAuthentication();
+        final UserDetailsService userDetailsService = username -> (UserPrincipal) authentication.getPrincipal();
+
+        filter = new JwtAuthenticationFilter(jwtTokenProvider, userDetailsService,
+                new TokenRevocationService(86400000L, new SimpleMeterRegistry()), verifiedClaims);
+        authorization = "Bearer " + jwtTokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public Authentication doFilter() throws Exception {
+        final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/user/all");
+        request.addHeader("Authorization", authorization);
+
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+
+        final Authentication result = SecurityContextHolder.getContext().getAuthentication();
+        SecurityContextHolder.clearContext();
+        return result;
+    }
+}
@@ -0,0 +1,90 @@
+package com.tunelar.backend.security;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.Claims;
+
+/**
+ * Cost of issuing and verifying a token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JwtTokenProviderBenchmark {
+
+    private JwtTokenProvider jwtTokenProvider;
+    private Authentication authentication;
+    private String token;
+
+    /**
+     * Creates a provider configured like the application.
+     *
+     * @return the provider
+     */
+    static JwtTokenProvider newProvider() {
+        final JwtTokenProvider provider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(provider, "jwtSecret", "your_jwt_secret_key_should_be_very_long_and_secure");
+        ReflectionTestUtils.setField(provider, "jwtExpirationDate", 86400000L);
+        provider.init();
+        return provider;
+    }
+
+    /**
+     * Creates the authentication of a logged in producer.
+     *
+     * @return the authentication
+     */
+    static Authentication newAuthentication() {
+        final List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_PROD"));
+        return new UsernamePasswordAuthenticationToken(
+                new UserPrincipal(42L, "producer", "", authorities), null, authorities);
+    }
+
+    @Setup
+    public void setUp() {
+        jwtTokenProvider = newProvider();
+        authentication = newAuthentication();
+        token = jwtTokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtTokenProvider.generateToken(authentication);
+    }
+
+    @Benchmark
+    public boolean validateToken() {
+        return jwtTokenProvider.validateToken(token);
+    }
+
+    @Benchmark
+    public String getUsername() {
+        return jwtTokenProvider.getUsername(token);
+    }
+
+    @Benchmark
+    public UserPrincipal parseClaimsToPrincipal() {
+        final Claims claims = jwtTokenProvider.parseClaims(token);
+        return jwtTokenProvider.getPrincipal(claims);
+    }
+}
@@ -0,0 +1,12 @@
+package com.tunelar.backend.audio;
+
+/**
+ * What an analysis found out about a track's audio
+ *
+ * @param duration length in whole seconds
+ * @param bpm estimated tempo in beats per minute, or null if no pulse was found
+ * @param key estimated key such as "A minor", or null if nothing tonal was heard
+ * @param loudness integrated loudness in LUFS to one decimal, or null for silence
+ */
+public record AudioAnalysis(Integer duration, Integer bpm, String key, Double loudness) {
+}
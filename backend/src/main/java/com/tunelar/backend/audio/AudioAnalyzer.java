@@ -0,0 +1,128 @@
+package com.tunelar.backend.audio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.tunelar.backend.storage.AudioFormat;
+
+/**
+ * Analyzes uncompressed audio while it streams past on its way to storage, so the
+ * length, tempo, key and loudness of a track come out of the pass that stores it.
+ * The file's bytes are written to the analyzer like to any output stream. Memory
+ * is fixed: a ring buffer holds the last few hundred milliseconds of a mono mix,
+ * from which the tempo and key estimators take their FFT frames, and the
+ * loudness meter keeps a histogram.
+ *
+ * Audio it cannot decode is ignored rather than reported, so it never fails the
+ * upload it is watching; {@link #result()} is then null.
+ */
+public class AudioAnalyzer extends OutputStream implements PcmDecoder.Listener {
+
+    /**
+     * The mono mix is averaged down to no more than this rate, which keeps the
+     * notes and onsets the estimators look at and halves their work for 44.1 and
+     * 48 kHz audio
+     */
+    private static final int MAX_ANALYSIS_RATE = 24_000;
+
+    private final PcmDecoder decoder = new PcmDecoder(this);
+    private boolean failed;
+
+    private LoudnessMeter loudness;
+    private TempoEstimator tempo;
+    private KeyEstimator key;
+    private int channels;
+    private int decimation;
+    private float mixed;
+    private int mixedFrames;
+
+    /**
+     * The latest samples of the mono mix, long enough for the longest frame
+     */
+    private final float[] ring = new float[KeyEstimator.WINDOW];
+    private long position;
+
+    /**
+     * Tells whether audio of a format can be analyzed
+     *
+     * @param format the format
+     * @return true for the uncompressed formats
+     */
+    public static boolean canAnalyze(final AudioFormat format) {
+        return format == AudioFormat.WAV || format == AudioFormat.AIFF;
+    }
+
+    @Override
+    public void write(final int b) {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(final byte[] b, final int off, final int len) {
+        if (failed || decoder.done()) {
+            return;
+        }
+        try {
+            decoder.write(b, off, len);
+        }
+        catch (final IOException e) {
+            failed = true;
+        }
+    }
+
+    @Override
+    public void format(final int sampleRate, final int channels) {
+        this.channels = channels;
+        this.decimation = (sampleRate + MAX_ANALYSIS_RATE - 1) / MAX_ANALYSIS_RATE;
+        final int analysisRate = sampleRate / decimation;
+        loudness = new LoudnessMeter(sampleRate, channels);
+        tempo = new TempoEstimator(analysisRate);
+        key = new KeyEstimator(analysisRate);
+    }
+
+    @Override
+    public void samples(final float[] samples, final int frames) {
+        loudness.accept(samples, frames);
+        for (int frame = 0; frame < frames; frame++) {
+            final int base = frame * channels;
+            for (int channel = 0; channel < channels; channel++) {
+                mixed += samples[base + channel];
+            }
+            if (++mixedFrames == decimation) {
+                push(mixed / (channels * decimation));
+                mixed = 0;
+                mixedFrames = 0;
+            }
+        }
+    }
+
+    private void push(final float sample) {
+        ring[(int) (position++ & (ring.length - 1))] = sample;
+        if (position % TempoEstimator.HOP == 0 && position >= TempoEstimator.WINDOW) {
+            tempo.analyze(ring, position);
+        }
+        if (position % KeyEstimator.HOP == 0 && position >= KeyEstimator.WINDOW) {
+            key.analyze(ring, position);
+        }
+    }
+
+    /**
+     * Finishes the analysis once the whole file has been written.
+     *
+     * @return the findings, or null if the audio was not uncompressed WAV or AIFF
+     */
+    public AudioAnalysis result() {
+        if (failed) {
+            return null;
+        }
+        try {
+            decoder.finish();
+        }
+        catch (final IOException e) {
+            return null;
+        }
+        final Double integrated = loudness.integrated();
+        return new AudioAnalysis((int) Math.round((double) decoder.frames() / decoder.sampleRate()), tempo.bpm(),
+                key.key(), integrated == null ? null : Math.round(integrated * 10) / 10d);
+    }
+}
@@ -0,0 +1,87 @@
+package com.tunelar.backend.audio;
+
+/**
+ * Magnitude spectrum of a Hann-windowed frame of real samples, by an in-place
+ * radix-2 FFT. The tables and buffers are made once per size, so transforming a
+ * frame allocates nothing.
+ */
+final class Fft {
+
+    private final int size;
+    private final int[] reversed;
+    private final float[] cos;
+    private final float[] sin;
+    private final float[] window;
+    private final float[] re;
+    private final float[] im;
+
+    /**
+     * @param size the frame length, a power of two
+     */
+    Fft(final int size) {
+        if (Integer.bitCount(size) != 1) {
+            throw new IllegalArgumentException("FFT size must be a power of two: " + size);
+        }
+        this.size = size;
+        final int bits = Integer.numberOfTrailingZeros(size);
+        reversed = new int[size];
+        window = new float[size];
+        for (int i = 0; i < size; i++) {
+            reversed[i] = Integer.reverse(i) >>> (32 - bits);
+            window[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / size));
+        }
+        cos = new float[size / 2];
+        sin = new float[size / 2];
+        for (int i = 0; i < size / 2; i++) {
+            cos[i] = (float) Math.cos(2 * Math.PI * i / size);
+            sin[i] = (float) Math.sin(2 * Math.PI * i / size);
+        }
+        re = new float[size];
+        im = new float[size];
+    }
+
+    /**
+     * @return the frame length
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Transforms the last samples written to a ring buffer.
+     *
+     * @param ring the ring buffer, its length a power of two no shorter than the frame
+     * @param end the number of samples written to the ring so far
+     * @param magnitudes receives the magnitudes of bins 0 to size / 2
+     */
+    void magnitudes(final float[] ring, final long end, final float[] magnitudes) {
+        final int mask = ring.length - 1;
+        final long start = end - size;
+        for (int i = 0; i < size; i++) {
+            final int j = reversed[i];
+            re[i] = ring[(int) ((start + j) & mask)] * window[j];
+            im[i] = 0;
+        }
+        for (int length = 2; length <= size; length <<= 1) {
+            final int half = length >>> 1;
+            final int step = size / length;
+            for (int i = 0; i < size; i += length) {
+                for (int k = 0; k < half; k++) {
+                    final float wr = cos[k * step];
+                    final float wi = -sin[k * step];
+                    final int a = i + k;
+                    final int b = a + half;
+                    final float tr = re[b] * wr - im[b] * wi;
+                    final float ti = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - tr;
+                    im[b] = im[a] - ti;
+                    re[a] += tr;
+                    im[a] += ti;
+                }
+            }
+        }
+        for (int k = 0; k <= size / 2; k++) {
+            magnitudes[k] = (float) Math.sqrt(re[k] * re[k] + im[k] * im[k]);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.tunelar.backend.audio;
+
+/**
+ * Estimates the key of a stream of mono samples. The energy of each long frame is
+ * folded into twelve pitch classes and summed over the whole track; the sum is
+ * matched against the Krumhansl-Kessler profiles of the 24 major and minor keys.
+ */
+final class KeyEstimator {
+
+    /**
+     * Samples per chroma frame; long, so low notes a semitone apart fall in different bins
+     */
+    static final int WINDOW = 8192;
+
+    /**
+     * Samples between chroma frames
+     */
+    static final int HOP = 4096;
+
+    private static final double MIN_FREQUENCY = 65;
+    private static final double MAX_FREQUENCY = 2100;
+
+    private static final double[] MAJOR = { 6.35, 2.23, 3.48, 2.33, 4.38, 4.09, 2.52, 5.19, 2.39, 3.66, 2.29, 2.88 };
+    private static final double[] MINOR = { 6.33, 2.68, 3.52, 5.38, 2.60, 3.53, 2.54, 4.75, 3.98, 2.69, 3.34, 3.17 };
+
+    private static final String[] NAMES = { "C", "C#", "D", "Eb", "E", "F", "F#", "G", "Ab", "A", "Bb", "B" };
+
+    private final Fft fft = new Fft(WINDOW);
+    private final float[] spectrum = new float[WINDOW / 2 + 1];
+    /**
+     * Pitch class of each bin, or -1 for bins outside the range of notes
+     */
+    private final int[] pitchClasses = new int[WINDOW / 2 + 1];
+    private final double[] chroma = new double[12];
+
+    /**
+     * @param sampleRate the rate of the samples
+     */
+    KeyEstimator(final int sampleRate) {
+        for (int k = 0; k < pitchClasses.length; k++) {
+            final double frequency = (double) k * sampleRate / WINDOW;
+            if (frequency < MIN_FREQUENCY || frequency > MAX_FREQUENCY) {
+                pitchClasses[k] = -1;
+                continue;
+            }
+            // MIDI note 69 is the A at 440 Hz
+            final long note = Math.round(69 + 12 * Math.log(frequency / 440) / Math.log(2));
+            pitchClasses[k] = (int) (note % 12);
+        }
+    }
+
+    /**
+     * Adds the frame ending at the newest sample of a ring buffer
+     *
+     * @param ring the samples
+     * @param end the number of samples written to the ring so far
+     */
+    void analyze(final float[] ring, final long end) {
+        fft.magnitudes(ring, end, spectrum);
+        for (int k = 0; k < spectrum.length; k++) {
+            if (pitchClasses[k] >= 0) {
+                chroma[pitchClasses[k]] += spectrum[k] * spectrum[k];
+            }
+        }
+    }
+
+    /**
+     * @return the key, such as "A minor", or null if nothing tonal was heard
+     */
+    String key() {
+        double total = 0;
+        for (final double energy : chroma) {
+            total += energy;
+        }
+        if (total <= 0) {
+            return null;
+        }
+        String best = null;
+        double bestCorrelation = Double.NEGATIVE_INFINITY;
+        for (int tonic = 0; tonic < 12; tonic++) {
+            final double major = correlation(MAJOR, tonic);
+            if (major > bestCorrelation) {
+                bestCorrelation = major;
+                best = NAMES[tonic] + " major";
+            }
+            final double minor = correlation(MINOR, tonic);
+            if (minor > bestCorrelation) {
+                bestCorrelation = minor;
+                best = NAMES[tonic] + " minor";
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Pearson correlation of the chroma with a profile moved up to a tonic
+     */
+    private double correlation(final double[] profile, final int tonic) {
+        double chromaMean = 0;
+        double profileMean = 0;
+        for (int i = 0; i < 12; i++) {
+            chromaMean += chroma[i] / 12;
+            profileMean += profile[i] / 12;
+        }
+        double covariance = 0;
+        double chromaVariance = 0;
+        double profileVariance = 0;
+        for (int i = 0; i < 12; i++) {
+            final double c = chroma[(tonic + i) % 12] - chromaMean;
+            final double p = profile[i] - profileMean;
+            covariance += c * p;
+            chromaVariance += c * c;
+            profileVariance += p * p;
+        }
+        return chromaVariance == 0 ? 0 : covariance / Math.sqrt(chromaVariance * profileVariance);
+    }
+}
@@ -0,0 +1,157 @@
+package com.tunelar.backend.audio;
+
+/**
+ * Integrated loudness as ITU-R BS.1770-4 and EBU R 128 define it: K-weighted mean
+ * square over 400 ms blocks overlapping by 75 %, gated at -70 LUFS and then 10 LU
+ * below the mean of the blocks above that. Block loudnesses go into a histogram
+ * of 0.1 LU bins instead of a list, so memory stays constant however long the
+ * track; the relative gate is placed to within a bin.
+ *
+ * Every channel is weighted 1, as for mono and stereo; surround channels are not
+ * told apart.
+ */
+final class LoudnessMeter {
+
+    private static final double ABSOLUTE_GATE = -70;
+    private static final double RELATIVE_GATE = -10;
+    private static final double MAX_LOUDNESS = 10;
+    private static final int BINS_PER_LU = 10;
+    private static final int BINS = (int) ((MAX_LOUDNESS - ABSOLUTE_GATE) * BINS_PER_LU);
+
+    /**
+     * Gating blocks are four steps long
+     */
+    private static final int STEPS_PER_BLOCK = 4;
+
+    private final int channels;
+    private final int stepLength;
+
+    /**
+     * Coefficients of the two K-weighting stages: a high shelf for the head, then a
+     * high pass. Each is b0, b1, b2, a1, a2, normalized by a0.
+     */
+    private final double[] shelf;
+    private final double[] highPass;
+    /**
+     * Filter state, four values per channel
+     */
+    private final double[] state;
+
+    private double stepSum;
+    private int stepSamples;
+    private final double[] steps = new double[STEPS_PER_BLOCK];
+    private long stepCount;
+
+    private final long[] blockCounts = new long[BINS];
+    private final double[] blockEnergies = new double[BINS];
+
+    /**
+     * @param sampleRate frames per second
+     * @param channels samples per frame
+     */
+    LoudnessMeter(final int sampleRate, final int channels) {
+        this.channels = channels;
+        this.stepLength = Math.max(1, (int) Math.round(sampleRate * 0.1));
+        this.state = new double[channels * 4];
+
+        // the filters of BS.1770 re-derived for any rate; at 48 kHz they give its coefficients
+        double k = Math.tan(Math.PI * 1681.974450955533 / sampleRate);
+        double q = 0.7071752369554196;
+        final double high = Math.pow(10, 3.999843853973347 / 20);
+        final double band = Math.pow(high, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        shelf = new double[] {
+            (high + band * k / q + k * k) / a0,
+            2 * (k * k - high) / a0,
+            (high - band * k / q + k * k) / a0,
+            2 * (k * k - 1) / a0,
+            (1 - k / q + k * k) / a0 };
+
+        k = Math.tan(Math.PI * 38.13547087602444 / sampleRate);
+        q = 0.5003270373238773;
+        a0 = 1 + k / q + k * k;
+        highPass = new double[] { 1, -2, 1, 2 * (k * k - 1) / a0, (1 - k / q + k * k) / a0 };
+    }
+
+    /**
+     * Measures decoded frames
+     *
+     * @param samples the samples, channels interleaved
+     * @param frames the number of frames
+     */
+    void accept(final float[] samples, final int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            final int base = frame * channels;
+            for (int channel = 0; channel < channels; channel++) {
+                final int s = channel * 4;
+                final double shelved = filter(shelf, s, samples[base + channel]);
+                final double weighted = filter(highPass, s + 2, shelved);
+                stepSum += weighted * weighted;
+            }
+            if (++stepSamples == stepLength) {
+                step();
+            }
+        }
+    }
+
+    /**
+     * Runs one sample through a biquad in transposed direct form II
+     */
+    private double filter(final double[] c, final int s, final double x) {
+        final double y = c[0] * x + state[s];
+        state[s] = c[1] * x - c[3] * y + state[s + 1];
+        state[s + 1] = c[2] * x - c[4] * y;
+        return y;
+    }
+
+    private void step() {
+        steps[(int) (stepCount++ % STEPS_PER_BLOCK)] = stepSum / stepLength;
+        stepSum = 0;
+        stepSamples = 0;
+        if (stepCount < STEPS_PER_BLOCK) {
+            return;
+        }
+        double energy = 0;
+        for (final double step : steps) {
+            energy += step / STEPS_PER_BLOCK;
+        }
+        final double loudness = loudness(energy);
+        if (loudness >= ABSOLUTE_GATE) {
+            final int bin = bin(loudness);
+            blockCounts[bin]++;
+            blockEnergies[bin] += energy;
+        }
+    }
+
+    /**
+     * @return the integrated loudness in LUFS, or null if no block was louder than the absolute gate
+     */
+    Double integrated() {
+        final double relativeGate = gatedLoudness(0) + RELATIVE_GATE;
+        if (Double.isNaN(relativeGate)) {
+            return null;
+        }
+        return gatedLoudness(Math.max(0, bin(relativeGate)));
+    }
+
+    /**
+     * Loudness of the blocks from a histogram bin upwards, or NaN if there are none
+     */
+    private double gatedLoudness(final int fromBin) {
+        long count = 0;
+        double energy = 0;
+        for (int bin = fromBin; bin < BINS; bin++) {
+            count += blockCounts[bin];
+            energy += blockEnergies[bin];
+        }
+        return count == 0 ? Double.NaN : loudness(energy / count);
+    }
+
+    private static double loudness(final double energy) {
+        return -0.691 + 10 * Math.log10(energy);
+    }
+
+    private static int bin(final double loudness) {
+        return (int) Math.min(BINS - 1, Math.floor((loudness - ABSOLUTE_GATE) * BINS_PER_LU));
+    }
+}
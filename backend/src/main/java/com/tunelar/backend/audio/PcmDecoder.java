@@ -0,0 +1,426 @@
+package com.tunelar.backend.audio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes uncompressed WAV and AIFF audio handed to it in pieces of any size, such
+ * as the buffers of an upload on its way to storage, into float samples. Of the
+ * chunks before the sample data only the few bytes of the format are kept; the
+ * rest is counted past. Memory stays the same however large the file is.
+ *
+ * Supports integer PCM of 8 to 32 bits and 32-bit float, including
+ * WAVE_FORMAT_EXTENSIBLE headers and little-endian AIFC ('sowt').
+ */
+public final class PcmDecoder {
+
+    /**
+     * Thrown for audio this decoder cannot decode
+     */
+    public static class UnsupportedFormatException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedFormatException(final String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Receives the decoded audio
+     */
+    public interface Listener {
+
+        /**
+         * Called once, before any samples.
+         *
+         * @param sampleRate frames per second
+         * @param channels samples per frame
+         */
+        void format(int sampleRate, int channels);
+
+        /**
+         * Receives decoded frames.
+         *
+         * @param samples the samples, channels interleaved, scaled to [-1, 1); reused once this returns
+         * @param frames the number of frames in the array
+         */
+        void samples(float[] samples, int frames);
+    }
+
+    private enum State {
+        FILE_HEADER, CHUNK_HEADER, FORMAT, SOUND_HEADER, SKIP, SAMPLES, DONE
+    }
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    /**
+     * Most bytes read of a format chunk; the rest is skipped
+     */
+    private static final int MAX_HEADER = 64;
+
+    private static final int BLOCK_FRAMES = 1024;
+
+    private final Listener listener;
+
+    private final byte[] header = new byte[MAX_HEADER];
+    private int buffered;
+    private int needed = 12;
+    private State state = State.FILE_HEADER;
+    private State afterSkip;
+    private long skip;
+    private long chunkSize;
+
+    private boolean aiff;
+    private boolean aifc;
+    private boolean format;
+    private int sampleRate;
+    private int channels;
+    private int bytesPerSample;
+    private boolean bigEndian;
+    private boolean unsigned8;
+    private boolean floating;
+
+    /**
+     * Bytes of sample data left
+     */
+    private long remaining;
+    private int frameSize;
+    /**
+     * A frame split across two writes
+     */
+    private byte[] frame;
+    private int frameBytes;
+    private float[] block;
+    private int blockFrames;
+    private long frames;
+
+    public PcmDecoder(final Listener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Decodes the next piece of a file.
+     *
+     * @param b the bytes
+     * @param off the position of the first byte
+     * @param len the number of bytes
+     * @throws UnsupportedFormatException if the audio is not uncompressed WAV or AIFF
+     */
+    public void write(final byte[] b, int off, int len) throws UnsupportedFormatException {
+        while (len > 0) {
+            final int n;
+            switch (state) {
+                case DONE -> n = len;
+                case SKIP -> {
+                    n = (int) Math.min(skip, len);
+                    skip -= n;
+                    if (skip == 0) {
+                        state = afterSkip;
+                    }
+                }
+                case SAMPLES -> n = decode(b, off, len);
+                default -> {
+                    n = Math.min(needed - buffered, len);
+                    System.arraycopy(b, off, header, buffered, n);
+                    buffered += n;
+                    if (buffered == needed) {
+                        buffered = 0;
+                        parse();
+                    }
+                }
+            }
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * Hands over the last decoded frames. A file that ends inside its sample data
+     * keeps the frames it had.
+     *
+     * @throws EOFException if the file ended before its sample data
+     */
+    public void finish() throws EOFException {
+        if (state != State.SAMPLES && state != State.DONE) {
+            throw new EOFException("Audio ends before its sample data");
+        }
+        flush();
+    }
+
+    /**
+     * @return true once the sample data has been reached
+     */
+    public boolean started() {
+        return state == State.SAMPLES || state == State.DONE;
+    }
+
+    /**
+     * @return true once the end of the sample data has been reached
+     */
+    public boolean done() {
+        return state == State.DONE;
+    }
+
+    /**
+     * @return frames per second, or 0 before the format is known
+     */
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return the number of frames decoded so far
+     */
+    public long frames() {
+        return frames;
+    }
+
+    private void parse() throws UnsupportedFormatException {
+        switch (state) {
+            case FILE_HEADER -> {
+                final String riff = fourCC(0);
+                final String type = fourCC(8);
+                if ("RIFF".equals(riff) && "WAVE".equals(type)) {
+                    aiff = false;
+                }
+                else if ("FORM".equals(riff) && ("AIFF".equals(type) || "AIFC".equals(type))) {
+                    aiff = true;
+                    aifc = "AIFC".equals(type);
+                }
+                else {
+                    throw new UnsupportedFormatException("Not a WAV or AIFF file");
+                }
+                need(8, State.CHUNK_HEADER);
+            }
+            case CHUNK_HEADER -> chunk(fourCC(0), aiff ? uint32BigEndian(4) : uint32LittleEndian(4));
+            case FORMAT -> {
+                if (aiff) {
+                    readComm();
+                }
+                else {
+                    readFmt();
+                }
+                checkChannels();
+                format = true;
+                skip(chunkSize - needed, State.CHUNK_HEADER);
+            }
+            case SOUND_HEADER -> {
+                final long offset = uint32BigEndian(0);
+                remaining = Math.max(0, chunkSize - 8 - offset);
+                start();
+                skip(offset, State.SAMPLES);
+            }
+            default -> throw new IllegalStateException(state.name());
+        }
+    }
+
+    private void chunk(final String id, final long size) throws UnsupportedFormatException {
+        final long padded = size + (size & 1);
+        if (aiff ? "COMM".equals(id) : "fmt ".equals(id)) {
+            if (size < (aiff ? 18 : 16)) {
+                throw new UnsupportedFormatException("Format chunk too short");
+            }
+            chunkSize = padded;
+            need((int) Math.min(size, MAX_HEADER), State.FORMAT);
+        }
+        else if (!aiff && "data".equals(id)) {
+            requireFormat();
+            // streamed files leave the size at 0 or its maximum; read those to the end
+            remaining = size == 0 || size == 0xFFFFFFFFL ? Long.MAX_VALUE : size;
+            start();
+            state = State.SAMPLES;
+        }
+        else if (aiff && "SSND".equals(id)) {
+            requireFormat();
+            chunkSize = size;
+            need(8, State.SOUND_HEADER);
+        }
+        else {
+            skip(padded, State.CHUNK_HEADER);
+        }
+    }
+
+    private void readFmt() throws UnsupportedFormatException {
+        int tag = uint16LittleEndian(0);
+        channels = uint16LittleEndian(2);
+        sampleRate = (int) uint32LittleEndian(4);
+        final int bits = uint16LittleEndian(14);
+        if (tag == WAVE_FORMAT_EXTENSIBLE && needed >= 26) {
+            // the sub-format GUID starts with the actual format tag
+            tag = uint16LittleEndian(24);
+        }
+        bytesPerSample = (bits + 7) / 8;
+        bigEndian = false;
+        unsigned8 = bytesPerSample == 1;
+        floating = tag == WAVE_FORMAT_IEEE_FLOAT;
+        if (!(tag == WAVE_FORMAT_PCM && bytesPerSample >= 1 && bytesPerSample <= 4
+                || floating && bytesPerSample == 4)) {
+            throw new UnsupportedFormatException("Unsupported WAV encoding " + tag + " with " + bits + " bits");
+        }
+    }
+
+    private void readComm() throws UnsupportedFormatException {
+        channels = uint16BigEndian(0);
+        final int bits = uint16BigEndian(6);
+        sampleRate = (int) Math.round(extended(8));
+        bytesPerSample = (bits + 7) / 8;
+        bigEndian = true;
+        unsigned8 = false;
+        floating = false;
+        if (aifc) {
+            if (needed < 22) {
+                throw new UnsupportedFormatException("AIFC format chunk too short");
+            }
+            final String compression = fourCC(18);
+            if ("sowt".equals(compression)) {
+                bigEndian = false;
+            }
+            else if (!"NONE".equals(compression)) {
+                throw new UnsupportedFormatException("Unsupported AIFC compression " + compression);
+            }
+        }
+        if (bytesPerSample < 1 || bytesPerSample > 4) {
+            throw new UnsupportedFormatException("Unsupported AIFF sample size " + bits);
+        }
+    }
+
+    private void checkChannels() throws UnsupportedFormatException {
+        if (channels < 1 || channels > 64) {
+            throw new UnsupportedFormatException("Unsupported channel count " + channels);
+        }
+        if (sampleRate <= 0) {
+            throw new UnsupportedFormatException("Unsupported sample rate " + sampleRate);
+        }
+    }
+
+    private void requireFormat() throws UnsupportedFormatException {
+        if (!format) {
+            throw new UnsupportedFormatException("Sample data before format");
+        }
+    }
+
+    private void start() {
+        frameSize = channels * bytesPerSample;
+        frame = new byte[frameSize];
+        block = new float[BLOCK_FRAMES * channels];
+        listener.format(sampleRate, channels);
+    }
+
+    private void need(final int n, final State next) {
+        needed = n;
+        state = next;
+    }
+
+    private void skip(final long n, final State next) {
+        // a skip is followed by a chunk header, or by sample data, which buffers nothing
+        needed = 8;
+        if (n <= 0) {
+            state = next;
+            return;
+        }
+        skip = n;
+        afterSkip = next;
+        state = State.SKIP;
+    }
+
+    /**
+     * Decodes sample data
+     *
+     * @return the number of bytes consumed
+     */
+    private int decode(final byte[] b, final int off, final int len) {
+        int consumed = 0;
+        while (consumed < len && remaining > 0) {
+            if (frameBytes == 0 && len - consumed >= frameSize && remaining >= frameSize) {
+                decodeFrame(b, off + consumed);
+                consumed += frameSize;
+                remaining -= frameSize;
+            }
+            else {
+                final int n = (int) Math.min(Math.min(frameSize - frameBytes, len - consumed), remaining);
+                System.arraycopy(b, off + consumed, frame, frameBytes, n);
+                frameBytes += n;
+                consumed += n;
+                remaining -= n;
+                if (frameBytes == frameSize) {
+                    decodeFrame(frame, 0);
+                    frameBytes = 0;
+                }
+            }
+        }
+        if (remaining == 0) {
+            // whatever follows the sample data is of no interest
+            flush();
+            state = State.DONE;
+            return len;
+        }
+        return consumed;
+    }
+
+    private void decodeFrame(final byte[] b, final int off) {
+        final int base = blockFrames * channels;
+        for (int channel = 0; channel < channels; channel++) {
+            block[base + channel] = sample(b, off + channel * bytesPerSample);
+        }
+        frames++;
+        if (++blockFrames == BLOCK_FRAMES) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        if (blockFrames > 0) {
+            listener.samples(block, blockFrames);
+            blockFrames = 0;
+        }
+    }
+
+    private float sample(final byte[] b, final int off) {
+        if (floating) {
+            return Float.intBitsToFloat((b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16
+                    | b[off + 3] << 24);
+        }
+        if (bytesPerSample == 1) {
+            return (unsigned8 ? (b[off] & 0xFF) - 128 : b[off]) * 0x1p-7f;
+        }
+        int value = 0;
+        for (int i = 0; i < bytesPerSample; i++) {
+            value = value << 8 | b[bigEndian ? off + i : off + bytesPerSample - 1 - i] & 0xFF;
+        }
+        // moves the sign bit of the sample to the top of the int
+        return (value << 32 - 8 * bytesPerSample) * 0x1p-31f;
+    }
+
+    private String fourCC(final int off) {
+        return new String(header, off, 4, StandardCharsets.US_ASCII);
+    }
+
+    private int uint16LittleEndian(final int off) {
+        return (header[off] & 0xFF) | (header[off + 1] & 0xFF) << 8;
+    }
+
+    private int uint16BigEndian(final int off) {
+        return (header[off] & 0xFF) << 8 | (header[off + 1] & 0xFF);
+    }
+
+    private long uint32LittleEndian(final int off) {
+        return Integer.toUnsignedLong(uint16LittleEndian(off) | uint16LittleEndian(off + 2) << 16);
+    }
+
+    private long uint32BigEndian(final int off) {
+        return Integer.toUnsignedLong(uint16BigEndian(off) << 16 | uint16BigEndian(off + 2));
+    }
+
+    /**
+     * Reads an 80-bit IEEE extended float, which AIFF uses for the sample rate
+     */
+    private double extended(final int off) {
+        final int exponent = uint16BigEndian(off) & 0x7FFF;
+        final long mantissa = uint32BigEndian(off + 2) << 32 | uint32BigEndian(off + 6);
+        return Math.scalb((double) (mantissa >>> 11), exponent - 16383 - 52);
+    }
+}
@@ -0,0 +1,158 @@
+package com.tunelar.backend.audio;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Renders the opening seconds of uncompressed audio as a light preview: mixed to
+ * mono, resampled down and written as 16-bit WAV. Reading stops as soon as the
+ * preview is long enough, so only the start of the original is ever read.
+ *
+ * Each output sample is the mean of the input it covers, which keeps most of the
+ * aliasing of a plain decimation out of the result at no cost worth mentioning.
+ */
+public final class PreviewRenderer implements PcmDecoder.Listener {
+
+    private static final int HEADER_SIZE = 44;
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int maxSampleRate;
+    private final int seconds;
+    private final ByteBuffer buffer = ByteBuffer.allocate(16 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+
+    private int channels;
+    private int sampleRate;
+    private long maxFrames;
+    private long frames;
+
+    /**
+     * Input frames per output frame, at least 1
+     */
+    private double step;
+    /**
+     * Position in the input where the output frame being summed ends
+     */
+    private double next;
+    private double position;
+    private double sum;
+
+    private PreviewRenderer(final FileChannel channel, final int maxSampleRate, final int seconds) {
+        this.channel = channel;
+        this.maxSampleRate = maxSampleRate;
+        this.seconds = seconds;
+    }
+
+    /**
+     * Renders the preview of a WAV or AIFF stream.
+     *
+     * @param in the audio, read only as far as the preview needs and not closed
+     * @param target the file to write, replaced if it exists
+     * @param maxSampleRate the highest sample rate of the preview; lower rates are kept
+     * @param seconds the longest the preview may last
+     * @return the size of the preview in bytes
+     * @throws PcmDecoder.UnsupportedFormatException if the audio is not uncompressed WAV or AIFF
+     * @throws IOException if reading or writing fails, or the audio ends before its sample data
+     */
+    public static long render(final InputStream in, final Path target, final int maxSampleRate, final int seconds)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final PreviewRenderer renderer = new PreviewRenderer(channel, maxSampleRate, seconds);
+            channel.position(HEADER_SIZE);
+            final PcmDecoder decoder = new PcmDecoder(renderer);
+            final byte[] bytes = new byte[READ_BUFFER_SIZE];
+            int n;
+            try {
+                while (!decoder.done() && !renderer.full() && (n = in.read(bytes)) >= 0) {
+                    decoder.write(bytes, 0, n);
+                }
+                decoder.finish();
+            }
+            catch (final UncheckedIOException e) {
+                throw e.getCause();
+            }
+            renderer.drain();
+            channel.write(renderer.header(), 0);
+            return channel.size();
+        }
+    }
+
+    @Override
+    public void format(final int sampleRate, final int channels) {
+        this.channels = channels;
+        this.sampleRate = Math.min(sampleRate, maxSampleRate);
+        this.maxFrames = (long) this.sampleRate * seconds;
+        this.step = (double) sampleRate / this.sampleRate;
+        this.next = step;
+    }
+
+    @Override
+    public void samples(final float[] samples, final int frames) {
+        for (int frame = 0; frame < frames && !full(); frame++) {
+            final int base = frame * channels;
+            float mono = 0;
+            for (int channel = 0; channel < channels; channel++) {
+                mono += samples[base + channel];
+            }
+            mono /= channels;
+
+            final double end = position + 1;
+            if (end < next) {
+                sum += mono;
+            }
+            else {
+                // the input frame straddles the end of the output frame
+                final double part = next - position;
+                emit((sum + mono * part) / step);
+                sum = mono * (1 - part);
+                next += step;
+            }
+            position = end;
+        }
+    }
+
+    private boolean full() {
+        return maxFrames > 0 && frames >= maxFrames;
+    }
+
+    private void emit(final double sample) {
+        final double clamped = Math.max(-1, Math.min(1, sample));
+        buffer.putShort((short) Math.round(clamped * Short.MAX_VALUE));
+        frames++;
+        if (!buffer.hasRemaining()) {
+            try {
+                drain();
+            }
+            catch (final IOException e) {
+                // the decoder calls this and cannot pass checked exceptions on
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private ByteBuffer header() {
+        final int data = (int) (frames * 2);
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(36 + data)
+                .put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16).putShort((short) 1)
+                .putShort((short) 1).putInt(sampleRate).putInt(sampleRate * 2).putShort((short) 2)
+                .putShort((short) 16).put("data".getBytes(StandardCharsets.US_ASCII)).putInt(data);
+        return header.flip();
+    }
+}
@@ -0,0 +1,143 @@
+package com.tunelar.backend.audio;
+
+/**
+ * Estimates the tempo of a stream of mono samples. Each hop the spectral flux of
+ * a short frame gives an onset strength; the strengths are autocorrelated over
+ * the lags of 60 to 200 BPM as they arrive, so only the last few seconds of them
+ * are kept. The strongest lag, weighted towards 120 BPM to settle on the beat
+ * rather than the bar or the half beat, is the tempo.
+ */
+final class TempoEstimator {
+
+    /**
+     * Samples per onset frame
+     */
+    static final int WINDOW = 1024;
+
+    /**
+     * Samples between onset frames
+     */
+    static final int HOP = 256;
+
+    private static final double MIN_BPM = 60;
+    private static final double MAX_BPM = 200;
+    private static final double PRIOR_BPM = 120;
+
+    /**
+     * Spread of the tempo prior, in octaves
+     */
+    private static final double PRIOR_OCTAVES = 1;
+
+    /**
+     * Least mean square onset strength of audio with a beat
+     */
+    private static final double MIN_ONSET_POWER = 1;
+
+    /**
+     * Weight of each new onset strength in the running mean subtracted from it
+     */
+    private static final double MEAN_WEIGHT = 0.05;
+
+    private final double frameRate;
+    private final int minLag;
+    private final int maxLag;
+    private final Fft fft = new Fft(WINDOW);
+    private final float[] spectrum = new float[WINDOW / 2 + 1];
+    private final float[] previous = new float[WINDOW / 2 + 1];
+    private final float[] onsets;
+    private final double[] correlation;
+    private double mean;
+    private long count;
+    private boolean primed;
+
+    /**
+     * @param sampleRate the rate of the samples
+     */
+    TempoEstimator(final int sampleRate) {
+        frameRate = (double) sampleRate / HOP;
+        minLag = Math.max(1, (int) Math.floor(frameRate * 60 / MAX_BPM));
+        // one lag beyond the range, so the peak can be interpolated at its edge
+        maxLag = (int) Math.ceil(frameRate * 60 / MIN_BPM) + 1;
+        onsets = new float[Integer.highestOneBit(maxLag) << 1];
+        correlation = new double[maxLag + 1];
+    }
+
+    /**
+     * Adds the frame ending at the newest sample of a ring buffer
+     *
+     * @param ring the samples
+     * @param end the number of samples written to the ring so far
+     */
+    void analyze(final float[] ring, final long end) {
+        fft.magnitudes(ring, end, spectrum);
+        double flux = 0;
+        for (int k = 0; k < spectrum.length; k++) {
+            final float level = (float) Math.log1p(spectrum[k]);
+            if (level > previous[k]) {
+                flux += level - previous[k];
+            }
+            previous[k] = level;
+        }
+        if (!primed) {
+            primed = true;
+            return;
+        }
+        mean += (flux - mean) * MEAN_WEIGHT;
+        final float onset = (float) Math.max(0, flux - mean);
+
+        final int mask = onsets.length - 1;
+        onsets[(int) (count & mask)] = onset;
+        correlation[0] += onset * onset;
+        final int lags = (int) Math.min(maxLag, count);
+        for (int lag = minLag; lag <= lags; lag++) {
+            correlation[lag] += onset * onsets[(int) ((count - lag) & mask)];
+        }
+        count++;
+    }
+
+    /**
+     * @return the tempo in beats per minute, or null if there is too little audio or no pulse
+     */
+    Integer bpm() {
+        // steady sound barely changes the spectrum; without onsets there is no beat
+        if (count < 4L * maxLag || correlation[0] / count < MIN_ONSET_POWER) {
+            return null;
+        }
+        int best = -1;
+        double bestScore = 0;
+        for (int lag = minLag; lag < maxLag; lag++) {
+            final double score = normalized(lag) * prior(lag);
+            if (score > bestScore) {
+                best = lag;
+                bestScore = score;
+            }
+        }
+        if (best < 0) {
+            return null;
+        }
+        double lag = best;
+        if (best > minLag) {
+            // parabolic interpolation between the neighbouring lags
+            final double left = normalized(best - 1);
+            final double centre = normalized(best);
+            final double right = normalized(best + 1);
+            final double curvature = left - 2 * centre + right;
+            if (curvature < 0) {
+                lag += 0.5 * (left - right) / curvature;
+            }
+        }
+        return (int) Math.round(60 * frameRate / lag);
+    }
+
+    /**
+     * Mean product of onset strengths a lag apart
+     */
+    private double normalized(final int lag) {
+        return correlation[lag] / (count - lag);
+    }
+
+    private double prior(final int lag) {
+        final double octaves = Math.log(60 * frameRate / lag / PRIOR_BPM) / Math.log(2) / PRIOR_OCTAVES;
+        return Math.exp(-0.5 * octaves * octaves);
+    }
+}
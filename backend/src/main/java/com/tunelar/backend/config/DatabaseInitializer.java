@@ -1,5 +1,10 @@
 package com.tunelar.backend.config;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.stereotype.Component;
 
@@ -7,39 +12,51 @@ import com.tunelar.backend.model.Role;
 import com.tunelar.backend.repository.RoleRepository;
 
 /**
- * Initializes the database with default roles.
+ * Initializes the database with default roles and loads them into the role registry.
  */
 @Component
 public class DatabaseInitializer implements CommandLineRunner {
 
     private RoleRepository roleRepository;
+    private RoleRegistry roleRegistry;
 
-    public DatabaseInitializer(RoleRepository roleRepository) {
+    public DatabaseInitializer(RoleRepository roleRepository, RoleRegistry roleRegistry) {
         this.roleRepository = roleRepository;
+        this.roleRegistry = roleRegistry;
     }
 
     @Override
     public void run(String... args) throws Exception {
-        // Initialize admin role
-        createRoleIfNotExists(Roles.ROLE_ADMIN);
-        
-        // Initialize other user roles
+        // Admin role plus all other user roles
+        final List<String> roleNames = new ArrayList<>();
+        roleNames.add(Roles.ROLE_ADMIN);
         for (Roles.UserRoles role : Roles.UserRoles.values()) {
-            createRoleIfNotExists(role.name());
+            roleNames.add(role.name());
         }
+
+        final List<Role> roles = new ArrayList<>(roleRepository.findAll());
+        roles.addAll(roleRepository.saveAll(missingRoles(roles, roleNames)));
+
+        roleRegistry.load(roles);
     }
-    
+
     /**
-     * Creates a role if it doesn't already exist
-     * 
-     * @param roleName the name of the role to create
+     * Creates the roles that don't already exist
+     *
+     * @param existing the roles already in the database
+     * @param roleNames the names of all roles
+     * @return new, unsaved roles for the missing names
      */
-    private void createRoleIfNotExists(String roleName) {
-        Role existingRole = roleRepository.findByName(roleName);
-        if (existingRole == null) {
-            Role role = new Role();
-            role.setName(roleName);
-            roleRepository.save(role);
+    private List<Role> missingRoles(List<Role> existing, List<String> roleNames) {
+        final Set<String> existingNames = existing.stream().map(Role::getName).collect(Collectors.toSet());
+        final List<Role> missing = new ArrayList<>();
+        for (String roleName : roleNames) {
+            if (!existingNames.contains(roleName)) {
+                Role role = new Role();
+                role.setName(roleName);
+                missing.add(role);
+            }
         }
+        return missing;
     }
-}
\ No newline at end of file
+}
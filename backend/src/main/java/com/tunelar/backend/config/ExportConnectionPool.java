@@ -0,0 +1,61 @@
+package com.tunelar.backend.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Small connection pool used only by bulk exports. Its connections add
+ * useCursorFetch=true to the application's datasource URL, so MySQL streams a
+ * result with a fetch size through a server-side cursor. The option makes every
+ * statement a server-side prepared statement, so it is kept off the main pool.
+ *
+ * The pool is not a DataSource bean: a second one would replace the auto-configured
+ * application datasource. Connections are opened on first use.
+ */
+@Component
+public class ExportConnectionPool implements DisposableBean {
+
+    private static final String CURSOR_FETCH = "useCursorFetch=true";
+
+    private final HikariDataSource dataSource;
+
+    public ExportConnectionPool(DataSourceProperties properties,
+                                @Value("${app.export.max-connections:2}") int maxConnections) {
+        this.dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .url(withCursorFetch(properties.determineUrl()))
+                .build();
+        dataSource.setPoolName("export");
+        dataSource.setMaximumPoolSize(maxConnections);
+        dataSource.setMinimumIdle(0);
+        dataSource.setReadOnly(true);
+    }
+
+    /**
+     * @return a read-only connection reading results through a server-side cursor;
+     *         the caller closes it
+     * @throws SQLException if no connection can be opened
+     */
+    public Connection getConnection() throws SQLException {
+        return dataSource.getConnection();
+    }
+
+    static String withCursorFetch(String url) {
+        if (url.contains(CURSOR_FETCH)) {
+            return url;
+        }
+        return url + (url.indexOf('?') < 0 ? "?" : "&") + CURSOR_FETCH;
+    }
+
+    @Override
+    public void destroy() {
+        dataSource.close();
+    }
+}
@@ -0,0 +1,43 @@
+package com.tunelar.backend.config;
+
+import java.util.Properties;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import javax.cache.spi.CachingProvider;
+
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.github.benmanes.caffeine.jcache.CacheManagerImpl;
+import com.github.benmanes.caffeine.jcache.configuration.TypesafeConfigurator;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+
+/**
+ * Provides the JCache manager behind Hibernate's second-level and query caches.
+ * The manager belongs to the application context rather than being the JVM-wide
+ * default, so it is closed with the context and never shared between contexts.
+ * Every region configured in application.conf is created up front, so each one
+ * reports metrics from startup.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    public CacheManager hibernateCacheManager() {
+        final CachingProvider provider = Caching.getCachingProvider(CaffeineCachingProvider.class.getName());
+        final CacheManager cacheManager = new CacheManagerImpl(provider, false, provider.getDefaultURI(),
+                provider.getDefaultClassLoader(), new Properties());
+        TypesafeConfigurator.cacheNames(TypesafeConfigurator.configSource()
+                .get(cacheManager.getURI(), cacheManager.getClassLoader()))
+                .forEach(cacheManager::getCache);
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(CacheManager hibernateCacheManager) {
+        return properties -> properties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+    }
+}
@@ -0,0 +1,134 @@
+package com.tunelar.backend.config;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounds JDBC access when requests run on virtual threads. Virtual threads are cheap
+ * enough that thousands can reach the connection pool at once. A fair semaphore sized
+ * to the pool makes them queue in arrival order, outside the pool, instead of all
+ * contending for the same few connections.
+ *
+ * Only active with spring.threads.virtual.enabled=true; with platform threads the
+ * Tomcat pool already bounds concurrency.
+ */
+@Component
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class JdbcConcurrencyLimiter implements BeanPostProcessor {
+
+    private final int permits;
+    private final long timeoutMillis;
+
+    public JdbcConcurrencyLimiter(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int permits,
+                                  @Value("${spring.datasource.hikari.connection-timeout:30000}") long timeoutMillis) {
+        this.permits = permits;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !(bean instanceof LimitedDataSource)) {
+            return new LimitedDataSource(dataSource, new Semaphore(permits, true), timeoutMillis);
+        }
+        return bean;
+    }
+
+    /**
+     * DataSource that holds a permit for as long as each connection it hands out is open.
+     */
+    static class LimitedDataSource extends DelegatingDataSource implements Closeable {
+
+        private final Semaphore semaphore;
+        private final long timeoutMillis;
+
+        LimitedDataSource(DataSource target, Semaphore semaphore, long timeoutMillis) {
+            super(target);
+            this.semaphore = semaphore;
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            acquire();
+            return limited(() -> super.getConnection());
+        }
+
+        @Override
+        public Connection getConnection(String username, String password) throws SQLException {
+            acquire();
+            return limited(() -> super.getConnection(username, password));
+        }
+
+        private void acquire() throws SQLException {
+            try {
+                if (!semaphore.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                    throw new SQLTransientConnectionException(
+                            "Timed out after " + timeoutMillis + "ms waiting for a JDBC permit");
+                }
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLTransientConnectionException("Interrupted waiting for a JDBC permit", e);
+            }
+        }
+
+        private interface ConnectionSupplier {
+            Connection get() throws SQLException;
+        }
+
+        /**
+         * Wraps a new connection so that closing it returns the permit exactly once.
+         */
+        private Connection limited(ConnectionSupplier supplier) throws SQLException {
+            final Connection connection;
+            try {
+                connection = supplier.get();
+            }
+            catch (SQLException | RuntimeException e) {
+                semaphore.release();
+                throw e;
+            }
+
+            final AtomicBoolean released = new AtomicBoolean();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { Connection.class },
+                    (proxy, method, args) -> {
+                        try {
+                            return method.invoke(connection, args);
+                        }
+                        catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                        finally {
+                            if ("close".equals(method.getName()) && released.compareAndSet(false, true)) {
+                                semaphore.release();
+                            }
+                        }
+                    });
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (getTargetDataSource() instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.tunelar.backend.config;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.Role;
+
+/**
+ * Immutable in-memory view of the roles table. Roles are a fixed set, so they are
+ * loaded once by {@link DatabaseInitializer} at startup and resolved from here
+ * without querying the database.
+ */
+@Component
+public class RoleRegistry {
+
+    /**
+     * Roles by name, replaced as a whole when loaded
+     */
+    private volatile Map<String, Role> roles = Map.of();
+
+    /**
+     * Replaces the registry contents with the given roles.
+     *
+     * @param loaded all persisted roles
+     */
+    void load(final Collection<Role> loaded) {
+        roles = Map.copyOf(loaded.stream().collect(Collectors.toMap(Role::getName, Function.identity())));
+    }
+
+    /**
+     * Finds a role by name.
+     *
+     * @param name the name of the role
+     * @return the role, or empty if no role has that name
+     */
+    public Optional<Role> find(final String name) {
+        return name == null ? Optional.empty() : Optional.ofNullable(roles.get(name));
+    }
+
+    /**
+     * Gets a role by name.
+     *
+     * @param name the name of the role
+     * @return the role with that name
+     * @throws TunelarAPIException if no role has that name
+     */
+    public Role get(final String name) {
+        return find(name).orElseThrow(
+                () -> new TunelarAPIException(HttpStatus.BAD_REQUEST, "Invalid role name: " + name));
+    }
+}
@@ -1,5 +1,6 @@
 package com.tunelar.backend.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -13,9 +14,12 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.tunelar.backend.security.AdmissionControlledPasswordEncoder;
 import com.tunelar.backend.security.JwtAuthenticationFilter;
 import com.tunelar.backend.security.JwtAuthenticationEntryPoint;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 @Configuration
 @EnableWebSecurity
 @EnableMethodSecurity
@@ -30,9 +34,22 @@ public class SecurityConfig {
         this.authenticationFilter = authenticationFilter;
     }
 
+    /**
+     * BCrypt encoder whose work runs on a dedicated pool of half the cores by default,
+     * so a burst of logins cannot occupy every core. Request threads waiting for a hash
+     * are bounded by the queue capacity plus the pool size.
+     */
     @Bean
-    public static PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public static PasswordEncoder passwordEncoder(@Value("${app.bcrypt.strength:10}") int strength,
+                                                  @Value("${app.auth.hash-threads:0}") int threads,
+                                                  @Value("${app.auth.hash-queue-capacity:64}") int queueCapacity,
+                                                  @Value("${app.auth.hash-timeout-ms:5000}") long timeoutMillis,
+                                                  @Value("${app.auth.retry-after-seconds:2}") long retryAfterSeconds,
+                                                  MeterRegistry meterRegistry) {
+        final int hashThreads = threads > 0 ? threads
+                : Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        return new AdmissionControlledPasswordEncoder(new BCryptPasswordEncoder(strength), hashThreads,
+                queueCapacity, timeoutMillis, retryAfterSeconds, meterRegistry);
     }
 
     @Bean
@@ -47,6 +64,8 @@ public class SecurityConfig {
             .authorizeHttpRequests(authorize -> 
                 authorize
                     .requestMatchers("/api/auth/**").permitAll()
+                    .requestMatchers("/actuator/health").permitAll()
+                    .requestMatchers("/actuator/**").hasRole("ADMIN")
                     .anyRequest().authenticated()
             )
             .exceptionHandling(exception -> 
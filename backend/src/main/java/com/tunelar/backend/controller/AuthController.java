@@ -11,6 +11,7 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -19,8 +20,10 @@ import com.tunelar.backend.dto.LoginDto;
 import com.tunelar.backend.dto.RegisterDto;
 import com.tunelar.backend.dto.RoleUpdateDto;
 import com.tunelar.backend.dto.UsernameUpdateDto;
+import com.tunelar.backend.security.LoginRateLimiter;
 import com.tunelar.backend.service.AuthService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.AllArgsConstructor;
 
 /**
@@ -38,16 +41,24 @@ public class AuthController {
      */
     private final AuthService authService;
     
+    /**
+     * Per-IP and per-account limits applied before any password hashing
+     */
+    private final LoginRateLimiter loginRateLimiter;
+    
     
     /**
      * Registers a new user with the system.
      * Creates a standard user account with default permissions.
      *
      * @param registerDto object containing registration information (username, email, password)
+     * @param request the HTTP request, used to rate limit by client address
      * @return response indicating success or failure of the registration
      */
     @PostMapping("/register")
-    public ResponseEntity<String> register(@RequestBody final RegisterDto registerDto) {
+    public ResponseEntity<String> register(@RequestBody final RegisterDto registerDto,
+            final HttpServletRequest request) {
+        loginRateLimiter.acquire(request.getRemoteAddr(), null);
         final String response = authService.register(registerDto);
         return new ResponseEntity<>(response, HttpStatus.CREATED);
     }
@@ -56,14 +67,31 @@ public class AuthController {
      * Authenticates a user and generates a JWT token.
      *
      * @param loginDto object containing login credentials (username and password)
+     * @param request the HTTP request, used to rate limit by client address
      * @return JWT token and user details upon successful authentication
      */
     @PostMapping("/login")
-    public ResponseEntity<JwtAuthResponse> login(@RequestBody final LoginDto loginDto) {
+    public ResponseEntity<JwtAuthResponse> login(@RequestBody final LoginDto loginDto,
+            final HttpServletRequest request) {
+        loginRateLimiter.acquire(request.getRemoteAddr(), loginDto.getUsernameOrEmail());
         final JwtAuthResponse jwtAuthResponse = authService.login(loginDto);
         return new ResponseEntity<>(jwtAuthResponse, HttpStatus.OK);
     }
     
+    /**
+     * Logs out the current token so it can no longer be used.
+     *
+     * @param authorization the Authorization header carrying the bearer token
+     * @return response indicating successful logout
+     */
+    @PostMapping("/logout")
+    public ResponseEntity<String> logout(@RequestHeader(value = "Authorization", required = false) final String authorization) {
+        final String token = authorization != null && authorization.startsWith("Bearer ")
+                ? authorization.substring(7) : null;
+        authService.logout(token);
+        return ResponseEntity.ok("Logged out successfully.");
+    }
+    
     /**
      * Deletes a user account from the system.
      * Requires ADMIN role.
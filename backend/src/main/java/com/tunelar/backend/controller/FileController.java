@@ -0,0 +1,181 @@
+package com.tunelar.backend.controller;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.tunelar.backend.service.FileService;
+import com.tunelar.backend.service.PreviewService;
+import com.tunelar.backend.storage.StoredFile;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+
+/**
+ * Controller serving the audio files of uploaded tracks, at the fileUrl of each
+ * track. Supports single byte ranges for scrubbing, and conditional requests
+ * against a strong ETag and the time the track last changed.
+ *
+ * Local files are handed to Tomcat's sendfile support where available, so the
+ * kernel copies them straight from the page cache to the socket. Otherwise, and for
+ * remote storage, the range is copied into the response through a buffer.
+ */
+@CrossOrigin("*")
+@RestController
+@RequestMapping("/api/files")
+@AllArgsConstructor
+public class FileController {
+
+    // request attributes of Tomcat's sendfile support; end is exclusive
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    /**
+     * Service resolving and sending files
+     */
+    private final FileService fileService;
+
+    /**
+     * Service rendering and caching previews
+     */
+    private final PreviewService previewService;
+
+    /**
+     * Streams the audio file of a track, or the byte range asked for in the
+     * Range header. Answers 304 when If-None-Match or If-Modified-Since show the
+     * client's copy is current, and 416 for a range outside the file.
+     *
+     * @param directory the directory from the track's fileUrl
+     * @param name the file name from the track's fileUrl
+     * @param request the request
+     * @param response the response the file is written to
+     * @throws IOException if the file cannot be sent
+     */
+    @GetMapping("/{directory:blobs|tracks}/{name}")
+    public void download(@PathVariable("directory") final String directory, @PathVariable("name") final String name,
+            final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        send(fileService.find("/api/files/" + directory + "/" + name), request, response);
+    }
+
+    /**
+     * Streams the preview of the audio file of a track: its opening seconds, mixed
+     * to mono and resampled down, rendered on first request. Compressed files are
+     * their own preview. Ranges and conditional requests work as for the file.
+     *
+     * @param directory the directory from the track's fileUrl
+     * @param name the file name from the track's fileUrl
+     * @param request the request
+     * @param response the response the preview is written to
+     * @throws IOException if the preview cannot be sent
+     */
+    @GetMapping("/previews/{directory:blobs|tracks}/{name}")
+    public void preview(@PathVariable("directory") final String directory, @PathVariable("name") final String name,
+            final HttpServletRequest request, final HttpServletResponse response) throws IOException {
+        final StoredFile original = fileService.find("/api/files/" + directory + "/" + name);
+        final StoredFile preview = previewService.find(original);
+        if (send(preview, request, response)) {
+            previewService.sent(original, preview);
+        }
+    }
+
+    /**
+     * Sends a file, or the part of it the request asks for.
+     *
+     * @return true if the whole file is sent with status 200, false for a HEAD
+     *         request, a range, or a not-modified or unsatisfiable request
+     */
+    private boolean send(final StoredFile file, final HttpServletRequest request, final HttpServletResponse response)
+            throws IOException {
+        if (new ServletWebRequest(request, response).checkNotModified(file.eTag(), file.lastModified())) {
+            return false;
+        }
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setContentType(file.contentType());
+        long start = 0;
+        long end = file.size() - 1;
+        final HttpRange range = range(request, file);
+        if (range != null) {
+            try {
+                start = range.getRangeStart(file.size());
+                end = range.getRangeEnd(file.size());
+            }
+            catch (IllegalArgumentException e) {
+                start = file.size();
+            }
+            if (start >= file.size()) {
+                response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + file.size());
+                return false;
+            }
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + file.size());
+        }
+        final long count = end - start + 1;
+        response.setContentLengthLong(count);
+        if ("HEAD".equals(request.getMethod()) || count <= 0) {
+            return false;
+        }
+
+        if (file.localPath() != null && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+            // Tomcat sends the file itself once this method returns
+            request.setAttribute(SENDFILE_FILENAME, file.localPath().toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end + 1);
+            return range == null;
+        }
+        fileService.transfer(file, start, count, response.getOutputStream());
+        return range == null;
+    }
+
+    /**
+     * Gets the single byte range to serve, or null to serve the whole file. Malformed
+     * and multi-range headers are ignored, as are ranges whose If-Range no longer
+     * matches the file.
+     */
+    private static HttpRange range(final HttpServletRequest request, final StoredFile file) {
+        final String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !ifRangeMatches(request.getHeader(HttpHeaders.IF_RANGE), file)) {
+            return null;
+        }
+        try {
+            final List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        }
+        catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean ifRangeMatches(final String ifRange, final StoredFile file) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(file.eTag());
+        }
+        try {
+            final long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant()
+                    .toEpochMilli();
+            return file.lastModified() / 1000 * 1000 <= date;
+        }
+        catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+}
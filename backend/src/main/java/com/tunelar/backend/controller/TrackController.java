@@ -0,0 +1,221 @@
+package com.tunelar.backend.controller;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.tunelar.backend.config.Roles;
+import com.tunelar.backend.dto.SimilarTrackDto;
+import com.tunelar.backend.dto.TrackChartDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackFilterDto;
+import com.tunelar.backend.dto.TrackPageDto;
+import com.tunelar.backend.dto.TrackSearchResultDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.security.UserPrincipal;
+import com.tunelar.backend.service.ExportService;
+import com.tunelar.backend.service.TrackService;
+import com.tunelar.backend.service.UploadService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AllArgsConstructor;
+
+/**
+ * Controller for browsing tracks in the Tunelar application.
+ * Provides cursor-paginated endpoints over the track catalog.
+ */
+@CrossOrigin("*")
+@RestController
+@RequestMapping("/api/tracks")
+@AllArgsConstructor
+public class TrackController {
+
+    /**
+     * Service handling track queries
+     */
+    private final TrackService trackService;
+
+    /**
+     * Service streaming bulk exports
+     */
+    private final ExportService exportService;
+
+    /**
+     * Service storing uploaded audio
+     */
+    private final UploadService uploadService;
+
+    /**
+     * Browses tracks newest first, filtered by any of userId, tags (all must match),
+     * bpmMin, bpmMax, key, durationMin, durationMax, maxBars and fileType.
+     * Pass the nextCursor of a page as the cursor parameter to get the following page.
+     * The first page also carries facet counts for the filter sidebar.
+     *
+     * @param filter the filter criteria, bound from query parameters
+     * @param cursor cursor from the previous page, omitted for the first page
+     * @param size maximum number of tracks on the page, at most 100
+     * @return a ResponseEntity containing the page of tracks
+     */
+    @GetMapping
+    public ResponseEntity<TrackPageDto> browse(final TrackFilterDto filter,
+            @RequestParam(name = "cursor", required = false) final String cursor,
+            @RequestParam(name = "size", defaultValue = "20") final int size) {
+        return ResponseEntity.ok(trackService.browse(filter, cursor, size));
+    }
+
+    /**
+     * Uploads a track. The request body is the raw audio file, not a multipart
+     * form, and is streamed into storage as it arrives; the track details are
+     * query parameters. The file type and size are taken from the audio.
+     * Clients may send the hex SHA-256 of the audio in an X-Content-Sha256 header;
+     * if that file is already stored, the audio is only checked against it.
+     *
+     * @param upload the track details, bound from query parameters
+     * @param contentDigest the declared SHA-256 of the audio, optional
+     * @param principal the uploading user
+     * @param request the request carrying the audio
+     * @return a ResponseEntity containing the created track
+     * @throws IOException if the request body cannot be opened
+     */
+    @PostMapping("/upload")
+    public ResponseEntity<TrackDto> upload(final TrackUploadDto upload,
+            @RequestHeader(name = "X-Content-Sha256", required = false) final String contentDigest,
+            @AuthenticationPrincipal final UserPrincipal principal, final HttpServletRequest request)
+            throws IOException {
+        final TrackDto track = uploadService.upload(principal.getId(), upload, request.getContentLengthLong(),
+                contentDigest, request.getInputStream());
+        return ResponseEntity.status(HttpStatus.CREATED).body(track);
+    }
+
+    /**
+     * Searches track titles, descriptions and tags, best match first.
+     * The last word of the query also matches as a prefix.
+     *
+     * @param query the search text
+     * @param page the page number, starting at 0
+     * @param size maximum number of tracks on the page, at most 100
+     * @return a ResponseEntity containing the page of matching tracks
+     */
+    @GetMapping("/search")
+    public ResponseEntity<TrackSearchResultDto> search(@RequestParam("q") final String query,
+            @RequestParam(name = "page", defaultValue = "0") final int page,
+            @RequestParam(name = "size", defaultValue = "20") final int size) {
+        return ResponseEntity.ok(trackService.search(query, page, size));
+    }
+
+    /**
+     * Gets the trending chart: tracks ranked by plays and downloads, with recent
+     * ones counting most. Pass a tag for the chart of that tag.
+     *
+     * @param tag the tag of the chart, omitted for the overall chart
+     * @param page the page number, starting at 0
+     * @param size maximum number of tracks on the page, at most 100
+     * @return a ResponseEntity containing the page of the chart
+     */
+    @GetMapping("/trending")
+    public ResponseEntity<TrackChartDto> trending(@RequestParam(name = "tag", required = false) final String tag,
+            @RequestParam(name = "page", defaultValue = "0") final int page,
+            @RequestParam(name = "size", defaultValue = "20") final int size) {
+        return ResponseEntity.ok(trackService.trending(tag, page, size));
+    }
+
+    /**
+     * Recommends tracks similar to a track: compatible key and tempo, including
+     * half and double time, ranked mostly by shared tags.
+     *
+     * @param id id of the track
+     * @param size maximum number of tracks to return, at most 100
+     * @return a ResponseEntity containing the similar tracks
+     */
+    @GetMapping("/{id}/similar")
+    public ResponseEntity<List<SimilarTrackDto>> similar(@PathVariable("id") final Long id,
+            @RequestParam(name = "size", defaultValue = "10") final int size) {
+        return ResponseEntity.ok(trackService.similar(id, size));
+    }
+
+    /**
+     * Counts a play of a track. Counts are written in batches, so the response
+     * does not wait for the database.
+     *
+     * @param id id of the track
+     * @return an empty ResponseEntity with status 202
+     */
+    @PostMapping("/{id}/play")
+    public ResponseEntity<Void> recordPlay(@PathVariable("id") final Long id) {
+        trackService.recordPlay(id);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Counts a download of a track. Counts are written in batches, so the response
+     * does not wait for the database.
+     *
+     * @param id id of the track
+     * @return an empty ResponseEntity with status 202
+     */
+    @PostMapping("/{id}/download")
+    public ResponseEntity<Void> recordDownload(@PathVariable("id") final Long id) {
+        trackService.recordDownload(id);
+        return ResponseEntity.accepted().build();
+    }
+
+    /**
+     * Deletes a track. Producers may delete their own tracks; ADMIN and MOD may
+     * delete any.
+     *
+     * @param id id of the track
+     * @param principal the deleting user
+     * @return an empty ResponseEntity
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> deleteTrack(@PathVariable("id") final Long id,
+            @AuthenticationPrincipal final UserPrincipal principal) {
+        final boolean moderator = principal.getAuthorities().stream().map(GrantedAuthority::getAuthority)
+                .anyMatch(role -> Roles.ROLE_ADMIN.equals(role) || Roles.UserRoles.ROLE_MOD.name().equals(role));
+        trackService.deleteTrack(id, principal.getId(), moderator);
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Rebuilds the in-memory track indexes from the database.
+     * Requires ADMIN role.
+     *
+     * @return a ResponseEntity containing the number of tracks indexed
+     */
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/index/rebuild")
+    public ResponseEntity<String> rebuildIndexes() {
+        final int tracks = trackService.rebuildIndexes();
+        return ResponseEntity.ok("Indexed " + tracks + " tracks");
+    }
+
+    /**
+     * Streams every track as NDJSON, one track per line, for moderation and
+     * admin tools. Memory use stays constant however large the catalog is.
+     * Accessible to ADMIN and MOD roles.
+     *
+     * @return a ResponseEntity streaming the tracks
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'MOD')")
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportTracks() {
+        final StreamingResponseBody body = exportService::exportTracks;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
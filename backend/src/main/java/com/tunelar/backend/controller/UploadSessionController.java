@@ -0,0 +1,116 @@
+package com.tunelar.backend.controller;
+
+import java.io.IOException;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.dto.UploadSessionCreateDto;
+import com.tunelar.backend.dto.UploadSessionDto;
+import com.tunelar.backend.security.UserPrincipal;
+import com.tunelar.backend.service.UploadSessionService;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.AllArgsConstructor;
+
+/**
+ * Controller for resumable uploads of files larger than a single upload allows.
+ * Open a session with the file size, PUT its chunks (in parallel if you like),
+ * GET the session after a failure to see which chunks to send again, then commit
+ * with the track details.
+ */
+@CrossOrigin("*")
+@RestController
+@RequestMapping("/api/uploads")
+@AllArgsConstructor
+public class UploadSessionController {
+
+    /**
+     * Service managing upload sessions
+     */
+    private final UploadSessionService uploadSessionService;
+
+    /**
+     * Opens an upload session
+     *
+     * @param create the size of the file, and optionally of its chunks
+     * @param principal the uploading user
+     * @return a ResponseEntity containing the new session
+     */
+    @PostMapping
+    public ResponseEntity<UploadSessionDto> create(@RequestBody final UploadSessionCreateDto create,
+            @AuthenticationPrincipal final UserPrincipal principal) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadSessionService.create(principal.getId(), create));
+    }
+
+    /**
+     * Gets an upload session, including the chunks received so far
+     *
+     * @param id the session id
+     * @param principal the uploading user
+     * @return a ResponseEntity containing the session
+     */
+    @GetMapping("/{id}")
+    public ResponseEntity<UploadSessionDto> get(@PathVariable("id") final String id,
+            @AuthenticationPrincipal final UserPrincipal principal) {
+        return ResponseEntity.ok(uploadSessionService.get(principal.getId(), id));
+    }
+
+    /**
+     * Uploads one chunk. The request body is the raw bytes of the chunk.
+     *
+     * @param id the session id
+     * @param index the chunk index, from 0
+     * @param principal the uploading user
+     * @param request the request carrying the chunk
+     * @return a ResponseEntity containing the session
+     * @throws IOException if the request body cannot be opened
+     */
+    @PutMapping("/{id}/chunks/{index}")
+    public ResponseEntity<UploadSessionDto> putChunk(@PathVariable("id") final String id,
+            @PathVariable("index") final int index, @AuthenticationPrincipal final UserPrincipal principal,
+            final HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(uploadSessionService.putChunk(principal.getId(), id, index,
+                request.getContentLengthLong(), request.getInputStream()));
+    }
+
+    /**
+     * Completes an upload session and creates the track
+     *
+     * @param id the session id
+     * @param upload the track details
+     * @param principal the uploading user
+     * @return a ResponseEntity containing the created track
+     */
+    @PostMapping("/{id}/commit")
+    public ResponseEntity<TrackDto> commit(@PathVariable("id") final String id,
+            @RequestBody final TrackUploadDto upload, @AuthenticationPrincipal final UserPrincipal principal) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(uploadSessionService.commit(principal.getId(), id, upload));
+    }
+
+    /**
+     * Abandons an upload session
+     *
+     * @param id the session id
+     * @param principal the uploading user
+     * @return an empty ResponseEntity
+     */
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> abort(@PathVariable("id") final String id,
+            @AuthenticationPrincipal final UserPrincipal principal) {
+        uploadSessionService.abort(principal.getId(), id);
+        return ResponseEntity.noContent().build();
+    }
+}
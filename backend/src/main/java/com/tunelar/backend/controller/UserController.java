@@ -2,6 +2,7 @@ package com.tunelar.backend.controller;
 
 import java.util.List;
 
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.CrossOrigin;
@@ -9,9 +10,12 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import com.tunelar.backend.model.User;
+import com.tunelar.backend.dto.UserDetailDto;
+import com.tunelar.backend.dto.UserSummaryDto;
 import com.tunelar.backend.service.AuthService;
+import com.tunelar.backend.service.ExportService;
 
 import lombok.AllArgsConstructor;
 
@@ -30,6 +34,11 @@ public class UserController {
      */
     private final AuthService authService;
     
+    /**
+     * Service streaming bulk exports
+     */
+    private final ExportService exportService;
+    
     /**
      * Retrieves a user by their ID.
      * Requires ADMIN role.
@@ -39,8 +48,8 @@ public class UserController {
      */
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/byId/{id}")
-    public ResponseEntity<User> getUserById(@PathVariable("id") final Long id) {
-        final User user = authService.getUserById(id);
+    public ResponseEntity<UserDetailDto> getUserById(@PathVariable("id") final Long id) {
+        final UserDetailDto user = authService.getUserById(id);
         return ResponseEntity.ok(user);
     }
     
@@ -53,8 +62,8 @@ public class UserController {
      */
     @PreAuthorize("hasRole('ADMIN')")
     @GetMapping("/byUsername/{username}")
-    public ResponseEntity<User> getUserByUsername(@PathVariable("username") final String username) {
-        final User user = authService.getUserByUsername(username);
+    public ResponseEntity<UserDetailDto> getUserByUsername(@PathVariable("username") final String username) {
+        final UserDetailDto user = authService.getUserByUsername(username);
         return ResponseEntity.ok(user);
     }
     
@@ -68,8 +77,7 @@ public class UserController {
     @PreAuthorize("hasAnyRole('ADMIN', 'MOD', 'PROD')")
     @GetMapping("/id/{username}")
     public ResponseEntity<Long> getUserIDByUsername(@PathVariable("username") final String username) {
-        final User user = authService.getUserByUsername(username);
-        return ResponseEntity.ok(user.getId());
+        return ResponseEntity.ok(authService.getUserIdByUsername(username));
     }
     
     /**
@@ -80,8 +88,23 @@ public class UserController {
      */
     @PreAuthorize("hasAnyRole('ADMIN', 'MOD')")
     @GetMapping("/all")
-    public ResponseEntity<List<User>> getAllUsers() {
-        final List<User> users = authService.getAllUsers();
+    public ResponseEntity<List<UserSummaryDto>> getAllUsers() {
+        final List<UserSummaryDto> users = authService.getAllUsers();
         return ResponseEntity.ok(users);
     }
-}
\ No newline at end of file
+    
+    /**
+     * Streams a summary of every user as NDJSON, one user per line.
+     * Selected by requesting application/x-ndjson from the same path as the list;
+     * memory use stays constant however many users there are.
+     * Accessible to ADMIN and MOD roles.
+     *
+     * @return a ResponseEntity streaming the users
+     */
+    @PreAuthorize("hasAnyRole('ADMIN', 'MOD')")
+    @GetMapping(value = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportAllUsers() {
+        final StreamingResponseBody body = exportService::exportUsers;
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
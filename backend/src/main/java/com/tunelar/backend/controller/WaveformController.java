@@ -0,0 +1,77 @@
+package com.tunelar.backend.controller;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.tunelar.backend.service.WaveformService;
+import com.tunelar.backend.waveform.WaveformSlice;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.AllArgsConstructor;
+
+/**
+ * Controller serving waveform peaks, at the waveformUrl of each track. The body is
+ * the raw min/max pairs of the requested buckets as little-endian int16, ready to
+ * view as an Int16Array; the headers describe them.
+ */
+@CrossOrigin("*")
+@RestController
+@RequestMapping("/api/waveforms")
+@AllArgsConstructor
+public class WaveformController {
+
+    /**
+     * Service reading the peaks files
+     */
+    private final WaveformService waveformService;
+
+    /**
+     * Gets a run of buckets at one zoom level. Level 0 is the finest; each level
+     * above merges 4 buckets of the one below. The response carries
+     * X-Waveform-Sample-Rate, X-Waveform-Levels, X-Waveform-Samples-Per-Bucket,
+     * X-Waveform-Buckets (at the level) and X-Waveform-Offset.
+     *
+     * @param name the file name from the track's waveformUrl
+     * @param level the zoom level
+     * @param offset the first bucket
+     * @param count the most buckets to return, all remaining ones by default
+     * @param response the response the peaks are written to
+     * @throws IOException if the peaks cannot be sent
+     */
+    @GetMapping("/{name}")
+    public void peaks(@PathVariable("name") final String name,
+            @RequestParam(name = "level", defaultValue = "0") final int level,
+            @RequestParam(name = "offset", defaultValue = "0") final int offset,
+            @RequestParam(name = "count", defaultValue = "" + Integer.MAX_VALUE) final int count,
+            final HttpServletResponse response) throws IOException {
+        final WaveformSlice slice = waveformService.slice(name, level, offset, count);
+
+        response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+        // peaks files never change once written
+        response.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(365, TimeUnit.DAYS).cachePrivate().immutable().getHeaderValue());
+        response.setHeader("X-Waveform-Sample-Rate", Integer.toString(slice.sampleRate()));
+        response.setHeader("X-Waveform-Levels", Integer.toString(slice.levels()));
+        response.setHeader("X-Waveform-Samples-Per-Bucket", Integer.toString(slice.samplesPerBucket()));
+        response.setHeader("X-Waveform-Buckets", Integer.toString(slice.buckets()));
+        response.setHeader("X-Waveform-Offset", Integer.toString(slice.offset()));
+        response.setContentLength(slice.data().remaining());
+
+        final WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+        while (slice.data().hasRemaining()) {
+            out.write(slice.data());
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.tunelar.backend.counter;
+
+/**
+ * A per-track event count kept by {@link TrackCounterBuffer}.
+ */
+public enum TrackCounter {
+    PLAYS,
+    DOWNLOADS
+}
@@ -0,0 +1,280 @@
+package com.tunelar.backend.counter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Buffers play and download increments in memory and writes them to the tracks
+ * table in batches. Incrementing a row per event would serialize every play of a
+ * popular track on that row's lock; here an event only touches memory, and each
+ * track costs one UPDATE per flush however many events it received.
+ *
+ * Increments are striped the way LongAdder stripes its cells: each one goes to a
+ * randomly chosen stripe and moves on to another if that one is locked, so
+ * concurrent plays of the same track rarely wait on each other. The choice does
+ * not depend on the thread, since with virtual threads every request runs on a
+ * new one. A flush swaps out
+ * every stripe, sums the deltas per track and applies them in one transaction,
+ * in id order so concurrent flushes from several instances cannot deadlock. If
+ * the write fails the deltas go back into the buffer for the next flush. Once they
+ * commit they are handed to every {@link TrackCountsListener}, so consumers such as
+ * the trending charts get one update per track per flush, off the request path.
+ *
+ * Deltas not yet flushed are lost if the process dies without shutting down.
+ * While a flush is committing, a read can briefly count its deltas twice.
+ */
+@Component
+public class TrackCounterBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(TrackCounterBuffer.class);
+
+    private static final String UPDATE = "UPDATE tracks SET plays = plays + ?, downloads = downloads + ? WHERE id = ?";
+
+    /**
+     * Unflushed deltas of the increments that landed on it, by track id. Each value is
+     * indexed by {@link TrackCounter#ordinal()}.
+     */
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private Map<Long, long[]> deltas = new HashMap<>();
+    }
+
+    private final Stripe[] stripes;
+
+    /**
+     * Deltas taken out of the stripes by the running flush, until it commits
+     */
+    private volatile Map<Long, TrackCounts> flushing = Map.of();
+
+    /**
+     * Held for the whole of a flush, so scheduled and shutdown flushes never overlap
+     */
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectProvider<TrackCountsListener> listeners;
+
+    /**
+     * Tracks updated per JDBC batch
+     */
+    private final int batchSize;
+
+    public TrackCounterBuffer(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                              @Value("${app.counters.batch-size:500}") int batchSize,
+                              ObjectProvider<TrackCountsListener> listeners,
+                              MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.listeners = listeners;
+        this.batchSize = batchSize;
+        // at least twice the core count, so concurrent increments rarely pick the same stripe
+        this.stripes = new Stripe[Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1)];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+        Gauge.builder("tracks.counters.pending", this, TrackCounterBuffer::pendingTracks)
+                .description("Tracks with increments waiting to be flushed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts one event for a track.
+     *
+     * @param counter the counter to increment
+     * @param trackId the track id
+     */
+    public void increment(final TrackCounter counter, final Long trackId) {
+        final Stripe stripe = lockStripe();
+        try {
+            stripe.deltas.computeIfAbsent(trackId, id -> new long[TrackCounter.values().length])[counter.ordinal()]++;
+        }
+        finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the increments of the given tracks that are not in the database yet.
+     *
+     * @param trackIds the track ids
+     * @return the unflushed deltas by track id; tracks without any are left out
+     */
+    public Map<Long, TrackCounts> pending(final Collection<Long> trackIds) {
+        final Map<Long, TrackCounts> pending = new HashMap<>();
+        final Map<Long, TrackCounts> inFlight = flushing;
+        for (final Long trackId : trackIds) {
+            final TrackCounts counts = inFlight.get(trackId);
+            if (counts != null) {
+                pending.put(trackId, counts);
+            }
+        }
+        for (final Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                if (stripe.deltas.isEmpty()) {
+                    continue;
+                }
+                for (final Long trackId : trackIds) {
+                    final long[] delta = stripe.deltas.get(trackId);
+                    if (delta != null) {
+                        pending.merge(trackId, counts(delta), TrackCounts::plus);
+                    }
+                }
+            }
+            finally {
+                stripe.lock.unlock();
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Writes all buffered increments to the database.
+     *
+     * @return the number of tracks written
+     */
+    @Scheduled(fixedDelayString = "${app.counters.flush-interval-ms:5000}")
+    public int flush() {
+        flushLock.lock();
+        try {
+            final Map<Long, TrackCounts> deltas = drain();
+            if (deltas.isEmpty()) {
+                return 0;
+            }
+            flushing = deltas;
+            try {
+                transactionTemplate.executeWithoutResult(status -> write(deltas));
+            }
+            catch (RuntimeException e) {
+                log.warn("Failed to flush counters of {} tracks, retrying on the next flush", deltas.size(), e);
+                restore(deltas);
+                return 0;
+            }
+            finally {
+                flushing = Map.of();
+            }
+            final Map<Long, TrackCounts> flushed = Collections.unmodifiableMap(deltas);
+            listeners.orderedStream().forEach(listener -> listener.onFlushed(flushed));
+            return deltas.size();
+        }
+        finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Swaps out every stripe and sums the deltas per track
+     *
+     * @return the deltas in track id order
+     */
+    private Map<Long, TrackCounts> drain() {
+        final Map<Long, TrackCounts> deltas = new TreeMap<>();
+        for (final Stripe stripe : stripes) {
+            final Map<Long, long[]> taken;
+            stripe.lock.lock();
+            try {
+                if (stripe.deltas.isEmpty()) {
+                    continue;
+                }
+                taken = stripe.deltas;
+                stripe.deltas = new HashMap<>();
+            }
+            finally {
+                stripe.lock.unlock();
+            }
+            taken.forEach((trackId, delta) -> deltas.merge(trackId, counts(delta), TrackCounts::plus));
+        }
+        return deltas;
+    }
+
+    private void write(final Map<Long, TrackCounts> deltas) {
+        final List<Object[]> rows = new ArrayList<>(deltas.size());
+        deltas.forEach((trackId, counts) -> rows.add(new Object[] { counts.plays(), counts.downloads(), trackId }));
+        // a track deleted since its events were counted matches no row, which is fine
+        for (int from = 0; from < rows.size(); from += batchSize) {
+            jdbcTemplate.batchUpdate(UPDATE, rows.subList(from, Math.min(from + batchSize, rows.size())));
+        }
+    }
+
+    /**
+     * Puts deltas that could not be written back into the buffer
+     */
+    private void restore(final Map<Long, TrackCounts> deltas) {
+        final Stripe stripe = lockStripe();
+        try {
+            deltas.forEach((trackId, counts) -> {
+                final long[] delta = stripe.deltas.computeIfAbsent(trackId,
+                        id -> new long[TrackCounter.values().length]);
+                delta[TrackCounter.PLAYS.ordinal()] += counts.plays();
+                delta[TrackCounter.DOWNLOADS.ordinal()] += counts.downloads();
+            });
+        }
+        finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private int pendingTracks() {
+        int tracks = 0;
+        for (final Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                tracks += stripe.deltas.size();
+            }
+            finally {
+                stripe.lock.unlock();
+            }
+        }
+        return tracks;
+    }
+
+    /**
+     * Locks a random stripe, trying others while the chosen one is held. After one
+     * try per stripe it waits for the last one chosen.
+     *
+     * @return the locked stripe
+     */
+    private Stripe lockStripe() {
+        final ThreadLocalRandom random = ThreadLocalRandom.current();
+        Stripe stripe = stripes[random.nextInt(stripes.length)];
+        for (int attempt = 1; !stripe.lock.tryLock(); attempt++) {
+            if (attempt == stripes.length) {
+                stripe.lock.lock();
+                break;
+            }
+            stripe = stripes[random.nextInt(stripes.length)];
+        }
+        return stripe;
+    }
+
+    private static TrackCounts counts(final long[] delta) {
+        return new TrackCounts(delta[TrackCounter.PLAYS.ordinal()], delta[TrackCounter.DOWNLOADS.ordinal()]);
+    }
+}
@@ -0,0 +1,13 @@
+package com.tunelar.backend.counter;
+
+/**
+ * Play and download counts of a track, or increments to them.
+ */
+public record TrackCounts(long plays, long downloads) {
+
+    public static final TrackCounts ZERO = new TrackCounts(0L, 0L);
+
+    public TrackCounts plus(final TrackCounts other) {
+        return new TrackCounts(plays + other.plays, downloads + other.downloads);
+    }
+}
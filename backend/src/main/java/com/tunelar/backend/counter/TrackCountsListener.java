@@ -0,0 +1,16 @@
+package com.tunelar.backend.counter;
+
+import java.util.Map;
+
+/**
+ * Receives the increments written by each successful {@link TrackCounterBuffer} flush.
+ */
+public interface TrackCountsListener {
+
+    /**
+     * Called on the flushing thread once the increments are committed.
+     *
+     * @param deltas the increments per track id, in id order
+     */
+    void onFlushed(Map<Long, TrackCounts> deltas);
+}
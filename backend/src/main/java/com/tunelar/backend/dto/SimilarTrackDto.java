@@ -0,0 +1,64 @@
+package com.tunelar.backend.dto;
+
+import java.util.List;
+
+import com.tunelar.backend.index.SimilarityIndex;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A track recommended as similar to another one.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimilarTrackDto {
+    /**
+     * the track id
+     */
+    private Long id;
+    /**
+     * the track title
+     */
+    private String title;
+    /**
+     * id of the uploading user
+     */
+    private Long userId;
+    /**
+     * tempo in beats per minute
+     */
+    private Integer bpm;
+    /**
+     * musical key
+     */
+    private String key;
+    /**
+     * duration in seconds
+     */
+    private Integer duration;
+    /**
+     * names of the track's tags
+     */
+    private List<String> tags;
+    /**
+     * how similar the track is, higher is more similar
+     */
+    private double score;
+
+    /**
+     * Creates the dto for the given neighbour
+     *
+     * @param neighbour the similar track
+     * @return the dto
+     */
+    public static SimilarTrackDto from(final SimilarityIndex.Neighbour neighbour) {
+        return new SimilarTrackDto(neighbour.track().id(), neighbour.track().title(), neighbour.track().userId(),
+                neighbour.track().bpm(), neighbour.track().key(), neighbour.track().duration(),
+                neighbour.track().tags().stream().sorted().toList(), neighbour.score());
+    }
+}
@@ -0,0 +1,34 @@
+package com.tunelar.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One page of a trending chart, highest score first.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackChartDto {
+    /**
+     * the tag of the chart, or null for the overall chart
+     */
+    private String tag;
+    /**
+     * the tracks on this page
+     */
+    private List<TrackDto> tracks;
+    /**
+     * the number of tracks on the chart
+     */
+    private int total;
+    /**
+     * the page number, starting at 0
+     */
+    private int page;
+}
@@ -0,0 +1,121 @@
+package com.tunelar.backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.model.Tag;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A track as returned by the browse and search endpoints.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackDto {
+    /**
+     * the track id
+     */
+    private Long id;
+    /**
+     * the track title
+     */
+    private String title;
+    /**
+     * the track description
+     */
+    private String description;
+    /**
+     * location of the audio file
+     */
+    private String fileUrl;
+    /**
+     * location of a short, light rendition of the audio for previews
+     */
+    private String previewUrl;
+    /**
+     * location of the waveform image
+     */
+    private String waveformUrl;
+    /**
+     * size of the audio file in bytes
+     */
+    private Long fileSize;
+    /**
+     * duration in seconds
+     */
+    private Integer duration;
+    /**
+     * audio file type
+     */
+    private String fileType;
+    /**
+     * tempo in beats per minute
+     */
+    private Integer bpm;
+    /**
+     * musical key
+     */
+    private String key;
+    /**
+     * integrated loudness in LUFS, measured from the audio
+     */
+    private Double loudness;
+    /**
+     * when the track was uploaded
+     */
+    private LocalDateTime createdAt;
+    /**
+     * id of the uploading user
+     */
+    private Long userId;
+    /**
+     * username of the uploading user
+     */
+    private String username;
+    /**
+     * names of the track's tags
+     */
+    private List<String> tags;
+    /**
+     * number of times the track was played
+     */
+    private Long plays;
+    /**
+     * number of times the track was downloaded
+     */
+    private Long downloads;
+
+    /**
+     * Creates the dto for the given track, with its persisted play and download counts
+     *
+     * @param track the track
+     * @return the dto
+     */
+    public static TrackDto from(final Track track) {
+        return new TrackDto(track.getId(), track.getTitle(), track.getDescription(), track.getFileUrl(),
+                previewUrl(track.getFileUrl()), track.getWaveformUrl(), track.getFileSize(), track.getDuration(), track.getFileType(),
+                track.getBpm(), track.getKey(), track.getLoudness(), track.getCreatedAt(), track.getUser().getId(),
+                track.getUser().getUsername(), track.getTags().stream().map(Tag::getName).sorted().toList(),
+                track.getPlays(), track.getDownloads());
+    }
+
+    /**
+     * Gets the URL the preview of a file is served at
+     *
+     * @param fileUrl the file URL of a track
+     * @return the preview URL, or null if the file is not served by this application
+     */
+    private static String previewUrl(final String fileUrl) {
+        final String prefix = "/api/files/";
+        return fileUrl != null && fileUrl.startsWith(prefix)
+                ? prefix + "previews/" + fileUrl.substring(prefix.length())
+                : null;
+    }
+}
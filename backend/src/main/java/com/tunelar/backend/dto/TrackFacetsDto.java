@@ -0,0 +1,34 @@
+package com.tunelar.backend.dto;
+
+import java.util.Map;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Number of tracks matching the browse filter for each value of the filterable fields.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackFacetsDto {
+    /**
+     * track count per musical key
+     */
+    private Map<String, Integer> keys;
+    /**
+     * track count per tempo range, such as "90-94", in ascending order
+     */
+    private Map<String, Integer> bpm;
+    /**
+     * track count per tag name
+     */
+    private Map<String, Integer> tags;
+    /**
+     * track count per audio file type
+     */
+    private Map<String, Integer> fileTypes;
+}
@@ -0,0 +1,59 @@
+package com.tunelar.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Criteria for browsing tracks. Every field is optional and unset fields do not
+ * filter; set fields must all match.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackFilterDto {
+    /**
+     * only tracks uploaded by this user
+     */
+    private Long userId;
+    /**
+     * only tracks carrying all of these tag names
+     */
+    private List<String> tags;
+    /**
+     * only tracks carrying none of these tag names
+     */
+    private List<String> excludeTags;
+    /**
+     * lowest tempo, inclusive
+     */
+    private Integer bpmMin;
+    /**
+     * highest tempo, inclusive
+     */
+    private Integer bpmMax;
+    /**
+     * musical key, case-insensitive
+     */
+    private String key;
+    /**
+     * shortest duration in seconds, inclusive
+     */
+    private Integer durationMin;
+    /**
+     * longest duration in seconds, inclusive
+     */
+    private Integer durationMax;
+    /**
+     * longest length in bars of 4/4 at the track's tempo, inclusive
+     */
+    private Integer maxBars;
+    /**
+     * audio file type, case-insensitive
+     */
+    private String fileType;
+}
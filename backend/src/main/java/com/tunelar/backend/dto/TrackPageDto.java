@@ -0,0 +1,31 @@
+package com.tunelar.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One page of tracks, with the cursor for the next page.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackPageDto {
+    /**
+     * the tracks on this page
+     */
+    private List<TrackDto> tracks;
+    /**
+     * opaque cursor to pass back for the next page, null on the last page
+     */
+    private String nextCursor;
+    /**
+     * facet counts of every track matching the filter, included on the first page only,
+     * and left out while the in-memory indexes are still being built at startup
+     */
+    private TrackFacetsDto facets;
+}
@@ -0,0 +1,30 @@
+package com.tunelar.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One page of track search results, best match first.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackSearchResultDto {
+    /**
+     * the tracks on this page
+     */
+    private List<TrackDto> tracks;
+    /**
+     * the total number of matching tracks
+     */
+    private int total;
+    /**
+     * the page number, starting at 0
+     */
+    private int page;
+}
@@ -0,0 +1,43 @@
+package com.tunelar.backend.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Details of an uploaded track, sent alongside the audio. The file type and size
+ * come from the audio itself.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrackUploadDto {
+    /**
+     * the track title, required
+     */
+    private String title;
+    /**
+     * the track description
+     */
+    private String description;
+    /**
+     * tempo in beats per minute; estimated from WAV and AIFF audio when missing
+     */
+    private Integer bpm;
+    /**
+     * musical key; estimated from WAV and AIFF audio when missing
+     */
+    private String key;
+    /**
+     * duration in seconds; required unless the file is a WAV or AIFF, whose duration is measured
+     */
+    private Integer duration;
+    /**
+     * names of the track's tags
+     */
+    private List<String> tags;
+}
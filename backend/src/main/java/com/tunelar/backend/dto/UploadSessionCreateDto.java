@@ -0,0 +1,24 @@
+package com.tunelar.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Opens a resumable upload session for a file sent in chunks.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionCreateDto {
+    /**
+     * total size of the file in bytes, required
+     */
+    private Long size;
+    /**
+     * size of every chunk but the last in bytes; the server default when omitted
+     */
+    private Integer chunkSize;
+}
@@ -0,0 +1,44 @@
+package com.tunelar.backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * State of a resumable upload session. Chunk i covers the bytes from
+ * i * chunkSize up to the next chunk or the end of the file.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDto {
+    /**
+     * the session id
+     */
+    private String id;
+    /**
+     * total size of the file in bytes
+     */
+    private long size;
+    /**
+     * size of every chunk but the last in bytes
+     */
+    private int chunkSize;
+    /**
+     * number of chunks in the file
+     */
+    private int chunks;
+    /**
+     * indexes of the chunks received so far, ascending
+     */
+    private List<Integer> received;
+    /**
+     * when the session expires unless more chunks arrive
+     */
+    private LocalDateTime expiresAt;
+}
@@ -0,0 +1,66 @@
+package com.tunelar.backend.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.tunelar.backend.model.Role;
+import com.tunelar.backend.model.User;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A user's profile as shown to admins. Never includes the password hash.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserDetailDto {
+    /**
+     * the user id
+     */
+    private Long id;
+    /**
+     * the username
+     */
+    private String username;
+    /**
+     * the email address
+     */
+    private String email;
+    /**
+     * location of the profile picture
+     */
+    private String profilePicture;
+    /**
+     * the user's bio
+     */
+    private String bio;
+    /**
+     * when the user registered
+     */
+    private LocalDateTime createdAt;
+    /**
+     * names of the user's roles
+     */
+    private List<String> roles;
+    /**
+     * number of tracks the user has uploaded
+     */
+    private Long trackCount;
+
+    /**
+     * Creates the dto for the given user
+     *
+     * @param user the user, with its roles loaded
+     * @param trackCount number of tracks the user has uploaded
+     * @return the dto
+     */
+    public static UserDetailDto from(final User user, final long trackCount) {
+        return new UserDetailDto(user.getId(), user.getUsername(), user.getEmail(), user.getProfilePicture(),
+                user.getBio(), user.getCreatedAt(), user.getRoles().stream().map(Role::getName).toList(), trackCount);
+    }
+}
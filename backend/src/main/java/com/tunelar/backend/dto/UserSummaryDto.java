@@ -0,0 +1,33 @@
+package com.tunelar.backend.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * A row of the user list, selected directly by the query rather than mapped from
+ * the user entity.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserSummaryDto {
+    /**
+     * the user id
+     */
+    private Long id;
+    /**
+     * the username
+     */
+    private String username;
+    /**
+     * name of the user's role
+     */
+    private String role;
+    /**
+     * number of tracks the user has uploaded
+     */
+    private Long trackCount;
+}
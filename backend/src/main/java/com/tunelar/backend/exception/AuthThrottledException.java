@@ -0,0 +1,34 @@
+package com.tunelar.backend.exception;
+
+import org.springframework.http.HttpStatus;
+
+import lombok.Getter;
+
+/**
+ * Exception when an authentication request is turned away to protect the server,
+ * either because a rate limit was hit or because password hashing is saturated.
+ */
+@Getter
+public class AuthThrottledException extends TunelarAPIException {
+    /**
+     * the serial version UID
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * seconds the client should wait before retrying
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor with status, message, and retry delay.
+     *
+     * @param status the HTTP status, 429 or 503
+     * @param message the error message
+     * @param retryAfterSeconds seconds the client should wait before retrying
+     */
+    public AuthThrottledException(HttpStatus status, String message, long retryAfterSeconds) {
+        super(status, message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
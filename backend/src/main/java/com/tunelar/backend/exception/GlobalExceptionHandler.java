@@ -2,7 +2,7 @@ package com.tunelar.backend.exception;
 
 import java.time.LocalDateTime;
 
-import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -28,6 +28,26 @@ public class GlobalExceptionHandler {
         final ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(), exception.getMessage(),
                 webRequest.getDescription(false));
 
-        return new ResponseEntity<>(errorDetails, HttpStatus.BAD_REQUEST);
+        return new ResponseEntity<>(errorDetails, exception.getStatus());
+    }
+
+    /**
+     * Handles throttled authentication requests, telling the client when to retry
+     *
+     * @param exception
+     *            the exception to handle
+     * @param webRequest
+     *            the web request to handle
+     * @return a response with the error details and a Retry-After header
+     */
+    @ExceptionHandler(value = AuthThrottledException.class)
+    public ResponseEntity<ErrorDetails> handleAuthThrottledException(final AuthThrottledException exception,
+            final WebRequest webRequest) {
+        final ErrorDetails errorDetails = new ErrorDetails(LocalDateTime.now(), exception.getMessage(),
+                webRequest.getDescription(false));
+
+        return ResponseEntity.status(exception.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(exception.getRetryAfterSeconds()))
+                .body(errorDetails);
     }
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package com.tunelar.backend.index;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A musical key parsed from the free-text key of a track, such as "A minor",
+ * "F# maj" or "Bbm".
+ *
+ * @param pitchClass the tonic, 0 for C up to 11 for B
+ * @param minor true for a minor key
+ */
+record MusicalKey(int pitchClass, boolean minor) {
+
+    private static final Pattern KEY = Pattern.compile(
+            "\\s*([A-Ga-g])\\s*([#♯b♭]?)\\s*(major|maj|minor|min|m)?\\s*", Pattern.CASE_INSENSITIVE);
+
+    /**
+     * Pitch classes of the natural notes A to G
+     */
+    private static final int[] NATURALS = { 9, 11, 0, 2, 4, 5, 7 };
+
+    /**
+     * Parses a key.
+     *
+     * @param key the key text, may be null
+     * @return the key, or null if the text is not a recognizable key
+     */
+    static MusicalKey parse(final String key) {
+        if (key == null) {
+            return null;
+        }
+        final Matcher matcher = KEY.matcher(key);
+        if (!matcher.matches()) {
+            return null;
+        }
+        int pitchClass = NATURALS[Character.toUpperCase(matcher.group(1).charAt(0)) - 'A'];
+        switch (matcher.group(2)) {
+            case "#", "♯" -> pitchClass += 1;
+            case "b", "♭" -> pitchClass += 11;
+            default -> { }
+        }
+        final String mode = matcher.group(3);
+        // a bare "m" means minor; "M" alone is unusual enough to read as major too
+        final boolean minor = mode != null && (mode.equals("m") || mode.toLowerCase(Locale.ROOT).startsWith("min"));
+        return new MusicalKey(pitchClass % 12, minor);
+    }
+
+    /**
+     * Position on the circle of fifths, 0 to 11, shared by a major key and its
+     * relative minor. Keys one step apart sound good mixed together; this is the
+     * number of the Camelot wheel minus one.
+     *
+     * @return the position
+     */
+    int wheel() {
+        final int major = minor ? (pitchClass + 3) % 12 : pitchClass;
+        return (major * 7 + 7) % 12;
+    }
+}
@@ -0,0 +1,306 @@
+package com.tunelar.backend.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * "More like this" over the musical features of tracks. Tracks are bucketed by
+ * position on the circle of fifths and mode, and within a bucket ordered by tempo
+ * folded into one octave, so half- and double-time tracks sit together. Candidates
+ * for a track come from its own key, its relative key and the keys a fifth above
+ * and below, within a tempo tolerance; they are ranked mostly by tag overlap.
+ *
+ * Tracks without a recognizable key or a tempo are not candidates and get no
+ * recommendations. Neighbours are served from the snapshots held here, without a
+ * database query.
+ */
+@Component
+public class SimilarityIndex implements TrackIndex {
+
+    /**
+     * Folded tempos lie in [MIN_TEMPO, 2 * MIN_TEMPO)
+     */
+    static final double MIN_TEMPO = 70d;
+
+    /**
+     * Largest relative tempo difference between similar tracks
+     */
+    static final double TEMPO_TOLERANCE = 0.04;
+
+    private static final double TAG_WEIGHT = 2d;
+    private static final double SAME_KEY = 1d;
+    private static final double RELATIVE_KEY = 0.8;
+    private static final double NEIGHBOUR_KEY = 0.6;
+    private static final double TEMPO_WEIGHT = 0.5;
+    private static final double DURATION_WEIGHT = 0.5;
+
+    /**
+     * A similar track and how similar it is.
+     *
+     * @param track the track
+     * @param score the similarity, higher is more similar
+     */
+    public record Neighbour(TrackSnapshot track, double score) {
+    }
+
+    private static final Comparator<Neighbour> BY_SCORE = Comparator.comparingDouble(Neighbour::score)
+            .thenComparingLong(neighbour -> -neighbour.track().id());
+
+    /**
+     * A track with its features precomputed
+     */
+    private record Features(TrackSnapshot track, MusicalKey key, double tempo, Set<String> tags) {
+
+        static Features of(final TrackSnapshot track) {
+            final MusicalKey key = MusicalKey.parse(track.key());
+            final double tempo = track.bpm() == null || track.bpm() <= 0 ? Double.NaN : fold(track.bpm());
+            final Set<String> tags = new HashSet<>();
+            for (final String tag : track.tags()) {
+                tags.add(tag.trim().toLowerCase(Locale.ROOT));
+            }
+            return new Features(track, key, tempo, tags);
+        }
+
+        boolean bucketed() {
+            return key != null && !Double.isNaN(tempo);
+        }
+
+        int bucket() {
+            return bucketOf(key.wheel(), key.minor());
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, Features> tracks = new HashMap<>();
+
+    /**
+     * Track ids by key bucket, then by folded tempo
+     */
+    private Map<Integer, TreeMap<Double, Set<Long>>> buckets = new HashMap<>();
+
+    @Override
+    public void index(final TrackSnapshot track) {
+        final Features features = Features.of(track);
+        lock.writeLock().lock();
+        try {
+            removeLocked(track.id());
+            add(tracks, buckets, features);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final Long trackId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(trackId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(final Collection<TrackSnapshot> snapshots) {
+        final Map<Long, Features> newTracks = new HashMap<>();
+        final Map<Integer, TreeMap<Double, Set<Long>>> newBuckets = new HashMap<>();
+        for (final TrackSnapshot track : snapshots) {
+            add(newTracks, newBuckets, Features.of(track));
+        }
+        lock.writeLock().lock();
+        try {
+            tracks = newTracks;
+            buckets = newBuckets;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tells whether a track is indexed.
+     *
+     * @param trackId the track id
+     * @return true if the track is indexed
+     */
+    public boolean contains(final Long trackId) {
+        lock.readLock().lock();
+        try {
+            return tracks.containsKey(trackId);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the tracks most similar to a track.
+     *
+     * @param trackId the track id
+     * @param limit the maximum number of tracks to return
+     * @return the similar tracks, most similar first; empty if the track is unknown
+     *         or has no key or tempo
+     */
+    public List<Neighbour> similar(final Long trackId, final int limit) {
+        lock.readLock().lock();
+        try {
+            final Features target = tracks.get(trackId);
+            if (target == null || !target.bucketed() || limit <= 0) {
+                return List.of();
+            }
+            final PriorityQueue<Neighbour> heap = new PriorityQueue<>(limit + 1, BY_SCORE);
+            final int wheel = target.key().wheel();
+            final boolean minor = target.key().minor();
+            collect(heap, limit, target, bucketOf(wheel, minor), SAME_KEY);
+            collect(heap, limit, target, bucketOf(wheel, !minor), RELATIVE_KEY);
+            collect(heap, limit, target, bucketOf((wheel + 1) % 12, minor), NEIGHBOUR_KEY);
+            collect(heap, limit, target, bucketOf((wheel + 11) % 12, minor), NEIGHBOUR_KEY);
+
+            final List<Neighbour> ranked = new ArrayList<>(heap);
+            ranked.sort(Collections.reverseOrder(BY_SCORE));
+            return ranked;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Scores the tracks of one key bucket within the tempo tolerance of the target.
+     * Folded tempos wrap around at the octave, so a window crossing either end
+     * continues from the other.
+     */
+    private void collect(final PriorityQueue<Neighbour> heap, final int limit, final Features target,
+            final int bucket, final double keyScore) {
+        final TreeMap<Double, Set<Long>> byTempo = buckets.get(bucket);
+        if (byTempo == null) {
+            return;
+        }
+        final double low = target.tempo() * (1 - TEMPO_TOLERANCE);
+        final double high = target.tempo() * (1 + TEMPO_TOLERANCE);
+        collect(heap, limit, target, byTempo.subMap(low, true, high, true), keyScore);
+        if (low < MIN_TEMPO) {
+            collect(heap, limit, target, byTempo.tailMap(low * 2, true), keyScore);
+        }
+        if (high >= 2 * MIN_TEMPO) {
+            collect(heap, limit, target, byTempo.headMap(high / 2, true), keyScore);
+        }
+    }
+
+    private void collect(final PriorityQueue<Neighbour> heap, final int limit, final Features target,
+            final Map<Double, Set<Long>> window, final double keyScore) {
+        for (final Set<Long> ids : window.values()) {
+            for (final Long id : ids) {
+                if (id.equals(target.track().id())) {
+                    continue;
+                }
+                final Features candidate = tracks.get(id);
+                heap.add(new Neighbour(candidate.track(), score(target, candidate, keyScore)));
+                if (heap.size() > limit) {
+                    heap.poll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Similarity of two tracks: tag overlap counts most, then key compatibility,
+     * then how close tempo and length are.
+     */
+    private static double score(final Features target, final Features candidate, final double keyScore) {
+        final double tempoDistance = tempoDistance(target.tempo(), candidate.tempo());
+        final double tempoScore = Math.max(0d, 1d - tempoDistance / TEMPO_TOLERANCE);
+
+        final int targetDuration = target.track().duration() == null ? 0 : target.track().duration();
+        final int candidateDuration = candidate.track().duration() == null ? 0 : candidate.track().duration();
+        final int longer = Math.max(targetDuration, candidateDuration);
+        final double durationScore = longer == 0 ? 0d : (double) Math.min(targetDuration, candidateDuration) / longer;
+
+        return TAG_WEIGHT * jaccard(target.tags(), candidate.tags()) + keyScore
+                + TEMPO_WEIGHT * tempoScore + DURATION_WEIGHT * durationScore;
+    }
+
+    /**
+     * Relative distance between two folded tempos, the shorter way around the octave
+     */
+    private static double tempoDistance(final double a, final double b) {
+        final double high = Math.max(a, b);
+        final double low = Math.min(a, b);
+        return Math.min(high / low, low * 2 / high) - 1;
+    }
+
+    private static double jaccard(final Set<String> a, final Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0d;
+        }
+        final Set<String> smaller = a.size() <= b.size() ? a : b;
+        final Set<String> larger = smaller == a ? b : a;
+        int shared = 0;
+        for (final String tag : smaller) {
+            if (larger.contains(tag)) {
+                shared++;
+            }
+        }
+        return (double) shared / (a.size() + b.size() - shared);
+    }
+
+    /**
+     * Folds a tempo into [MIN_TEMPO, 2 * MIN_TEMPO) by halving or doubling
+     */
+    static double fold(final double bpm) {
+        double tempo = bpm;
+        while (tempo >= 2 * MIN_TEMPO) {
+            tempo /= 2;
+        }
+        while (tempo < MIN_TEMPO) {
+            tempo *= 2;
+        }
+        return tempo;
+    }
+
+    private static int bucketOf(final int wheel, final boolean minor) {
+        return wheel * 2 + (minor ? 1 : 0);
+    }
+
+    private static void add(final Map<Long, Features> tracks, final Map<Integer, TreeMap<Double, Set<Long>>> buckets,
+            final Features features) {
+        tracks.put(features.track().id(), features);
+        if (features.bucketed()) {
+            buckets.computeIfAbsent(features.bucket(), b -> new TreeMap<>())
+                    .computeIfAbsent(features.tempo(), t -> new HashSet<>())
+                    .add(features.track().id());
+        }
+    }
+
+    private void removeLocked(final Long trackId) {
+        final Features features = tracks.remove(trackId);
+        if (features == null || !features.bucketed()) {
+            return;
+        }
+        final TreeMap<Double, Set<Long>> byTempo = buckets.get(features.bucket());
+        final Set<Long> ids = byTempo.get(features.tempo());
+        ids.remove(trackId);
+        if (ids.isEmpty()) {
+            byTempo.remove(features.tempo());
+            if (byTempo.isEmpty()) {
+                buckets.remove(features.bucket());
+            }
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.tunelar.backend.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Tag membership as compressed bitmaps: for each tag, the set of track ids carrying
+ * it. Tag combinations such as "loop AND drum AND NOT beat" become bitmap
+ * intersections and differences instead of loading each track's tag collection.
+ *
+ * Tags are matched case-insensitively. Track ids are stored as ints, which covers
+ * the first two billion tracks.
+ */
+@Component
+public class TagBitmapIndex implements TrackIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * folded tag name -> ids of the tracks carrying it
+     */
+    private Map<String, RoaringBitmap> tagTracks = new HashMap<>();
+
+    /**
+     * track id -> its folded tag names, to find the bitmaps to clear when it changes
+     */
+    private Map<Integer, Set<String>> trackTags = new HashMap<>();
+
+    /**
+     * every indexed track, the starting point for queries with only excluded tags
+     */
+    private RoaringBitmap allTracks = new RoaringBitmap();
+
+    @Override
+    public void index(final TrackSnapshot track) {
+        final int trackId = Math.toIntExact(track.id());
+        final Set<String> tags = fold(track.tags());
+        lock.writeLock().lock();
+        try {
+            removeLocked(trackId);
+            add(tagTracks, trackTags, allTracks, trackId, tags);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final Long trackId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(Math.toIntExact(trackId));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(final Collection<TrackSnapshot> tracks) {
+        final Map<String, RoaringBitmap> newTagTracks = new HashMap<>();
+        final Map<Integer, Set<String>> newTrackTags = new HashMap<>();
+        final RoaringBitmap newAllTracks = new RoaringBitmap();
+        for (final TrackSnapshot track : tracks) {
+            add(newTagTracks, newTrackTags, newAllTracks, Math.toIntExact(track.id()), fold(track.tags()));
+        }
+        newTagTracks.values().forEach(RoaringBitmap::runOptimize);
+        newAllTracks.runOptimize();
+
+        lock.writeLock().lock();
+        try {
+            tagTracks = newTagTracks;
+            trackTags = newTrackTags;
+            allTracks = newAllTracks;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the tracks carrying every tag in one list and none in the other.
+     *
+     * @param allOf tags a track must carry; if empty, every track qualifies
+     * @param noneOf tags a track must not carry
+     * @return the matching track ids, owned by the caller
+     */
+    public RoaringBitmap matching(final Collection<String> allOf, final Collection<String> noneOf) {
+        final Set<String> required = fold(allOf);
+        final Set<String> excluded = fold(noneOf);
+        lock.readLock().lock();
+        try {
+            final RoaringBitmap result;
+            if (required.isEmpty()) {
+                result = allTracks.clone();
+            }
+            else {
+                final List<RoaringBitmap> bitmaps = new ArrayList<>(required.size());
+                for (final String tag : required) {
+                    final RoaringBitmap tracks = tagTracks.get(tag);
+                    if (tracks == null) {
+                        return new RoaringBitmap();
+                    }
+                    bitmaps.add(tracks);
+                }
+                // and() never returns one of its arguments, so the result is safe to modify
+                result = bitmaps.size() == 1 ? bitmaps.get(0).clone()
+                        : FastAggregation.and(bitmaps.iterator());
+            }
+            for (final String tag : excluded) {
+                final RoaringBitmap tracks = tagTracks.get(tag);
+                if (tracks != null) {
+                    result.andNot(tracks);
+                }
+            }
+            return result;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Tells whether a track carries a tag.
+     *
+     * @param trackId the track id
+     * @param tag the tag name
+     * @return true if the track is indexed with the tag
+     */
+    public boolean hasTag(final Long trackId, final String tag) {
+        lock.readLock().lock();
+        try {
+            final RoaringBitmap tracks = tagTracks.get(tag.trim().toLowerCase(Locale.ROOT));
+            return tracks != null && indexable(trackId) && tracks.contains(trackId.intValue());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean indexable(final Long trackId) {
+        return trackId != null && trackId >= 0 && trackId <= Integer.MAX_VALUE;
+    }
+
+    private void removeLocked(final int trackId) {
+        final Set<String> tags = trackTags.remove(trackId);
+        if (tags == null) {
+            return;
+        }
+        for (final String tag : tags) {
+            final RoaringBitmap tracks = tagTracks.get(tag);
+            tracks.remove(trackId);
+            if (tracks.isEmpty()) {
+                tagTracks.remove(tag);
+            }
+        }
+        allTracks.remove(trackId);
+    }
+
+    private static void add(final Map<String, RoaringBitmap> tagTracks, final Map<Integer, Set<String>> trackTags,
+                            final RoaringBitmap allTracks, final int trackId, final Set<String> tags) {
+        for (final String tag : tags) {
+            tagTracks.computeIfAbsent(tag, t -> new RoaringBitmap()).add(trackId);
+        }
+        trackTags.put(trackId, tags);
+        allTracks.add(trackId);
+    }
+
+    private static Set<String> fold(final Collection<String> tags) {
+        if (tags == null) {
+            return Set.of();
+        }
+        return tags.stream().filter(tag -> tag != null && !tag.isBlank())
+                .map(tag -> tag.trim().toLowerCase(Locale.ROOT)).collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,41 @@
+package com.tunelar.backend.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into search terms: accents are stripped, case is folded and any run
+ * of characters other than letters and digits separates terms, so "Café-Beats 2"
+ * becomes [cafe, beats, 2].
+ */
+final class Tokenizer {
+
+    /**
+     * Longer terms are truncated; nobody types more than this into a search box
+     */
+    static final int MAX_TERM_LENGTH = 32;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private Tokenizer() {
+    }
+
+    static List<String> tokenize(final String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        final String folded = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        final List<String> terms = new ArrayList<>();
+        for (final String term : SEPARATORS.split(folded)) {
+            if (!term.isEmpty()) {
+                terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+            }
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,10 @@
+package com.tunelar.backend.index;
+
+/**
+ * Published when a track row or its tags are written, or the track is deleted.
+ * Whether it still exists is found out when it is reloaded after commit.
+ *
+ * @param trackId the track id
+ */
+public record TrackChangedEvent(Long trackId) {
+}
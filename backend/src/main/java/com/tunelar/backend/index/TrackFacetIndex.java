@@ -0,0 +1,348 @@
+package com.tunelar.backend.index;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+/**
+ * Facet counts for the browse sidebar: tracks per musical key, per tempo range, per
+ * tag and per file type. Each facet value and each filterable value keeps a bitmap
+ * of its tracks, adjusted as each track changes, so reading counts never touches the
+ * database. Catalog-wide counts are the bitmap cardinalities, kept until the next
+ * change. For a filtered browse the bitmaps of the filter values are intersected into
+ * a selection, and each facet value is counted by its intersection with it.
+ */
+@Component
+public class TrackFacetIndex implements TrackIndex {
+
+    /**
+     * Width of each tempo range; 90-94, 95-99 and so on
+     */
+    static final int BPM_BUCKET_WIDTH = 5;
+
+    /**
+     * Seconds in one bar of 4/4 at 1 BPM, as in {@code TrackSpecifications}
+     */
+    private static final int SECONDS_PER_BAR_AT_ONE_BPM = 240;
+
+    /**
+     * Facet counts at one point in time. Maps iterate in display order.
+     *
+     * @param keys track count per musical key
+     * @param bpm track count per tempo range, ascending
+     * @param tags track count per tag name
+     * @param fileTypes track count per file type
+     */
+    public record Counts(Map<String, Integer> keys, Map<String, Integer> bpm, Map<String, Integer> tags,
+            Map<String, Integer> fileTypes) {
+    }
+
+    /**
+     * Browse criteria other than tags, with the meaning of the matching
+     * {@code TrackSpecifications}. Null fields do not filter.
+     *
+     * @param userId only tracks uploaded by this user
+     * @param bpmMin lowest tempo, inclusive
+     * @param bpmMax highest tempo, inclusive
+     * @param key musical key, case-insensitive
+     * @param durationMin shortest duration in seconds, inclusive
+     * @param durationMax longest duration in seconds, inclusive
+     * @param maxBars longest length in bars of 4/4, inclusive
+     * @param fileType file type, case-insensitive
+     */
+    public record Filter(Long userId, Integer bpmMin, Integer bpmMax, String key, Integer durationMin,
+            Integer durationMax, Integer maxBars, String fileType) {
+
+        /**
+         * @return true if no field filters
+         */
+        public boolean isEmpty() {
+            return userId == null && bpmMin == null && bpmMax == null && isBlank(key) && durationMin == null
+                    && durationMax == null && maxBars == null && isBlank(fileType);
+        }
+
+        private static boolean isBlank(final String value) {
+            return value == null || value.isBlank();
+        }
+    }
+
+    /**
+     * The facet and filter values of one track, kept so it can be unlinked when it changes
+     *
+     * @param length duration times tempo, compared against a bar limit; null unless both are known
+     */
+    private record Values(Long userId, String key, Integer bpm, Integer bpmBucket, Integer duration, Long length,
+            String fileType, List<String> tags) {
+
+        static Values of(final TrackSnapshot track) {
+            final String key = track.key() == null || track.key().isBlank() ? null : track.key().trim();
+            final Integer bpmBucket = track.bpm() == null ? null
+                    : Math.floorDiv(track.bpm(), BPM_BUCKET_WIDTH) * BPM_BUCKET_WIDTH;
+            final Long length = track.bpm() == null || track.duration() == null ? null
+                    : (long) track.duration() * track.bpm();
+            return new Values(track.userId(), key, track.bpm(), bpmBucket, track.duration(), length,
+                    track.fileType(), List.copyOf(track.tags()));
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<Long, Values> tracks = new HashMap<>();
+    private Map<Long, RoaringBitmap> userTracks = new HashMap<>();
+    private NavigableMap<String, RoaringBitmap> keyTracks = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private NavigableMap<Integer, RoaringBitmap> bpmBucketTracks = new TreeMap<>();
+    private NavigableMap<String, RoaringBitmap> tagTracks = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private NavigableMap<String, RoaringBitmap> fileTypeTracks = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+    private NavigableMap<Integer, RoaringBitmap> bpmTracks = new TreeMap<>();
+    private NavigableMap<Integer, RoaringBitmap> durationTracks = new TreeMap<>();
+    private NavigableMap<Long, RoaringBitmap> lengthTracks = new TreeMap<>();
+
+    /**
+     * Copy handed to readers, cleared by every change
+     */
+    private volatile Counts counts;
+
+    @Override
+    public void index(final TrackSnapshot track) {
+        final Values values = Values.of(track);
+        final int trackId = Math.toIntExact(track.id());
+        lock.writeLock().lock();
+        try {
+            unlink(trackId, tracks.put(track.id(), values));
+            link(trackId, values);
+            counts = null;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final Long trackId) {
+        lock.writeLock().lock();
+        try {
+            unlink(Math.toIntExact(trackId), tracks.remove(trackId));
+            counts = null;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(final Collection<TrackSnapshot> snapshots) {
+        lock.writeLock().lock();
+        try {
+            tracks = new HashMap<>();
+            userTracks = new HashMap<>();
+            keyTracks = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            bpmBucketTracks = new TreeMap<>();
+            tagTracks = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            fileTypeTracks = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            bpmTracks = new TreeMap<>();
+            durationTracks = new TreeMap<>();
+            lengthTracks = new TreeMap<>();
+            for (final TrackSnapshot track : snapshots) {
+                final Values values = Values.of(track);
+                tracks.put(track.id(), values);
+                link(Math.toIntExact(track.id()), values);
+            }
+            for (final Map<?, RoaringBitmap> bitmaps : List.of(userTracks, keyTracks, bpmBucketTracks, tagTracks,
+                    fileTypeTracks, bpmTracks, durationTracks, lengthTracks)) {
+                bitmaps.values().forEach(RoaringBitmap::runOptimize);
+            }
+            counts = null;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Tells whether a track is indexed, which is the case for every committed track
+     * once the first rebuild has finished.
+     *
+     * @param trackId the track id
+     * @return true if the track is indexed
+     */
+    public boolean contains(final Long trackId) {
+        lock.readLock().lock();
+        try {
+            return tracks.containsKey(trackId);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return the current facet counts
+     */
+    public Counts counts() {
+        final Counts current = counts;
+        if (current != null) {
+            return current;
+        }
+        lock.readLock().lock();
+        try {
+            final Counts computed = tally(null);
+            // a writer clears the field while holding the write lock, so this cannot hide a newer change
+            counts = computed;
+            return computed;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Counts the facets of the tracks matching a browse filter.
+     *
+     * @param filter the criteria other than tags
+     * @param candidates the tracks passing the tag criteria, or null if there are none
+     * @return the facet counts of the matching tracks
+     */
+    public Counts counts(final Filter filter, final RoaringBitmap candidates) {
+        if (filter.isEmpty() && candidates == null) {
+            return counts();
+        }
+        lock.readLock().lock();
+        try {
+            return tally(select(filter, candidates));
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Intersects the candidates with the bitmaps of every filtering field. Must be
+     * called under the read lock; the result may be one of the index's own bitmaps,
+     * so it must not be modified.
+     */
+    private RoaringBitmap select(final Filter filter, final RoaringBitmap candidates) {
+        RoaringBitmap selection = candidates;
+        if (filter.userId() != null) {
+            selection = narrow(selection, userTracks.get(filter.userId()));
+        }
+        if (filter.bpmMin() != null || filter.bpmMax() != null) {
+            selection = narrow(selection, union(bpmTracks, filter.bpmMin(), filter.bpmMax()));
+        }
+        if (!Filter.isBlank(filter.key())) {
+            selection = narrow(selection, keyTracks.get(filter.key().trim()));
+        }
+        if (filter.durationMin() != null || filter.durationMax() != null) {
+            selection = narrow(selection, union(durationTracks, filter.durationMin(), filter.durationMax()));
+        }
+        if (filter.maxBars() != null) {
+            final long longest = (long) filter.maxBars() * SECONDS_PER_BAR_AT_ONE_BPM;
+            selection = narrow(selection, FastAggregation.or(lengthTracks.headMap(longest, true).values().iterator()));
+        }
+        if (!Filter.isBlank(filter.fileType())) {
+            selection = narrow(selection, fileTypeTracks.get(filter.fileType().trim()));
+        }
+        return selection;
+    }
+
+    private static RoaringBitmap narrow(final RoaringBitmap selection, final RoaringBitmap matching) {
+        if (matching == null) {
+            return new RoaringBitmap();
+        }
+        return selection == null ? matching : RoaringBitmap.and(selection, matching);
+    }
+
+    private static RoaringBitmap union(final NavigableMap<Integer, RoaringBitmap> bitmaps, final Integer min,
+                                       final Integer max) {
+        final int from = min == null ? Integer.MIN_VALUE : min;
+        final int to = max == null ? Integer.MAX_VALUE : max;
+        if (from > to) {
+            return new RoaringBitmap();
+        }
+        return FastAggregation.or(bitmaps.subMap(from, true, to, true).values().iterator());
+    }
+
+    /**
+     * Counts each facet value's tracks within a selection, or all of them if it is
+     * null. Must be called under the read lock.
+     */
+    private Counts tally(final RoaringBitmap selection) {
+        return new Counts(count(keyTracks, selection), ranges(count(bpmBucketTracks, selection)),
+                count(tagTracks, selection), count(fileTypeTracks, selection));
+    }
+
+    private static <K> Map<K, Integer> count(final Map<K, RoaringBitmap> bitmaps, final RoaringBitmap selection) {
+        final Map<K, Integer> counts = new LinkedHashMap<>();
+        bitmaps.forEach((value, tracks) -> {
+            final int count = selection == null ? tracks.getCardinality()
+                    : RoaringBitmap.andCardinality(selection, tracks);
+            if (count > 0) {
+                counts.put(value, count);
+            }
+        });
+        return Collections.unmodifiableMap(counts);
+    }
+
+    private void link(final int trackId, final Values values) {
+        link(userTracks, values.userId(), trackId);
+        link(keyTracks, values.key(), trackId);
+        link(bpmBucketTracks, values.bpmBucket(), trackId);
+        link(fileTypeTracks, values.fileType(), trackId);
+        link(bpmTracks, values.bpm(), trackId);
+        link(durationTracks, values.duration(), trackId);
+        link(lengthTracks, values.length(), trackId);
+        for (final String tag : values.tags()) {
+            link(tagTracks, tag, trackId);
+        }
+    }
+
+    private void unlink(final int trackId, final Values values) {
+        if (values == null) {
+            return;
+        }
+        unlink(userTracks, values.userId(), trackId);
+        unlink(keyTracks, values.key(), trackId);
+        unlink(bpmBucketTracks, values.bpmBucket(), trackId);
+        unlink(fileTypeTracks, values.fileType(), trackId);
+        unlink(bpmTracks, values.bpm(), trackId);
+        unlink(durationTracks, values.duration(), trackId);
+        unlink(lengthTracks, values.length(), trackId);
+        for (final String tag : values.tags()) {
+            unlink(tagTracks, tag, trackId);
+        }
+    }
+
+    private static <K> void link(final Map<K, RoaringBitmap> bitmaps, final K value, final int trackId) {
+        if (value != null) {
+            bitmaps.computeIfAbsent(value, absent -> new RoaringBitmap()).add(trackId);
+        }
+    }
+
+    private static <K> void unlink(final Map<K, RoaringBitmap> bitmaps, final K value, final int trackId) {
+        if (value == null) {
+            return;
+        }
+        final RoaringBitmap matching = bitmaps.get(value);
+        if (matching != null) {
+            matching.remove(trackId);
+            if (matching.isEmpty()) {
+                bitmaps.remove(value);
+            }
+        }
+    }
+
+    private static Map<String, Integer> ranges(final Map<Integer, Integer> bpmCounts) {
+        final Map<String, Integer> bpm = new LinkedHashMap<>();
+        bpmCounts.forEach((bucket, count) -> bpm.put(bucket + "-" + (bucket + BPM_BUCKET_WIDTH - 1), count));
+        return Collections.unmodifiableMap(bpm);
+    }
+}
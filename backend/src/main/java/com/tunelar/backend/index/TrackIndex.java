@@ -0,0 +1,32 @@
+package com.tunelar.backend.index;
+
+import java.util.Collection;
+
+/**
+ * An in-memory index over tracks. Implementations are kept current by
+ * {@link TrackIndexUpdater} as tracks are committed, and rebuilt from the database
+ * by {@link TrackIndexRebuilder}. Implementations must be thread-safe.
+ */
+public interface TrackIndex {
+
+    /**
+     * Adds a track, replacing any earlier version of it.
+     *
+     * @param track the track
+     */
+    void index(TrackSnapshot track);
+
+    /**
+     * Removes a track if present.
+     *
+     * @param trackId the track id
+     */
+    void remove(Long trackId);
+
+    /**
+     * Replaces the whole index contents.
+     *
+     * @param tracks every track
+     */
+    void rebuild(Collection<TrackSnapshot> tracks);
+}
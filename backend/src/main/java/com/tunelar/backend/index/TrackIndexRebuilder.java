@@ -0,0 +1,193 @@
+package com.tunelar.backend.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.repository.TrackRepository;
+
+/**
+ * Loads every track from the database into the {@link TrackIndex} beans. Runs once
+ * the application is ready, and on demand from the admin rebuild endpoint. Tracks
+ * are read in id order in keyset batches, each in its own short read-only
+ * transaction, so a large catalog never holds one long-running transaction.
+ *
+ * Changes committed while the batches are read may land in the indexes before the
+ * rebuilt contents replace them, so {@link TrackIndexUpdater} reports every change
+ * here first, and the changed tracks are reloaded and applied again after the swap.
+ */
+@Component
+public class TrackIndexRebuilder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TrackIndexRebuilder.class);
+
+    private static final int BATCH_SIZE = 500;
+
+    private final TrackRepository trackRepository;
+    private final List<TrackIndex> indexes;
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Serializes rebuilds; a second request waits for the running one
+     */
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * Guards {@link #pending}
+     */
+    private final ReentrantLock pendingLock = new ReentrantLock();
+
+    /**
+     * Ids of the tracks changed since the running rebuild started, null when none runs
+     */
+    private Set<Long> pending;
+
+    /**
+     * Set once the first rebuild has filled the indexes
+     */
+    private volatile boolean built;
+
+    public TrackIndexRebuilder(TrackRepository trackRepository, List<TrackIndex> indexes,
+                               PlatformTransactionManager transactionManager) {
+        this.trackRepository = trackRepository;
+        this.indexes = indexes;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        // reloads also run after another transaction has committed, where they must not join it
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        rebuild();
+    }
+
+    /**
+     * Tells whether the indexes hold the whole catalog. Until the startup rebuild
+     * finishes they only hold the tracks changed since the application started.
+     *
+     * @return true once a rebuild has completed
+     */
+    public boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * Rebuilds every track index from the database.
+     *
+     * @return the number of tracks indexed
+     */
+    public int rebuild() {
+        rebuildLock.lock();
+        try {
+            final long start = System.nanoTime();
+            final List<TrackSnapshot> snapshots = new ArrayList<>();
+            final Set<Long> changed;
+            swapPending(new HashSet<>());
+            try {
+                ScrollPosition position = ScrollPosition.keyset();
+                while (position != null) {
+                    final ScrollPosition from = position;
+                    position = transactionTemplate.execute(status -> {
+                        final Window<Track> window = trackRepository.findBy((root, query, cb) -> null,
+                                query -> query.sortBy(Sort.by("id")).limit(BATCH_SIZE).scroll(from));
+                        window.forEach(track -> snapshots.add(TrackSnapshot.of(track)));
+                        return window.hasNext() ? window.positionAt(window.size() - 1) : null;
+                    });
+                }
+                for (final TrackIndex index : indexes) {
+                    index.rebuild(snapshots);
+                }
+            }
+            finally {
+                // stop collecting even if the rebuild failed, the updates already reached the indexes
+                changed = swapPending(null);
+            }
+            reload(changed);
+            built = true;
+            LOG.info("Indexed {} tracks in {} ms, {} changed meanwhile", snapshots.size(),
+                    (System.nanoTime() - start) / 1_000_000, changed.size());
+            return snapshots.size();
+        }
+        finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Notes a committed track change. Called before the change is applied, so a change
+     * that may be overwritten by a running rebuild is always replayed after it.
+     *
+     * @param trackId the changed track
+     */
+    void changed(final Long trackId) {
+        pendingLock.lock();
+        try {
+            if (pending != null) {
+                pending.add(trackId);
+            }
+        }
+        finally {
+            pendingLock.unlock();
+        }
+    }
+
+    private Set<Long> swapPending(final Set<Long> next) {
+        pendingLock.lock();
+        try {
+            final Set<Long> previous = pending;
+            pending = next;
+            return previous;
+        }
+        finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /**
+     * Reloads tracks in batches and applies their current state, or their removal, to
+     * every index. Each batch is read in its own new read-only transaction.
+     *
+     * @param trackIds the tracks to reload
+     */
+    void reload(final Collection<Long> trackIds) {
+        final List<Long> ids = new ArrayList<>(trackIds);
+        for (int from = 0; from < ids.size(); from += BATCH_SIZE) {
+            final List<Long> batch = ids.subList(from, Math.min(from + BATCH_SIZE, ids.size()));
+            final Map<Long, TrackSnapshot> snapshots = transactionTemplate.execute(status -> {
+                final Map<Long, TrackSnapshot> loaded = new HashMap<>();
+                trackRepository.findAllById(batch).forEach(track -> loaded.put(track.getId(), TrackSnapshot.of(track)));
+                return loaded;
+            });
+            for (final Long trackId : batch) {
+                final TrackSnapshot snapshot = snapshots.get(trackId);
+                for (final TrackIndex index : indexes) {
+                    if (snapshot == null) {
+                        index.remove(trackId);
+                    }
+                    else {
+                        index.index(snapshot);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.tunelar.backend.index;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Applies committed track changes to every {@link TrackIndex}. The ids of the
+ * tracks changed in a transaction are collected while it runs, and each track is
+ * reloaded once after it commits, however many inserts, updates and collection
+ * changes it went through. Rolled-back writes never reach an index, and the
+ * reload runs in a fresh transaction so the indexes see the committed state.
+ * Changes made outside a transaction are applied at once.
+ *
+ * Each change is reported to the {@link TrackIndexRebuilder} first, so a
+ * concurrent rebuild cannot drop it.
+ */
+@Component
+public class TrackIndexUpdater {
+
+    private final TrackIndexRebuilder rebuilder;
+
+    public TrackIndexUpdater(TrackIndexRebuilder rebuilder) {
+        this.rebuilder = rebuilder;
+    }
+
+    /**
+     * The tracks changed in one transaction, applied once it commits
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+        private final Set<Long> trackIds = new LinkedHashSet<>();
+
+        @Override
+        public void afterCommit() {
+            apply(trackIds);
+        }
+    }
+
+    @EventListener
+    public void onTrackChanged(TrackChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(Set.of(event.trackId()));
+            return;
+        }
+        pendingChanges().trackIds.add(event.trackId());
+    }
+
+    /**
+     * Gets the changes of the current transaction, registering them on its first change.
+     * A suspended outer transaction keeps its own.
+     */
+    private PendingChanges pendingChanges() {
+        for (final TransactionSynchronization synchronization : TransactionSynchronizationManager
+                .getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                return pending;
+            }
+        }
+        final PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private void apply(final Set<Long> trackIds) {
+        trackIds.forEach(rebuilder::changed);
+        rebuilder.reload(trackIds);
+    }
+}
@@ -0,0 +1,231 @@
+package com.tunelar.backend.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory inverted index over track titles, descriptions and tag names.
+ *
+ * Every query term must match a track. The last term also matches as a prefix, so
+ * results appear while the user is still typing. Matches are ranked by weighted
+ * term frequency times inverse document frequency: title terms count three times,
+ * tags twice and description once, rare terms count more than common ones, and a
+ * prefix match counts half. Ties go to the newer track.
+ */
+@Component
+public class TrackSearchIndex implements TrackIndex {
+
+    static final int TITLE_WEIGHT = 3;
+    static final int TAG_WEIGHT = 2;
+    static final int DESCRIPTION_WEIGHT = 1;
+    static final double PREFIX_FACTOR = 0.5;
+
+    private static final Comparator<Map.Entry<Long, Double>> BY_RANK = Map.Entry.<Long, Double>comparingByValue()
+            .thenComparing(Map.Entry.comparingByKey())
+            .reversed();
+
+    /**
+     * One page of search results.
+     *
+     * @param total the number of matching tracks
+     * @param trackIds ids of the tracks on the page, best match first
+     */
+    public record Hits(int total, List<Long> trackIds) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * term -> track id -> weighted term frequency, sorted so a prefix is a range scan
+     */
+    private TreeMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+
+    /**
+     * track id -> its terms, to find the postings to drop when it is reindexed
+     */
+    private Map<Long, Set<String>> trackTerms = new HashMap<>();
+
+    @Override
+    public void index(final TrackSnapshot track) {
+        final Map<String, Integer> weights = termWeights(track);
+        lock.writeLock().lock();
+        try {
+            removeLocked(track.id());
+            add(postings, trackTerms, track.id(), weights);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final Long trackId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(trackId);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void rebuild(final Collection<TrackSnapshot> tracks) {
+        // built aside and swapped in, so searches keep running against the old index
+        final TreeMap<String, Map<Long, Integer>> newPostings = new TreeMap<>();
+        final Map<Long, Set<String>> newTrackTerms = new HashMap<>();
+        for (final TrackSnapshot track : tracks) {
+            add(newPostings, newTrackTerms, track.id(), termWeights(track));
+        }
+        lock.writeLock().lock();
+        try {
+            postings = newPostings;
+            trackTerms = newTrackTerms;
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Searches the index.
+     *
+     * @param query the search text
+     * @param offset number of leading results to skip, not negative
+     * @param limit maximum number of results to return
+     * @return the matching page and the total number of matches
+     * @throws IllegalArgumentException if the offset is negative
+     */
+    public Hits search(final String query, final int offset, final int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset " + offset);
+        }
+        final List<String> terms = Tokenizer.tokenize(query);
+        if (terms.isEmpty()) {
+            return new Hits(0, List.of());
+        }
+
+        Map<Long, Double> scores = null;
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < terms.size() && (scores == null || !scores.isEmpty()); i++) {
+                final Map<Long, Double> termScores = score(terms.get(i), i == terms.size() - 1);
+                if (scores == null) {
+                    scores = termScores;
+                }
+                else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    scores.replaceAll((trackId, score) -> score + termScores.get(trackId));
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+        return new Hits(scores.size(), top(scores, offset, limit));
+    }
+
+    /**
+     * @return the number of indexed tracks
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return trackTerms.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<Long, Double> score(final String term, final boolean prefix) {
+        final Map<Long, Double> scores = new HashMap<>();
+        addScores(scores, postings.get(term), 1.0);
+        if (prefix) {
+            for (final Map<Long, Integer> matches : postings.subMap(term, false, term + Character.MAX_VALUE, false)
+                    .values()) {
+                addScores(scores, matches, PREFIX_FACTOR);
+            }
+        }
+        return scores;
+    }
+
+    private void addScores(final Map<Long, Double> scores, final Map<Long, Integer> matches, final double factor) {
+        if (matches == null) {
+            return;
+        }
+        final double idf = Math.log(1 + (double) trackTerms.size() / matches.size());
+        // a track matching a term several ways keeps its best match
+        matches.forEach((trackId, weight) -> scores.merge(trackId, weight * idf * factor, Math::max));
+    }
+
+    /**
+     * Selects one page of the best-ranked tracks with a bounded heap instead of
+     * sorting every match.
+     */
+    private static List<Long> top(final Map<Long, Double> scores, final int offset, final int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset " + offset);
+        }
+        if (limit <= 0 || offset >= scores.size()) {
+            return List.of();
+        }
+        // never more than every match, so offset + limit cannot overflow the heap size
+        final int wanted = (int) Math.min((long) offset + limit, scores.size());
+        final PriorityQueue<Map.Entry<Long, Double>> heap = new PriorityQueue<>(wanted + 1, BY_RANK.reversed());
+        for (final Map.Entry<Long, Double> entry : scores.entrySet()) {
+            heap.add(entry);
+            if (heap.size() > wanted) {
+                heap.poll();
+            }
+        }
+        final List<Long> ranked = new ArrayList<>(heap.size());
+        while (!heap.isEmpty()) {
+            ranked.add(heap.poll().getKey());
+        }
+        Collections.reverse(ranked);
+        return List.copyOf(ranked.subList(offset, ranked.size()));
+    }
+
+    private void removeLocked(final Long trackId) {
+        final Set<String> terms = trackTerms.remove(trackId);
+        if (terms == null) {
+            return;
+        }
+        for (final String term : terms) {
+            final Map<Long, Integer> matches = postings.get(term);
+            matches.remove(trackId);
+            if (matches.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    private static void add(final TreeMap<String, Map<Long, Integer>> postings,
+                            final Map<Long, Set<String>> trackTerms, final Long trackId,
+                            final Map<String, Integer> weights) {
+        weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(trackId, weight));
+        trackTerms.put(trackId, Set.copyOf(weights.keySet()));
+    }
+
+    private static Map<String, Integer> termWeights(final TrackSnapshot track) {
+        final Map<String, Integer> weights = new HashMap<>();
+        Tokenizer.tokenize(track.title()).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+        for (final String tag : track.tags()) {
+            Tokenizer.tokenize(tag).forEach(term -> weights.merge(term, TAG_WEIGHT, Integer::sum));
+        }
+        Tokenizer.tokenize(track.description()).forEach(term -> weights.merge(term, DESCRIPTION_WEIGHT, Integer::sum));
+        return weights;
+    }
+}
@@ -0,0 +1,39 @@
+package com.tunelar.backend.index;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import com.tunelar.backend.model.Tag;
+import com.tunelar.backend.model.Track;
+
+/**
+ * Immutable copy of the indexed fields of a track, detached from the persistence
+ * context so indexes can hold and share it freely.
+ *
+ * @param id the track id
+ * @param userId id of the uploading user
+ * @param title the track title
+ * @param description the track description, may be null
+ * @param createdAt when the track was uploaded
+ * @param bpm tempo in beats per minute, may be null
+ * @param key musical key, may be null
+ * @param duration duration in seconds
+ * @param fileType audio file type
+ * @param tags names of the track's tags
+ */
+public record TrackSnapshot(Long id, Long userId, String title, String description, LocalDateTime createdAt,
+        Integer bpm, String key, Integer duration, String fileType, List<String> tags) {
+
+    /**
+     * Copies the indexed fields of a track. Loads the track's tags if needed, so
+     * must be called inside a transaction.
+     *
+     * @param track the track
+     * @return the snapshot
+     */
+    public static TrackSnapshot of(final Track track) {
+        return new TrackSnapshot(track.getId(), track.getUser().getId(), track.getTitle(), track.getDescription(),
+                track.getCreatedAt(), track.getBpm(), track.getKey(), track.getDuration(), track.getFileType(),
+                track.getTags().stream().map(Tag::getName).toList());
+    }
+}
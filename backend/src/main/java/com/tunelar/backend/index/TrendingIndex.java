@@ -0,0 +1,494 @@
+package com.tunelar.backend.index;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.tunelar.backend.counter.TrackCounts;
+import com.tunelar.backend.counter.TrackCountsListener;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Trending charts: tracks ranked by a time-decayed score of their plays and
+ * downloads, overall and per tag. Events reach the index through the counter
+ * buffer's flushes, which add the weighted deltas of each track to its score in one
+ * update, so plays never take the index lock on the request path. A score halves
+ * every half-life.
+ *
+ * Scores are stored relative to a fixed epoch: an event at time t adds
+ * weight * 2^((t - epoch) / halfLife). Decay then never has to be applied to stored
+ * scores, because it scales all of them by the same factor, and a score only changes
+ * when its own track gets an event. That keeps a top-K set per chart exact under
+ * increments: the changed track is the only one that can enter it. The epoch is
+ * moved forward at each snapshot so scores stay small, and scores that have decayed
+ * to nothing are dropped then.
+ *
+ * Scores are snapshotted to a file on a schedule and at shutdown and reloaded at
+ * startup. They are local to this instance.
+ */
+@Component
+public class TrendingIndex implements TrackIndex, TrackCountsListener {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingIndex.class);
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    /**
+     * Decayed scores below this are dropped when the epoch moves
+     */
+    static final double MIN_SCORE = 0.01;
+
+    /**
+     * One page of a chart.
+     *
+     * @param total the number of tracks on the chart, at most the chart size
+     * @param trackIds the tracks on the page, highest score first
+     */
+    public record Page(int total, List<Long> trackIds) {
+    }
+
+    private record Ranked(long trackId, double score) {
+    }
+
+    private static final Comparator<Ranked> BY_SCORE = Comparator.comparingDouble(Ranked::score).reversed()
+            .thenComparingLong(Ranked::trackId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Held while writing the snapshot file
+     */
+    private final ReentrantLock snapshotLock = new ReentrantLock();
+
+    /**
+     * Scores relative to the epoch, for tracks with at least one event
+     */
+    private Map<Long, Double> scores = new HashMap<>();
+
+    /**
+     * Folded tag names of every indexed track
+     */
+    private Map<Long, Set<String>> trackTags = new HashMap<>();
+
+    /**
+     * The overall chart
+     */
+    private TreeSet<Ranked> top = new TreeSet<>(BY_SCORE);
+
+    /**
+     * The chart of each tag that has a scored track
+     */
+    private Map<String, TreeSet<Ranked>> tagTops = new HashMap<>();
+
+    private long epochMillis;
+
+    /**
+     * Whether the tags of every track have been loaded, after which deltas of
+     * tracks deleted since their events are ignored
+     */
+    private boolean built;
+
+    private final double halfLifeMillis;
+    private final int chartSize;
+    private final double playWeight;
+    private final double downloadWeight;
+    private final Path snapshotFile;
+
+    public TrendingIndex(@Value("${app.trending.half-life-hours:72}") double halfLifeHours,
+                         @Value("${app.trending.chart-size:100}") int chartSize,
+                         @Value("${app.trending.play-weight:1}") double playWeight,
+                         @Value("${app.trending.download-weight:3}") double downloadWeight,
+                         @Value("${app.trending.snapshot-file:}") String snapshotFile) {
+        this.halfLifeMillis = halfLifeHours * 3_600_000d;
+        this.chartSize = chartSize;
+        this.playWeight = playWeight;
+        this.downloadWeight = downloadWeight;
+        this.snapshotFile = snapshotFile.isBlank() ? null : Path.of(snapshotFile);
+        this.epochMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Adds flushed play and download increments to the scores of their tracks.
+     *
+     * @param deltas the increments per track id
+     */
+    @Override
+    public void onFlushed(final Map<Long, TrackCounts> deltas) {
+        final long nowMillis = System.currentTimeMillis();
+        lock.writeLock().lock();
+        try {
+            final double growth = growth(nowMillis);
+            deltas.forEach((trackId, counts) -> add(trackId,
+                    (counts.plays() * playWeight + counts.downloads() * downloadWeight) * growth));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void record(final Long trackId, final double weight, final long nowMillis) {
+        lock.writeLock().lock();
+        try {
+            add(trackId, weight * growth(nowMillis));
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds to a track's score and moves it in its charts. Must be called with the
+     * write lock held.
+     */
+    private void add(final Long trackId, final double amount) {
+        if (amount <= 0d || built && !trackTags.containsKey(trackId)) {
+            return;
+        }
+        final Double previous = scores.get(trackId);
+        final double score = (previous == null ? 0d : previous) + amount;
+        scores.put(trackId, score);
+        offer(top, trackId, previous, score);
+        for (final String tag : trackTags.getOrDefault(trackId, Set.of())) {
+            offer(tagTops.computeIfAbsent(tag, t -> new TreeSet<>(BY_SCORE)), trackId, previous, score);
+        }
+    }
+
+    /**
+     * Gets a page of a chart.
+     *
+     * @param tag the tag whose chart to read, or null for the overall chart
+     * @param offset the number of tracks to skip, not negative
+     * @param limit the maximum number of tracks to return
+     * @return the page
+     * @throws IllegalArgumentException if the offset is negative
+     */
+    public Page chart(final String tag, final int offset, final int limit) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("Negative offset " + offset);
+        }
+        lock.readLock().lock();
+        try {
+            final TreeSet<Ranked> chart = tag == null || tag.isBlank() ? top : tagTops.get(fold(tag));
+            if (chart == null) {
+                return new Page(0, List.of());
+            }
+            if (limit <= 0 || offset >= chart.size()) {
+                return new Page(chart.size(), List.of());
+            }
+            final List<Long> trackIds = new ArrayList<>(Math.min(limit, chart.size()));
+            final Iterator<Ranked> ranked = chart.iterator();
+            for (int i = 0; ranked.hasNext() && trackIds.size() < limit; i++) {
+                final Ranked next = ranked.next();
+                if (i >= offset) {
+                    trackIds.add(next.trackId());
+                }
+            }
+            return new Page(chart.size(), trackIds);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Gets the current decayed score of a track.
+     *
+     * @param trackId the track id
+     * @return the score, 0 if the track has no events
+     */
+    public double score(final Long trackId) {
+        lock.readLock().lock();
+        try {
+            final Double score = scores.get(trackId);
+            return score == null ? 0d : score / growth(System.currentTimeMillis());
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void index(final TrackSnapshot track) {
+        final Set<String> tags = fold(track.tags());
+        lock.writeLock().lock();
+        try {
+            final Set<String> previous = trackTags.put(track.id(), tags);
+            final Double score = scores.get(track.id());
+            if (score == null) {
+                return;
+            }
+            final Set<String> before = previous == null ? Set.of() : previous;
+            for (final String tag : before) {
+                if (!tags.contains(tag)) {
+                    removeFromChart(tag, track.id(), score);
+                }
+            }
+            for (final String tag : tags) {
+                if (!before.contains(tag)) {
+                    offer(tagTops.computeIfAbsent(tag, t -> new TreeSet<>(BY_SCORE)), track.id(), null, score);
+                }
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(final Long trackId) {
+        lock.writeLock().lock();
+        try {
+            final Set<String> tags = trackTags.remove(trackId);
+            final Double score = scores.remove(trackId);
+            if (score == null) {
+                return;
+            }
+            removeFromChart(null, trackId, score);
+            if (tags != null) {
+                tags.forEach(tag -> removeFromChart(tag, trackId, score));
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the tags of every track. Scores of tracks that still exist are kept,
+     * since they come from events rather than from the database.
+     */
+    @Override
+    public void rebuild(final Collection<TrackSnapshot> tracks) {
+        final Map<Long, Set<String>> newTrackTags = new HashMap<>();
+        for (final TrackSnapshot track : tracks) {
+            newTrackTags.put(track.id(), fold(track.tags()));
+        }
+        lock.writeLock().lock();
+        try {
+            trackTags = newTrackTags;
+            built = true;
+            scores.keySet().retainAll(newTrackTags.keySet());
+            rebuildCharts();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the epoch to now and writes the scores to the snapshot file.
+     */
+    @Scheduled(fixedDelayString = "${app.trending.snapshot-interval-ms:300000}")
+    public void snapshot() {
+        final long epoch;
+        final Map<Long, Double> copy;
+        lock.writeLock().lock();
+        try {
+            rebase(System.currentTimeMillis());
+            epoch = epochMillis;
+            copy = new HashMap<>(scores);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+        if (snapshotFile == null) {
+            return;
+        }
+
+        snapshotLock.lock();
+        try {
+            write(epoch, copy);
+        }
+        catch (IOException e) {
+            log.warn("Failed to write trending snapshot {}", snapshotFile, e);
+        }
+        finally {
+            snapshotLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    void snapshotOnShutdown() {
+        snapshot();
+    }
+
+    /**
+     * Loads the scores from the snapshot file, if there is one. Tags arrive with
+     * the index rebuild that follows at startup.
+     */
+    @PostConstruct
+    void restore() {
+        if (snapshotFile == null) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring trending snapshot {} with unknown version", snapshotFile);
+                return;
+            }
+            final long epoch = in.readLong();
+            final int count = in.readInt();
+            final Map<Long, Double> loaded = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                loaded.put(in.readLong(), in.readDouble());
+            }
+            lock.writeLock().lock();
+            try {
+                epochMillis = epoch;
+                scores = loaded;
+                rebuildCharts();
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+            log.info("Restored trending scores of {} tracks from {}", count, snapshotFile);
+        }
+        catch (NoSuchFileException e) {
+            // first start
+        }
+        catch (IOException e) {
+            log.warn("Failed to read trending snapshot {}, starting empty", snapshotFile, e);
+        }
+    }
+
+    /**
+     * Writes to a temporary file and moves it into place, so a crash mid-write
+     * leaves the previous snapshot intact.
+     */
+    private void write(final long epoch, final Map<Long, Double> snapshot) throws IOException {
+        final Path directory = snapshotFile.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporary = Files.createTempFile(directory, snapshotFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(epoch);
+                out.writeInt(snapshot.size());
+                for (final Map.Entry<Long, Double> entry : snapshot.entrySet()) {
+                    out.writeLong(entry.getKey());
+                    out.writeDouble(entry.getValue());
+                }
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Rescales every score to a new epoch and drops the ones that have decayed away.
+     * Must be called with the write lock held.
+     */
+    void rebase(final long nowMillis) {
+        final double factor = 1d / growth(nowMillis);
+        epochMillis = nowMillis;
+        scores.replaceAll((trackId, score) -> score * factor);
+        scores.values().removeIf(score -> score < MIN_SCORE);
+        rebuildCharts();
+    }
+
+    /**
+     * Factor by which an event at the given time outweighs one at the epoch
+     */
+    private double growth(final long nowMillis) {
+        return Math.pow(2d, (nowMillis - epochMillis) / halfLifeMillis);
+    }
+
+    /**
+     * Puts a track into a chart if its new score earns a place, replacing its old entry.
+     */
+    private void offer(final TreeSet<Ranked> chart, final long trackId, final Double previous, final double score) {
+        if (previous != null) {
+            chart.remove(new Ranked(trackId, previous));
+        }
+        final Ranked ranked = new Ranked(trackId, score);
+        if (chart.size() < chartSize) {
+            chart.add(ranked);
+        }
+        else if (BY_SCORE.compare(ranked, chart.last()) < 0) {
+            chart.add(ranked);
+            chart.pollLast();
+        }
+    }
+
+    /**
+     * Takes a track off a chart and, if that left a gap, fills it with the best
+     * track that did not make the cut. Only happens when tracks are deleted or
+     * lose a tag, so the scan is acceptable.
+     *
+     * @param tag the chart's tag, or null for the overall chart
+     */
+    private void removeFromChart(final String tag, final long trackId, final double score) {
+        final TreeSet<Ranked> chart = tag == null ? top : tagTops.get(tag);
+        if (chart == null || !chart.remove(new Ranked(trackId, score))) {
+            return;
+        }
+        // a chart that was not full already held every scored track it could
+        if (chart.size() == chartSize - 1) {
+            scores.forEach((candidate, candidateScore) -> {
+                if (candidate != trackId && (tag == null
+                        || trackTags.getOrDefault(candidate, Set.of()).contains(tag))
+                        && !chart.contains(new Ranked(candidate, candidateScore))) {
+                    offer(chart, candidate, null, candidateScore);
+                }
+            });
+        }
+        if (chart.isEmpty() && tag != null) {
+            tagTops.remove(tag);
+        }
+    }
+
+    private void rebuildCharts() {
+        top = new TreeSet<>(BY_SCORE);
+        tagTops = new HashMap<>();
+        scores.forEach((trackId, score) -> {
+            offer(top, trackId, null, score);
+            for (final String tag : trackTags.getOrDefault(trackId, Set.of())) {
+                offer(tagTops.computeIfAbsent(tag, t -> new TreeSet<>(BY_SCORE)), trackId, null, score);
+            }
+        });
+    }
+
+    private static Set<String> fold(final Collection<String> tags) {
+        final Set<String> folded = new HashSet<>();
+        for (final String tag : tags) {
+            if (tag != null && !tag.isBlank()) {
+                folded.add(fold(tag));
+            }
+        }
+        return folded;
+    }
+
+    private static String fold(final String tag) {
+        return tag.trim().toLowerCase(Locale.ROOT);
+    }
+}
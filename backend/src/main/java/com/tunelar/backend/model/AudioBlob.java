@@ -0,0 +1,46 @@
+package com.tunelar.backend.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * An audio file stored once under the SHA-256 digest of its bytes. Tracks refer
+ * to it through their fileUrl; refCount counts those tracks, and the file is
+ * deleted from storage when it drops to zero.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Getter
+@Setter
+@Table(name = "audio_blobs")
+public class AudioBlob {
+    // lowercase hex SHA-256 of the content
+    @Id
+    @Column(length = 64)
+    private String digest;
+    
+    @Column(nullable = false)
+    private String storageKey;
+    
+    @Column(nullable = false)
+    private Long size;
+    
+    @Column(nullable = false)
+    private String contentType;
+    
+    // changed only by AudioBlobRepository's update queries, so concurrent uploads never lose a count
+    @Column(nullable = false)
+    private Long refCount;
+    
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
@@ -1,6 +1,8 @@
 package com.tunelar.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import lombok.AllArgsConstructor;
 import lombok.*;
 import java.util.HashSet;
@@ -12,6 +14,8 @@ import java.util.Set;
 @Getter
 @Setter
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tags")
 @Table(name = "tags")
 public class Tag {
     @Id
@@ -22,5 +26,7 @@ public class Tag {
     private String name;
     
     @ManyToMany(mappedBy = "tags")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Track> tracks = new HashSet<>();
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.tunelar.backend.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import lombok.AllArgsConstructor;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -13,7 +16,13 @@ import java.util.Set;
 @Entity
 @Getter
 @Setter
-@Table(name = "tracks")
+@Table(name = "tracks", indexes = {
+    // keyset pagination seeks on (createdAt, id), optionally scoped to a user
+    @Index(name = "idx_tracks_created_id", columnList = "createdAt, id"),
+    @Index(name = "idx_tracks_user_created_id", columnList = "user_id, createdAt, id"),
+    // file downloads look the track up by the URL they were requested at
+    @Index(name = "idx_tracks_file_url", columnList = "fileUrl")
+})
 public class Track {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -40,23 +49,43 @@ public class Track {
     
     private Integer bpm;
     
+    // KEY is reserved in MySQL, so the column name must be quoted
+    @Column(name = "`key`")
     private String key;
     
+    // integrated loudness in LUFS, measured from the audio at upload
+    private Double loudness;
+    
     @Column(nullable = false)
     private LocalDateTime createdAt;
     
     private LocalDateTime updatedAt;
     
-    @ManyToOne
+    // written only by TrackCounterBuffer, so saving a loaded track never overwrites newer counts
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long plays = 0L;
+    
+    @Column(nullable = false, insertable = false, updatable = false)
+    @ColumnDefault("0")
+    private Long downloads = 0L;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private User user;
     
     @ManyToMany
     @JoinTable(
         name = "track_tags",
         joinColumns = @JoinColumn(name = "track_id"),
-        inverseJoinColumns = @JoinColumn(name = "tag_id")
+        inverseJoinColumns = @JoinColumn(name = "tag_id"),
+        indexes = @Index(name = "idx_track_tags_tag_track", columnList = "tag_id, track_id")
     )
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "track-tags")
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     private Set<Tag> tags = new HashSet<>();
     
     @PrePersist
@@ -69,21 +98,41 @@ public class Track {
         updatedAt = LocalDateTime.now();
     }
 
+    /**
+     * @deprecated loads the tag collection of each track it is called on; use
+     *             {@link com.tunelar.backend.index.TagBitmapIndex#hasTag} or a tag filter instead
+     */
+    @Deprecated
     @Transient
     public boolean isSample() {
         return this.tags.stream().anyMatch(tag -> tag.getName().equalsIgnoreCase("sample"));
     }
     
+    /**
+     * @deprecated loads the tag collection of each track it is called on; use
+     *             {@link com.tunelar.backend.index.TagBitmapIndex#hasTag} or a tag filter instead
+     */
+    @Deprecated
     @Transient
     public boolean isLoop() {
         return this.tags.stream().anyMatch(tag -> tag.getName().equalsIgnoreCase("loop"));
     }
     
+    /**
+     * @deprecated loads the tag collection of each track it is called on; use
+     *             {@link com.tunelar.backend.index.TagBitmapIndex#hasTag} or a tag filter instead
+     */
+    @Deprecated
     @Transient
     public boolean isDrum() {
         return this.tags.stream().anyMatch(tag -> tag.getName().equalsIgnoreCase("drum"));
     }
     
+    /**
+     * @deprecated loads the tag collection of each track it is called on; use
+     *             {@link com.tunelar.backend.index.TagBitmapIndex#hasTag} or a tag filter instead
+     */
+    @Deprecated
     @Transient
     public boolean isBeat() {
         return this.tags.stream().anyMatch(tag -> tag.getName().equalsIgnoreCase("beat"));
@@ -0,0 +1,60 @@
+package com.tunelar.backend.monitoring;
+
+import java.util.function.ToDoubleFunction;
+
+import javax.cache.CacheManager;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Publishes a hit ratio per Hibernate cache region as hibernate.cache.hit.ratio,
+ * alongside the raw hibernate.second.level.cache.* counters that Spring Boot binds
+ * from the same statistics. Regions are read from the JCache manager, so every
+ * region configured in application.conf is covered, including query regions that
+ * Hibernate only uses once a cached query runs.
+ */
+@Component
+public class HibernateCacheMetrics {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final CacheManager hibernateCacheManager;
+    private final MeterRegistry meterRegistry;
+
+    public HibernateCacheMetrics(EntityManagerFactory entityManagerFactory, CacheManager hibernateCacheManager,
+                                 MeterRegistry meterRegistry) {
+        this.entityManagerFactory = entityManagerFactory;
+        this.hibernateCacheManager = hibernateCacheManager;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void bind() {
+        final Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        for (final String region : hibernateCacheManager.getCacheNames()) {
+            Gauge.builder("hibernate.cache.hit.ratio", statistics, hitRatio(region))
+                    .tag("region", region)
+                    .description("Share of cache lookups in the region that were hits")
+                    .register(meterRegistry);
+        }
+    }
+
+    private static ToDoubleFunction<Statistics> hitRatio(final String region) {
+        return statistics -> {
+            final CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics == null) {
+                return Double.NaN;
+            }
+            final long hits = regionStatistics.getHitCount();
+            final long lookups = hits + regionStatistics.getMissCount();
+            return lookups == 0 ? Double.NaN : (double) hits / lookups;
+        };
+    }
+}
@@ -0,0 +1,92 @@
+package com.tunelar.backend.monitoring;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.web.util.OnCommittedResponseWrapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Counts the statements and database time of each request. The totals are sent back
+ * in the X-DB-Query-Count and X-DB-Time-Ms headers and recorded per endpoint. Runs
+ * ahead of the security filters so authentication queries are included.
+ *
+ * The headers reflect statements issued before the response was committed; the
+ * recorded metrics include the full request.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    /**
+     * Header carrying the number of statements issued by the request
+     */
+    public static final String QUERY_COUNT_HEADER = "X-DB-Query-Count";
+
+    /**
+     * Header carrying the database time spent by the request, in milliseconds
+     */
+    public static final String QUERY_TIME_HEADER = "X-DB-Time-Ms";
+
+    private final MeterRegistry meterRegistry;
+
+    public QueryBudgetFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        final QueryStats stats = QueryStats.begin();
+        final HttpServletResponse statsResponse = new OnCommittedResponseWrapper(response) {
+            @Override
+            protected void onResponseCommitted() {
+                writeHeaders(response, stats);
+            }
+        };
+
+        try {
+            filterChain.doFilter(request, statsResponse);
+        }
+        finally {
+            QueryStats.end();
+            if (!response.isCommitted()) {
+                writeHeaders(response, stats);
+            }
+            recordMetrics(request, stats);
+        }
+    }
+
+    private static void writeHeaders(HttpServletResponse response, QueryStats stats) {
+        response.setHeader(QUERY_COUNT_HEADER, String.valueOf(stats.getStatementCount()));
+        response.setHeader(QUERY_TIME_HEADER, String.valueOf(stats.getTotalMillis()));
+    }
+
+    private void recordMetrics(HttpServletRequest request, QueryStats stats) {
+        final Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        final String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+
+        DistributionSummary.builder("http.server.requests.db.statements")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatementCount());
+        Timer.builder("http.server.requests.db.time")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(stats.getTotalNanos(), TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,131 @@
+package com.tunelar.backend.monitoring;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Wraps the application DataSource so that every statement execution is timed and
+ * reported to the {@link QueryRecorder}. Connections and statements are wrapped with
+ * JDK proxies; everything other than execution is passed straight through, including
+ * unwrap, so pool metrics still find the underlying Hikari pool.
+ */
+@Component
+public class QueryMetricsDataSourcePostProcessor implements BeanPostProcessor {
+
+    /**
+     * Resolved lazily: a post-processor must not pull the meter registry into early
+     * initialization
+     */
+    private final ObjectProvider<QueryRecorder> queryRecorder;
+
+    public QueryMetricsDataSourcePostProcessor(ObjectProvider<QueryRecorder> queryRecorder) {
+        this.queryRecorder = queryRecorder;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource dataSource && !Proxy.isProxyClass(bean.getClass())) {
+            // keep Closeable so the container still shuts the pool down
+            final Class<?>[] interfaces = bean instanceof Closeable
+                    ? new Class<?>[] { DataSource.class, Closeable.class }
+                    : new Class<?>[] { DataSource.class };
+            return Proxy.newProxyInstance(getClass().getClassLoader(), interfaces,
+                    new DataSourceHandler(dataSource));
+        }
+        return bean;
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        }
+        catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private final class DataSourceHandler implements InvocationHandler {
+        private final DataSource target;
+
+        DataSourceHandler(DataSource target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object result = QueryMetricsDataSourcePostProcessor.invoke(target, method, args);
+            if (result instanceof Connection connection) {
+                return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class },
+                        new ConnectionHandler(connection));
+            }
+            return result;
+        }
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            final Object result = QueryMetricsDataSourcePostProcessor.invoke(target, method, args);
+            final String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : null;
+            if (result instanceof CallableStatement) {
+                return statementProxy(CallableStatement.class, (Statement) result, sql);
+            }
+            if (result instanceof PreparedStatement) {
+                return statementProxy(PreparedStatement.class, (Statement) result, sql);
+            }
+            if (result instanceof Statement) {
+                return statementProxy(Statement.class, (Statement) result, null);
+            }
+            return result;
+        }
+
+        private Object statementProxy(Class<?> type, Statement statement, String sql) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { type },
+                    new StatementHandler(statement, sql));
+        }
+    }
+
+    private final class StatementHandler implements InvocationHandler {
+        private final Statement target;
+        private final String preparedSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (!method.getName().startsWith("execute")) {
+                return QueryMetricsDataSourcePostProcessor.invoke(target, method, args);
+            }
+            final long start = System.nanoTime();
+            try {
+                return QueryMetricsDataSourcePostProcessor.invoke(target, method, args);
+            }
+            finally {
+                final String sql = args != null && args.length > 0 && args[0] instanceof String s ? s : preparedSql;
+                queryRecorder.getObject().record(sql, System.nanoTime() - start);
+            }
+        }
+    }
+}
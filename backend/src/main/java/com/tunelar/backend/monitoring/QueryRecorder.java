@@ -0,0 +1,54 @@
+package com.tunelar.backend.monitoring;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Receives every executed JDBC statement. Adds it to the statistics of the current
+ * request, records it in the global statement timer, and writes statements slower
+ * than the configured threshold to a sampled slow-query log.
+ */
+@Component
+public class QueryRecorder {
+
+    private static final Logger SLOW_QUERY_LOG = LoggerFactory.getLogger("com.tunelar.backend.sql.slow");
+
+    private final long slowThresholdNanos;
+    private final double slowSampleRate;
+    private final Timer statementTimer;
+
+    public QueryRecorder(@Value("${app.sql.slow-query-threshold-ms:200}") long slowThresholdMillis,
+                         @Value("${app.sql.slow-query-sample-rate:1.0}") double slowSampleRate,
+                         MeterRegistry meterRegistry) {
+        this.slowThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowThresholdMillis);
+        this.slowSampleRate = slowSampleRate;
+        this.statementTimer = Timer.builder("db.statements").register(meterRegistry);
+    }
+
+    /**
+     * Records one executed statement.
+     *
+     * @param sql the SQL of the statement, may be null for batches of plain statements
+     * @param nanos how long the execution took
+     */
+    public void record(final String sql, final long nanos) {
+        final QueryStats stats = QueryStats.current();
+        if (stats != null) {
+            stats.record(nanos);
+        }
+        statementTimer.record(nanos, TimeUnit.NANOSECONDS);
+
+        if (nanos >= slowThresholdNanos && SLOW_QUERY_LOG.isWarnEnabled()
+                && ThreadLocalRandom.current().nextDouble() < slowSampleRate) {
+            SLOW_QUERY_LOG.warn("Slow query ({} ms): {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.tunelar.backend.monitoring;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Statements executed and time spent in the database on behalf of the current request.
+ * One instance is bound to the request thread for the lifetime of the request.
+ */
+public final class QueryStats {
+
+    private static final ThreadLocal<QueryStats> CURRENT = new ThreadLocal<>();
+
+    private int statementCount;
+    private long totalNanos;
+
+    private QueryStats() {
+    }
+
+    /**
+     * Starts collecting statistics on the current thread.
+     *
+     * @return the new, empty statistics
+     */
+    public static QueryStats begin() {
+        final QueryStats stats = new QueryStats();
+        CURRENT.set(stats);
+        return stats;
+    }
+
+    /**
+     * Stops collecting statistics on the current thread.
+     */
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Returns the statistics of the current thread.
+     *
+     * @return the statistics, or null outside of a request
+     */
+    public static QueryStats current() {
+        return CURRENT.get();
+    }
+
+    void record(final long nanos) {
+        statementCount++;
+        totalNanos += nanos;
+    }
+
+    /**
+     * @return the number of statements executed so far
+     */
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    /**
+     * @return the time spent executing statements so far, in nanoseconds
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * @return the time spent executing statements so far, in whole milliseconds
+     */
+    public long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos);
+    }
+}
@@ -0,0 +1,38 @@
+package com.tunelar.backend.repository;
+
+import com.tunelar.backend.model.AudioBlob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface AudioBlobRepository extends JpaRepository<AudioBlob, String> {
+    /**
+     * Adds a reference to a blob
+     *
+     * @return 1 if the blob exists, 0 if not
+     */
+    @Modifying
+    @Query("update AudioBlob b set b.refCount = b.refCount + 1 where b.digest = :digest")
+    int acquire(@Param("digest") String digest);
+
+    /**
+     * Removes a reference from a blob
+     *
+     * @return 1 if the blob exists and was referenced, 0 if not
+     */
+    @Modifying
+    @Query("update AudioBlob b set b.refCount = b.refCount - 1 where b.digest = :digest and b.refCount > 0")
+    int release(@Param("digest") String digest);
+
+    /**
+     * Deletes a blob if nothing refers to it
+     *
+     * @return 1 if the blob was deleted, 0 if not
+     */
+    @Modifying
+    @Query("delete from AudioBlob b where b.digest = :digest and b.refCount = 0")
+    int deleteIfUnreferenced(@Param("digest") String digest);
+}
@@ -0,0 +1,82 @@
+package com.tunelar.backend.repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import jakarta.persistence.EntityManager;
+
+/**
+ * Iterates over a streamed query result in constant memory. Entities are read in
+ * chunks. Each chunk is mapped together, so lazy associations batch-load once per
+ * chunk instead of once per entity. The persistence context is then cleared, so
+ * entities from earlier chunks can be collected.
+ *
+ * Clearing detaches everything in the persistence context, so use this only in a
+ * read-only transaction dedicated to the stream.
+ *
+ * @param <E> the entity type
+ * @param <T> the mapped type
+ */
+public class DetachingIterator<E, T> implements Iterator<T>, AutoCloseable {
+
+    private final Stream<E> stream;
+    private final Iterator<E> source;
+    private final EntityManager entityManager;
+    private final int chunkSize;
+    private final Function<E, T> mapper;
+    private final Queue<T> buffer;
+
+    /**
+     * @param stream the query result, closed along with this iterator
+     * @param entityManager the entity manager the stream was opened with
+     * @param chunkSize number of entities mapped between clears
+     * @param mapper converts an attached entity to a detached value
+     */
+    public DetachingIterator(final Stream<E> stream, final EntityManager entityManager, final int chunkSize,
+                             final Function<E, T> mapper) {
+        this.stream = stream;
+        this.source = stream.iterator();
+        this.entityManager = entityManager;
+        this.chunkSize = chunkSize;
+        this.mapper = mapper;
+        this.buffer = new ArrayDeque<>(chunkSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (buffer.isEmpty() && source.hasNext()) {
+            fill();
+        }
+        return !buffer.isEmpty();
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return buffer.remove();
+    }
+
+    private void fill() {
+        final List<E> chunk = new ArrayList<>(chunkSize);
+        while (chunk.size() < chunkSize && source.hasNext()) {
+            chunk.add(source.next());
+        }
+        for (final E entity : chunk) {
+            buffer.add(mapper.apply(entity));
+        }
+        entityManager.clear();
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
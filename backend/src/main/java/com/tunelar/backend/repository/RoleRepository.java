@@ -1,9 +1,13 @@
 package com.tunelar.backend.repository;
 
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.QueryHints;
 
 import com.tunelar.backend.model.Role;
 
+import jakarta.persistence.QueryHint;
+
 /**
  * Repository interface for Roles.
  */
@@ -15,5 +19,9 @@ public interface RoleRepository extends JpaRepository<Role, Long> {
      *            
      * @return the role with that name
      */
+    @QueryHints ( {
+        @QueryHint ( name = AvailableHints.HINT_CACHEABLE, value = "true" ),
+        @QueryHint ( name = AvailableHints.HINT_CACHE_REGION, value = "role-by-name" )
+    } )
     Role findByName (String name);
 }
\ No newline at end of file
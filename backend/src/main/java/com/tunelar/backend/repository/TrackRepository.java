@@ -1,12 +1,38 @@
 package com.tunelar.backend.repository;
 
 import com.tunelar.backend.model.Track;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
-import java.util.List;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
-public interface TrackRepository extends JpaRepository<Track, Long> {
-    List<Track> findByUserId(Long userId);
-    List<Track> findByTitleContainingIgnoreCase(String title);
-}
\ No newline at end of file
+public interface TrackRepository extends JpaRepository<Track, Long>, JpaSpecificationExecutor<Track> {
+    long countByUserId(Long userId);
+
+    Optional<Track> findByFileUrl(String fileUrl);
+
+    /**
+     * Ids of tracks of the given file types that have no waveform yet, in id order
+     */
+    @Query("select t.id from Track t where t.waveformUrl is null and t.fileType in :fileTypes and t.id > :afterId"
+            + " order by t.id")
+    List<Long> findIdsWithoutWaveform(@Param("fileTypes") Collection<String> fileTypes,
+            @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Sets the waveform of a track without loading it or touching updatedAt, which
+     * versions the track's own data
+     */
+    @Modifying
+    @Transactional
+    @Query("update Track t set t.waveformUrl = :waveformUrl where t.id = :id")
+    int setWaveformUrl(@Param("id") Long id, @Param("waveformUrl") String waveformUrl);
+}
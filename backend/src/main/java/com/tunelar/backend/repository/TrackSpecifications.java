@@ -0,0 +1,155 @@
+package com.tunelar.backend.repository;
+
+import java.util.Collection;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import com.tunelar.backend.model.Track;
+
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+
+/**
+ * Composable filters for querying tracks through {@link TrackRepository}. Each
+ * filter matches every track when its argument is null, so callers can combine
+ * them freely with {@link Specification#and}.
+ */
+public final class TrackSpecifications {
+
+    /**
+     * Seconds in one bar of 4/4 at 1 BPM: four beats of 60 seconds each
+     */
+    static final int SECONDS_PER_BAR_AT_ONE_BPM = 240;
+
+    private TrackSpecifications() {
+    }
+
+    /**
+     * Tracks uploaded by the given user
+     *
+     * @param userId id of the uploading user
+     * @return the filter
+     */
+    public static Specification<Track> byUser(final Long userId) {
+        return (root, query, cb) -> userId == null ? null : cb.equal(root.get("user").get("id"), userId);
+    }
+
+    /**
+     * Tracks with one of the given ids
+     *
+     * @param ids the track ids
+     * @return the filter
+     */
+    public static Specification<Track> idIn(final Collection<Long> ids) {
+        return (root, query, cb) -> ids == null ? null : root.get("id").in(ids);
+    }
+
+    /**
+     * Tracks carrying the given tag, ignoring case
+     *
+     * @param tag the tag name
+     * @return the filter
+     */
+    public static Specification<Track> hasTag(final String tag) {
+        // a track holds a tag at most once, so the join cannot duplicate rows
+        return (root, query, cb) -> tag == null ? null
+                : cb.equal(cb.lower(root.join("tags").get("name")), tag.trim().toLowerCase());
+    }
+
+    /**
+     * Tracks not carrying the given tag, ignoring case
+     *
+     * @param tag the tag name
+     * @return the filter
+     */
+    public static Specification<Track> lacksTag(final String tag) {
+        return (root, query, cb) -> {
+            if (tag == null) {
+                return null;
+            }
+            final Subquery<Long> tagged = query.subquery(Long.class);
+            final Root<Track> track = tagged.from(Track.class);
+            tagged.select(track.get("id"))
+                    .where(cb.equal(track.get("id"), root.get("id")),
+                            cb.equal(cb.lower(track.join("tags").get("name")), tag.trim().toLowerCase()));
+            return cb.not(cb.exists(tagged));
+        };
+    }
+
+    /**
+     * Tracks with a tempo in the given range
+     *
+     * @param min lowest tempo, inclusive
+     * @param max highest tempo, inclusive
+     * @return the filter
+     */
+    public static Specification<Track> bpmBetween(final Integer min, final Integer max) {
+        return between("bpm", min, max);
+    }
+
+    /**
+     * Tracks with a duration in the given range
+     *
+     * @param min shortest duration in seconds, inclusive
+     * @param max longest duration in seconds, inclusive
+     * @return the filter
+     */
+    public static Specification<Track> durationBetween(final Integer min, final Integer max) {
+        return between("duration", min, max);
+    }
+
+    /**
+     * Tracks no longer than the given number of bars of 4/4. A track's length in
+     * bars is duration * bpm / 240, compared without division so the database can
+     * evaluate it exactly, and in long arithmetic like {@code TrackFacetIndex} so a
+     * large bar count cannot overflow; tracks without a tempo never match.
+     *
+     * @param bars longest length in bars, inclusive
+     * @return the filter
+     */
+    public static Specification<Track> maxBars(final Integer bars) {
+        return (root, query, cb) -> bars == null ? null
+                : cb.le(cb.prod(cb.toLong(root.<Integer>get("duration")), cb.toLong(root.<Integer>get("bpm"))),
+                        (long) bars * SECONDS_PER_BAR_AT_ONE_BPM);
+    }
+
+    /**
+     * Tracks in the given musical key, ignoring case
+     *
+     * @param key the key
+     * @return the filter
+     */
+    public static Specification<Track> hasKey(final String key) {
+        return equalsIgnoreCase("key", key);
+    }
+
+    /**
+     * Tracks of the given audio file type, ignoring case
+     *
+     * @param fileType the file type
+     * @return the filter
+     */
+    public static Specification<Track> hasFileType(final String fileType) {
+        return equalsIgnoreCase("fileType", fileType);
+    }
+
+    private static Specification<Track> between(final String attribute, final Integer min, final Integer max) {
+        return (root, query, cb) -> {
+            if (min == null && max == null) {
+                return null;
+            }
+            if (min == null) {
+                return cb.le(root.get(attribute), max);
+            }
+            if (max == null) {
+                return cb.ge(root.get(attribute), min);
+            }
+            return cb.between(root.get(attribute), min, max);
+        };
+    }
+
+    private static Specification<Track> equalsIgnoreCase(final String attribute, final String value) {
+        return (root, query, cb) -> value == null || value.isBlank() ? null
+                : cb.equal(cb.lower(root.get(attribute)), value.trim().toLowerCase());
+    }
+}
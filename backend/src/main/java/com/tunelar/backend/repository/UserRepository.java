@@ -1,12 +1,24 @@
 package com.tunelar.backend.repository;
 
+import com.tunelar.backend.dto.UserSummaryDto;
 import com.tunelar.backend.model.User;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
+    /**
+     * Summary row per user: id, username, role and track count, by id
+     */
+    String SUMMARY_QUERY = "select new com.tunelar.backend.dto.UserSummaryDto(u.id, u.username, max(r.name), "
+            + "(select count(t) from Track t where t.user = u)) "
+            + "from User u left join u.roles r group by u.id, u.username order by u.id";
+
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
     Boolean existsByUsername(String username);
@@ -18,4 +30,31 @@ public interface UserRepository extends JpaRepository<User, Long> {
      * @return User object or exception on error
      */
     Optional<User> findByUsernameOrEmail(String username, String email);
-}
\ No newline at end of file
+    /**
+     * Returns a summary row per user, in one query regardless of how many users or tracks exist
+     * @return id, username, role and track count of every user, by id
+     */
+    @Query(SUMMARY_QUERY)
+    List<UserSummaryDto> findAllSummaries();
+    /**
+     * Returns the user with the given id, fetching its roles in the same query
+     * @param id user's id
+     * @return User object or empty if not found
+     */
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesById(Long id);
+    /**
+     * Returns the user with the given username, fetching its roles in the same query
+     * @param username user's username
+     * @return User object or empty if not found
+     */
+    @EntityGraph(attributePaths = "roles")
+    Optional<User> findWithRolesByUsername(String username);
+    /**
+     * Returns only the id of the user with the given username
+     * @param username user's username
+     * @return the user's id or empty if not found
+     */
+    @Query("select u.id from User u where u.username = :username")
+    Optional<Long> findIdByUsername(@Param("username") String username);
+}
@@ -0,0 +1,138 @@
+package com.tunelar.backend.security;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.tunelar.backend.exception.AuthThrottledException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Password encoder that runs the wrapped (BCrypt) encoder on a dedicated, fixed-size
+ * pool with a bounded queue. Hashing is CPU-bound, so a pool smaller than the core
+ * count leaves cores free for other endpoints during a burst of logins. When the queue
+ * is full the caller is turned away immediately with a 503 instead of piling up.
+ *
+ * The calling request thread still blocks until its hash completes or the timeout
+ * passes; the bounded queue limits how many request threads can wait this way.
+ */
+public class AdmissionControlledPasswordEncoder implements PasswordEncoder, DisposableBean {
+
+    private final PasswordEncoder delegate;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    private final long retryAfterSeconds;
+
+    private final Timer encodeTimer;
+    private final Timer matchesTimer;
+    private final Counter rejected;
+
+    /**
+     * Creates the encoder and its worker pool.
+     *
+     * @param delegate the encoder doing the actual hashing
+     * @param threads the number of hashing threads
+     * @param queueCapacity how many hash operations may wait for a thread
+     * @param timeoutMillis how long a caller waits for its result before giving up
+     * @param retryAfterSeconds the Retry-After sent back when a caller is turned away
+     * @param meterRegistry registry for queue depth, latency and rejection metrics
+     */
+    public AdmissionControlledPasswordEncoder(final PasswordEncoder delegate, final int threads,
+            final int queueCapacity, final long timeoutMillis, final long retryAfterSeconds,
+            final MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.timeoutMillis = timeoutMillis;
+        this.retryAfterSeconds = retryAfterSeconds;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    final Thread thread = new Thread(runnable, "password-hash-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        this.encodeTimer = Timer.builder("auth.password.hash").tag("operation", "encode").register(meterRegistry);
+        this.matchesTimer = Timer.builder("auth.password.hash").tag("operation", "matches").register(meterRegistry);
+        this.rejected = Counter.builder("auth.password.rejected").register(meterRegistry);
+        Gauge.builder("auth.password.queue.depth", executor, pool -> pool.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("auth.password.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String encode(final CharSequence rawPassword) {
+        return submit(() -> encodeTimer.record(() -> delegate.encode(rawPassword)));
+    }
+
+    @Override
+    public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+        return submit(() -> matchesTimer.record(() -> delegate.matches(rawPassword, encodedPassword)));
+    }
+
+    @Override
+    public boolean upgradeEncoding(final String encodedPassword) {
+        return delegate.upgradeEncoding(encodedPassword);
+    }
+
+    /**
+     * Runs a hash operation on the pool and waits for its result.
+     */
+    private <T> T submit(final Callable<T> task) {
+        final Future<T> future;
+        try {
+            future = executor.submit(task);
+        }
+        catch (final RejectedExecutionException e) {
+            rejected.increment();
+            throw busy();
+        }
+
+        try {
+            return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        catch (final TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw busy();
+        }
+        catch (final InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw busy();
+        }
+        catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Password hashing failed", e.getCause());
+        }
+    }
+
+    private AuthThrottledException busy() {
+        return new AuthThrottledException(HttpStatus.SERVICE_UNAVAILABLE,
+                "Authentication is busy, please retry later.", retryAfterSeconds);
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
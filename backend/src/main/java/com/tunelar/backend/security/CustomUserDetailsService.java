@@ -1,46 +1,131 @@
 package com.tunelar.backend.security;
 
+import java.time.Duration;
+import java.util.Locale;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.tunelar.backend.model.User;
 import com.tunelar.backend.repository.UserRepository;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
 /**
  * Implementation of UserDetailsService that loads user information from the database.
+ * Loaded users are kept in a bounded, expiring cache keyed by both username and email;
+ * callers that change a user must evict it through {@link #evictUser(User)}.
  */
 @Service
 public class CustomUserDetailsService implements UserDetailsService {
 
+    /**
+     * Immutable snapshot of a loaded user. A fresh principal is built from it on every
+     * lookup, because authentication erases credentials on the principal it receives.
+     */
+    private record CachedUser(Long id, String username, String password, Set<GrantedAuthority> authorities) {
+    }
+
     private UserRepository userRepository;
-    
-    public CustomUserDetailsService(UserRepository userRepository) {
+
+    private Cache<String, CachedUser> cache;
+
+    public CustomUserDetailsService(UserRepository userRepository,
+                                    MeterRegistry meterRegistry,
+                                    @Value("${app.user-cache.maximum-size:10000}") long maximumSize,
+                                    @Value("${app.user-cache.ttl-seconds:300}") long ttlSeconds) {
         this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userDetails");
     }
-    
+
     @Override
     public UserDetails loadUserByUsername(String usernameOrEmail) throws UsernameNotFoundException {
+        CachedUser cached = cache.getIfPresent(cacheKey(usernameOrEmail));
+
+        if (cached == null) {
+            cached = loadFromDatabase(usernameOrEmail);
+        }
+
+        // Create and return the principal, keeping the id so it can go into the token
+        return new UserPrincipal(
+                cached.id(),
+                cached.username(),
+                cached.password(),
+                cached.authorities());
+    }
+
+    /**
+     * Removes a user from the cache under both its username and email, so the next
+     * lookup reads the current state from the database. Inside a transaction the
+     * entries are removed once it commits; evicting earlier would let a lookup in
+     * between cache the old row again.
+     *
+     * @param user the user whose entries should be evicted
+     */
+    public void evictUser(User user) {
+        evict(user.getUsername());
+        evict(user.getEmail());
+    }
+
+    /**
+     * Removes a single username or email entry from the cache, after the current
+     * transaction commits if there is one.
+     *
+     * @param usernameOrEmail the username or email to evict
+     */
+    public void evict(String usernameOrEmail) {
+        final String key = cacheKey(usernameOrEmail);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            cache.invalidate(key);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                cache.invalidate(key);
+            }
+        });
+    }
+
+    private CachedUser loadFromDatabase(String usernameOrEmail) {
         // Allow login with either username or email
         User user = userRepository.findByUsernameOrEmail(usernameOrEmail, usernameOrEmail)
                 .orElseThrow(() -> new UsernameNotFoundException(
                         "User not found with username or email: " + usernameOrEmail));
-        
+
         // Convert roles to GrantedAuthority objects
         Set<GrantedAuthority> authorities = user.getRoles().stream()
                 .map(role -> new SimpleGrantedAuthority(role.getName()))
-                .collect(Collectors.toSet());
-        
-        // Create and return Spring Security UserDetails object
-        return new org.springframework.security.core.userdetails.User(
-                user.getUsername(), 
-                user.getPassword(), 
-                authorities);
+                .collect(Collectors.toUnmodifiableSet());
+
+        CachedUser cached = new CachedUser(user.getId(), user.getUsername(), user.getPassword(), authorities);
+        cache.put(cacheKey(user.getUsername()), cached);
+        cache.put(cacheKey(user.getEmail()), cached);
+        return cached;
+    }
+
+    /**
+     * Usernames and emails are matched case-insensitively by the database, so the
+     * cache is keyed the same way.
+     */
+    private static String cacheKey(String usernameOrEmail) {
+        return usernameOrEmail.toLowerCase(Locale.ROOT);
     }
-}
\ No newline at end of file
+}
@@ -2,6 +2,7 @@ package com.tunelar.backend.security;
 
 import java.io.IOException;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -18,63 +20,72 @@ import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * Filter that intercepts requests to validate JWT tokens and set up authentication.
+ * In verified-claims mode the principal is built from the token itself, so an
+ * authenticated request costs one signature check and no database query.
  */
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private JwtTokenProvider jwtTokenProvider;
     private UserDetailsService userDetailsService;
+    private TokenRevocationService tokenRevocationService;
+    private boolean verifiedClaims;
 
-    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService) {
+    public JwtAuthenticationFilter(JwtTokenProvider jwtTokenProvider, UserDetailsService userDetailsService,
+                                   TokenRevocationService tokenRevocationService,
+                                   @Value("${app.jwt-verified-claims:true}") boolean verifiedClaims) {
         this.jwtTokenProvider = jwtTokenProvider;
         this.userDetailsService = userDetailsService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.verifiedClaims = verifiedClaims;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request,
                                    HttpServletResponse response,
                                    FilterChain filterChain) throws ServletException, IOException {
-        
+
         // Get JWT token from request
         String token = getTokenFromRequest(request);
-        
-        // Validate token and set up authentication
-        if (StringUtils.hasText(token) && jwtTokenProvider.validateToken(token)) {
-            // Get username from token
-            String username = jwtTokenProvider.getUsername(token);
-            
-            // Load user details
-            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-            
+
+        // Verify token once and keep its claims
+        Claims claims = StringUtils.hasText(token) ? jwtTokenProvider.parseClaims(token) : null;
+
+        if (claims != null && !tokenRevocationService.isRevoked(claims)) {
+            // Build the principal from the claims, or load it for tokens that predate them
+            UserDetails userDetails = verifiedClaims && jwtTokenProvider.hasPrincipalClaims(claims)
+                    ? jwtTokenProvider.getPrincipal(claims)
+                    : userDetailsService.loadUserByUsername(claims.getSubject());
+
             // Create authentication token
             UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(
                 userDetails,
                 null,
                 userDetails.getAuthorities()
             );
-            
+
             authenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-            
+
             // Set authentication in security context
             SecurityContextHolder.getContext().setAuthentication(authenticationToken);
         }
-        
+
         filterChain.doFilter(request, response);
     }
-    
+
     /**
      * Extracts the JWT token from the request Authorization header.
-     * 
+     *
      * @param request the HTTP request
      * @return the JWT token, or null if not found
      */
     private String getTokenFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
-        
+
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
             return bearerToken.substring(7);
         }
-        
+
         return null;
     }
-}
\ No newline at end of file
+}
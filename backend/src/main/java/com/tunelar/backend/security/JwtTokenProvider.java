@@ -1,17 +1,27 @@
 package com.tunelar.backend.security;
 
+import java.util.Collection;
 import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
 
 import javax.crypto.SecretKey;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 
 /**
  * Provides JWT token generation and validation functionality.
@@ -19,6 +29,22 @@ import io.jsonwebtoken.security.Keys;
 @Component
 public class JwtTokenProvider {
 
+    /**
+     * Claim holding the id of the user the token was issued to
+     */
+    public static final String USER_ID_CLAIM = "uid";
+
+    /**
+     * Claim holding the authority names granted to the user
+     */
+    public static final String ROLES_CLAIM = "roles";
+
+    /**
+     * Claim holding the issue time in epoch milliseconds; the standard iat claim only
+     * has second precision
+     */
+    public static final String ISSUED_AT_MILLIS_CLAIM = "iatms";
+
     /**
      * JWT secret from application properties
      */
@@ -32,7 +58,28 @@ public class JwtTokenProvider {
     private Long jwtExpirationDate;
 
     /**
-     * Generates a JWT token for the authenticated user
+     * Signing key, derived once from the secret
+     */
+    private SecretKey key;
+
+    /**
+     * Parser bound to the signing key; thread-safe and reused for every token
+     */
+    private JwtParser parser;
+
+    /**
+     * Derives the signing key and builds the parser once the properties are injected.
+     */
+    @PostConstruct
+    void init() {
+        key = key();
+        parser = Jwts.parser().verifyWith(key).build();
+    }
+
+    /**
+     * Generates a JWT token for the authenticated user. When the principal is a
+     * {@link UserPrincipal} the user id and authorities are embedded as claims so the
+     * token can be turned back into an authentication without a database lookup.
      *
      * @param authentication the authentication object
      * @return the generated JWT token
@@ -43,12 +90,23 @@ public class JwtTokenProvider {
         final Date currentDate = new Date();
         final Date expireDate = new Date(currentDate.getTime() + jwtExpirationDate);
 
-        return Jwts.builder()
+        final List<String> roles = authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .collect(Collectors.toList());
+
+        final JwtBuilder builder = Jwts.builder()
+                .id(UUID.randomUUID().toString())
                 .subject(username)
                 .issuedAt(currentDate)
+                .claim(ISSUED_AT_MILLIS_CLAIM, currentDate.getTime())
                 .expiration(expireDate)
-                .signWith(key())
-                .compact();
+                .claim(ROLES_CLAIM, roles);
+
+        if (authentication.getPrincipal() instanceof UserPrincipal principal) {
+            builder.claim(USER_ID_CLAIM, principal.getId());
+        }
+
+        return builder.signWith(key).compact();
     }
 
     /**
@@ -74,6 +132,49 @@ public class JwtTokenProvider {
         }
     }
 
+    /**
+     * Verifies a JWT token and returns its claims in a single parse.
+     *
+     * @param token the JWT token
+     * @return the verified claims, or null if the token is invalid or expired
+     */
+    public Claims parseClaims(final String token) {
+        try {
+            return parser.parseSignedClaims(token).getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Checks whether verified claims carry everything needed to build a principal
+     * without loading the user. Tokens issued before the claims were added do not.
+     *
+     * @param claims verified claims of a token
+     * @return true if the user id and roles claims are present
+     */
+    public boolean hasPrincipalClaims(final Claims claims) {
+        return claims.get(USER_ID_CLAIM) != null && claims.get(ROLES_CLAIM) instanceof Collection;
+    }
+
+    /**
+     * Builds a principal straight from verified claims.
+     *
+     * @param claims verified claims containing the user id and roles
+     * @return the principal described by the claims
+     */
+    public UserPrincipal getPrincipal(final Claims claims) {
+        final List<SimpleGrantedAuthority> authorities = ((Collection<?>) claims.get(ROLES_CLAIM)).stream()
+                .map(role -> new SimpleGrantedAuthority(role.toString()))
+                .collect(Collectors.toList());
+
+        return new UserPrincipal(
+                claims.get(USER_ID_CLAIM, Long.class),
+                claims.getSubject(),
+                "",
+                authorities);
+    }
+
     /**
      * Extracts the username from a JWT token
      *
@@ -81,11 +182,7 @@ public class JwtTokenProvider {
      * @return the username
      */
     public String getUsername(final String token) {
-        final Claims claims = Jwts.parser()
-                .verifyWith(key())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        final Claims claims = parser.parseSignedClaims(token).getPayload();
 
         return claims.getSubject();
     }
@@ -97,11 +194,6 @@ public class JwtTokenProvider {
      * @return true if the token is valid, false otherwise
      */
     public boolean validateToken(final String token) {
-        try {
-            Jwts.parser().verifyWith(key()).build().parse(token);
-            return true;
-        } catch (Exception e) {
-            return false;
-        }
+        return parseClaims(token) != null;
     }
-}
\ No newline at end of file
+}
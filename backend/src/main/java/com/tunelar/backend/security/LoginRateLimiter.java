@@ -0,0 +1,93 @@
+package com.tunelar.backend.security;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tunelar.backend.exception.AuthThrottledException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Per-IP and per-account token buckets in front of the authentication endpoints.
+ * Requests are rejected with a 429 before any password hashing is queued. Idle
+ * buckets expire, so the number of tracked clients stays bounded.
+ */
+@Component
+public class LoginRateLimiter {
+
+    private final Cache<String, TokenBucket> ipBuckets;
+    private final Cache<String, TokenBucket> accountBuckets;
+
+    private final long ipCapacity;
+    private final long ipRefillPerMinute;
+    private final long accountCapacity;
+    private final long accountRefillPerMinute;
+
+    private final Counter ipLimited;
+    private final Counter accountLimited;
+
+    public LoginRateLimiter(@Value("${app.auth.rate-limit.ip.capacity:20}") long ipCapacity,
+                            @Value("${app.auth.rate-limit.ip.refill-per-minute:20}") long ipRefillPerMinute,
+                            @Value("${app.auth.rate-limit.account.capacity:5}") long accountCapacity,
+                            @Value("${app.auth.rate-limit.account.refill-per-minute:5}") long accountRefillPerMinute,
+                            @Value("${app.auth.rate-limit.max-tracked:100000}") long maxTracked,
+                            MeterRegistry meterRegistry) {
+        this.ipCapacity = ipCapacity;
+        this.ipRefillPerMinute = ipRefillPerMinute;
+        this.accountCapacity = accountCapacity;
+        this.accountRefillPerMinute = accountRefillPerMinute;
+        this.ipBuckets = buckets(maxTracked);
+        this.accountBuckets = buckets(maxTracked);
+        this.ipLimited = Counter.builder("auth.rate.limited").tag("scope", "ip").register(meterRegistry);
+        this.accountLimited = Counter.builder("auth.rate.limited").tag("scope", "account").register(meterRegistry);
+    }
+
+    /**
+     * A bucket that has been idle long enough to refill completely carries no state
+     */
+    private static Cache<String, TokenBucket> buckets(long maxTracked) {
+        return Caffeine.newBuilder()
+                .maximumSize(maxTracked)
+                .expireAfterAccess(Duration.ofMinutes(10))
+                .build();
+    }
+
+    /**
+     * Takes a token for the client address and, if given, for the account.
+     *
+     * @param clientAddress the remote address of the request
+     * @param account the username or email being authenticated, or null
+     * @throws AuthThrottledException if either bucket is empty
+     */
+    public void acquire(String clientAddress, String account) {
+        final long now = System.nanoTime();
+
+        final TokenBucket ipBucket = ipBuckets.get(clientAddress,
+                key -> new TokenBucket(ipCapacity, ipRefillPerMinute, now));
+        if (!ipBucket.tryConsume(now)) {
+            ipLimited.increment();
+            throw tooManyRequests(ipBucket.secondsUntilAvailable(now));
+        }
+
+        if (account != null) {
+            final TokenBucket accountBucket = accountBuckets.get(account.toLowerCase(Locale.ROOT),
+                    key -> new TokenBucket(accountCapacity, accountRefillPerMinute, now));
+            if (!accountBucket.tryConsume(now)) {
+                accountLimited.increment();
+                throw tooManyRequests(accountBucket.secondsUntilAvailable(now));
+            }
+        }
+    }
+
+    private static AuthThrottledException tooManyRequests(long retryAfterSeconds) {
+        return new AuthThrottledException(HttpStatus.TOO_MANY_REQUESTS,
+                "Too many authentication attempts, please retry later.", retryAfterSeconds);
+    }
+}
@@ -0,0 +1,70 @@
+package com.tunelar.backend.security;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Lock-free token bucket. Tokens refill continuously at a fixed rate up to the
+ * capacity; every permitted request takes one.
+ */
+class TokenBucket {
+
+    /**
+     * Tokens available as of a point in time
+     */
+    private record State(double tokens, long refilledAt) {
+    }
+
+    private final double capacity;
+    private final double tokensPerNano;
+    private final AtomicReference<State> state;
+
+    /**
+     * Creates a full bucket.
+     *
+     * @param capacity the maximum number of tokens, i.e. the allowed burst
+     * @param refillPerMinute how many tokens are added per minute
+     * @param now the current time in nanoseconds
+     */
+    TokenBucket(final long capacity, final long refillPerMinute, final long now) {
+        this.capacity = capacity;
+        this.tokensPerNano = refillPerMinute / (double) TimeUnit.MINUTES.toNanos(1);
+        this.state = new AtomicReference<>(new State(capacity, now));
+    }
+
+    /**
+     * Takes a token if one is available.
+     *
+     * @param now the current time in nanoseconds
+     * @return true if a token was taken
+     */
+    boolean tryConsume(final long now) {
+        while (true) {
+            final State current = state.get();
+            final double tokens = refilled(current, now);
+            if (tokens < 1.0) {
+                return false;
+            }
+            if (state.compareAndSet(current, new State(tokens - 1.0, Math.max(now, current.refilledAt())))) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Computes how long until a token will be available.
+     *
+     * @param now the current time in nanoseconds
+     * @return whole seconds to wait, at least one
+     */
+    long secondsUntilAvailable(final long now) {
+        final double missing = 1.0 - refilled(state.get(), now);
+        final long nanos = missing <= 0 ? 0 : (long) Math.ceil(missing / tokensPerNano);
+        return Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(nanos + TimeUnit.SECONDS.toNanos(1) - 1));
+    }
+
+    private double refilled(final State current, final long now) {
+        final long elapsed = Math.max(0L, now - current.refilledAt());
+        return Math.min(capacity, current.tokens() + elapsed * tokensPerNano);
+    }
+}
@@ -0,0 +1,167 @@
+package com.tunelar.backend.security;
+
+import java.util.Comparator;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * In-memory revocation of issued JWTs. A single token can be revoked by its id, and
+ * every token of a user can be revoked by recording an issued-at watermark for that
+ * user. Checks are two lock-free map lookups. Each entry is dropped once the tokens
+ * it could match have expired, so memory is bounded by the live-token window.
+ *
+ * Revocations are local to this instance and do not survive a restart.
+ */
+@Service
+public class TokenRevocationService {
+
+    /**
+     * A revocation entry waiting to be purged, ordered by the time it stops mattering.
+     * Exactly one of tokenId and userId is set.
+     */
+    private record Expiry(long expiresAt, long sequence, String tokenId, Long userId, long watermark) {
+    }
+
+    /**
+     * Revoked token ids mapped to the expiration time of the token
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+
+    /**
+     * User ids mapped to the time before which all of their tokens are revoked
+     */
+    private final Map<Long, Long> userWatermarks = new ConcurrentHashMap<>();
+
+    /**
+     * All entries of both maps, in expiry order
+     */
+    private final ConcurrentSkipListSet<Expiry> expiries = new ConcurrentSkipListSet<>(
+            Comparator.comparingLong(Expiry::expiresAt).thenComparingLong(Expiry::sequence));
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Lifetime of an issued token; a watermark is kept this long after it is set
+     */
+    private final long tokenLifetimeMillis;
+
+    public TokenRevocationService(@Value("${app.jwt-expiration-milliseconds}") long tokenLifetimeMillis,
+                                  MeterRegistry meterRegistry) {
+        this.tokenLifetimeMillis = tokenLifetimeMillis;
+        Gauge.builder("auth.revocation.entries", revokedTokens, Map::size)
+                .tag("type", "token")
+                .register(meterRegistry);
+        Gauge.builder("auth.revocation.entries", userWatermarks, Map::size)
+                .tag("type", "user")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Revokes a single token.
+     *
+     * @param tokenId the id (jti) of the token
+     * @param expiresAt the expiration time of the token in epoch milliseconds
+     */
+    public void revokeToken(String tokenId, long expiresAt) {
+        if (revokedTokens.putIfAbsent(tokenId, expiresAt) == null) {
+            expiries.add(new Expiry(expiresAt, sequence.incrementAndGet(), tokenId, null, 0L));
+        }
+    }
+
+    /**
+     * Revokes every token issued to a user before the given time. Tokens carrying the
+     * millisecond issue time are compared to the exact time; tokens issued before that
+     * claim existed only carry the whole-second iat claim and are compared to the revocation time rounded down to the
+     * second, so a login in the same second as the revocation is not rejected.
+     *
+     * @param userId the id of the user
+     * @param revokedAt the revocation time in epoch milliseconds
+     */
+    public void revokeAllForUser(Long userId, long revokedAt) {
+        final long watermark = userWatermarks.merge(userId, revokedAt, Math::max);
+        expiries.add(new Expiry(watermark + tokenLifetimeMillis, sequence.incrementAndGet(), null, userId,
+                watermark));
+    }
+
+    /**
+     * Revokes every token issued to a user up to now.
+     *
+     * @param userId the id of the user
+     */
+    public void revokeAllForUser(Long userId) {
+        revokeAllForUser(userId, System.currentTimeMillis());
+    }
+
+    /**
+     * Checks verified token claims against the revocation entries.
+     *
+     * @param claims verified claims of a token
+     * @return true if the token has been revoked
+     */
+    public boolean isRevoked(Claims claims) {
+        final String tokenId = claims.getId();
+        if (tokenId != null && revokedTokens.containsKey(tokenId)) {
+            return true;
+        }
+
+        final Long userId = claims.get(JwtTokenProvider.USER_ID_CLAIM, Long.class);
+        if (userId == null) {
+            return false;
+        }
+        final Long watermark = userWatermarks.get(userId);
+        if (watermark == null) {
+            return false;
+        }
+
+        final Long issuedAtMillis = claims.get(JwtTokenProvider.ISSUED_AT_MILLIS_CLAIM, Long.class);
+        if (issuedAtMillis != null) {
+            return issuedAtMillis < watermark;
+        }
+        // tokens issued before the millisecond claim was added carry a user id but
+        // only the whole-second iat; they reach this until they expire, one token lifetime
+        final Date issuedAt = claims.getIssuedAt();
+        return issuedAt != null && issuedAt.getTime() < watermark / 1000L * 1000L;
+    }
+
+    /**
+     * Drops entries whose tokens have all expired, oldest first.
+     */
+    @Scheduled(fixedDelayString = "${app.jwt-revocation.purge-interval-ms:60000}")
+    public void purgeExpired() {
+        purgeExpired(System.currentTimeMillis());
+    }
+
+    /**
+     * Drops entries that stopped mattering at or before the given time.
+     *
+     * @param now the current time in epoch milliseconds
+     */
+    void purgeExpired(long now) {
+        final Iterator<Expiry> iterator = expiries.iterator();
+        while (iterator.hasNext()) {
+            final Expiry expiry = iterator.next();
+            if (expiry.expiresAt() > now) {
+                return;
+            }
+            iterator.remove();
+            if (expiry.tokenId() != null) {
+                revokedTokens.remove(expiry.tokenId(), expiry.expiresAt());
+            } else {
+                // a newer watermark for the same user has its own entry
+                userWatermarks.remove(expiry.userId(), expiry.watermark());
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tunelar.backend.security;
+
+import java.util.Collection;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.User;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Spring Security principal for a Tunelar user. Carries the database id of the user
+ * so it can be written into issued tokens and read back without a repository lookup.
+ */
+@Getter
+@EqualsAndHashCode(callSuper = true)
+public class UserPrincipal extends User {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * the id of the user
+     */
+    private final Long id;
+
+    /**
+     * Creates a principal for the given user.
+     *
+     * @param id the id of the user
+     * @param username the username of the user
+     * @param password the password hash of the user, empty when built from a token
+     * @param authorities the authorities granted to the user
+     */
+    public UserPrincipal(final Long id, final String username, final String password,
+            final Collection<? extends GrantedAuthority> authorities) {
+        super(username, password, authorities);
+        this.id = id;
+    }
+}
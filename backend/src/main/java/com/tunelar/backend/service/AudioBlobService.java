@@ -0,0 +1,83 @@
+package com.tunelar.backend.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.AudioBlob;
+import com.tunelar.backend.storage.AudioFormat;
+
+/**
+ * Content-addressed audio storage. Files are stored once under the SHA-256 digest
+ * of their bytes and shared by every track whose fileUrl points at them. Each
+ * track holds one reference; the file is deleted once the last one is released.
+ */
+public interface AudioBlobService {
+    /**
+     * Stores audio, or adds a reference to the blob already holding the same bytes.
+     * The digest is computed while the content streams into storage. When the
+     * client declares the digest up front and it is already stored, the content is
+     * only read to verify it and nothing is written.
+     *
+     * @param content the audio; read to the end but not closed
+     *
+     * @param contentLength length of the audio in bytes, or -1 if unknown
+     *
+     * @param format the format of the audio
+     *
+     * @param declaredDigest the hex SHA-256 the client claims for the content, or null
+     *
+     * @throws TunelarAPIException if the content does not match the declared digest
+     *
+     * @throws IOException if reading the content or storing it fails
+     *
+     * @return the blob, with a reference held for the caller
+     */
+    AudioBlob store ( InputStream content, long contentLength, AudioFormat format, String declaredDigest )
+            throws IOException;
+
+    /**
+     * Stores an audio file already on disk, or adds a reference to the blob already
+     * holding the same bytes
+     *
+     * @param file the audio; consumed
+     *
+     * @param format the format of the audio
+     *
+     * @param copy receives the content as it is read to compute the digest
+     *
+     * @throws IOException if reading the file or storing it fails
+     *
+     * @return the blob, with a reference held for the caller
+     */
+    AudioBlob store ( Path file, AudioFormat format, OutputStream copy ) throws IOException;
+
+    /**
+     * Gets the URL a blob is served at
+     *
+     * @param blob the blob
+     *
+     * @return the file URL to give tracks referring to it
+     */
+    String fileUrl ( AudioBlob blob );
+
+    /**
+     * Finds the blob served at a URL
+     *
+     * @param fileUrl the file URL of a track
+     *
+     * @return the blob, or null if the URL is not a blob's
+     */
+    AudioBlob find ( String fileUrl );
+
+    /**
+     * Releases a reference to the blob served at a URL. Joins the caller's
+     * transaction; the file is deleted after it commits if nothing refers to it.
+     * URLs that are not a blob's are ignored.
+     *
+     * @param fileUrl the file URL of a track
+     */
+    void release ( String fileUrl );
+}
@@ -5,7 +5,8 @@ import java.util.List;
 import com.tunelar.backend.dto.JwtAuthResponse;
 import com.tunelar.backend.dto.LoginDto;
 import com.tunelar.backend.dto.RegisterDto;
-import com.tunelar.backend.model.User;
+import com.tunelar.backend.dto.UserDetailDto;
+import com.tunelar.backend.dto.UserSummaryDto;
 import com.tunelar.backend.exception.ResourceNotFoundException;
 
 /**
@@ -30,6 +31,14 @@ public interface AuthService {
      */
     JwtAuthResponse login ( LoginDto loginDto );
 
+    /**
+     * Logs out the given token by revoking it
+     *
+     * @param token the JWT token to revoke
+     *            
+     */
+    void logout ( String token );
+
     /**
      * Deletes the given user by id
      *
@@ -45,9 +54,9 @@ public interface AuthService {
      *            
      * @throws ResourceNotFoundException if user cannot be found
      *            
-     * @return the user id
+     * @return the user's details
      */
-    public User getUserById (final Long id);
+    public UserDetailDto getUserById (final Long id);
 
     /**
      * Updates a user's role
@@ -67,17 +76,28 @@ public interface AuthService {
      *            
      * @throws ResourceNotFoundException if user cannot be found
      *             
-     * @return the username
+     * @return the user's details
+     */
+    public UserDetailDto getUserByUsername ( final String username );
+
+    /**
+     * gets the id of the given user by username
+     *
+     * @param username username of user to get
+     *            
+     * @throws ResourceNotFoundException if user cannot be found
+     *             
+     * @return the user id
      */
-    public User getUserByUsername ( final String username );
+    public Long getUserIdByUsername ( final String username );
 
     /**
      * gets all the users
      *
      *
-     * @return a list of all the users
+     * @return a summary of every user
      */
-    public List<User> getAllUsers ();
+    public List<UserSummaryDto> getAllUsers ();
 
     /**
      * Updates a user's username
@@ -0,0 +1,29 @@
+package com.tunelar.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Bulk export service. Exports are written as NDJSON, one JSON object per line,
+ * straight from a database cursor to the output, so memory use does not grow with
+ * the size of the table.
+ */
+public interface ExportService {
+    /**
+     * Writes a summary of every user, by id
+     *
+     * @param output the stream to write to; left open
+     *
+     * @throws IOException if writing fails
+     */
+    void exportUsers ( OutputStream output ) throws IOException;
+
+    /**
+     * Writes every track, by id
+     *
+     * @param output the stream to write to; left open
+     *
+     * @throws IOException if writing fails
+     */
+    void exportTracks ( OutputStream output ) throws IOException;
+}
@@ -0,0 +1,40 @@
+package com.tunelar.backend.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.storage.StoredFile;
+
+/**
+ * Serves the stored audio files of tracks.
+ */
+public interface FileService {
+    /**
+     * Finds the stored file served at a URL
+     *
+     * @param fileUrl the file URL of a track
+     *
+     * @throws ResourceNotFoundException if no uploaded track has that file URL
+     *
+     * @return the file
+     */
+    StoredFile find ( String fileUrl );
+
+    /**
+     * Copies part of a file to an output. This is a buffered copy, used when the
+     * servlet container cannot send a local file itself with sendfile; local files
+     * are read from the start of the range rather than skipped to.
+     *
+     * @param file the file
+     *
+     * @param position the position of the first byte to send
+     *
+     * @param count the number of bytes to send
+     *
+     * @param output the stream to write to; left open
+     *
+     * @throws IOException if reading or writing fails
+     */
+    void transfer ( StoredFile file, long position, long count, OutputStream output ) throws IOException;
+}
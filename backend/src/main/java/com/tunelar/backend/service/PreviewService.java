@@ -0,0 +1,43 @@
+package com.tunelar.backend.service;
+
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.storage.StoredFile;
+
+/**
+ * Serves short, light renditions of track audio for previews: the opening seconds,
+ * mixed to mono and resampled down. Renditions are made on first request and
+ * kept in a local cache of bounded size.
+ */
+public interface PreviewService {
+    /**
+     * Finds the preview of the file served at a URL, rendering it if it is not
+     * cached. Audio that cannot be rendered, or that is no larger than its preview
+     * would be, is its own preview.
+     *
+     * @param fileUrl the file URL of a track
+     *
+     * @throws ResourceNotFoundException if no uploaded track has that file URL
+     *
+     * @return the preview
+     */
+    StoredFile find ( String fileUrl );
+
+    /**
+     * Finds the preview of an original file found by the file service, rendering
+     * it if it is not cached.
+     *
+     * @param original the original file
+     *
+     * @return the preview, or the original if it is its own preview
+     */
+    StoredFile find ( StoredFile original );
+
+    /**
+     * Records a preview sent whole in place of its original, counting the bytes the
+     * preview saved. Partial, HEAD and not-modified responses are not recorded.
+     *
+     * @param original the original file
+     * @param preview the preview sent, as returned by {@link #find(StoredFile)}
+     */
+    void sent ( StoredFile original, StoredFile preview );
+}
@@ -0,0 +1,111 @@
+package com.tunelar.backend.service;
+
+import java.util.List;
+
+import com.tunelar.backend.dto.SimilarTrackDto;
+import com.tunelar.backend.dto.TrackChartDto;
+import com.tunelar.backend.dto.TrackFilterDto;
+import com.tunelar.backend.dto.TrackPageDto;
+import com.tunelar.backend.dto.TrackSearchResultDto;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+
+/**
+ * Track browsing service
+ */
+public interface TrackService {
+    /**
+     * Browses tracks matching the filter newest first, one page at a time
+     *
+     * @param filter criteria the tracks must match; unset fields do not filter
+     *
+     * @param cursor cursor from the previous page, or null for the first page
+     *
+     * @param size maximum number of tracks on the page
+     *
+     * @throws TunelarAPIException if the cursor is malformed
+     *
+     * @return the page of tracks, with the facet counts of every matching track on the first page
+     */
+    TrackPageDto browse ( TrackFilterDto filter, String cursor, int size );
+
+    /**
+     * Searches track titles, descriptions and tags, best match first
+     *
+     * @param query the search text; the last word also matches as a prefix
+     *
+     * @param page the page number, starting at 0
+     *
+     * @param size maximum number of tracks on the page
+     *
+     * @return the page of matching tracks
+     */
+    TrackSearchResultDto search ( String query, int page, int size );
+
+    /**
+     * Gets a page of the trending chart, ranked by recent plays and downloads
+     *
+     * @param tag the tag of the chart, or null for the overall chart
+     *
+     * @param page the page number, starting at 0
+     *
+     * @param size maximum number of tracks on the page
+     *
+     * @return the page of the chart
+     */
+    TrackChartDto trending ( String tag, int page, int size );
+
+    /**
+     * Finds the tracks most similar to a track by key, tempo, length and tags
+     *
+     * @param id id of the track
+     *
+     * @param size maximum number of tracks to return
+     *
+     * @throws ResourceNotFoundException if the track does not exist
+     *
+     * @return the similar tracks, most similar first; empty if the track has no key or tempo
+     */
+    List<SimilarTrackDto> similar ( Long id, int size );
+
+    /**
+     * Counts a play of a track
+     *
+     * @param id id of the track
+     *
+     * @throws ResourceNotFoundException if the track does not exist
+     */
+    void recordPlay ( Long id );
+
+    /**
+     * Counts a download of a track
+     *
+     * @param id id of the track
+     *
+     * @throws ResourceNotFoundException if the track does not exist
+     */
+    void recordDownload ( Long id );
+
+    /**
+     * Deletes a track and releases its audio file, which is removed from storage
+     * once no other track shares it
+     *
+     * @param id id of the track
+     *
+     * @param userId id of the user deleting it
+     *
+     * @param moderator whether the user may delete other users' tracks
+     *
+     * @throws ResourceNotFoundException if the track does not exist
+     *
+     * @throws TunelarAPIException if the track belongs to another user
+     */
+    void deleteTrack ( Long id, Long userId, boolean moderator );
+
+    /**
+     * Rebuilds the in-memory track indexes from the database
+     *
+     * @return the number of tracks indexed
+     */
+    int rebuildIndexes ();
+}
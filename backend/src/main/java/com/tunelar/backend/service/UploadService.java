@@ -0,0 +1,56 @@
+package com.tunelar.backend.service;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.exception.TunelarAPIException;
+
+/**
+ * Track upload service. Audio is streamed from the request into storage as it
+ * arrives, so a file is never held in memory as a whole. Tracks with identical
+ * audio share one stored file.
+ */
+public interface UploadService {
+    /**
+     * Stores an audio file and creates its track
+     *
+     * @param userId id of the uploading user
+     *
+     * @param upload details of the track
+     *
+     * @param contentLength length of the audio in bytes, or -1 if unknown
+     *
+     * @param contentDigest the hex SHA-256 of the audio declared by the client, or
+     *            null; lets a file that is already stored be verified without
+     *            being written again
+     *
+     * @param content the audio; read to the end but not closed
+     *
+     * @throws TunelarAPIException if the details are invalid, the audio is not a
+     *             supported format, is too large or does not match its declared
+     *             digest, or storing it fails
+     *
+     * @return the created track
+     */
+    TrackDto upload ( Long userId, TrackUploadDto upload, long contentLength, String contentDigest,
+            InputStream content );
+
+    /**
+     * Stores an audio file already assembled on disk and creates its track. The
+     * file is moved into storage, not copied, when storage is on the same disk.
+     *
+     * @param userId id of the uploading user
+     *
+     * @param upload details of the track
+     *
+     * @param file the audio; consumed once stored, left in place if it is rejected first
+     *
+     * @throws TunelarAPIException if the details are invalid, the audio is not a
+     *             supported format, or storing it fails
+     *
+     * @return the created track
+     */
+    TrackDto upload ( Long userId, TrackUploadDto upload, Path file );
+}
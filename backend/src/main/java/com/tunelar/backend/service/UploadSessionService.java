@@ -0,0 +1,96 @@
+package com.tunelar.backend.service;
+
+import java.io.InputStream;
+
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.dto.UploadSessionCreateDto;
+import com.tunelar.backend.dto.UploadSessionDto;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+
+/**
+ * Resumable uploads of files too large for a single request. A session owns a
+ * staging file of the final size; chunks may arrive in any order and in parallel,
+ * and a failed chunk is simply sent again. The track is only created on commit.
+ * Sessions that receive nothing for a while expire and their files are deleted.
+ */
+public interface UploadSessionService {
+    /**
+     * Opens a session
+     *
+     * @param userId id of the uploading user
+     *
+     * @param create the size of the file and of its chunks
+     *
+     * @throws TunelarAPIException if the sizes are invalid or too large
+     *
+     * @return the new session
+     */
+    UploadSessionDto create ( Long userId, UploadSessionCreateDto create );
+
+    /**
+     * Gets a session, to find which chunks still have to be sent
+     *
+     * @param userId id of the uploading user
+     *
+     * @param sessionId the session id
+     *
+     * @throws ResourceNotFoundException if the user has no such session
+     *
+     * @return the session
+     */
+    UploadSessionDto get ( Long userId, String sessionId );
+
+    /**
+     * Writes a chunk into its place in the file. Sending a chunk again replaces it.
+     *
+     * @param userId id of the uploading user
+     *
+     * @param sessionId the session id
+     *
+     * @param index the chunk index, from 0
+     *
+     * @param contentLength length of the chunk in bytes, or -1 if unknown
+     *
+     * @param content the chunk; read to the end but not closed
+     *
+     * @throws ResourceNotFoundException if the user has no such session
+     *
+     * @throws TunelarAPIException if the index is out of range or the chunk has the
+     *             wrong length
+     *
+     * @return the session
+     */
+    UploadSessionDto putChunk ( Long userId, String sessionId, int index, long contentLength, InputStream content );
+
+    /**
+     * Completes a session: stores the file and creates its track. The session stays
+     * open if the details or the file are rejected, so the commit can be retried.
+     *
+     * @param userId id of the uploading user
+     *
+     * @param sessionId the session id
+     *
+     * @param upload details of the track
+     *
+     * @throws ResourceNotFoundException if the user has no such session
+     *
+     * @throws TunelarAPIException if chunks are missing, the details are invalid or
+     *             the audio is not a supported format
+     *
+     * @return the created track
+     */
+    TrackDto commit ( Long userId, String sessionId, TrackUploadDto upload );
+
+    /**
+     * Abandons a session and deletes what was received
+     *
+     * @param userId id of the uploading user
+     *
+     * @param sessionId the session id
+     *
+     * @throws ResourceNotFoundException if the user has no such session
+     */
+    void abort ( Long userId, String sessionId );
+}
@@ -0,0 +1,46 @@
+package com.tunelar.backend.service;
+
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.waveform.WaveformSlice;
+
+/**
+ * Waveform peaks of tracks. Peaks are generated once per audio file in the
+ * background, then served from memory-mapped files.
+ */
+public interface WaveformService {
+    /**
+     * Queues a track for peak generation. Returns at once; the track's waveformUrl is
+     * set when the peaks are written. Tracks that cannot be queued now are picked up
+     * by the periodic backfill.
+     *
+     * @param trackId id of the track
+     */
+    void schedule ( Long trackId );
+
+    /**
+     * Gets a run of buckets from a peaks file
+     *
+     * @param name the file name from a track's waveformUrl
+     *
+     * @param level the zoom level, 0 being the finest
+     *
+     * @param offset the first bucket
+     *
+     * @param count the most buckets to return
+     *
+     * @throws ResourceNotFoundException if there is no such peaks file
+     *
+     * @throws TunelarAPIException if the level or range is invalid
+     *
+     * @return the slice
+     */
+    WaveformSlice slice ( String name, int level, int offset, int count );
+
+    /**
+     * Deletes the peaks of an audio file that is gone, along with their mapping
+     *
+     * @param fileUrl the URL the audio file was served at
+     */
+    void discard ( String fileUrl );
+}
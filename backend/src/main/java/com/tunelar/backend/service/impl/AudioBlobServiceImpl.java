@@ -0,0 +1,364 @@
+package com.tunelar.backend.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.AudioBlob;
+import com.tunelar.backend.repository.AudioBlobRepository;
+import com.tunelar.backend.service.AudioBlobService;
+import com.tunelar.backend.service.WaveformService;
+import com.tunelar.backend.storage.AudioFormat;
+import com.tunelar.backend.storage.StorageBackend;
+import com.tunelar.backend.storage.TeeInputStream;
+
+/**
+ * Implemented AudioBlobService. New content streams into a staging object while it
+ * is hashed and is then moved under its digest, which for local storage is a
+ * rename. Reference counts are only changed by single UPDATE statements, so
+ * concurrent uploads and deletes never lose a count.
+ *
+ * Creating a blob and reclaiming one both hold a lock striped by digest, so a
+ * reclaim cannot delete a file that an upload of the same bytes is just storing.
+ * The locks are per process; run one instance per storage backend.
+ */
+@Service
+public class AudioBlobServiceImpl implements AudioBlobService {
+
+    private static final Logger log = LoggerFactory.getLogger( AudioBlobServiceImpl.class );
+
+    /**
+     * Prefix of the storage keys of blobs
+     */
+    static final String BLOB_KEY_PREFIX = "blobs/";
+
+    /**
+     * Prefix of the storage keys of uploads still being hashed
+     */
+    private static final String STAGING_KEY_PREFIX = "staging/";
+
+    private static final Pattern DIGEST = Pattern.compile( "[0-9a-f]{64}" );
+
+    private static final int STRIPES = 64;
+
+    /**
+     * Published when a blob loses a reference; reclaimed once the release commits
+     */
+    record Released ( String digest ) {
+    }
+
+    /**
+     * Link to audioBlobRepository
+     */
+    private final AudioBlobRepository       audioBlobRepository;
+    /**
+     * Link to storageBackend
+     */
+    private final StorageBackend            storageBackend;
+    /**
+     * Link to eventPublisher
+     */
+    private final ApplicationEventPublisher eventPublisher;
+    /**
+     * Link to waveformService, which drops the peaks of reclaimed blobs
+     */
+    private final WaveformService           waveformService;
+    /**
+     * Runs each reference change in its own short transaction
+     */
+    private final TransactionTemplate       transactionTemplate;
+    /**
+     * Serializes creating and reclaiming blobs with the same digest
+     */
+    private final ReentrantLock[]           locks = new ReentrantLock[STRIPES];
+
+    public AudioBlobServiceImpl ( final AudioBlobRepository audioBlobRepository, final StorageBackend storageBackend,
+            final ApplicationEventPublisher eventPublisher, final WaveformService waveformService,
+            final PlatformTransactionManager transactionManager ) {
+        this.audioBlobRepository = audioBlobRepository;
+        this.storageBackend = storageBackend;
+        this.eventPublisher = eventPublisher;
+        this.waveformService = waveformService;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        // also used after commit, when the finished transaction must not be joined
+        this.transactionTemplate.setPropagationBehavior( TransactionDefinition.PROPAGATION_REQUIRES_NEW );
+        for ( int i = 0; i < STRIPES; i++ ) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Stores audio, or adds a reference to the blob already holding the same bytes
+     *
+     * @param content the audio
+     * @param contentLength length of the audio in bytes, or -1 if unknown
+     * @param format the format of the audio
+     * @param declaredDigest the hex SHA-256 the client claims for the content, or null
+     * @return the blob
+     */
+    @Override
+    public AudioBlob store ( final InputStream content, final long contentLength, final AudioFormat format,
+            final String declaredDigest ) throws IOException {
+        final String declared = declaredDigest == null ? null : declaredDigest.trim().toLowerCase( Locale.ROOT );
+        if ( declared != null && !DIGEST.matcher( declared ).matches() ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Content digest must be a hex SHA-256." );
+        }
+
+        final MessageDigest sha256 = sha256();
+        if ( declared != null && acquire( declared ) ) {
+            // already stored: the bytes are only hashed, to prove the client has them
+            try {
+                new DigestInputStream( content, sha256 ).transferTo( OutputStream.nullOutputStream() );
+                checkDeclared( declared, sha256 );
+                return audioBlobRepository.findById( declared ).orElseThrow();
+            }
+            catch ( final IOException | RuntimeException e ) {
+                releaseNow( declared );
+                throw e;
+            }
+        }
+
+        final String staging = STAGING_KEY_PREFIX + UUID.randomUUID();
+        final long size;
+        try {
+            size = storageBackend.put( staging, new DigestInputStream( content, sha256 ), contentLength,
+                    format.contentType() );
+            if ( declared != null ) {
+                checkDeclared( declared, sha256 );
+            }
+        }
+        catch ( final IOException | RuntimeException e ) {
+            deleteQuietly( staging );
+            throw e;
+        }
+        final String digest = HexFormat.of().formatHex( sha256.digest() );
+        return storeOnce( digest, size, format, new Staged() {
+            @Override
+            public void moveTo ( final String key ) throws IOException {
+                storageBackend.move( staging, key );
+            }
+
+            @Override
+            public void discard () {
+                deleteQuietly( staging );
+            }
+        } );
+    }
+
+    /**
+     * Stores an audio file already on disk, or adds a reference to the blob already
+     * holding the same bytes
+     *
+     * @param file the audio
+     * @param format the format of the audio
+     * @param copy receives the content as it is hashed
+     * @return the blob
+     */
+    @Override
+    public AudioBlob store ( final Path file, final AudioFormat format, final OutputStream copy )
+            throws IOException {
+        final MessageDigest sha256 = sha256();
+        try ( InputStream in = new TeeInputStream( new DigestInputStream( Files.newInputStream( file ), sha256 ),
+                copy ) ) {
+            in.transferTo( OutputStream.nullOutputStream() );
+        }
+        final String digest = HexFormat.of().formatHex( sha256.digest() );
+        final long size = Files.size( file );
+        return storeOnce( digest, size, format, new Staged() {
+            @Override
+            public void moveTo ( final String key ) throws IOException {
+                storageBackend.putFile( key, file, format.contentType() );
+            }
+
+            @Override
+            public void discard () throws IOException {
+                Files.delete( file );
+            }
+        } );
+    }
+
+    /**
+     * Content waiting to be stored under its digest
+     */
+    private interface Staged {
+        void moveTo ( String key ) throws IOException;
+
+        void discard () throws IOException;
+    }
+
+    /**
+     * Adds a reference to the blob with the digest if there is one, discarding the
+     * staged content, or else moves the content under the digest and creates the blob
+     */
+    private AudioBlob storeOnce ( final String digest, final long size, final AudioFormat format,
+            final Staged staged ) throws IOException {
+        final ReentrantLock lock = lockFor( digest );
+        lock.lock();
+        try {
+            if ( acquire( digest ) ) {
+                staged.discard();
+                return audioBlobRepository.findById( digest ).orElseThrow();
+            }
+            final String key = BLOB_KEY_PREFIX + digest + "." + format.fileType();
+            staged.moveTo( key );
+            final AudioBlob blob = new AudioBlob();
+            blob.setDigest( digest );
+            blob.setStorageKey( key );
+            blob.setSize( size );
+            blob.setContentType( format.contentType() );
+            blob.setRefCount( 1L );
+            return transactionTemplate.execute( status -> audioBlobRepository.save( blob ) );
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the URL a blob is served at
+     *
+     * @param blob the blob
+     * @return the file URL
+     */
+    @Override
+    public String fileUrl ( final AudioBlob blob ) {
+        return UploadServiceImpl.FILE_URL_PREFIX + blob.getStorageKey();
+    }
+
+    /**
+     * Finds the blob served at a URL
+     *
+     * @param fileUrl the file URL of a track
+     * @return the blob, or null
+     */
+    @Override
+    public AudioBlob find ( final String fileUrl ) {
+        final String digest = digestOf( fileUrl );
+        return digest == null ? null : audioBlobRepository.findById( digest ).orElse( null );
+    }
+
+    /**
+     * Releases a reference to the blob served at a URL
+     *
+     * @param fileUrl the file URL of a track
+     */
+    @Override
+    @Transactional
+    public void release ( final String fileUrl ) {
+        final String digest = digestOf( fileUrl );
+        if ( digest != null && audioBlobRepository.release( digest ) > 0 ) {
+            eventPublisher.publishEvent( new Released( digest ) );
+        }
+    }
+
+    /**
+     * Deletes a released blob once the release has committed, if nothing refers
+     * to it any more
+     *
+     * @param event the release
+     */
+    @TransactionalEventListener ( fallbackExecution = true )
+    public void reclaim ( final Released event ) {
+        final ReentrantLock lock = lockFor( event.digest() );
+        lock.lock();
+        try {
+            final AudioBlob blob = transactionTemplate.execute( status -> {
+                final AudioBlob unreferenced = audioBlobRepository.findById( event.digest() )
+                        .filter( b -> b.getRefCount() == 0 ).orElse( null );
+                return unreferenced != null && audioBlobRepository.deleteIfUnreferenced( event.digest() ) > 0
+                        ? unreferenced : null;
+            } );
+            if ( blob != null ) {
+                deleteQuietly( blob.getStorageKey() );
+                waveformService.discard( fileUrl( blob ) );
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gets the digest of the blob served at a URL, or null if the URL is not a blob's
+     */
+    static String digestOf ( final String fileUrl ) {
+        final String prefix = UploadServiceImpl.FILE_URL_PREFIX + BLOB_KEY_PREFIX;
+        if ( fileUrl == null || !fileUrl.startsWith( prefix ) ) {
+            return null;
+        }
+        final int end = fileUrl.indexOf( '.', prefix.length() );
+        final String digest = fileUrl.substring( prefix.length(), end < 0 ? fileUrl.length() : end );
+        return DIGEST.matcher( digest ).matches() ? digest : null;
+    }
+
+    private boolean acquire ( final String digest ) {
+        return transactionTemplate.execute( status -> audioBlobRepository.acquire( digest ) ) > 0;
+    }
+
+    /**
+     * Drops a reference taken by this service that was never handed to a track
+     */
+    private void releaseNow ( final String digest ) {
+        if ( transactionTemplate.execute( status -> audioBlobRepository.release( digest ) ) > 0 ) {
+            reclaim( new Released( digest ) );
+        }
+    }
+
+    private static void checkDeclared ( final String declared, final MessageDigest sha256 ) {
+        // clone so the caller can still finish the digest
+        final String actual;
+        try {
+            actual = HexFormat.of().formatHex( ( (MessageDigest) sha256.clone() ).digest() );
+        }
+        catch ( final CloneNotSupportedException e ) {
+            throw new IllegalStateException( e );
+        }
+        if ( !actual.equals( declared ) ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Content does not match its declared digest." );
+        }
+    }
+
+    private ReentrantLock lockFor ( final String digest ) {
+        return locks[Math.floorMod( digest.hashCode(), STRIPES )];
+    }
+
+    private static MessageDigest sha256 () {
+        try {
+            return MessageDigest.getInstance( "SHA-256" );
+        }
+        catch ( final NoSuchAlgorithmException e ) {
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private void deleteQuietly ( final String key ) {
+        try {
+            storageBackend.delete( key );
+        }
+        catch ( final IOException e ) {
+            log.warn( "Failed to delete stored blob {}", key, e );
+        }
+    }
+}
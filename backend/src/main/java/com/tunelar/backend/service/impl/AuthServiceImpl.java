@@ -2,28 +2,40 @@ package com.tunelar.backend.service.impl;
 
 import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
 import java.util.Set;
 
 import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.tunelar.backend.config.RoleRegistry;
+import com.tunelar.backend.config.Roles;
 import com.tunelar.backend.dto.JwtAuthResponse;
 import com.tunelar.backend.dto.LoginDto;
 import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.dto.UserDetailDto;
+import com.tunelar.backend.dto.UserSummaryDto;
 import com.tunelar.backend.model.Role;
 import com.tunelar.backend.model.User;
+import com.tunelar.backend.exception.AuthThrottledException;
 import com.tunelar.backend.exception.ResourceNotFoundException;
 import com.tunelar.backend.exception.TunelarAPIException;
-import com.tunelar.backend.repository.RoleRepository;
+import com.tunelar.backend.repository.TrackRepository;
 import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.security.CustomUserDetailsService;
 import com.tunelar.backend.security.JwtTokenProvider;
+import com.tunelar.backend.security.TokenRevocationService;
+import com.tunelar.backend.service.AudioBlobService;
 import com.tunelar.backend.service.AuthService;
+
+import io.jsonwebtoken.Claims;
 import lombok.AllArgsConstructor;
 
 
@@ -38,9 +50,9 @@ public class AuthServiceImpl implements AuthService {
      */
     private final UserRepository        userRepository;
     /**
-     * Link to roleRepository
+     * Link to roleRegistry
      */
-    private final RoleRepository        roleRepository;
+    private final RoleRegistry          roleRegistry;
     /**
      * Link to passwordEncoder
      */
@@ -53,6 +65,22 @@ public class AuthServiceImpl implements AuthService {
      * Link to jwtTokenProvider
      */
     private final JwtTokenProvider      jwtTokenProvider;
+    /**
+     * Link to userDetailsService, whose cache is evicted when a user changes
+     */
+    private final CustomUserDetailsService userDetailsService;
+    /**
+     * Link to tokenRevocationService, used to invalidate tokens of changed users
+     */
+    private final TokenRevocationService tokenRevocationService;
+    /**
+     * Link to trackRepository, used to count a user's tracks
+     */
+    private final TrackRepository       trackRepository;
+    /**
+     * Link to audioBlobService, which drops the audio of a deleted user's tracks
+     */
+    private final AudioBlobService      audioBlobService;
 
     /**
      * Registers the given user
@@ -78,7 +106,7 @@ public class AuthServiceImpl implements AuthService {
         user.setPassword( passwordEncoder.encode( registerDto.getPassword() ) );
 
         final Set<Role> roles = new HashSet<>();
-        final Role userRole = roleRepository.findByName( "ROLE_PROD" );
+        final Role userRole = roleRegistry.get( Roles.UserRoles.ROLE_PROD.name() );
         roles.add( userRole );
 
         user.setRoles( roles );
@@ -97,26 +125,28 @@ public class AuthServiceImpl implements AuthService {
      */
     @Override
     public JwtAuthResponse login ( final LoginDto loginDto ) {
-        final Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken( loginDto.getUsernameOrEmail(), loginDto.getPassword() ) );
+        final Authentication authentication;
+        try {
+            authentication = authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken( loginDto.getUsernameOrEmail(), loginDto.getPassword() ) );
+        }
+        catch ( final InternalAuthenticationServiceException e ) {
+            // a saturated password encoder inside the user lookup is wrapped, which would turn its 503 into a 401
+            if ( e.getCause() instanceof AuthThrottledException throttled ) {
+                throw throttled;
+            }
+            throw e;
+        }
 
         SecurityContextHolder.getContext().setAuthentication( authentication );
 
         final String token = jwtTokenProvider.generateToken( authentication );
 
-        final Optional<User> userOptional = userRepository.findByUsernameOrEmail( loginDto.getUsernameOrEmail(),
-                loginDto.getUsernameOrEmail() );
-
-        String role = null;
-        if ( userOptional.isPresent() ) {
-            final User loggedInUser = userOptional.get();
-            final Optional<Role> optionalRole = loggedInUser.getRoles().stream().findFirst();
-
-            if ( optionalRole.isPresent() ) {
-                final Role userRole = optionalRole.get();
-                role = userRole.getName();
-            }
-        }
+        // the authenticated principal already carries the roles, no need to load the user again
+        final String role = authentication.getAuthorities().stream()
+                .map( GrantedAuthority::getAuthority )
+                .findFirst()
+                .orElse( null );
 
         final JwtAuthResponse jwtAuthResponse = new JwtAuthResponse();
         jwtAuthResponse.setRole( role );
@@ -126,13 +156,30 @@ public class AuthServiceImpl implements AuthService {
     }
 
     /**
-     * Deletes the given user by id
+     * Logs out the given token by revoking it
+     *
+     * @param token the JWT token to revoke
+     *            
+     */
+    @Override
+    public void logout ( final String token ) {
+        final Claims claims = token == null ? null : jwtTokenProvider.parseClaims( token );
+        if ( claims == null || claims.getId() == null ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Invalid token." );
+        }
+
+        tokenRevocationService.revokeToken( claims.getId(), claims.getExpiration().getTime() );
+    }
+
+    /**
+     * Deletes the given user by id, along with their tracks and the audio they hold
      *
      * @param id id of user to delete
      *            
      */
 
     @Override
+    @Transactional
     public void deleteUserById ( final Long id ) {
         if ( id == 1L ) {
             throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Cannot Delete Admin" );
@@ -142,7 +189,11 @@ public class AuthServiceImpl implements AuthService {
                 .orElseThrow( () -> new ResourceNotFoundException( "User not found with id " + id ) );
 
         user.getRoles().clear(); // detach roles – makes intent obvious
-        userRepository.delete( user ); // delete user only
+        // the tracks go with the user by cascade; same transaction, so references are only dropped if it commits
+        user.getTracks().forEach( track -> audioBlobService.release( track.getFileUrl() ) );
+        userRepository.delete( user );
+        userDetailsService.evictUser( user );
+        tokenRevocationService.revokeAllForUser( id );
     }
 
     /**
@@ -161,24 +212,24 @@ public class AuthServiceImpl implements AuthService {
             throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Cannot Update Admin Role" );
         }
         // cannot change role to admin
-        if ( roleName.equals( "ROLE_ADMIN" ) ) {
+        if ( Roles.ROLE_ADMIN.equals( roleName ) ) {
             throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Cannot Change Role to Admin" );
         }
+        // Validate role name before touching the database
+        final Role role = roleRegistry.get( roleName );
+
         final User user = userRepository.findById( id )
                 .orElseThrow( () -> new ResourceNotFoundException( "User not found with id " + id ) );
 
-        // Validate role name
-        final Role role = roleRepository.findByName( roleName );
-        if ( role == null ) {
-            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Invalid role name: " + roleName );
-        }
-
         // Update user's roles
         final Set<Role> roles = new HashSet<>();
         roles.add( role );
         user.setRoles( roles );
 
         userRepository.save( user );
+        userDetailsService.evictUser( user );
+        // issued tokens carry the old role
+        tokenRevocationService.revokeAllForUser( id );
 
         return "User role updated successfully.";
     }
@@ -210,8 +261,13 @@ public class AuthServiceImpl implements AuthService {
         final User user = userRepository.findById( id )
                 .orElseThrow( () -> new ResourceNotFoundException( "User not found with id " + id ) );
 
+        final String oldUsername = user.getUsername();
         user.setUsername( username );
         userRepository.save( user );
+        userDetailsService.evict( oldUsername );
+        userDetailsService.evictUser( user );
+        // issued tokens carry the old username
+        tokenRevocationService.revokeAllForUser( id );
 
         return "User username updated successfully.";
     }
@@ -223,13 +279,14 @@ public class AuthServiceImpl implements AuthService {
      *            id of user to get
      * @throws ResourceNotFoundException
      *             if user cannot be found
-     * @return the user id
+     * @return the user's details
      */
     @Override
-    public User getUserById ( final Long id ) {
-        return userRepository.findById( id )
+    @Transactional ( readOnly = true )
+    public UserDetailDto getUserById ( final Long id ) {
+        final User user = userRepository.findWithRolesById( id )
                 .orElseThrow( () -> new ResourceNotFoundException( "User not found with id " + id ) );
-
+        return UserDetailDto.from( user, trackRepository.countByUserId( user.getId() ) );
     }
 
     /**
@@ -237,24 +294,42 @@ public class AuthServiceImpl implements AuthService {
      *
      * @param username
      *            username of user to get
-     * @return the userame
+     * @throws ResourceNotFoundException
+     *             if user cannot be found
+     * @return the user's details
      */
     @Override
-    public User getUserByUsername ( final String username ) {
-        return userRepository.findByUsername( username )
-                .orElseThrow( () -> new ResourceNotFoundException( "User not found with id " + username ) );
+    @Transactional ( readOnly = true )
+    public UserDetailDto getUserByUsername ( final String username ) {
+        final User user = userRepository.findWithRolesByUsername( username )
+                .orElseThrow( () -> new ResourceNotFoundException( "User not found with username " + username ) );
+        return UserDetailDto.from( user, trackRepository.countByUserId( user.getId() ) );
+    }
 
+    /**
+     * gets the id of the given user by username
+     *
+     * @param username
+     *            username of user to get
+     * @throws ResourceNotFoundException
+     *             if user cannot be found
+     * @return the user id
+     */
+    @Override
+    public Long getUserIdByUsername ( final String username ) {
+        return userRepository.findIdByUsername( username )
+                .orElseThrow( () -> new ResourceNotFoundException( "User not found with username " + username ) );
     }
 
     /**
      * gets all the users
      *
      *
-     * @return a list of all the users
+     * @return a summary of every user
      */
     @Override
-    public List<User> getAllUsers () {
-        return userRepository.findAll();
+    public List<UserSummaryDto> getAllUsers () {
+        return userRepository.findAllSummaries();
     }
 
 }
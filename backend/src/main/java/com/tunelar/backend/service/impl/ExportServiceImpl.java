@@ -0,0 +1,163 @@
+package com.tunelar.backend.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.tunelar.backend.config.ExportConnectionPool;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.UserSummaryDto;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.repository.DetachingIterator;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.service.ExportService;
+
+import jakarta.persistence.EntityManagerFactory;
+
+/**
+ * Implemented ExportService. Rows are read through a forward-only cursor with a
+ * fetch size, so the driver holds one fetch of rows at a time. With MySQL this
+ * needs useCursorFetch=true on the connection; otherwise Connector/J reads the
+ * whole result into memory. Each export therefore runs in its own read-only
+ * session on a connection from {@link ExportConnectionPool}, leaving the
+ * application's connections without the option.
+ */
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final String TRACKS = "select t from Track t order by t.id";
+
+    /**
+     * Link to sessionFactory, used to open export sessions on cursor connections
+     */
+    private final SessionFactory       sessionFactory;
+    /**
+     * Link to connectionPool
+     */
+    private final ExportConnectionPool connectionPool;
+    /**
+     * Writer for the rows; the generator is flushed per chunk instead of per row
+     */
+    private final ObjectWriter  objectWriter;
+    /**
+     * Rows fetched from the database per round trip
+     */
+    private final int           fetchSize;
+    /**
+     * Tracks mapped per persistence context clear. Matches the batch fetch size so
+     * each chunk loads its users and tags in one batch each.
+     */
+    private final int           chunkSize;
+
+    public ExportServiceImpl ( final EntityManagerFactory entityManagerFactory,
+            final ExportConnectionPool connectionPool, final ObjectMapper objectMapper,
+            @Value ( "${app.export.fetch-size:500}" ) final int fetchSize,
+            @Value ( "${spring.jpa.properties.hibernate.default_batch_fetch_size:50}" ) final int chunkSize ) {
+        this.sessionFactory = entityManagerFactory.unwrap( SessionFactory.class );
+        this.connectionPool = connectionPool;
+        this.objectWriter = objectMapper.writer().without( SerializationFeature.FLUSH_AFTER_WRITE_VALUE );
+        this.fetchSize = fetchSize;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Writes a summary of every user, by id
+     *
+     * @param output the stream to write to
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void exportUsers ( final OutputStream output ) throws IOException {
+        inExportSession( session -> {
+            // projections are never managed, so nothing accumulates in the persistence context
+            try ( Stream<UserSummaryDto> users = session.createQuery( UserRepository.SUMMARY_QUERY, UserSummaryDto.class )
+                    .setHint( AvailableHints.HINT_FETCH_SIZE, fetchSize ).getResultStream() ) {
+                writeNdjson( users.iterator(), output );
+            }
+        } );
+    }
+
+    /**
+     * Writes every track, by id
+     *
+     * @param output the stream to write to
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void exportTracks ( final OutputStream output ) throws IOException {
+        inExportSession( session -> {
+            final Stream<Track> tracks = session.createQuery( TRACKS, Track.class )
+                    .setHint( AvailableHints.HINT_FETCH_SIZE, fetchSize )
+                    .setHint( AvailableHints.HINT_READ_ONLY, true )
+                    .getResultStream();
+            try ( DetachingIterator<Track, TrackDto> iterator = new DetachingIterator<>( tracks, session,
+                    chunkSize, TrackDto::from ) ) {
+                writeNdjson( iterator, output );
+            }
+        } );
+    }
+
+    /**
+     * Work done inside an export session
+     */
+    @FunctionalInterface
+    private interface ExportWork {
+        void run ( Session session ) throws IOException;
+    }
+
+    /**
+     * Runs the work in a read-only session and transaction on a cursor connection.
+     * Nothing is written, so the transaction is always rolled back.
+     */
+    private void inExportSession ( final ExportWork work ) throws IOException {
+        try ( Connection connection = connectionPool.getConnection();
+                Session session = sessionFactory.withOptions().connection( connection ).openSession() ) {
+            session.setDefaultReadOnly( true );
+            final Transaction transaction = session.beginTransaction();
+            try {
+                work.run( session );
+            }
+            finally {
+                transaction.rollback();
+            }
+        }
+        catch ( final SQLException e ) {
+            throw new CannotGetJdbcConnectionException( "Could not open an export connection", e );
+        }
+    }
+
+    /**
+     * Writes each value as one line of JSON, flushing every chunk so the client
+     * receives rows as they are read
+     */
+    private void writeNdjson ( final Iterator<?> values, final OutputStream output ) throws IOException {
+        try ( JsonGenerator generator = objectWriter.createGenerator( output ) ) {
+            generator.disable( JsonGenerator.Feature.AUTO_CLOSE_TARGET );
+            // lines are separated explicitly below, not by the default space between root values
+            generator.setRootValueSeparator( null );
+            int written = 0;
+            while ( values.hasNext() ) {
+                objectWriter.writeValue( generator, values.next() );
+                generator.writeRaw( '\n' );
+                if ( ++written % chunkSize == 0 ) {
+                    generator.flush();
+                }
+            }
+        }
+    }
+}
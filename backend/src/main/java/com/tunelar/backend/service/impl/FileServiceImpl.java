@@ -0,0 +1,117 @@
+package com.tunelar.backend.service.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.model.AudioBlob;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.service.AudioBlobService;
+import com.tunelar.backend.service.FileService;
+import com.tunelar.backend.storage.AudioFormat;
+import com.tunelar.backend.storage.StorageBackend;
+import com.tunelar.backend.storage.StoredFile;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Implemented FileService
+ */
+@Service
+@AllArgsConstructor
+public class FileServiceImpl implements FileService {
+    /**
+     * Link to trackRepository
+     */
+    private final TrackRepository trackRepository;
+    /**
+     * Link to storageBackend
+     */
+    private final StorageBackend  storageBackend;
+    /**
+     * Link to audioBlobService
+     */
+    private final AudioBlobService audioBlobService;
+
+    /**
+     * Finds the stored file served at a URL
+     *
+     * @param fileUrl the file URL of a track
+     * @return the file
+     */
+    @Override
+    public StoredFile find ( final String fileUrl ) {
+        final AudioBlob blob = audioBlobService.find( fileUrl );
+        if ( blob != null ) {
+            final long lastModified = blob.getCreatedAt().atZone( ZoneId.systemDefault() ).toInstant()
+                    .toEpochMilli();
+            // the digest is the content, so it is the strongest possible validator
+            return new StoredFile( blob.getStorageKey(), blob.getSize(), blob.getContentType(),
+                    "\"" + blob.getDigest() + "\"", lastModified, storageBackend.localPath( blob.getStorageKey() ) );
+        }
+
+        // files uploaded before blob storage each belong to a single track
+        final Track track = fileUrl.startsWith( UploadServiceImpl.FILE_URL_PREFIX )
+                ? trackRepository.findByFileUrl( fileUrl ).orElse( null )
+                : null;
+        if ( track == null ) {
+            throw new ResourceNotFoundException( "File not found: " + fileUrl );
+        }
+
+        final String key = fileUrl.substring( UploadServiceImpl.FILE_URL_PREFIX.length() );
+        final LocalDateTime modified = track.getUpdatedAt() != null ? track.getUpdatedAt() : track.getCreatedAt();
+        final long lastModified = modified.atZone( ZoneId.systemDefault() ).toInstant().toEpochMilli();
+        final AudioFormat format = AudioFormat.ofFileType( track.getFileType() );
+        final String contentType = format != null ? format.contentType()
+                : MediaType.APPLICATION_OCTET_STREAM_VALUE;
+        // stored files never change in place, so the track version identifies the bytes
+        final String eTag = "\"" + track.getId() + "-" + track.getFileSize() + "-" + lastModified + "\"";
+        return new StoredFile( key, track.getFileSize(), contentType, eTag, lastModified,
+                storageBackend.localPath( key ) );
+    }
+
+    /**
+     * Copies part of a file to an output
+     *
+     * @param file the file
+     * @param position the position of the first byte to send
+     * @param count the number of bytes to send
+     * @param output the stream to write to
+     */
+    @Override
+    public void transfer ( final StoredFile file, final long position, final long count, final OutputStream output )
+            throws IOException {
+        if ( file.localPath() == null ) {
+            try ( InputStream in = storageBackend.get( file.key(), position, count ) ) {
+                in.transferTo( output );
+            }
+            return;
+        }
+
+        // the output is a servlet stream, not a socket, so this copies through a buffer;
+        // only FileController's hand-off to Tomcat's sendfile avoids the copy
+        try ( FileChannel channel = FileChannel.open( file.localPath(), StandardOpenOption.READ ) ) {
+            final WritableByteChannel target = Channels.newChannel( output );
+            long sent = 0;
+            while ( sent < count ) {
+                final long n = channel.transferTo( position + sent, count - sent, target );
+                if ( n <= 0 && position + sent >= channel.size() ) {
+                    throw new EOFException( "File " + file.key() + " is shorter than its recorded size" );
+                }
+                sent += n;
+            }
+        }
+    }
+}
@@ -0,0 +1,431 @@
+package com.tunelar.backend.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tunelar.backend.audio.PcmDecoder;
+import com.tunelar.backend.audio.PreviewRenderer;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.service.FileService;
+import com.tunelar.backend.service.PreviewService;
+import com.tunelar.backend.storage.AudioFormat;
+import com.tunelar.backend.storage.StorageBackend;
+import com.tunelar.backend.storage.StoredFile;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Implemented PreviewService. Previews are rendered from the start of the stored
+ * original, which is read only as far as the preview needs, and kept in a local
+ * directory whose total size is held under a budget by evicting the least
+ * recently used files. Concurrent first requests for one preview share a single
+ * rendering. Originals that turn out not to be decodable are remembered by
+ * preview name, up to a bound, and served as they are from then on.
+ *
+ * A preview is named after the entity tag of its original, so the previews of
+ * tracks sharing a blob are shared too, and after the rate and length it was
+ * rendered with, so changing those makes new ones. The cache is rebuilt from the
+ * directory at startup, oldest files first.
+ */
+@Service
+public class PreviewServiceImpl implements PreviewService {
+
+    private static final Logger log = LoggerFactory.getLogger( PreviewServiceImpl.class );
+
+    private static final String PREVIEW_SUFFIX = ".wav";
+
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /**
+     * Size of the WAV header before the samples of a preview
+     */
+    private static final int HEADER_SIZE = 44;
+
+    /**
+     * Most previews remembered as impossible to render
+     */
+    private static final int MAX_UNDECODABLE = 10_000;
+
+    /**
+     * Link to fileService
+     */
+    private final FileService                                  fileService;
+    /**
+     * Link to storageBackend
+     */
+    private final StorageBackend                               storageBackend;
+    /**
+     * Directory of the preview files
+     */
+    private final Path                                         directory;
+    /**
+     * Highest sample rate of a preview
+     */
+    private final int                                          sampleRate;
+    /**
+     * Longest a preview lasts, in seconds
+     */
+    private final int                                          seconds;
+    /**
+     * Most bytes the previews may take together
+     */
+    private final long                                         maxSize;
+    /**
+     * Sizes of the cached previews by name, least recently used first
+     */
+    private final LinkedHashMap<String, Long>                  cached = new LinkedHashMap<>( 256, 0.75f, true );
+    /**
+     * Guards cached and cachedBytes
+     */
+    private final ReentrantLock                                lock = new ReentrantLock();
+    /**
+     * Total size of the cached previews
+     */
+    private long                                               cachedBytes;
+    /**
+     * Previews being rendered, for requests arriving meanwhile to wait on
+     */
+    private final Map<String, CompletableFuture<StoredFile>>   rendering = new ConcurrentHashMap<>();
+    /**
+     * Names of previews whose original could not be decoded, served as the original
+     * without reading it again
+     */
+    private final Cache<String, Boolean>                       undecodable = Caffeine.newBuilder()
+            .maximumSize( MAX_UNDECODABLE ).build();
+
+    /**
+     * Requests served from the cache
+     */
+    private final Counter                                      hits;
+    /**
+     * Requests that rendered their preview
+     */
+    private final Counter                                      misses;
+    /**
+     * Requests that waited for another request's rendering
+     */
+    private final Counter                                      shared;
+    /**
+     * Previews deleted to stay within the budget
+     */
+    private final Counter                                      evictions;
+    /**
+     * Bytes of original audio not sent because a preview was sent whole instead
+     */
+    private final Counter                                      bytesSaved;
+    /**
+     * Time spent rendering each preview
+     */
+    private final Timer                                        renderTimer;
+
+    public PreviewServiceImpl ( final FileService fileService, final StorageBackend storageBackend,
+            final MeterRegistry meterRegistry,
+            @Value ( "${app.preview.dir:data/previews}" ) final String directory,
+            @Value ( "${app.preview.sample-rate:22050}" ) final int sampleRate,
+            @Value ( "${app.preview.seconds:30}" ) final int seconds,
+            @Value ( "${app.preview.max-size:1GB}" ) final DataSize maxSize ) throws IOException {
+        this.fileService = fileService;
+        this.storageBackend = storageBackend;
+        this.directory = Files.createDirectories( Path.of( directory ) ).toAbsolutePath().normalize();
+        this.sampleRate = sampleRate;
+        this.seconds = seconds;
+        this.maxSize = maxSize.toBytes();
+
+        this.hits = Counter.builder( "preview.requests" ).tag( "result", "hit" ).register( meterRegistry );
+        this.misses = Counter.builder( "preview.requests" ).tag( "result", "miss" ).register( meterRegistry );
+        this.shared = Counter.builder( "preview.requests" ).tag( "result", "shared" ).register( meterRegistry );
+        this.evictions = Counter.builder( "preview.cache.evictions" ).register( meterRegistry );
+        this.bytesSaved = Counter.builder( "preview.bytes.saved" ).baseUnit( "bytes" ).register( meterRegistry );
+        this.renderTimer = Timer.builder( "preview.render" ).register( meterRegistry );
+        Gauge.builder( "preview.cache.size", this, PreviewServiceImpl::cachedBytes ).baseUnit( "bytes" )
+                .register( meterRegistry );
+        Gauge.builder( "preview.cache.hit.ratio", this, PreviewServiceImpl::hitRatio ).register( meterRegistry );
+
+        load();
+    }
+
+    /**
+     * Finds the preview of the file served at a URL
+     *
+     * @param fileUrl the file URL of a track
+     * @return the preview
+     */
+    @Override
+    public StoredFile find ( final String fileUrl ) {
+        return find( fileService.find( fileUrl ) );
+    }
+
+    /**
+     * Finds the preview of an original file
+     *
+     * @param original the original file
+     * @return the preview
+     */
+    @Override
+    public StoredFile find ( final StoredFile original ) {
+        if ( !renderable( original ) ) {
+            return original;
+        }
+
+        final String name = name( original );
+        if ( undecodable.getIfPresent( name ) != null ) {
+            return original;
+        }
+        StoredFile preview = lookup( name, original );
+        if ( preview != null ) {
+            hits.increment();
+        }
+        else {
+            final CompletableFuture<StoredFile> mine = new CompletableFuture<>();
+            final CompletableFuture<StoredFile> running = rendering.putIfAbsent( name, mine );
+            if ( running != null ) {
+                shared.increment();
+                preview = join( running );
+            }
+            else {
+                try {
+                    // another request may have finished rendering it since the lookup
+                    preview = lookup( name, original );
+                    if ( preview != null ) {
+                        hits.increment();
+                    }
+                    else {
+                        preview = renderTimer.record( () -> render( name, original ) );
+                        if ( preview != original ) {
+                            misses.increment();
+                        }
+                    }
+                    mine.complete( preview );
+                }
+                catch ( final RuntimeException e ) {
+                    mine.completeExceptionally( e );
+                    throw e;
+                }
+                finally {
+                    rendering.remove( name, mine );
+                }
+            }
+        }
+        return preview;
+    }
+
+    /**
+     * Counts the bytes saved by sending a preview whole instead of its original
+     *
+     * @param original the original file
+     * @param preview the preview sent
+     */
+    @Override
+    public void sent ( final StoredFile original, final StoredFile preview ) {
+        if ( preview != original ) {
+            bytesSaved.increment( original.size() - preview.size() );
+        }
+    }
+
+    /**
+     * Tells whether a preview can be rendered from a file and would be smaller
+     */
+    private boolean renderable ( final StoredFile original ) {
+        final boolean uncompressed = AudioFormat.WAV.contentType().equals( original.contentType() )
+                || AudioFormat.AIFF.contentType().equals( original.contentType() );
+        return uncompressed && original.size() > HEADER_SIZE + 2L * sampleRate * seconds;
+    }
+
+    private String name ( final StoredFile original ) {
+        final String eTag = original.eTag().replace( "\"", "" );
+        return eTag + "-" + sampleRate + "-" + seconds + PREVIEW_SUFFIX;
+    }
+
+    private StoredFile preview ( final String name, final long size, final StoredFile original ) {
+        return new StoredFile( "previews/" + name, size, AudioFormat.WAV.contentType(),
+                "\"" + name.substring( 0, name.length() - PREVIEW_SUFFIX.length() ) + "\"", original.lastModified(),
+                directory.resolve( name ) );
+    }
+
+    /**
+     * Gets a cached preview, marking it as used
+     *
+     * @return the preview, or null if it is not cached
+     */
+    private StoredFile lookup ( final String name, final StoredFile original ) {
+        final Long size;
+        lock.lock();
+        try {
+            size = cached.get( name );
+        }
+        finally {
+            lock.unlock();
+        }
+        if ( size == null ) {
+            return null;
+        }
+        if ( !Files.exists( directory.resolve( name ) ) ) {
+            // deleted behind our back; render it again
+            forget( name );
+            return null;
+        }
+        return preview( name, size, original );
+    }
+
+    private StoredFile render ( final String name, final StoredFile original ) {
+        final Path target = directory.resolve( name );
+        Path temp = null;
+        try {
+            temp = Files.createTempFile( directory, name, TEMP_SUFFIX );
+            final long size;
+            try ( InputStream in = new BufferedInputStream( storageBackend.get( original.key() ), 64 * 1024 ) ) {
+                size = PreviewRenderer.render( in, temp, sampleRate, seconds );
+            }
+            Files.move( temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+            admit( name, size );
+            return preview( name, size, original );
+        }
+        catch ( final PcmDecoder.UnsupportedFormatException e ) {
+            log.debug( "No preview for {}: {}", original.key(), e.getMessage() );
+            undecodable.put( name, Boolean.TRUE );
+            return original;
+        }
+        catch ( final IOException e ) {
+            throw new TunelarAPIException( HttpStatus.INTERNAL_SERVER_ERROR, "Failed to render preview.", e );
+        }
+        finally {
+            if ( temp != null ) {
+                deleteQuietly( temp );
+            }
+        }
+    }
+
+    /**
+     * Adds a preview to the cache, then evicts the least recently used ones until
+     * the cache fits its budget again. The newest preview stays even if it alone
+     * is over budget, so it can be served.
+     */
+    private void admit ( final String name, final long size ) {
+        final List<String> evicted = new ArrayList<>();
+        lock.lock();
+        try {
+            final Long previous = cached.put( name, size );
+            cachedBytes += size - ( previous != null ? previous : 0 );
+            // the new preview is now last in access order, so it is reached only when it is alone
+            final Iterator<Map.Entry<String, Long>> eldest = cached.entrySet().iterator();
+            while ( cachedBytes > maxSize && cached.size() > 1 ) {
+                final Map.Entry<String, Long> entry = eldest.next();
+                cachedBytes -= entry.getValue();
+                evicted.add( entry.getKey() );
+                eldest.remove();
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+        // a preview being sent when it is evicted stays readable until closed on Linux;
+        // elsewhere that one request fails
+        for ( final String file : evicted ) {
+            evictions.increment();
+            deleteQuietly( directory.resolve( file ) );
+        }
+    }
+
+    private void forget ( final String name ) {
+        lock.lock();
+        try {
+            final Long size = cached.remove( name );
+            if ( size != null ) {
+                cachedBytes -= size;
+            }
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the cache from the previews left by the last run, dropping
+     * unfinished renderings
+     */
+    private void load () throws IOException {
+        final List<Path> files = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( directory ) ) {
+            for ( final Path file : stream ) {
+                if ( file.getFileName().toString().endsWith( TEMP_SUFFIX ) ) {
+                    Files.deleteIfExists( file );
+                }
+                else if ( file.getFileName().toString().endsWith( PREVIEW_SUFFIX ) ) {
+                    files.add( file );
+                }
+            }
+        }
+        final Map<Path, BasicFileAttributes> attributes = new LinkedHashMap<>();
+        for ( final Path file : files ) {
+            attributes.put( file, Files.readAttributes( file, BasicFileAttributes.class ) );
+        }
+        files.sort( Comparator.comparing( file -> attributes.get( file ).lastModifiedTime() ) );
+        for ( final Path file : files ) {
+            admit( file.getFileName().toString(), attributes.get( file ).size() );
+        }
+    }
+
+    private static <T> T join ( final CompletableFuture<T> future ) {
+        try {
+            return future.join();
+        }
+        catch ( final CompletionException e ) {
+            if ( e.getCause() instanceof RuntimeException cause ) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private long cachedBytes () {
+        lock.lock();
+        try {
+            return cachedBytes;
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio () {
+        final double total = hits.count() + shared.count() + misses.count();
+        return total == 0 ? Double.NaN : ( hits.count() + shared.count() ) / total;
+    }
+
+    private static void deleteQuietly ( final Path file ) {
+        try {
+            Files.deleteIfExists( file );
+        }
+        catch ( final IOException e ) {
+            log.warn( "Failed to delete preview file {}", file, e );
+        }
+    }
+}
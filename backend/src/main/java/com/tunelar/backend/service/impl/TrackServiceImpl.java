@@ -0,0 +1,393 @@
+package com.tunelar.backend.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roaringbitmap.IntConsumer;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.tunelar.backend.counter.TrackCounter;
+import com.tunelar.backend.counter.TrackCounterBuffer;
+import com.tunelar.backend.counter.TrackCounts;
+import com.tunelar.backend.dto.SimilarTrackDto;
+import com.tunelar.backend.dto.TrackChartDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackFacetsDto;
+import com.tunelar.backend.dto.TrackFilterDto;
+import com.tunelar.backend.dto.TrackPageDto;
+import com.tunelar.backend.dto.TrackSearchResultDto;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.index.SimilarityIndex;
+import com.tunelar.backend.index.TagBitmapIndex;
+import com.tunelar.backend.index.TrackFacetIndex;
+import com.tunelar.backend.index.TrackIndexRebuilder;
+import com.tunelar.backend.index.TrackSearchIndex;
+import com.tunelar.backend.index.TrendingIndex;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.repository.TrackSpecifications;
+import com.tunelar.backend.service.AudioBlobService;
+import com.tunelar.backend.service.TrackService;
+
+import lombok.AllArgsConstructor;
+
+/**
+ * Implemented TrackService. Pages are read with keyset pagination: each page seeks
+ * past the (createdAt, id) of the last track on the previous page instead of using
+ * an OFFSET, so every page costs the same as the first.
+ */
+@Service
+@AllArgsConstructor
+public class TrackServiceImpl implements TrackService {
+    /**
+     * Largest page a client may request
+     */
+    static final int MAX_PAGE_SIZE = 100;
+
+    /**
+     * Tag matches up to this many tracks are passed to the database as an id list;
+     * broader ones are filtered there with joins
+     */
+    static final int MAX_ID_FILTER = 1000;
+
+    /**
+     * Newest first; id breaks ties between tracks created at the same instant
+     */
+    private static final Sort BROWSE_ORDER = Sort.by(Sort.Order.desc("createdAt"), Sort.Order.desc("id"));
+
+    /**
+     * Link to trackRepository
+     */
+    private final TrackRepository trackRepository;
+    /**
+     * Link to searchIndex
+     */
+    private final TrackSearchIndex searchIndex;
+    /**
+     * Link to facetIndex
+     */
+    private final TrackFacetIndex facetIndex;
+    /**
+     * Link to tagIndex
+     */
+    private final TagBitmapIndex  tagIndex;
+    /**
+     * Link to indexRebuilder
+     */
+    private final TrackIndexRebuilder indexRebuilder;
+    /**
+     * Link to counterBuffer
+     */
+    private final TrackCounterBuffer counterBuffer;
+    /**
+     * Link to trendingIndex
+     */
+    private final TrendingIndex   trendingIndex;
+    /**
+     * Link to similarityIndex
+     */
+    private final SimilarityIndex similarityIndex;
+    /**
+     * Link to audioBlobService
+     */
+    private final AudioBlobService audioBlobService;
+
+    /**
+     * Browses tracks matching the filter newest first, one page at a time
+     *
+     * @param filter criteria the tracks must match
+     * @param cursor cursor from the previous page, or null for the first page
+     * @param size maximum number of tracks on the page
+     * @return the page of tracks, with the facet counts of every matching track on the first page
+     *         once the indexes are built
+     */
+    @Override
+    @Transactional ( readOnly = true )
+    public TrackPageDto browse (final TrackFilterDto filter, final String cursor, final int size) {
+        final boolean firstPage = cursor == null || cursor.isBlank();
+        final ScrollPosition position = firstPage ? ScrollPosition.keyset() : decodeCursor( cursor );
+        // until the startup rebuild finishes the indexes hold only recent changes, so tags
+        // are matched with joins and no facets are counted
+        final boolean indexed = indexRebuilder.isBuilt();
+        final boolean byTags = !isEmpty( filter.getTags() ) || !isEmpty( filter.getExcludeTags() );
+        final RoaringBitmap tagged = byTags && indexed
+                ? tagIndex.matching( nonNull( filter.getTags() ), nonNull( filter.getExcludeTags() ) )
+                : null;
+        final TrackFacetsDto facets = firstPage && indexed ? facets( filter, tagged ) : null;
+
+        Specification<Track> spec = Specification.where( TrackSpecifications.byUser( filter.getUserId() ) )
+                .and( TrackSpecifications.bpmBetween( filter.getBpmMin(), filter.getBpmMax() ) )
+                .and( TrackSpecifications.hasKey( filter.getKey() ) )
+                .and( TrackSpecifications.durationBetween( filter.getDurationMin(), filter.getDurationMax() ) )
+                .and( TrackSpecifications.maxBars( filter.getMaxBars() ) )
+                .and( TrackSpecifications.hasFileType( filter.getFileType() ) );
+        if ( tagged != null ) {
+            if ( tagged.isEmpty() ) {
+                return new TrackPageDto( List.of(), null, facets );
+            }
+            spec = spec.and( tagged.getCardinality() <= MAX_ID_FILTER ? TrackSpecifications.idIn( ids( tagged ) )
+                    : tagSpecification( filter ) );
+        }
+        else if ( byTags ) {
+            spec = spec.and( tagSpecification( filter ) );
+        }
+
+        final int limit = Math.max( 1, Math.min( size, MAX_PAGE_SIZE ) );
+        final Window<Track> window = trackRepository.findBy( spec,
+                query -> query.sortBy( BROWSE_ORDER ).limit( limit ).scroll( position ) );
+
+        final List<TrackDto> tracks = withPendingCounts( window.stream().map( TrackDto::from ).toList() );
+        final String nextCursor = window.hasNext() && !window.isEmpty()
+                ? encodeCursor( window.getContent().get( window.size() - 1 ) )
+                : null;
+        return new TrackPageDto( tracks, nextCursor, facets );
+    }
+
+    /**
+     * Filters by tags in the database, for tag combinations too broad to pass as ids
+     * and while the tag index is not yet built
+     *
+     * @param filter the filter with the tag criteria
+     * @return the tag filter
+     */
+    private static Specification<Track> tagSpecification (final TrackFilterDto filter) {
+        Specification<Track> spec = Specification.where( null );
+        for ( final String tag : nonNull( filter.getTags() ) ) {
+            spec = spec.and( TrackSpecifications.hasTag( tag ) );
+        }
+        for ( final String tag : nonNull( filter.getExcludeTags() ) ) {
+            spec = spec.and( TrackSpecifications.lacksTag( tag ) );
+        }
+        return spec;
+    }
+
+    private static List<Long> ids (final RoaringBitmap bitmap) {
+        final List<Long> ids = new ArrayList<>( bitmap.getCardinality() );
+        bitmap.forEach( (IntConsumer) id -> ids.add( (long) id ) );
+        return ids;
+    }
+
+    private static boolean isEmpty (final List<String> values) {
+        return values == null || values.stream().allMatch( value -> value == null || value.isBlank() );
+    }
+
+    private static List<String> nonNull (final List<String> values) {
+        return values == null ? List.of()
+                : values.stream().filter( value -> value != null && !value.isBlank() ).toList();
+    }
+
+    /**
+     * Gets the facet counts of the tracks matching a filter from the in-memory
+     * index; an empty filter gets the cached catalog-wide counts
+     *
+     * @param filter criteria the tracks must match
+     * @param tagged tracks passing the tag criteria, or null if the filter has none
+     * @return the facet counts
+     */
+    private TrackFacetsDto facets (final TrackFilterDto filter, final RoaringBitmap tagged) {
+        final TrackFacetIndex.Counts counts = facetIndex.counts( new TrackFacetIndex.Filter( filter.getUserId(),
+                filter.getBpmMin(), filter.getBpmMax(), filter.getKey(), filter.getDurationMin(),
+                filter.getDurationMax(), filter.getMaxBars(), filter.getFileType() ), tagged );
+        return new TrackFacetsDto( counts.keys(), counts.bpm(), counts.tags(), counts.fileTypes() );
+    }
+
+    /**
+     * Searches track titles, descriptions and tags, best match first
+     *
+     * @param query the search text
+     * @param page the page number, starting at 0
+     * @param size maximum number of tracks on the page
+     * @return the page of matching tracks
+     */
+    @Override
+    @Transactional ( readOnly = true )
+    public TrackSearchResultDto search (final String query, final int page, final int size) {
+        final int limit = Math.max( 1, Math.min( size, MAX_PAGE_SIZE ) );
+        final int pageNumber = Math.max( 0, page );
+        final TrackSearchIndex.Hits hits = searchIndex.search( query, offset( pageNumber, limit ), limit );
+
+        // one query for the page; the index decides the order
+        return new TrackSearchResultDto( inOrder( hits.trackIds() ), hits.total(), pageNumber );
+    }
+
+    /**
+     * Finds where a page starts. Pages too far out to address start past any index,
+     * so they come back empty instead of wrapping around.
+     *
+     * @param pageNumber the page number, not negative
+     * @param limit the page size
+     * @return the number of results before the page
+     */
+    private static int offset (final int pageNumber, final int limit) {
+        return (int) Math.min( (long) pageNumber * limit, Integer.MAX_VALUE );
+    }
+
+    /**
+     * Gets a page of the trending chart, overall or for one tag
+     *
+     * @param tag the tag of the chart, or null for the overall chart
+     * @param page the page number, starting at 0
+     * @param size maximum number of tracks on the page
+     * @return the page of the chart
+     */
+    @Override
+    @Transactional ( readOnly = true )
+    public TrackChartDto trending (final String tag, final int page, final int size) {
+        final int limit = Math.max( 1, Math.min( size, MAX_PAGE_SIZE ) );
+        final int pageNumber = Math.max( 0, page );
+        final TrendingIndex.Page chart = trendingIndex.chart( tag, offset( pageNumber, limit ), limit );
+        return new TrackChartDto( tag, inOrder( chart.trackIds() ), chart.total(), pageNumber );
+    }
+
+    /**
+     * Finds the tracks most similar to a track, from memory alone
+     *
+     * @param id id of the track
+     * @param size maximum number of tracks to return
+     * @return the similar tracks, most similar first
+     */
+    @Override
+    public List<SimilarTrackDto> similar (final Long id, final int size) {
+        if ( !similarityIndex.contains( id ) ) {
+            throw new ResourceNotFoundException( "Track not found with id " + id );
+        }
+        final int limit = Math.max( 1, Math.min( size, MAX_PAGE_SIZE ) );
+        return similarityIndex.similar( id, limit ).stream().map( SimilarTrackDto::from ).toList();
+    }
+
+    /**
+     * Loads tracks in one query and returns them in the given order
+     *
+     * @param trackIds ids in the order to return them
+     * @return the tracks that still exist, in that order
+     */
+    private List<TrackDto> inOrder (final List<Long> trackIds) {
+        final Map<Long, Track> tracks = new HashMap<>();
+        trackRepository.findAllById( trackIds ).forEach( track -> tracks.put( track.getId(), track ) );
+        return withPendingCounts( trackIds.stream().map( tracks::get ).filter( track -> track != null )
+                .map( TrackDto::from ).toList() );
+    }
+
+    /**
+     * Counts a play of a track. The count is buffered and written in the next batch.
+     *
+     * @param id id of the track
+     */
+    @Override
+    public void recordPlay (final Long id) {
+        record( TrackCounter.PLAYS, id );
+    }
+
+    /**
+     * Counts a download of a track. The count is buffered and written in the next batch.
+     *
+     * @param id id of the track
+     */
+    @Override
+    public void recordDownload (final Long id) {
+        record( TrackCounter.DOWNLOADS, id );
+    }
+
+    /**
+     * Deletes a track and releases its audio file
+     *
+     * @param id id of the track
+     * @param userId id of the user deleting it
+     * @param moderator whether the user may delete other users' tracks
+     */
+    @Override
+    @Transactional
+    public void deleteTrack (final Long id, final Long userId, final boolean moderator) {
+        final Track track = trackRepository.findById( id )
+                .orElseThrow( () -> new ResourceNotFoundException( "Track not found with id " + id ) );
+        if ( !moderator && !track.getUser().getId().equals( userId ) ) {
+            throw new TunelarAPIException( HttpStatus.FORBIDDEN, "Cannot delete another user's track." );
+        }
+        trackRepository.delete( track );
+        // same transaction: the reference is only dropped if the delete commits
+        audioBlobService.release( track.getFileUrl() );
+    }
+
+    private void record (final TrackCounter counter, final Long id) {
+        // once built, the index holds every committed track, so unknown ids are rejected without a query
+        if ( !facetIndex.contains( id ) && ( indexRebuilder.isBuilt() || !trackRepository.existsById( id ) ) ) {
+            throw new ResourceNotFoundException( "Track not found with id " + id );
+        }
+        // trending scores follow when the buffer flushes
+        counterBuffer.increment( counter, id );
+    }
+
+    /**
+     * Adds the increments not yet written to the database to the counts of the tracks
+     *
+     * @param tracks tracks with their persisted counts
+     * @return the same tracks
+     */
+    private List<TrackDto> withPendingCounts (final List<TrackDto> tracks) {
+        final Map<Long, TrackCounts> pending = counterBuffer
+                .pending( tracks.stream().map( TrackDto::getId ).toList() );
+        for ( final TrackDto track : tracks ) {
+            final TrackCounts counts = pending.get( track.getId() );
+            if ( counts != null ) {
+                track.setPlays( track.getPlays() + counts.plays() );
+                track.setDownloads( track.getDownloads() + counts.downloads() );
+            }
+        }
+        return tracks;
+    }
+
+    /**
+     * Rebuilds the in-memory track indexes from the database
+     *
+     * @return the number of tracks indexed
+     */
+    @Override
+    public int rebuildIndexes () {
+        return indexRebuilder.rebuild();
+    }
+
+    /**
+     * Encodes the sort key of the last track on a page as an opaque cursor
+     *
+     * @param track the last track on the page
+     * @return the cursor
+     */
+    static String encodeCursor (final Track track) {
+        final String key = track.getCreatedAt() + "|" + track.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString( key.getBytes( StandardCharsets.UTF_8 ) );
+    }
+
+    /**
+     * Decodes a cursor into the position just after the track it was created from
+     *
+     * @param cursor the cursor
+     * @throws TunelarAPIException if the cursor is malformed
+     * @return the scroll position
+     */
+    static KeysetScrollPosition decodeCursor (final String cursor) {
+        try {
+            final String key = new String( Base64.getUrlDecoder().decode( cursor ), StandardCharsets.UTF_8 );
+            final int separator = key.indexOf( '|' );
+            final LocalDateTime createdAt = LocalDateTime.parse( key.substring( 0, separator ) );
+            final Long id = Long.valueOf( key.substring( separator + 1 ) );
+            return ScrollPosition.forward( Map.of( "createdAt", createdAt, "id", id ) );
+        }
+        catch ( final RuntimeException e ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Invalid cursor" );
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.tunelar.backend.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import com.tunelar.backend.audio.AudioAnalysis;
+import com.tunelar.backend.audio.AudioAnalyzer;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.AudioBlob;
+import com.tunelar.backend.model.Tag;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.repository.TagRepository;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.service.AudioBlobService;
+import com.tunelar.backend.service.UploadService;
+import com.tunelar.backend.service.WaveformService;
+import com.tunelar.backend.storage.AudioFormat;
+import com.tunelar.backend.storage.LimitedInputStream;
+import com.tunelar.backend.storage.TeeInputStream;
+
+/**
+ * Implemented UploadService. The format is recognized from the first bytes before
+ * anything is stored; the rest of the audio streams through a size limit straight
+ * into blob storage, which keeps one copy of identical files. On the way it passes
+ * through an analyzer, which measures the duration and loudness of WAV and AIFF
+ * audio and estimates its tempo and key without reading the file a second time.
+ * The track row is only written once the file is stored, so no database
+ * connection is held while the audio arrives.
+ */
+@Service
+public class UploadServiceImpl implements UploadService {
+
+    /**
+     * Prefix of the URLs track files are served from
+     */
+    static final String FILE_URL_PREFIX = "/api/files/";
+
+    /**
+     * Link to audioBlobService, which stores each distinct file once
+     */
+    private final AudioBlobService    audioBlobService;
+    /**
+     * Link to trackRepository
+     */
+    private final TrackRepository     trackRepository;
+    /**
+     * Link to tagRepository
+     */
+    private final TagRepository       tagRepository;
+    /**
+     * Link to userRepository
+     */
+    private final UserRepository      userRepository;
+    /**
+     * Link to waveformService, which draws the waveform of each new track
+     */
+    private final WaveformService     waveformService;
+    /**
+     * Runs the database writes once the file is stored
+     */
+    private final TransactionTemplate transactionTemplate;
+    /**
+     * Largest accepted file in bytes
+     */
+    private final long                maxSize;
+
+    public UploadServiceImpl ( final AudioBlobService audioBlobService, final TrackRepository trackRepository,
+            final TagRepository tagRepository, final UserRepository userRepository,
+            final WaveformService waveformService, final PlatformTransactionManager transactionManager,
+            @Value ( "${app.upload.max-size:20MB}" ) final DataSize maxSize ) {
+        this.audioBlobService = audioBlobService;
+        this.trackRepository = trackRepository;
+        this.tagRepository = tagRepository;
+        this.userRepository = userRepository;
+        this.waveformService = waveformService;
+        this.transactionTemplate = new TransactionTemplate( transactionManager );
+        this.maxSize = maxSize.toBytes();
+    }
+
+    /**
+     * Stores an audio file and creates its track
+     *
+     * @param userId id of the uploading user
+     * @param upload details of the track
+     * @param contentLength length of the audio in bytes, or -1 if unknown
+     * @param contentDigest the hex SHA-256 of the audio declared by the client, or null
+     * @param content the audio
+     * @return the created track
+     */
+    @Override
+    public TrackDto upload ( final Long userId, final TrackUploadDto upload, final long contentLength,
+            final String contentDigest, final InputStream content ) {
+        validate( upload );
+        if ( contentLength > maxSize ) {
+            throw tooLarge();
+        }
+
+        final PushbackInputStream audio = new PushbackInputStream( content, AudioFormat.HEADER_LENGTH );
+        final byte[] header;
+        try {
+            header = audio.readNBytes( AudioFormat.HEADER_LENGTH );
+            audio.unread( header );
+        }
+        catch ( final IOException e ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Failed to read upload.", e );
+        }
+        final AudioFormat format = detect( upload, header );
+
+        final AudioAnalyzer analyzer = new AudioAnalyzer();
+        final AudioBlob blob;
+        try {
+            blob = audioBlobService.store( new TeeInputStream( new LimitedInputStream( audio, maxSize ), analyzer ),
+                    contentLength, format, contentDigest );
+        }
+        catch ( final IOException e ) {
+            if ( isLimitExceeded( e ) ) {
+                throw tooLarge();
+            }
+            throw new TunelarAPIException( HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store upload.", e );
+        }
+        return createTrack( userId, upload, format, header, blob, analyzer.result() );
+    }
+
+    /**
+     * Stores an audio file already assembled on disk and creates its track
+     *
+     * @param userId id of the uploading user
+     * @param upload details of the track
+     * @param file the audio
+     * @return the created track
+     */
+    @Override
+    public TrackDto upload ( final Long userId, final TrackUploadDto upload, final Path file ) {
+        validate( upload );
+        final byte[] header;
+        try ( InputStream in = Files.newInputStream( file ) ) {
+            header = in.readNBytes( AudioFormat.HEADER_LENGTH );
+        }
+        catch ( final IOException e ) {
+            throw new TunelarAPIException( HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read upload.", e );
+        }
+        final AudioFormat format = detect( upload, header );
+
+        final AudioAnalyzer analyzer = new AudioAnalyzer();
+        final AudioBlob blob;
+        try {
+            blob = audioBlobService.store( file, format, analyzer );
+        }
+        catch ( final IOException e ) {
+            throw new TunelarAPIException( HttpStatus.INTERNAL_SERVER_ERROR, "Failed to store upload.", e );
+        }
+        return createTrack( userId, upload, format, header, blob, analyzer.result() );
+    }
+
+    private static void validate ( final TrackUploadDto upload ) {
+        if ( upload.getTitle() == null || upload.getTitle().isBlank() ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Title is required." );
+        }
+    }
+
+    /**
+     * Recognizes the format of an upload from its first bytes
+     */
+    private static AudioFormat detect ( final TrackUploadDto upload, final byte[] header ) {
+        final AudioFormat format = AudioFormat.detect( header );
+        if ( format == null ) {
+            throw new TunelarAPIException( HttpStatus.UNSUPPORTED_MEDIA_TYPE, "Unsupported audio format." );
+        }
+        if ( upload.getDuration() == null && !format.canEstimateDuration( header )
+                && !AudioAnalyzer.canAnalyze( format ) ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Duration is required for this file type." );
+        }
+        return format;
+    }
+
+    /**
+     * Creates the track of a stored file, handing it the reference to the blob, or
+     * releasing the reference if that fails. A measured duration replaces the one
+     * given; estimated tempo and key only fill in what the uploader left out.
+     */
+    private TrackDto createTrack ( final Long userId, final TrackUploadDto upload, final AudioFormat format,
+            final byte[] header, final AudioBlob blob, final AudioAnalysis analysis ) {
+        final String fileUrl = audioBlobService.fileUrl( blob );
+        final Integer duration = analysis != null ? analysis.duration()
+                : upload.getDuration() != null ? upload.getDuration()
+                        : format.estimateDuration( header, blob.getSize() );
+        if ( duration == null ) {
+            // an AIFF the analyzer could not decode
+            audioBlobService.release( fileUrl );
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Duration is required for this file type." );
+        }
+        final TrackDto created;
+        try {
+            created = transactionTemplate.execute( status -> {
+                final Track track = new Track();
+                track.setTitle( upload.getTitle().trim() );
+                track.setDescription( upload.getDescription() );
+                track.setBpm( upload.getBpm() != null || analysis == null ? upload.getBpm() : analysis.bpm() );
+                track.setKey( upload.getKey() != null && !upload.getKey().isBlank() || analysis == null
+                        ? upload.getKey() : analysis.key() );
+                track.setLoudness( analysis != null ? analysis.loudness() : null );
+                track.setDuration( duration );
+                track.setFileUrl( fileUrl );
+                track.setFileSize( blob.getSize() );
+                track.setFileType( format.fileType() );
+                track.setUser( userRepository.getReferenceById( userId ) );
+                track.setTags( tags( upload.getTags() ) );
+                return TrackDto.from( trackRepository.save( track ) );
+            } );
+        }
+        catch ( final RuntimeException e ) {
+            audioBlobService.release( fileUrl );
+            throw e;
+        }
+        waveformService.schedule( created.getId() );
+        return created;
+    }
+
+    /**
+     * Finds the tags with the given names, creating the missing ones
+     *
+     * @param names the tag names, may be null
+     * @return the tags
+     */
+    private Set<Tag> tags ( final List<String> names ) {
+        final Set<Tag> tags = new HashSet<>();
+        if ( names == null ) {
+            return tags;
+        }
+        for ( final String name : names ) {
+            if ( name == null || name.isBlank() ) {
+                continue;
+            }
+            tags.add( tagRepository.findByNameIgnoreCase( name.trim() ).orElseGet( () -> {
+                final Tag tag = new Tag();
+                tag.setName( name.trim() );
+                return tagRepository.save( tag );
+            } ) );
+        }
+        return tags;
+    }
+
+    private TunelarAPIException tooLarge () {
+        return new TunelarAPIException( HttpStatus.PAYLOAD_TOO_LARGE,
+                "File exceeds the maximum size of " + maxSize + " bytes." );
+    }
+
+    /**
+     * Tells whether a storage failure was caused by the upload exceeding its limit;
+     * backends may wrap the exception the stream threw
+     */
+    private static boolean isLimitExceeded ( final Throwable failure ) {
+        for ( Throwable cause = failure; cause != null; cause = cause.getCause() ) {
+            if ( cause instanceof LimitedInputStream.LimitExceededException ) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
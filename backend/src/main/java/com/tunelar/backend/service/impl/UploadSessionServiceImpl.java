@@ -0,0 +1,513 @@
+package com.tunelar.backend.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.dto.UploadSessionCreateDto;
+import com.tunelar.backend.dto.UploadSessionDto;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.service.UploadService;
+import com.tunelar.backend.service.UploadSessionService;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Implemented UploadSessionService. Each session preallocates its staging file at
+ * the final size and keeps one FileChannel open on it; every chunk is transferred
+ * from the request straight to its own offset, so parallel chunks never wait for
+ * each other and the file never has to be reassembled. On commit the staging file
+ * itself is handed to the storage backend.
+ *
+ * Sessions live in memory only: staging files left over from a previous run are
+ * deleted at startup. A session reserves one of its user's session slots and its
+ * file size from a budget shared by all staging files before its file is created,
+ * and gives both back when it ends.
+ */
+@Service
+public class UploadSessionServiceImpl implements UploadSessionService {
+
+    private static final Logger log = LoggerFactory.getLogger( UploadSessionServiceImpl.class );
+
+    /**
+     * Smallest accepted chunk size; keeps the number of chunks of a file reasonable
+     */
+    static final int MIN_CHUNK_SIZE = 64 * 1024;
+
+    private static final String STAGING_SUFFIX = ".part";
+
+    /**
+     * An open session. Chunk writes share the read lock, so they run in parallel;
+     * commit, abort and expiry take the write lock and wait for them.
+     */
+    private static final class Session {
+        final String                 id;
+        final Long                   userId;
+        final long                   size;
+        final int                    chunkSize;
+        final int                    chunks;
+        final Path                   file;
+        final ReentrantReadWriteLock lock     = new ReentrantReadWriteLock();
+        final ReentrantLock          received = new ReentrantLock();
+        final BitSet                 done     = new BitSet();
+        FileChannel                  channel;
+        boolean                      closed;
+        volatile long                lastActive;
+
+        Session ( final String id, final Long userId, final long size, final int chunkSize, final Path file ) {
+            this.id = id;
+            this.userId = userId;
+            this.size = size;
+            this.chunkSize = chunkSize;
+            this.chunks = (int) ( ( size + chunkSize - 1 ) / chunkSize );
+            this.file = file;
+        }
+    }
+
+    /**
+     * Link to uploadService, which stores committed files
+     */
+    private final UploadService        uploadService;
+    /**
+     * Open sessions by id
+     */
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    /**
+     * Open sessions per user id; users without any are left out
+     */
+    private final Map<Long, Integer>   openPerUser = new ConcurrentHashMap<>();
+    /**
+     * Bytes reserved by the staging files of the open sessions
+     */
+    private final AtomicLong           stagedBytes = new AtomicLong();
+    /**
+     * Directory of the staging files
+     */
+    private final Path                 directory;
+    /**
+     * Largest accepted file in bytes
+     */
+    private final long                 maxSize;
+    /**
+     * Chunk size used when the client does not ask for one
+     */
+    private final int                  defaultChunkSize;
+    /**
+     * Largest accepted chunk in bytes, the single upload limit
+     */
+    private final int                  maxChunkSize;
+    /**
+     * Most sessions a user may have open at once
+     */
+    private final int                  maxPerUser;
+    /**
+     * Most bytes the staging files of all sessions may take together
+     */
+    private final long                 maxTotalSize;
+    /**
+     * Idle time after which a session expires, in milliseconds
+     */
+    private final long                 ttlMillis;
+
+    public UploadSessionServiceImpl ( final UploadService uploadService,
+            @Value ( "${app.upload.session.dir:data/uploads}" ) final String directory,
+            @Value ( "${app.upload.session.max-size:2GB}" ) final DataSize maxSize,
+            @Value ( "${app.upload.session.chunk-size:8MB}" ) final DataSize defaultChunkSize,
+            @Value ( "${app.upload.max-size:20MB}" ) final DataSize maxChunkSize,
+            @Value ( "${app.upload.session.max-per-user:4}" ) final int maxPerUser,
+            @Value ( "${app.upload.session.max-total-size:20GB}" ) final DataSize maxTotalSize,
+            @Value ( "${app.upload.session.ttl:24h}" ) final Duration ttl ) throws IOException {
+        this.uploadService = uploadService;
+        this.directory = Files.createDirectories( Path.of( directory ) ).toAbsolutePath().normalize();
+        this.maxSize = maxSize.toBytes();
+        this.maxChunkSize = (int) Math.min( maxChunkSize.toBytes(), Integer.MAX_VALUE );
+        this.defaultChunkSize = (int) Math.min( defaultChunkSize.toBytes(), this.maxChunkSize );
+        this.maxPerUser = maxPerUser;
+        this.maxTotalSize = maxTotalSize.toBytes();
+        this.ttlMillis = ttl.toMillis();
+
+        try ( DirectoryStream<Path> stale = Files.newDirectoryStream( this.directory, "*" + STAGING_SUFFIX ) ) {
+            for ( final Path file : stale ) {
+                Files.deleteIfExists( file );
+            }
+        }
+    }
+
+    /**
+     * Opens a session
+     *
+     * @param userId id of the uploading user
+     * @param create the size of the file and of its chunks
+     * @return the new session
+     */
+    @Override
+    public UploadSessionDto create ( final Long userId, final UploadSessionCreateDto create ) {
+        final Long size = create.getSize();
+        if ( size == null || size <= 0 ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Size is required." );
+        }
+        if ( size > maxSize ) {
+            throw new TunelarAPIException( HttpStatus.PAYLOAD_TOO_LARGE,
+                    "File exceeds the maximum size of " + maxSize + " bytes." );
+        }
+        final int chunkSize = create.getChunkSize() != null ? create.getChunkSize() : defaultChunkSize;
+        if ( chunkSize < MIN_CHUNK_SIZE || chunkSize > maxChunkSize ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST,
+                    "Chunk size must be between " + MIN_CHUNK_SIZE + " and " + maxChunkSize + " bytes." );
+        }
+
+        final String id = UUID.randomUUID().toString();
+        final Session session = new Session( id, userId, size, chunkSize, directory.resolve( id + STAGING_SUFFIX ) );
+        reserve( session );
+        try {
+            try ( RandomAccessFile file = new RandomAccessFile( session.file.toFile(), "rw" ) ) {
+                file.setLength( size );
+            }
+            session.channel = FileChannel.open( session.file, StandardOpenOption.WRITE );
+        }
+        catch ( final IOException e ) {
+            deleteQuietly( session.file );
+            release( session );
+            throw new TunelarAPIException( HttpStatus.INTERNAL_SERVER_ERROR, "Failed to open upload session.", e );
+        }
+        session.lastActive = System.currentTimeMillis();
+        sessions.put( id, session );
+        return toDto( session );
+    }
+
+    /**
+     * Gets a session
+     *
+     * @param userId id of the uploading user
+     * @param sessionId the session id
+     * @return the session
+     */
+    @Override
+    public UploadSessionDto get ( final Long userId, final String sessionId ) {
+        return toDto( find( userId, sessionId ) );
+    }
+
+    /**
+     * Writes a chunk into its place in the file
+     *
+     * @param userId id of the uploading user
+     * @param sessionId the session id
+     * @param index the chunk index
+     * @param contentLength length of the chunk in bytes, or -1 if unknown
+     * @param content the chunk
+     * @return the session
+     */
+    @Override
+    public UploadSessionDto putChunk ( final Long userId, final String sessionId, final int index,
+            final long contentLength, final InputStream content ) {
+        final Session session = find( userId, sessionId );
+        if ( index < 0 || index >= session.chunks ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST,
+                    "Chunk index must be between 0 and " + ( session.chunks - 1 ) + "." );
+        }
+        final long position = (long) index * session.chunkSize;
+        final long length = Math.min( session.chunkSize, session.size - position );
+        if ( contentLength >= 0 && contentLength != length ) {
+            throw wrongLength( index, length );
+        }
+
+        session.lock.readLock().lock();
+        try {
+            if ( session.closed ) {
+                throw notFound( sessionId );
+            }
+            // a chunk sent again may fail half way; it only counts once it is whole
+            markReceived( session, index, false );
+            final ReadableByteChannel source = Channels.newChannel( content );
+            long written = 0;
+            while ( written < length ) {
+                final long n = session.channel.transferFrom( source, position + written, length - written );
+                if ( n <= 0 ) {
+                    break;
+                }
+                written += n;
+            }
+            if ( written < length || content.read() >= 0 ) {
+                throw wrongLength( index, length );
+            }
+            markReceived( session, index, true );
+            session.lastActive = System.currentTimeMillis();
+        }
+        catch ( final IOException e ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Failed to read chunk " + index + ".", e );
+        }
+        finally {
+            session.lock.readLock().unlock();
+        }
+        return toDto( session );
+    }
+
+    /**
+     * Completes a session
+     *
+     * @param userId id of the uploading user
+     * @param sessionId the session id
+     * @param upload details of the track
+     * @return the created track
+     */
+    @Override
+    public TrackDto commit ( final Long userId, final String sessionId, final TrackUploadDto upload ) {
+        final Session session = find( userId, sessionId );
+        session.lock.writeLock().lock();
+        try {
+            if ( session.closed ) {
+                throw notFound( sessionId );
+            }
+            final int missing = session.chunks - receivedCount( session );
+            if ( missing > 0 ) {
+                throw new TunelarAPIException( HttpStatus.CONFLICT, missing + " chunks have not been received." );
+            }
+
+            closeChannel( session );
+            try {
+                final TrackDto track = uploadService.upload( userId, upload, session.file );
+                close( session );
+                return track;
+            }
+            catch ( final RuntimeException e ) {
+                if ( Files.exists( session.file ) ) {
+                    reopen( session );
+                }
+                else {
+                    // the file was stored before the failure, nothing is left to retry with
+                    close( session );
+                }
+                throw e;
+            }
+        }
+        finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Abandons a session
+     *
+     * @param userId id of the uploading user
+     * @param sessionId the session id
+     */
+    @Override
+    public void abort ( final Long userId, final String sessionId ) {
+        final Session session = find( userId, sessionId );
+        session.lock.writeLock().lock();
+        try {
+            if ( session.closed ) {
+                throw notFound( sessionId );
+            }
+            close( session );
+        }
+        finally {
+            session.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the sessions that have been idle for longer than the time to live.
+     * A session with a chunk in flight is not idle and is left alone.
+     */
+    @Scheduled ( fixedDelayString = "${app.upload.session.sweep-interval-ms:60000}" )
+    public void expire () {
+        final long cutoff = System.currentTimeMillis() - ttlMillis;
+        for ( final Session session : sessions.values() ) {
+            if ( session.lastActive >= cutoff || !session.lock.writeLock().tryLock() ) {
+                continue;
+            }
+            try {
+                if ( !session.closed && session.lastActive < cutoff ) {
+                    log.info( "Upload session {} expired with {} of {} chunks", session.id,
+                            receivedCount( session ), session.chunks );
+                    close( session );
+                }
+            }
+            finally {
+                session.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Deletes the staging files on shutdown; sessions do not survive a restart
+     */
+    @PreDestroy
+    public void closeAll () {
+        for ( final Session session : sessions.values() ) {
+            session.lock.writeLock().lock();
+            try {
+                if ( !session.closed ) {
+                    close( session );
+                }
+            }
+            finally {
+                session.lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Session find ( final Long userId, final String sessionId ) {
+        final Session session = sessions.get( sessionId );
+        // other users' sessions are reported as missing rather than forbidden
+        if ( session == null || !session.userId.equals( userId ) ) {
+            throw notFound( sessionId );
+        }
+        return session;
+    }
+
+    /**
+     * Takes one of the user's session slots and the session's size from the staging
+     * budget, or neither if either is exhausted. The slot is counted inside compute,
+     * so concurrent requests of one user cannot both take the last one.
+     */
+    private void reserve ( final Session session ) {
+        openPerUser.compute( session.userId, ( user, open ) -> {
+            final int count = open == null ? 0 : open;
+            if ( count >= maxPerUser ) {
+                throw new TunelarAPIException( HttpStatus.TOO_MANY_REQUESTS,
+                        "Too many open upload sessions; commit or abort one first." );
+            }
+            return count + 1;
+        } );
+        long staged;
+        do {
+            staged = stagedBytes.get();
+            if ( staged + session.size > maxTotalSize ) {
+                releaseSlot( session.userId );
+                throw new TunelarAPIException( HttpStatus.INSUFFICIENT_STORAGE,
+                        "Upload staging space is full; try again later." );
+            }
+        }
+        while ( !stagedBytes.compareAndSet( staged, staged + session.size ) );
+    }
+
+    private void release ( final Session session ) {
+        stagedBytes.addAndGet( -session.size );
+        releaseSlot( session.userId );
+    }
+
+    private void releaseSlot ( final Long userId ) {
+        openPerUser.computeIfPresent( userId, ( user, open ) -> open > 1 ? open - 1 : null );
+    }
+
+    private static void markReceived ( final Session session, final int index, final boolean value ) {
+        session.received.lock();
+        try {
+            session.done.set( index, value );
+        }
+        finally {
+            session.received.unlock();
+        }
+    }
+
+    private static int receivedCount ( final Session session ) {
+        session.received.lock();
+        try {
+            return session.done.cardinality();
+        }
+        finally {
+            session.received.unlock();
+        }
+    }
+
+    private UploadSessionDto toDto ( final Session session ) {
+        final List<Integer> received = new ArrayList<>();
+        session.received.lock();
+        try {
+            session.done.stream().forEach( received::add );
+        }
+        finally {
+            session.received.unlock();
+        }
+        final LocalDateTime expiresAt = LocalDateTime
+                .ofInstant( Instant.ofEpochMilli( session.lastActive + ttlMillis ), ZoneId.systemDefault() );
+        return new UploadSessionDto( session.id, session.size, session.chunkSize, session.chunks, received,
+                expiresAt );
+    }
+
+    /**
+     * Ends a session and deletes its staging file if it is still there. Called with
+     * the write lock held.
+     */
+    private void close ( final Session session ) {
+        session.closed = true;
+        if ( sessions.remove( session.id ) != null ) {
+            release( session );
+        }
+        closeChannel( session );
+        deleteQuietly( session.file );
+    }
+
+    private static void closeChannel ( final Session session ) {
+        if ( session.channel == null ) {
+            return;
+        }
+        try {
+            session.channel.close();
+        }
+        catch ( final IOException e ) {
+            log.warn( "Failed to close upload session {}", session.id, e );
+        }
+        session.channel = null;
+    }
+
+    private void reopen ( final Session session ) {
+        try {
+            session.channel = FileChannel.open( session.file, StandardOpenOption.WRITE );
+        }
+        catch ( final IOException e ) {
+            log.warn( "Failed to reopen upload session {}", session.id, e );
+            close( session );
+        }
+    }
+
+    private static void deleteQuietly ( final Path file ) {
+        try {
+            Files.deleteIfExists( file );
+        }
+        catch ( final IOException e ) {
+            log.warn( "Failed to delete staging file {}", file, e );
+        }
+    }
+
+    private static TunelarAPIException wrongLength ( final int index, final long length ) {
+        return new TunelarAPIException( HttpStatus.BAD_REQUEST, "Chunk " + index + " must be " + length + " bytes." );
+    }
+
+    private static ResourceNotFoundException notFound ( final String sessionId ) {
+        return new ResourceNotFoundException( "Upload session not found: " + sessionId );
+    }
+}
@@ -0,0 +1,311 @@
+package com.tunelar.backend.service.impl;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.tunelar.backend.audio.PcmDecoder;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.service.WaveformService;
+import com.tunelar.backend.storage.AudioFormat;
+import com.tunelar.backend.storage.StorageBackend;
+import com.tunelar.backend.waveform.PcmPeakReader;
+import com.tunelar.backend.waveform.WaveformPeaks;
+import com.tunelar.backend.waveform.WaveformSlice;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Implemented WaveformService. A small fixed pool decodes each WAV or AIFF upload
+ * once, streaming it from storage, and writes a peaks file named after the audio
+ * file, so tracks sharing a blob share its peaks. Peaks files are kept on local
+ * disk whatever the storage backend, because they are served by mapping them into
+ * memory; the mappings of recently used files are cached.
+ */
+@Service
+public class WaveformServiceImpl implements WaveformService {
+
+    private static final Logger log = LoggerFactory.getLogger( WaveformServiceImpl.class );
+
+    /**
+     * Prefix of the URLs waveforms are served from
+     */
+    static final String WAVEFORM_URL_PREFIX = "/api/waveforms/";
+
+    private static final String PEAKS_SUFFIX = ".peaks";
+
+    /**
+     * Most tracks remembered as undecodable
+     */
+    private static final int MAX_FAILED = 10_000;
+
+    private static final Pattern PEAKS_NAME = Pattern.compile( "[0-9A-Za-z_-][0-9A-Za-z._-]*\\.peaks" );
+
+    /**
+     * File types the decoder understands
+     */
+    private static final List<String> FILE_TYPES = List.of( AudioFormat.WAV.fileType(), AudioFormat.AIFF.fileType() );
+
+    /**
+     * Link to trackRepository
+     */
+    private final TrackRepository                trackRepository;
+    /**
+     * Link to storageBackend
+     */
+    private final StorageBackend                 storageBackend;
+    /**
+     * Directory of the peaks files
+     */
+    private final Path                           directory;
+    /**
+     * Frames per bucket of the finest level
+     */
+    private final int                            samplesPerBucket;
+    /**
+     * Most zoom levels per file
+     */
+    private final int                            levels;
+    /**
+     * Workers decoding audio
+     */
+    private final ThreadPoolExecutor             executor;
+    /**
+     * Tracks queued or being decoded, so none is queued twice
+     */
+    private final Set<Long>                      queued = ConcurrentHashMap.newKeySet();
+    /**
+     * Tracks whose audio could not be decoded, skipped by the backfill until restart
+     * or until newer failures push them out
+     */
+    private final Cache<Long, Boolean>           failed = Caffeine.newBuilder().maximumSize( MAX_FAILED ).build();
+    /**
+     * Mapped peaks files by name
+     */
+    private final Cache<String, WaveformPeaks>   mapped;
+    /**
+     * Time spent generating each file
+     */
+    private final Timer                          generateTimer;
+
+    public WaveformServiceImpl ( final TrackRepository trackRepository, final StorageBackend storageBackend,
+            final MeterRegistry meterRegistry,
+            @Value ( "${app.waveform.dir:data/waveforms}" ) final String directory,
+            @Value ( "${app.waveform.samples-per-bucket:256}" ) final int samplesPerBucket,
+            @Value ( "${app.waveform.levels:6}" ) final int levels,
+            @Value ( "${app.waveform.threads:2}" ) final int threads,
+            @Value ( "${app.waveform.queue-capacity:1000}" ) final int queueCapacity,
+            @Value ( "${app.waveform.mapped-files:1000}" ) final long mappedFiles ) throws IOException {
+        this.trackRepository = trackRepository;
+        this.storageBackend = storageBackend;
+        this.directory = Files.createDirectories( Path.of( directory ) ).toAbsolutePath().normalize();
+        this.samplesPerBucket = samplesPerBucket;
+        this.levels = levels;
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor( threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>( queueCapacity ),
+                runnable -> {
+                    final Thread thread = new Thread( runnable, "waveform-" + threadNumber.incrementAndGet() );
+                    thread.setDaemon( true );
+                    // decoding yields to request handling
+                    thread.setPriority( Thread.NORM_PRIORITY - 1 );
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy() );
+        this.mapped = Caffeine.newBuilder().maximumSize( mappedFiles ).recordStats().build();
+
+        this.generateTimer = Timer.builder( "waveform.generate" ).register( meterRegistry );
+        Gauge.builder( "waveform.queue.depth", executor, pool -> pool.getQueue().size() ).register( meterRegistry );
+        CaffeineCacheMetrics.monitor( meterRegistry, mapped, "waveformPeaks" );
+    }
+
+    /**
+     * Queues a track for peak generation
+     *
+     * @param trackId id of the track
+     */
+    @Override
+    public void schedule ( final Long trackId ) {
+        if ( !queued.add( trackId ) ) {
+            return;
+        }
+        try {
+            executor.execute( () -> {
+                try {
+                    generateTimer.record( () -> generate( trackId ) );
+                }
+                finally {
+                    queued.remove( trackId );
+                }
+            } );
+        }
+        catch ( final RejectedExecutionException e ) {
+            queued.remove( trackId );
+            log.debug( "Waveform queue full, track {} is left to the backfill", trackId );
+        }
+    }
+
+    /**
+     * Queues tracks that have no waveform yet, as many as the queue has room for:
+     * those uploaded before waveforms existed, and those that did not fit in the
+     * queue when they were uploaded.
+     */
+    @Scheduled ( fixedDelayString = "${app.waveform.backfill-interval-ms:600000}",
+            initialDelayString = "${app.waveform.backfill-initial-delay-ms:60000}" )
+    public void backfill () {
+        long after = 0;
+        while ( executor.getQueue().remainingCapacity() > 0 ) {
+            final List<Long> ids = trackRepository.findIdsWithoutWaveform( FILE_TYPES, after,
+                    PageRequest.of( 0, 500 ) );
+            if ( ids.isEmpty() ) {
+                return;
+            }
+            for ( final Long id : ids ) {
+                if ( failed.getIfPresent( id ) == null ) {
+                    schedule( id );
+                }
+            }
+            after = ids.get( ids.size() - 1 );
+        }
+    }
+
+    private void generate ( final Long trackId ) {
+        final Track track = trackRepository.findById( trackId ).orElse( null );
+        if ( track == null || track.getWaveformUrl() != null ) {
+            return;
+        }
+        final String fileUrl = track.getFileUrl();
+        if ( !FILE_TYPES.contains( track.getFileType() ) || !fileUrl.startsWith( UploadServiceImpl.FILE_URL_PREFIX ) ) {
+            failed.put( trackId, Boolean.TRUE );
+            return;
+        }
+
+        final String name = peaksName( fileUrl );
+        final Path file = directory.resolve( name );
+        try {
+            // another track with the same audio may already have peaks
+            if ( !Files.exists( file ) ) {
+                final PcmPeakReader.Peaks peaks;
+                try ( InputStream in = new BufferedInputStream( storageBackend
+                        .get( fileUrl.substring( UploadServiceImpl.FILE_URL_PREFIX.length() ) ), 64 * 1024 ) ) {
+                    peaks = PcmPeakReader.read( in, samplesPerBucket );
+                }
+                WaveformPeaks.write( file, peaks, samplesPerBucket, levels );
+            }
+            trackRepository.setWaveformUrl( trackId, WAVEFORM_URL_PREFIX + name );
+        }
+        catch ( final PcmDecoder.UnsupportedFormatException e ) {
+            failed.put( trackId, Boolean.TRUE );
+            log.debug( "No waveform for track {}: {}", trackId, e.getMessage() );
+        }
+        catch ( final IOException | RuntimeException e ) {
+            failed.put( trackId, Boolean.TRUE );
+            log.warn( "Failed to generate the waveform of track {}", trackId, e );
+        }
+    }
+
+    /**
+     * Gets a run of buckets from a peaks file
+     *
+     * @param name the file name
+     * @param level the zoom level
+     * @param offset the first bucket
+     * @param count the most buckets to return
+     * @return the slice
+     */
+    @Override
+    public WaveformSlice slice ( final String name, final int level, final int offset, final int count ) {
+        if ( !PEAKS_NAME.matcher( name ).matches() ) {
+            throw new ResourceNotFoundException( "Waveform not found: " + name );
+        }
+        final WaveformPeaks peaks;
+        try {
+            peaks = mapped.get( name, key -> {
+                try {
+                    return WaveformPeaks.map( directory.resolve( key ) );
+                }
+                catch ( final IOException e ) {
+                    throw new UncheckedIOException( e );
+                }
+            } );
+        }
+        catch ( final UncheckedIOException e ) {
+            if ( e.getCause() instanceof NoSuchFileException ) {
+                throw new ResourceNotFoundException( "Waveform not found: " + name );
+            }
+            throw new TunelarAPIException( HttpStatus.INTERNAL_SERVER_ERROR, "Failed to read waveform.", e );
+        }
+
+        if ( level < 0 || level >= peaks.levels() ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST,
+                    "Level must be between 0 and " + ( peaks.levels() - 1 ) + "." );
+        }
+        if ( offset < 0 || count < 0 ) {
+            throw new TunelarAPIException( HttpStatus.BAD_REQUEST, "Offset and count must not be negative." );
+        }
+        return new WaveformSlice( peaks.sampleRate(), peaks.levels(), peaks.samplesPerBucket( level ),
+                peaks.buckets( level ), Math.min( offset, peaks.buckets( level ) ),
+                peaks.slice( level, offset, count ) );
+    }
+
+    /**
+     * Deletes the peaks of an audio file that is gone
+     *
+     * @param fileUrl the URL the audio file was served at
+     */
+    @Override
+    public void discard ( final String fileUrl ) {
+        final String name = peaksName( fileUrl );
+        if ( !PEAKS_NAME.matcher( name ).matches() ) {
+            return;
+        }
+        mapped.invalidate( name );
+        try {
+            // an open mapping stays valid after the file is unlinked
+            Files.deleteIfExists( directory.resolve( name ) );
+        }
+        catch ( final IOException e ) {
+            log.warn( "Failed to delete peaks file {}", name, e );
+        }
+    }
+
+    private static String peaksName ( final String fileUrl ) {
+        return fileUrl.substring( fileUrl.lastIndexOf( '/' ) + 1 ) + PEAKS_SUFFIX;
+    }
+
+    @PreDestroy
+    void shutdown () {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,135 @@
+package com.tunelar.backend.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Audio file formats accepted for upload, recognized from the first bytes of a
+ * file rather than from what the client claims.
+ */
+public enum AudioFormat {
+    WAV("wav", "audio/wav"),
+    AIFF("aiff", "audio/aiff"),
+    FLAC("flac", "audio/flac"),
+    OGG("ogg", "audio/ogg"),
+    MP3("mp3", "audio/mpeg"),
+    M4A("m4a", "audio/mp4");
+
+    /**
+     * Bytes needed to recognize a format and read a WAV header
+     */
+    public static final int HEADER_LENGTH = 64;
+
+    /**
+     * Size of the canonical WAV header before the sample data
+     */
+    private static final int WAV_HEADER_SIZE = 44;
+
+    private final String fileType;
+    private final String contentType;
+
+    AudioFormat(final String fileType, final String contentType) {
+        this.fileType = fileType;
+        this.contentType = contentType;
+    }
+
+    /**
+     * @return the file type stored on the track, also used as file extension
+     */
+    public String fileType() {
+        return fileType;
+    }
+
+    /**
+     * @return the media type to serve the file with
+     */
+    public String contentType() {
+        return contentType;
+    }
+
+    /**
+     * Finds the format stored under a file type.
+     *
+     * @param fileType the file type of a track
+     * @return the format, or null if the file type is not one of the formats
+     */
+    public static AudioFormat ofFileType(final String fileType) {
+        for (final AudioFormat format : values()) {
+            if (format.fileType.equalsIgnoreCase(fileType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Recognizes the format of a file.
+     *
+     * @param header the first bytes of the file, up to {@link #HEADER_LENGTH}
+     * @return the format, or null if it is not a supported audio format
+     */
+    public static AudioFormat detect(final byte[] header) {
+        if (startsWith(header, 0, "RIFF") && startsWith(header, 8, "WAVE")) {
+            return WAV;
+        }
+        if (startsWith(header, 0, "FORM") && (startsWith(header, 8, "AIFF") || startsWith(header, 8, "AIFC"))) {
+            return AIFF;
+        }
+        if (startsWith(header, 0, "fLaC")) {
+            return FLAC;
+        }
+        if (startsWith(header, 0, "OggS")) {
+            return OGG;
+        }
+        if (startsWith(header, 4, "ftyp")) {
+            return M4A;
+        }
+        // an ID3 tag, or the sync bits of a bare MPEG audio frame
+        if (startsWith(header, 0, "ID3")
+                || header.length >= 2 && (header[0] & 0xFF) == 0xFF && (header[1] & 0xE0) == 0xE0) {
+            return MP3;
+        }
+        return null;
+    }
+
+    /**
+     * Estimates the duration of a file from its header and size. Only possible for
+     * uncompressed WAV, whose header gives the byte rate.
+     *
+     * @param header the first bytes of the file
+     * @param size the file size in bytes
+     * @return the duration in whole seconds, or null if it cannot be estimated
+     */
+    public Integer estimateDuration(final byte[] header, final long size) {
+        final int byteRate = byteRate(header);
+        if (byteRate <= 0) {
+            return null;
+        }
+        return (int) Math.max(0, Math.round((double) (size - WAV_HEADER_SIZE) / byteRate));
+    }
+
+    /**
+     * Tells whether {@link #estimateDuration} can work for a file
+     *
+     * @param header the first bytes of the file
+     * @return true if the duration can be estimated once the size is known
+     */
+    public boolean canEstimateDuration(final byte[] header) {
+        return byteRate(header) > 0;
+    }
+
+    private int byteRate(final byte[] header) {
+        if (this != WAV || header.length < 32 || !startsWith(header, 12, "fmt ")) {
+            return 0;
+        }
+        return ByteBuffer.wrap(header, 28, 4).order(ByteOrder.LITTLE_ENDIAN).getInt();
+    }
+
+    private static boolean startsWith(final byte[] header, final int offset, final String magic) {
+        final byte[] expected = magic.getBytes(StandardCharsets.US_ASCII);
+        return header.length >= offset + expected.length
+                && Arrays.equals(header, offset, offset + expected.length, expected, 0, expected.length);
+    }
+}
@@ -0,0 +1,77 @@
+package com.tunelar.backend.storage;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Passes a stream through while counting its bytes, and fails once more than a
+ * limit has been read. Lets an upload of unknown length be cut off as soon as it
+ * is too large instead of after it has been stored.
+ */
+public class LimitedInputStream extends FilterInputStream {
+
+    /**
+     * Thrown when the stream exceeds its limit
+     */
+    public static class LimitExceededException extends IOException {
+
+        private static final long serialVersionUID = 1L;
+
+        LimitExceededException(final long limit) {
+            super("Content exceeds " + limit + " bytes");
+        }
+    }
+
+    private final long limit;
+    private long count;
+
+    public LimitedInputStream(final InputStream in, final long limit) {
+        super(in);
+        this.limit = limit;
+    }
+
+    /**
+     * @return the number of bytes read so far
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+        final int b = super.read();
+        if (b >= 0) {
+            advance(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        final int n = super.read(b, off, len);
+        if (n > 0) {
+            advance(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        final long skipped = super.skip(n);
+        advance(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void advance(final long n) throws IOException {
+        count += n;
+        if (count > limit) {
+            throw new LimitExceededException(limit);
+        }
+    }
+}
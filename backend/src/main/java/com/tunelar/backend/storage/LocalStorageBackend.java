@@ -0,0 +1,110 @@
+package com.tunelar.backend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stores objects as files under a root directory, one file per key. Content is
+ * written to a temporary file next to the target and moved into place when
+ * complete, so readers never see a partial file.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "local", matchIfMissing = true)
+public class LocalStorageBackend implements StorageBackend {
+
+    private final Path root;
+
+    public LocalStorageBackend(@Value("${app.storage.local.root:data/storage}") String root) throws IOException {
+        this.root = Files.createDirectories(Path.of(root)).toAbsolutePath().normalize();
+    }
+
+    @Override
+    public long put(final String key, final InputStream content, final long contentLength, final String contentType)
+            throws IOException {
+        final Path target = resolve(key);
+        final Path directory = Files.createDirectories(target.getParent());
+        final Path temporary = Files.createTempFile(directory, ".upload-", ".tmp");
+        try {
+            final long size;
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                size = content.transferTo(out);
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    @Override
+    public long putFile(final String key, final Path file, final String contentType) throws IOException {
+        final Path target = resolve(key);
+        Files.createDirectories(target.getParent());
+        final long size = Files.size(file);
+        try {
+            Files.move(file, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return size;
+        }
+        catch (AtomicMoveNotSupportedException e) {
+            // the file is on another file system
+            return StorageBackend.super.putFile(key, file, contentType);
+        }
+    }
+
+    @Override
+    public void move(final String sourceKey, final String targetKey) throws IOException {
+        final Path target = resolve(targetKey);
+        Files.createDirectories(target.getParent());
+        Files.move(resolve(sourceKey), target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public InputStream get(final String key) throws IOException {
+        return Files.newInputStream(resolve(key));
+    }
+
+    @Override
+    public InputStream get(final String key, final long offset, final long length) throws IOException {
+        final InputStream in = Files.newInputStream(resolve(key));
+        try {
+            // seeks rather than reads for file streams
+            in.skipNBytes(offset);
+            return new RangeInputStream(in, length);
+        }
+        catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public Path localPath(final String key) {
+        return resolve(key);
+    }
+
+    @Override
+    public void delete(final String key) throws IOException {
+        Files.deleteIfExists(resolve(key));
+    }
+
+    /**
+     * Maps a key to its file, refusing keys that would leave the root directory
+     */
+    Path resolve(final String key) {
+        final Path path = root.resolve(key).normalize();
+        if (!path.startsWith(root) || path.equals(root)) {
+            throw new IllegalArgumentException("Invalid storage key: " + key);
+        }
+        return path;
+    }
+}
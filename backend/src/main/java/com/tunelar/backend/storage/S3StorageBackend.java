@@ -0,0 +1,196 @@
+package com.tunelar.backend.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import jakarta.annotation.PreDestroy;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.checksums.RequestChecksumCalculation;
+import software.amazon.awssdk.core.checksums.ResponseChecksumValidation;
+import software.amazon.awssdk.core.exception.SdkException;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+
+/**
+ * Stores objects in an S3-compatible bucket: AWS S3, or a local stand-in such as
+ * MinIO by setting app.storage.s3.endpoint and path-style access.
+ *
+ * Content of known length is streamed in a single PUT. Content of unknown length
+ * (a chunked request) is sent as a multipart upload, buffering one part at a time,
+ * so memory use per upload is bounded by the part size however large the file.
+ */
+@Component
+@ConditionalOnProperty(name = "app.storage.type", havingValue = "s3")
+public class S3StorageBackend implements StorageBackend {
+
+    /**
+     * S3 rejects multipart parts smaller than this, except the last one
+     */
+    static final int MIN_PART_SIZE = 5 * 1024 * 1024;
+
+    private final S3Client s3;
+    private final String bucket;
+    private final int partSize;
+
+    public S3StorageBackend(@Value("${app.storage.s3.bucket}") String bucket,
+                            @Value("${app.storage.s3.region:us-east-1}") String region,
+                            @Value("${app.storage.s3.endpoint:}") String endpoint,
+                            @Value("${app.storage.s3.path-style:false}") boolean pathStyle,
+                            @Value("${app.storage.s3.access-key:}") String accessKey,
+                            @Value("${app.storage.s3.secret-key:}") String secretKey,
+                            @Value("${app.storage.s3.part-size:8MB}") DataSize partSize) {
+        final S3ClientBuilder builder = S3Client.builder()
+                .region(Region.of(region))
+                .forcePathStyle(pathStyle)
+                // S3-compatible stores do not all accept the SDK's default trailing checksums
+                .requestChecksumCalculation(RequestChecksumCalculation.WHEN_REQUIRED)
+                .responseChecksumValidation(ResponseChecksumValidation.WHEN_REQUIRED);
+        if (!endpoint.isBlank()) {
+            builder.endpointOverride(URI.create(endpoint));
+        }
+        if (!accessKey.isBlank()) {
+            builder.credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create(accessKey, secretKey)));
+        }
+        this.s3 = builder.build();
+        this.bucket = bucket;
+        this.partSize = (int) Math.max(MIN_PART_SIZE, partSize.toBytes());
+    }
+
+    @Override
+    public long put(final String key, final InputStream content, final long contentLength, final String contentType)
+            throws IOException {
+        try {
+            if (contentLength >= 0) {
+                s3.putObject(request -> request.bucket(bucket).key(key).contentType(contentType)
+                        .contentLength(contentLength), RequestBody.fromInputStream(content, contentLength));
+                return contentLength;
+            }
+            final byte[] part = new byte[partSize];
+            final int first = content.readNBytes(part, 0, partSize);
+            if (first < partSize) {
+                s3.putObject(request -> request.bucket(bucket).key(key).contentType(contentType),
+                        body(part, first));
+                return first;
+            }
+            return putMultipart(key, content, contentType, part);
+        }
+        catch (SdkException e) {
+            throw new IOException("Failed to store " + key, e);
+        }
+    }
+
+    /**
+     * Uploads content in parts, the first of which has already been read into the buffer
+     */
+    private long putMultipart(final String key, final InputStream content, final String contentType,
+            final byte[] part) throws IOException {
+        final String uploadId = s3.createMultipartUpload(request -> request.bucket(bucket).key(key)
+                .contentType(contentType)).uploadId();
+        try {
+            final List<CompletedPart> parts = new ArrayList<>();
+            long size = 0;
+            int length = part.length;
+            while (length > 0) {
+                final int partNumber = parts.size() + 1;
+                final long partLength = length;
+                final String eTag = s3.uploadPart(request -> request.bucket(bucket).key(key).uploadId(uploadId)
+                        .partNumber(partNumber).contentLength(partLength), body(part, length)).eTag();
+                parts.add(CompletedPart.builder().partNumber(partNumber).eTag(eTag).build());
+                size += length;
+                length = content.readNBytes(part, 0, part.length);
+            }
+            s3.completeMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId)
+                    .multipartUpload(upload -> upload.parts(parts)));
+            return size;
+        }
+        catch (IOException | RuntimeException e) {
+            try {
+                s3.abortMultipartUpload(request -> request.bucket(bucket).key(key).uploadId(uploadId));
+            }
+            catch (SdkException abortFailure) {
+                e.addSuppressed(abortFailure);
+            }
+            throw e;
+        }
+    }
+
+    private static RequestBody body(final byte[] buffer, final int length) {
+        // a stream over the buffer avoids the copy RequestBody.fromBytes makes
+        return RequestBody.fromInputStream(new ByteArrayInputStream(buffer, 0, length), length);
+    }
+
+    /**
+     * Copies the object within the bucket, without downloading it, then deletes the original
+     */
+    @Override
+    public void move(final String sourceKey, final String targetKey) throws IOException {
+        try {
+            s3.copyObject(request -> request.sourceBucket(bucket).sourceKey(sourceKey)
+                    .destinationBucket(bucket).destinationKey(targetKey));
+        }
+        catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(sourceKey);
+        }
+        catch (SdkException e) {
+            throw new IOException("Failed to move " + sourceKey, e);
+        }
+        delete(sourceKey);
+    }
+
+    @Override
+    public InputStream get(final String key) throws IOException {
+        try {
+            return s3.getObject(request -> request.bucket(bucket).key(key));
+        }
+        catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        }
+        catch (SdkException e) {
+            throw new IOException("Failed to read " + key, e);
+        }
+    }
+
+    @Override
+    public InputStream get(final String key, final long offset, final long length) throws IOException {
+        try {
+            return s3.getObject(request -> request.bucket(bucket).key(key)
+                    .range("bytes=" + offset + "-" + (offset + length - 1)));
+        }
+        catch (NoSuchKeyException e) {
+            throw new NoSuchFileException(key);
+        }
+        catch (SdkException e) {
+            throw new IOException("Failed to read " + key, e);
+        }
+    }
+
+    @Override
+    public void delete(final String key) throws IOException {
+        try {
+            s3.deleteObject(request -> request.bucket(bucket).key(key));
+        }
+        catch (SdkException e) {
+            throw new IOException("Failed to delete " + key, e);
+        }
+    }
+
+    @PreDestroy
+    void close() {
+        s3.close();
+    }
+}
@@ -0,0 +1,103 @@
+package com.tunelar.backend.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Where uploaded audio files are kept. Objects are addressed by a key made of
+ * slash-separated segments. Content is streamed in both directions, so an
+ * implementation never needs to hold a whole file in memory.
+ */
+public interface StorageBackend {
+
+    /**
+     * Stores an object, replacing any object with the same key. The object only
+     * becomes visible once the content has been read to the end.
+     *
+     * @param key the object key
+     * @param content the content, read to the end but not closed
+     * @param contentLength the content length in bytes, or -1 if unknown
+     * @param contentType the media type of the content
+     * @return the number of bytes stored
+     * @throws IOException if reading the content or writing the object fails
+     */
+    long put(String key, InputStream content, long contentLength, String contentType) throws IOException;
+
+    /**
+     * Stores a complete file as an object, replacing any object with the same key.
+     * The file is consumed: it no longer exists once this returns normally.
+     * Backends on the same file system move it into place instead of copying it.
+     *
+     * @param key the object key
+     * @param file the file to store
+     * @param contentType the media type of the content
+     * @return the number of bytes stored
+     * @throws IOException if reading the file or writing the object fails
+     */
+    default long putFile(String key, Path file, String contentType) throws IOException {
+        final long size;
+        try (InputStream content = Files.newInputStream(file)) {
+            size = put(key, content, Files.size(file), contentType);
+        }
+        Files.delete(file);
+        return size;
+    }
+
+    /**
+     * Renames an object, replacing any object with the target key.
+     *
+     * @param sourceKey the key of the object
+     * @param targetKey the key to move it to
+     * @throws java.nio.file.NoSuchFileException if there is no object with the source key
+     * @throws IOException if the object cannot be moved
+     */
+    default void move(String sourceKey, String targetKey) throws IOException {
+        try (InputStream content = get(sourceKey)) {
+            put(targetKey, content, -1, "application/octet-stream");
+        }
+        delete(sourceKey);
+    }
+
+    /**
+     * Opens an object for reading.
+     *
+     * @param key the object key
+     * @return the content, to be closed by the caller
+     * @throws java.nio.file.NoSuchFileException if there is no object with the key
+     * @throws IOException if the object cannot be read
+     */
+    InputStream get(String key) throws IOException;
+
+    /**
+     * Opens part of an object for reading.
+     *
+     * @param key the object key
+     * @param offset the position of the first byte to read
+     * @param length the number of bytes to read
+     * @return the content of the range, to be closed by the caller
+     * @throws java.nio.file.NoSuchFileException if there is no object with the key
+     * @throws IOException if the object cannot be read
+     */
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    /**
+     * Gets the file an object is kept in, when it is a file on this machine. Such
+     * objects can be handed to the servlet container's sendfile support.
+     *
+     * @param key the object key
+     * @return the file, or null if the object is not a local file
+     */
+    default Path localPath(String key) {
+        return null;
+    }
+
+    /**
+     * Deletes an object if it exists.
+     *
+     * @param key the object key
+     * @throws IOException if the object cannot be deleted
+     */
+    void delete(String key) throws IOException;
+}
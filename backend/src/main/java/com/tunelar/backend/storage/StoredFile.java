@@ -0,0 +1,17 @@
+package com.tunelar.backend.storage;
+
+import java.nio.file.Path;
+
+/**
+ * The stored audio file of a track, with what is needed to serve it.
+ *
+ * @param key the storage key
+ * @param size the file size in bytes
+ * @param contentType the media type of the file
+ * @param eTag strong entity tag, quoted
+ * @param lastModified when the track last changed, in epoch milliseconds
+ * @param localPath the file on this machine, or null if the backend is remote
+ */
+public record StoredFile(String key, long size, String contentType, String eTag, long lastModified,
+        Path localPath) {
+}
@@ -0,0 +1,102 @@
+package com.tunelar.backend.waveform;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import com.tunelar.backend.audio.PcmDecoder;
+
+/**
+ * Decodes uncompressed WAV and AIFF audio in one streaming pass into min/max peaks,
+ * one pair per bucket of frames. Channels are folded together, so each peak spans
+ * every channel. Samples of any supported width are scaled to 16 bits.
+ */
+public final class PcmPeakReader implements PcmDecoder.Listener {
+
+    /**
+     * The peaks of a file
+     *
+     * @param sampleRate frames per second
+     * @param frames number of frames decoded
+     * @param buckets number of buckets
+     * @param peaks min and max of each bucket, interleaved; may be longer than needed
+     */
+    public record Peaks(int sampleRate, long frames, int buckets, short[] peaks) {
+    }
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int samplesPerBucket;
+
+    private int channels;
+    private short[] peaks = new short[1024];
+    private int buckets;
+    private int inBucket;
+    private int min = Integer.MAX_VALUE;
+    private int max = Integer.MIN_VALUE;
+
+    private PcmPeakReader(final int samplesPerBucket) {
+        this.samplesPerBucket = samplesPerBucket;
+    }
+
+    /**
+     * Reads the peaks of a WAV or AIFF stream.
+     *
+     * @param in the audio, read up to the end of its sample data but not closed
+     * @param samplesPerBucket frames per bucket
+     * @return the peaks
+     * @throws PcmDecoder.UnsupportedFormatException if the audio is not uncompressed WAV or AIFF
+     * @throws IOException if reading fails or the file ends before its sample data
+     */
+    public static Peaks read(final InputStream in, final int samplesPerBucket) throws IOException {
+        final PcmPeakReader reader = new PcmPeakReader(samplesPerBucket);
+        final PcmDecoder decoder = new PcmDecoder(reader);
+        final byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while (!decoder.done() && (n = in.read(buffer)) >= 0) {
+            decoder.write(buffer, 0, n);
+        }
+        // a truncated upload keeps what was there
+        decoder.finish();
+        if (reader.inBucket > 0) {
+            reader.append();
+        }
+        return new Peaks(decoder.sampleRate(), decoder.frames(), reader.buckets, reader.peaks);
+    }
+
+    @Override
+    public void format(final int sampleRate, final int channels) {
+        this.channels = channels;
+    }
+
+    @Override
+    public void samples(final float[] samples, final int frames) {
+        for (int frame = 0; frame < frames; frame++) {
+            final int base = frame * channels;
+            for (int channel = 0; channel < channels; channel++) {
+                final int value = Math.round(samples[base + channel] * 32768f);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            if (++inBucket == samplesPerBucket) {
+                append();
+            }
+        }
+    }
+
+    private void append() {
+        if (2 * buckets + 2 > peaks.length) {
+            peaks = Arrays.copyOf(peaks, peaks.length * 2);
+        }
+        peaks[2 * buckets] = clamp(min);
+        peaks[2 * buckets + 1] = clamp(max);
+        buckets++;
+        inBucket = 0;
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+    }
+
+    private static short clamp(final int value) {
+        return (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value));
+    }
+}
@@ -0,0 +1,223 @@
+package com.tunelar.backend.waveform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A peaks file: min/max pairs of a track's audio at several zoom levels, read
+ * through a memory mapping so serving a slice never decodes or copies into the heap.
+ * Level 0 is the finest; every further level merges {@link #ZOOM_FACTOR} buckets of
+ * the one before.
+ *
+ * Layout, all little-endian so clients can view the pairs as an Int16Array:
+ * <pre>
+ *  0  4  magic "TWPK"
+ *  4  2  version
+ *  6  2  number of levels
+ *  8  4  sample rate
+ * 12  8  number of frames
+ * 20     per level: int frames per bucket, int buckets, long offset of its pairs
+ *        then per level: buckets x (int16 min, int16 max)
+ * </pre>
+ */
+public final class WaveformPeaks {
+
+    /**
+     * Buckets of one level merged into a bucket of the next
+     */
+    public static final int ZOOM_FACTOR = 4;
+
+    /**
+     * Bytes per bucket: an int16 min and an int16 max
+     */
+    public static final int BUCKET_BYTES = 4;
+
+    private static final byte[] MAGIC = "TWPK".getBytes(StandardCharsets.US_ASCII);
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 20;
+    private static final int LEVEL_BYTES = 16;
+
+    private final ByteBuffer buffer;
+    private final int levels;
+
+    private WaveformPeaks(final ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                throw new IOException("Not a peaks file");
+            }
+        }
+        if (buffer.getShort(4) != VERSION) {
+            throw new IOException("Unsupported peaks file version " + buffer.getShort(4));
+        }
+        this.levels = buffer.getShort(6);
+    }
+
+    /**
+     * Maps a peaks file. The mapping stays valid after the file is deleted.
+     *
+     * @param file the file
+     * @return the peaks
+     * @throws java.nio.file.NoSuchFileException if the file does not exist
+     * @throws IOException if the file cannot be mapped or is not a peaks file
+     */
+    public static WaveformPeaks map(final Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new WaveformPeaks(mapped);
+        }
+    }
+
+    /**
+     * Writes the peaks file of level 0 peaks, deriving the coarser levels. The file
+     * is written next to its target and moved into place when complete.
+     *
+     * @param file the file to write
+     * @param peaks the level 0 peaks
+     * @param samplesPerBucket frames per bucket of level 0
+     * @param maxLevels the most levels to write; levels stop early once a level fits in one bucket
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(final Path file, final PcmPeakReader.Peaks peaks, final int samplesPerBucket,
+            final int maxLevels) throws IOException {
+        int levels = 1;
+        for (int buckets = peaks.buckets(); levels < maxLevels && buckets > 1; levels++) {
+            buckets = (buckets + ZOOM_FACTOR - 1) / ZOOM_FACTOR;
+        }
+
+        final short[][] pairs = new short[levels][];
+        final int[] counts = new int[levels];
+        pairs[0] = peaks.peaks();
+        counts[0] = peaks.buckets();
+        for (int level = 1; level < levels; level++) {
+            counts[level] = (counts[level - 1] + ZOOM_FACTOR - 1) / ZOOM_FACTOR;
+            pairs[level] = merge(pairs[level - 1], counts[level - 1], counts[level]);
+        }
+
+        long offset = HEADER_BYTES + (long) LEVEL_BYTES * levels;
+        final ByteBuffer header = ByteBuffer.allocate((int) offset).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(MAGIC).putShort(VERSION).putShort((short) levels).putInt(peaks.sampleRate())
+                .putLong(peaks.frames());
+        long framesPerBucket = samplesPerBucket;
+        for (int level = 0; level < levels; level++) {
+            header.putInt((int) Math.min(framesPerBucket, Integer.MAX_VALUE)).putInt(counts[level]).putLong(offset);
+            offset += (long) counts[level] * BUCKET_BYTES;
+            framesPerBucket *= ZOOM_FACTOR;
+        }
+        header.flip();
+
+        final Path temporary = Files.createTempFile(file.getParent(), ".peaks-", ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                write(channel, header);
+                final ByteBuffer data = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+                for (int level = 0; level < levels; level++) {
+                    for (int i = 0; i < 2 * counts[level]; i++) {
+                        if (!data.hasRemaining()) {
+                            data.flip();
+                            write(channel, data);
+                            data.clear();
+                        }
+                        data.putShort(pairs[level][i]);
+                    }
+                }
+                data.flip();
+                write(channel, data);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static void write(final FileChannel channel, final ByteBuffer data) throws IOException {
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    private static short[] merge(final short[] finer, final int finerCount, final int count) {
+        final short[] merged = new short[2 * count];
+        for (int bucket = 0; bucket < count; bucket++) {
+            short min = Short.MAX_VALUE;
+            short max = Short.MIN_VALUE;
+            final int end = Math.min(finerCount, (bucket + 1) * ZOOM_FACTOR);
+            for (int i = bucket * ZOOM_FACTOR; i < end; i++) {
+                min = (short) Math.min(min, finer[2 * i]);
+                max = (short) Math.max(max, finer[2 * i + 1]);
+            }
+            merged[2 * bucket] = min;
+            merged[2 * bucket + 1] = max;
+        }
+        return merged;
+    }
+
+    /**
+     * @return the number of zoom levels
+     */
+    public int levels() {
+        return levels;
+    }
+
+    /**
+     * @return frames per second of the audio
+     */
+    public int sampleRate() {
+        return buffer.getInt(8);
+    }
+
+    /**
+     * @return number of frames in the audio
+     */
+    public long frames() {
+        return buffer.getLong(12);
+    }
+
+    /**
+     * @param level the zoom level
+     * @return frames per bucket at the level
+     */
+    public int samplesPerBucket(final int level) {
+        return buffer.getInt(levelHeader(level));
+    }
+
+    /**
+     * @param level the zoom level
+     * @return number of buckets at the level
+     */
+    public int buckets(final int level) {
+        return buffer.getInt(levelHeader(level) + 4);
+    }
+
+    /**
+     * Gets a run of buckets at a level, as a view of the mapped file.
+     *
+     * @param level the zoom level
+     * @param offset the first bucket
+     * @param count the number of buckets; fewer are returned past the last one
+     * @return the min/max pairs, little-endian
+     */
+    public ByteBuffer slice(final int level, final int offset, final int count) {
+        final int buckets = buckets(level);
+        final int first = Math.max(0, Math.min(offset, buckets));
+        final int length = Math.max(0, Math.min(count, buckets - first));
+        final int start = (int) buffer.getLong(levelHeader(level) + 8) + first * BUCKET_BYTES;
+        return buffer.slice(start, length * BUCKET_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private int levelHeader(final int level) {
+        if (level < 0 || level >= levels) {
+            throw new IllegalArgumentException("Level must be between 0 and " + (levels - 1));
+        }
+        return HEADER_BYTES + LEVEL_BYTES * level;
+    }
+}
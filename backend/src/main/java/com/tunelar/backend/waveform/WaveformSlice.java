@@ -0,0 +1,17 @@
+package com.tunelar.backend.waveform;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A run of buckets from one zoom level of a track's peaks.
+ *
+ * @param sampleRate frames per second of the audio
+ * @param levels number of zoom levels in the peaks file
+ * @param samplesPerBucket frames per bucket at this level
+ * @param buckets number of buckets at this level
+ * @param offset index of the first bucket in the slice
+ * @param data min/max int16 pairs, little-endian, viewing the mapped file
+ */
+public record WaveformSlice(int sampleRate, int levels, int samplesPerBucket, int buckets, int offset,
+        ByteBuffer data) {
+}
@@ -1,9 +1,8 @@
 package com.tunelar.backend;
 
 import org.junit.jupiter.api.Test;
-import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@IntegrationTest
 class BackendApplicationTests {
 
 	@Test
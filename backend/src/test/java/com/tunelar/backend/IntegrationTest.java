@@ -0,0 +1,24 @@
+package com.tunelar.backend;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Boots the whole application, with MockMvc, for a test class. Every test that
+ * needs the application context uses this one configuration, so they all share a
+ * single cached context and with it one database schema; a second context would
+ * recreate the schema under the first one.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+@SpringBootTest
+@AutoConfigureMockMvc
+public @interface IntegrationTest {
+}
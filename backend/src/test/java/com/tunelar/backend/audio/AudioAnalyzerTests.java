@@ -0,0 +1,68 @@
+package com.tunelar.backend.audio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+class AudioAnalyzerTests {
+
+    private static AudioAnalysis analyze(final byte[] file, final int pieceSize) {
+        final AudioAnalyzer analyzer = new AudioAnalyzer();
+        for (int off = 0; off < file.length; off += pieceSize) {
+            analyzer.write(file, off, Math.min(pieceSize, file.length - off));
+        }
+        return analyzer.result();
+    }
+
+    @Test
+    void findsTempoOfClicks() {
+        // a short burst of decaying noise every half second: 120 BPM
+        final Random random = new Random(7);
+        final int rate = 44_100;
+        final byte[] file = TestAudio.wav(rate, 2, 20 * rate, frame -> {
+            final int sinceClick = frame % (rate / 2);
+            return sinceClick < 441 ? (random.nextDouble() - 0.5) * (1 - sinceClick / 441d) : 0;
+        });
+
+        final AudioAnalysis analysis = analyze(file, 1000);
+
+        assertEquals(20, analysis.duration());
+        assertEquals(120, analysis.bpm());
+    }
+
+    @Test
+    void findsKeyOfChord() {
+        // an A minor triad: A3, C4 and E4
+        final int rate = 48_000;
+        final byte[] file = TestAudio.wav(rate, 1, 10 * rate, frame -> 0.2 * (Math.sin(2 * Math.PI * 220 * frame / rate)
+                + Math.sin(2 * Math.PI * 261.63 * frame / rate) + Math.sin(2 * Math.PI * 329.63 * frame / rate)));
+
+        // pieces of an odd size split both the header and the frames
+        assertEquals("A minor", analyze(file, 7).key());
+    }
+
+    @Test
+    void measuresLoudness() {
+        // BS.1770 puts a full-scale 1 kHz sine in one channel at -3.01 LUFS; this one is 6.02 dB lower
+        final int rate = 48_000;
+        final byte[] file = TestAudio.wav(rate, 1, 10 * rate, frame -> 0.5 * Math.sin(2 * Math.PI * 1000 * frame / rate));
+
+        final AudioAnalysis analysis = analyze(file, 64 * 1024);
+
+        assertEquals(-9.0, analysis.loudness(), 0.15);
+        assertNull(analysis.bpm());
+        assertNull(analyze(TestAudio.wav(rate, 1, rate, frame -> 0), 4096).loudness());
+    }
+
+    @Test
+    void ignoresCompressedAudio() {
+        assertNull(analyze("fLaC and more bytes".getBytes(StandardCharsets.US_ASCII), 4));
+        // a WAV that ends inside its header
+        assertNull(analyze(Arrays.copyOf(TestAudio.wav(8000, 1, 10, frame -> 0), 30), 30));
+    }
+}
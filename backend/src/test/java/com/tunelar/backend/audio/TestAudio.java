@@ -0,0 +1,81 @@
+package com.tunelar.backend.audio;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * Builds 16-bit PCM WAV files for tests.
+ */
+public final class TestAudio {
+
+    private static final int HEADER_SIZE = 44;
+
+    /**
+     * The sample of one channel of one frame, from -1 to 1.
+     */
+    @FunctionalInterface
+    public interface Signal {
+
+        double sample(int frame, int channel);
+    }
+
+    private TestAudio() {
+    }
+
+    /**
+     * A WAV whose every channel carries the same signal.
+     *
+     * @param sampleRate frames per second
+     * @param channels the number of channels
+     * @param frames the number of frames
+     * @param signal the sample of each frame, from -1 to 1
+     * @return the whole file
+     */
+    public static byte[] wav(final int sampleRate, final int channels, final int frames,
+            final IntToDoubleFunction signal) {
+        return wav(sampleRate, channels, frames, (frame, channel) -> signal.applyAsDouble(frame));
+    }
+
+    /**
+     * A WAV with a separate signal per channel.
+     *
+     * @param sampleRate frames per second
+     * @param channels the number of channels
+     * @param frames the number of frames
+     * @param signal the sample of each frame and channel, from -1 to 1
+     * @return the whole file
+     */
+    public static byte[] wav(final int sampleRate, final int channels, final int frames, final Signal signal) {
+        final int data = frames * channels * 2;
+        final ByteBuffer wav = ByteBuffer.allocate(HEADER_SIZE + data).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes(StandardCharsets.US_ASCII)).putInt(HEADER_SIZE - 8 + data)
+                .put("WAVEfmt ".getBytes(StandardCharsets.US_ASCII)).putInt(16).putShort((short) 1)
+                .putShort((short) channels).putInt(sampleRate).putInt(sampleRate * channels * 2)
+                .putShort((short) (channels * 2)).putShort((short) 16)
+                .put("data".getBytes(StandardCharsets.US_ASCII)).putInt(data);
+        for (int frame = 0; frame < frames; frame++) {
+            for (int channel = 0; channel < channels; channel++) {
+                wav.putShort((short) Math.round(signal.sample(frame, channel) * Short.MAX_VALUE));
+            }
+        }
+        return wav.array();
+    }
+
+    /**
+     * Inserts a chunk between the format and data chunks of a file made by this class.
+     *
+     * @param wav the file
+     * @param id the four-letter chunk id
+     * @param body the chunk contents, of even length
+     * @return a new file with the chunk
+     */
+    public static byte[] withChunk(final byte[] wav, final String id, final byte[] body) {
+        final int formatEnd = HEADER_SIZE - 8;
+        final ByteBuffer result = ByteBuffer.allocate(wav.length + 8 + body.length).order(ByteOrder.LITTLE_ENDIAN);
+        result.put(wav, 0, formatEnd).put(id.getBytes(StandardCharsets.US_ASCII)).putInt(body.length).put(body)
+                .put(wav, formatEnd, wav.length - formatEnd);
+        return result.putInt(4, result.capacity() - 8).array();
+    }
+}
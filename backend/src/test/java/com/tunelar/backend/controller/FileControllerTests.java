@@ -0,0 +1,244 @@
+package com.tunelar.backend.controller;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.head;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.unit.DataSize;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.audio.TestAudio;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.service.AuthService;
+import com.tunelar.backend.service.FileService;
+import com.tunelar.backend.service.UploadService;
+import com.tunelar.backend.service.impl.PreviewServiceImpl;
+import com.tunelar.backend.storage.StorageBackend;
+import com.tunelar.backend.storage.StoredFile;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+@IntegrationTest
+@WithMockUser
+class FileControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UploadService uploadService;
+
+    private byte[] audio;
+
+    private String url;
+
+    private Long userId;
+
+    @Autowired
+    private FileService fileService;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        final String username = "files_" + System.nanoTime();
+        authService.register(new RegisterDto("Files", username, username + "@tunelar.com", "password"));
+        userId = userRepository.findByUsername(username).orElseThrow().getId();
+
+        audio = TestAudio.wav(8000, 1, 4000, frame -> Math.sin(frame * 0.1) / 2);
+
+        final TrackDto track = uploadService.upload(userId,
+                new TrackUploadDto("Files", null, 120, "A minor", null, List.of()), audio.length, null,
+                new ByteArrayInputStream(audio));
+        url = track.getFileUrl();
+    }
+
+    @Test
+    void servesWholeFileWithValidators() throws Exception {
+        final String eTag = mockMvc.perform(get(url))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ACCEPT_RANGES, "bytes"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, audio.length))
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(content().contentType("audio/wav"))
+                .andExpect(content().bytes(audio))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void servesSingleRanges() throws Exception {
+        final byte[] body = mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=100-1099"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 100-1099/" + audio.length))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 1000))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertArrayEquals(Arrays.copyOfRange(audio, 100, 1100), body);
+
+        mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=-10"))
+                .andExpect(status().isPartialContent())
+                .andExpect(content().bytes(Arrays.copyOfRange(audio, audio.length - 10, audio.length)));
+
+        mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=" + audio.length + "-"))
+                .andExpect(status().isRequestedRangeNotSatisfiable())
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes */" + audio.length));
+
+        // a stale If-Range gets the whole current file
+        mockMvc.perform(get(url).header(HttpHeaders.RANGE, "bytes=0-9").header(HttpHeaders.IF_RANGE, "\"stale\""))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(audio));
+    }
+
+    /**
+     * Uploads eight seconds of a 44.1 kHz stereo sine
+     */
+    private TrackDto uploadTone(final double frequency) {
+        final byte[] wav = TestAudio.wav(44_100, 2, 8 * 44_100,
+                frame -> 0.3 * Math.sin(2 * Math.PI * frequency * frame / 44_100));
+        return uploadService.upload(userId, new TrackUploadDto("Tone", null, null, null, null, List.of()), -1,
+                null, new ByteArrayInputStream(wav));
+    }
+
+    @Test
+    void servesPreviews() throws Exception {
+        final TrackDto track = uploadTone(440 + System.nanoTime() % 1000);
+
+        // 8 seconds, mono, at 22050 Hz
+        final byte[] preview = mockMvc.perform(get(track.getPreviewUrl()))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("audio/wav"))
+                .andExpect(header().longValue(HttpHeaders.CONTENT_LENGTH, 44 + 8 * 22_050 * 2))
+                .andReturn().getResponse().getContentAsByteArray();
+        final ByteBuffer header = ByteBuffer.wrap(preview).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(1, header.getShort(22));
+        assertEquals(22_050, header.getInt(24));
+
+        // only previews sent whole count as saved bytes
+        final long saved = fileService.find(track.getFileUrl()).size() - preview.length;
+        final double before = meterRegistry.get("preview.bytes.saved").counter().count();
+        final String eTag = mockMvc.perform(get(track.getPreviewUrl()).header(HttpHeaders.RANGE, "bytes=0-99"))
+                .andExpect(status().isPartialContent())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get(track.getPreviewUrl()).header(HttpHeaders.IF_NONE_MATCH, eTag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(head(track.getPreviewUrl()))
+                .andExpect(status().isOk());
+        assertEquals(before, meterRegistry.get("preview.bytes.saved").counter().count());
+        mockMvc.perform(get(track.getPreviewUrl()))
+                .andExpect(status().isOk());
+        assertEquals(before + saved, meterRegistry.get("preview.bytes.saved").counter().count());
+
+        // files no larger than their preview would be are served as they are
+        mockMvc.perform(get("/api/files/previews/" + url.substring("/api/files/".length())))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(audio));
+    }
+
+    @Test
+    void rendersPreviewOnceAndEvictsPastBudget(@TempDir final Path directory) throws Exception {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // one second at 8 kHz is 16044 bytes; room for two
+        final PreviewServiceImpl previews = new PreviewServiceImpl(fileService, storageBackend, registry,
+                directory.toString(), 8000, 1, DataSize.ofBytes(2 * 16_044));
+        final long seed = System.nanoTime() % 1000;
+        final List<String> urls = List.of(uploadTone(300 + seed).getFileUrl(), uploadTone(1300 + seed).getFileUrl(),
+                uploadTone(2300 + seed).getFileUrl());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<StoredFile>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> previews.find(urls.get(0))));
+            }
+            for (final Future<StoredFile> future : futures) {
+                assertEquals(16_044, future.get().size());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(1, registry.get("preview.requests").tag("result", "miss").counter().count());
+
+        final Path first = previews.find(urls.get(0)).localPath();
+        previews.find(urls.get(1));
+        // the first preview was used last, so the second goes when the third comes
+        previews.find(urls.get(0));
+        final Path second = previews.find(urls.get(1)).localPath();
+        previews.find(urls.get(0));
+        previews.find(urls.get(2));
+
+        assertTrue(Files.exists(first));
+        assertFalse(Files.exists(second));
+        assertEquals(1, registry.get("preview.cache.evictions").counter().count());
+        assertEquals(2 * 16_044, registry.get("preview.cache.size").gauge().value());
+        assertEquals(3, registry.get("preview.requests").tag("result", "miss").counter().count());
+        // nothing was sent, so nothing was saved
+        assertEquals(0, registry.get("preview.bytes.saved").counter().count());
+    }
+
+    @Test
+    void remembersUndecodableOriginals(@TempDir final Path directory) throws Exception {
+        final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        final PreviewServiceImpl previews = new PreviewServiceImpl(fileService, storageBackend, registry,
+                directory.toString(), 8000, 1, DataSize.ofMegabytes(1));
+        final long seed = System.nanoTime() % 1000;
+        final byte[] compressed = TestAudio.wav(8000, 1, 16_000, frame -> Math.sin((seed + frame) * 0.01) / 2);
+        // format tag 0x55, MPEG layer 3 inside a WAV container
+        compressed[20] = 0x55;
+        final String mp3Url = uploadService.upload(userId,
+                new TrackUploadDto("Compressed", null, null, null, null, List.of()), -1, null,
+                new ByteArrayInputStream(compressed)).getFileUrl();
+
+        assertEquals(compressed.length, previews.find(mp3Url).size());
+        assertEquals(compressed.length, previews.find(mp3Url).size());
+
+        assertEquals(1, registry.get("preview.render").timer().count());
+        assertEquals(0, registry.get("preview.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    void unknownFileIsNotFound() throws Exception {
+        mockMvc.perform(get("/api/files/tracks/missing.wav")).andExpect(status().isNotFound());
+    }
+}
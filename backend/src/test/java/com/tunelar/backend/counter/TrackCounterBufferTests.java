@@ -0,0 +1,173 @@
+package com.tunelar.backend.counter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Runs the buffer against a JdbcTemplate that records its batches and a transaction
+ * manager that only counts commits and rollbacks, so no database is needed.
+ */
+class TrackCounterBufferTests {
+
+    /**
+     * Records the written rows; fails or blocks the next batch when told to
+     */
+    private static final class StubJdbcTemplate extends JdbcTemplate {
+        private final List<Object[]> rows = new ArrayList<>();
+        private volatile boolean failing;
+        private volatile CountDownLatch entered;
+        private volatile CountDownLatch release;
+
+        @Override
+        public int[] batchUpdate(final String sql, final List<Object[]> batchArgs) {
+            if (failing) {
+                throw new DataAccessResourceFailureException("database unavailable");
+            }
+            if (release != null) {
+                entered.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            rows.addAll(batchArgs);
+            return new int[batchArgs.size()];
+        }
+    }
+
+    private static final class StubTransactionManager implements PlatformTransactionManager {
+        private int commits;
+        private int rollbacks;
+        private boolean failingCommit;
+
+        @Override
+        public TransactionStatus getTransaction(final TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(final TransactionStatus status) {
+            if (failingCommit) {
+                throw new TransactionSystemException("commit failed");
+            }
+            commits++;
+        }
+
+        @Override
+        public void rollback(final TransactionStatus status) {
+            rollbacks++;
+        }
+    }
+
+    private StubJdbcTemplate jdbcTemplate;
+    private StubTransactionManager transactionManager;
+    private List<Map<Long, TrackCounts>> flushed;
+    private TrackCounterBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new StubJdbcTemplate();
+        transactionManager = new StubTransactionManager();
+        flushed = new ArrayList<>();
+        final StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("listener", (TrackCountsListener) deltas -> flushed.add(Map.copyOf(deltas)));
+        buffer = new TrackCounterBuffer(jdbcTemplate, transactionManager, 2,
+                beans.getBeanProvider(TrackCountsListener.class), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void writesDeltasPerTrackInBatches() {
+        buffer.increment(TrackCounter.PLAYS, 3L);
+        buffer.increment(TrackCounter.PLAYS, 1L);
+        buffer.increment(TrackCounter.DOWNLOADS, 1L);
+        buffer.increment(TrackCounter.PLAYS, 2L);
+        buffer.increment(TrackCounter.PLAYS, 1L);
+
+        assertEquals(3, buffer.flush());
+
+        assertEquals(List.of(List.of(2L, 1L, 1L), List.of(1L, 0L, 2L), List.of(1L, 0L, 3L)),
+                jdbcTemplate.rows.stream().map(List::of).toList());
+        assertEquals(1, transactionManager.commits);
+        assertEquals(List.of(Map.of(1L, new TrackCounts(2, 1), 2L, new TrackCounts(1, 0),
+                3L, new TrackCounts(1, 0))), flushed);
+        assertEquals(Map.of(), buffer.pending(List.of(1L, 2L, 3L)));
+        assertEquals(0, buffer.flush());
+    }
+
+    @Test
+    void restoresDeltasAfterFailedWrite() {
+        buffer.increment(TrackCounter.PLAYS, 1L);
+        buffer.increment(TrackCounter.DOWNLOADS, 1L);
+        jdbcTemplate.failing = true;
+
+        assertEquals(0, buffer.flush());
+
+        assertEquals(1, transactionManager.rollbacks);
+        assertEquals(Map.of(1L, new TrackCounts(1, 1)), buffer.pending(List.of(1L)));
+
+        buffer.increment(TrackCounter.PLAYS, 1L);
+        jdbcTemplate.failing = false;
+
+        assertEquals(1, buffer.flush());
+        assertEquals(List.of(List.of(2L, 1L, 1L)), jdbcTemplate.rows.stream().map(List::of).toList());
+        assertEquals(List.of(Map.of(1L, new TrackCounts(2, 1))), flushed);
+    }
+
+    @Test
+    void notifiesListenersOnlyAfterCommit() {
+        buffer.increment(TrackCounter.PLAYS, 1L);
+        transactionManager.failingCommit = true;
+
+        assertEquals(0, buffer.flush());
+
+        assertTrue(flushed.isEmpty());
+        assertEquals(Map.of(1L, new TrackCounts(1, 0)), buffer.pending(List.of(1L)));
+
+        transactionManager.failingCommit = false;
+        assertEquals(1, buffer.flush());
+        assertEquals(List.of(Map.of(1L, new TrackCounts(1, 0))), flushed);
+    }
+
+    @Test
+    void countsDeltasBeingFlushedAsPending() throws Exception {
+        buffer.increment(TrackCounter.PLAYS, 1L);
+        jdbcTemplate.entered = new CountDownLatch(1);
+        jdbcTemplate.release = new CountDownLatch(1);
+
+        final CompletableFuture<Integer> flush = CompletableFuture.supplyAsync(buffer::flush);
+        assertTrue(jdbcTemplate.entered.await(10, TimeUnit.SECONDS));
+
+        // drained from the stripes but not committed yet
+        assertEquals(Map.of(1L, new TrackCounts(1, 0)), buffer.pending(List.of(1L, 2L)));
+        buffer.increment(TrackCounter.PLAYS, 1L);
+        assertEquals(Map.of(1L, new TrackCounts(2, 0)), buffer.pending(List.of(1L)));
+
+        jdbcTemplate.release.countDown();
+        assertEquals(1, flush.get(10, TimeUnit.SECONDS));
+
+        assertEquals(Map.of(1L, new TrackCounts(1, 0)), buffer.pending(List.of(1L)));
+        assertEquals(List.of(Map.of(1L, new TrackCounts(1, 0))), flushed);
+    }
+}
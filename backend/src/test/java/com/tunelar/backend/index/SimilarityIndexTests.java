@@ -0,0 +1,60 @@
+package com.tunelar.backend.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SimilarityIndexTests {
+
+    private SimilarityIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SimilarityIndex();
+        index.rebuild(List.of(
+                track(1L, 90, "A minor", "loop", "piano"),
+                track(2L, 180, "C major", "loop", "piano"),
+                track(3L, 92, "E minor", "loop"),
+                track(4L, 90, "D major", "loop", "piano"),
+                track(5L, 120, "A minor", "loop", "piano"),
+                track(6L, 89, "Am", "drum"),
+                track(7L, 90, null, "loop", "piano")));
+    }
+
+    private static TrackSnapshot track(Long id, Integer bpm, String key, String... tags) {
+        return new TrackSnapshot(id, 1L, "Track " + id, null, LocalDateTime.now(), bpm, key, 30, "wav",
+                List.of(tags));
+    }
+
+    private List<Long> similarTo(Long id) {
+        return index.similar(id, 10).stream().map(neighbour -> neighbour.track().id()).toList();
+    }
+
+    @Test
+    void matchesCompatibleKeysAtHalfAndDoubleTempo() {
+        // 2 is the relative major at double time, 3 a fifth away; 4, 5 and 7 are out of key or tempo
+        assertEquals(List.of(2L, 3L, 6L), similarTo(1L));
+    }
+
+    @Test
+    void followsTrackChanges() {
+        index.index(track(4L, 90, "A minor", "loop", "piano"));
+        index.remove(2L);
+        assertEquals(List.of(4L, 3L, 6L), similarTo(1L));
+        assertEquals(List.of(), similarTo(7L));
+    }
+
+    @Test
+    void parsesKeyNotations() {
+        assertEquals(new MusicalKey(9, true), MusicalKey.parse("A minor"));
+        assertEquals(new MusicalKey(10, true), MusicalKey.parse("Bbm"));
+        assertEquals(new MusicalKey(6, false), MusicalKey.parse("f# Maj"));
+        assertNull(MusicalKey.parse("unknown"));
+        assertEquals(MusicalKey.parse("C major").wheel(), MusicalKey.parse("A minor").wheel());
+    }
+}
@@ -0,0 +1,54 @@
+package com.tunelar.backend.index;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TagBitmapIndexTests {
+
+    private TagBitmapIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TagBitmapIndex();
+        index.rebuild(List.of(
+                track(1L, "Loop", "Drum"),
+                track(2L, "loop", "drum", "beat"),
+                track(3L, "loop"),
+                track(4L, "sample")));
+    }
+
+    private static TrackSnapshot track(Long id, String... tags) {
+        return new TrackSnapshot(id, 1L, "Track " + id, null, LocalDateTime.now(), null, null, 30, "wav",
+                List.of(tags));
+    }
+
+    @Test
+    void intersectsAndExcludesTags() {
+        assertArrayEquals(new int[] { 1 }, index.matching(List.of("loop", "DRUM"), List.of("beat")).toArray());
+        assertArrayEquals(new int[] { 1, 3, 4 }, index.matching(List.of(), List.of("beat")).toArray());
+        assertArrayEquals(new int[] {}, index.matching(List.of("loop", "unknown"), List.of()).toArray());
+    }
+
+    @Test
+    void followsTagChanges() {
+        index.index(track(3L, "drum"));
+        assertArrayEquals(new int[] { 3 }, index.matching(List.of("drum"), List.of("loop")).toArray());
+
+        index.remove(1L);
+        assertFalse(index.hasTag(1L, "loop"));
+        assertTrue(index.hasTag(2L, "Loop"));
+    }
+
+    @Test
+    void hasNoTagOutsideTheIndexedRange() {
+        assertFalse(index.hasTag(9_999_999_999L, "loop"));
+        assertFalse(index.hasTag(-1L, "loop"));
+    }
+}
@@ -0,0 +1,100 @@
+package com.tunelar.backend.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.RoaringBitmap;
+
+class TrackFacetIndexTests {
+
+    private static final TrackFacetIndex.Filter NONE = new TrackFacetIndex.Filter(null, null, null, null, null,
+            null, null, null);
+
+    private TrackFacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrackFacetIndex();
+        index.rebuild(List.of(
+                track(1L, 1L, 90, "A minor", 60, "wav", "loop", "drum"),
+                track(2L, 1L, 94, "a minor", 120, "mp3", "Loop"),
+                track(3L, 2L, 120, "C major", 30, "wav", "drum"),
+                track(4L, 2L, null, null, 45, "WAV")));
+    }
+
+    private static TrackSnapshot track(Long id, Long userId, Integer bpm, String key, Integer duration,
+                                       String fileType, String... tags) {
+        return new TrackSnapshot(id, userId, "Track " + id, null, LocalDateTime.now(), bpm, key, duration, fileType,
+                List.of(tags));
+    }
+
+    private static TrackFacetIndex.Filter bpm(Integer min, Integer max) {
+        return new TrackFacetIndex.Filter(null, min, max, null, null, null, null, null);
+    }
+
+    @Test
+    void countsWholeCatalog() {
+        final TrackFacetIndex.Counts counts = index.counts(NONE, null);
+
+        assertEquals(Map.of("A minor", 2, "C major", 1), counts.keys());
+        assertEquals(List.of("90-94", "120-124"), List.copyOf(counts.bpm().keySet()));
+        assertEquals(Map.of("loop", 2, "drum", 2), counts.tags());
+        assertEquals(Map.of("wav", 3, "mp3", 1), counts.fileTypes());
+    }
+
+    @Test
+    void countsTracksMatchingFilter() {
+        assertEquals(Map.of("90-94", 1), index.counts(bpm(91, 100), null).bpm());
+        assertEquals(Map.of("wav", 2), index.counts(new TrackFacetIndex.Filter(2L, null, null, null, null, null,
+                null, null), null).fileTypes());
+        assertEquals(Map.of("mp3", 1), index.counts(new TrackFacetIndex.Filter(null, null, null, " A MINOR ",
+                100, null, null, null), null).fileTypes());
+        // 90 BPM for 60 seconds is 22.5 bars, 120 BPM for 30 seconds is 15
+        assertEquals(Map.of("A minor", 1, "C major", 1), index.counts(new TrackFacetIndex.Filter(null, null, null,
+                null, null, null, 23, null), null).keys());
+        assertEquals(Map.of(), index.counts(bpm(100, 90), null).keys());
+        assertEquals(Map.of(), index.counts(new TrackFacetIndex.Filter(9L, null, null, null, null, null, null,
+                null), null).keys());
+    }
+
+    @Test
+    void narrowsTagCandidates() {
+        final RoaringBitmap tagged = RoaringBitmap.bitmapOf(1, 3, 4);
+
+        assertEquals(Map.of("wav", 3), index.counts(NONE, tagged).fileTypes());
+        assertEquals(Map.of("drum", 2, "loop", 1), index.counts(new TrackFacetIndex.Filter(null, null, null, null,
+                null, null, null, "wav"), tagged).tags());
+    }
+
+    @Test
+    void followsTrackChanges() {
+        index.counts();
+        index.index(track(2L, 1L, 121, "C major", 120, "wav"));
+        index.remove(4L);
+
+        final TrackFacetIndex.Counts counts = index.counts();
+        assertEquals(Map.of("A minor", 1, "C major", 2), counts.keys());
+        assertEquals(Map.of("90-94", 1, "120-124", 2), counts.bpm());
+        assertEquals(Map.of("loop", 1, "drum", 2), counts.tags());
+        assertEquals(Map.of("wav", 3), counts.fileTypes());
+        assertEquals(Map.of("120-124", 2), index.counts(bpm(120, null), null).bpm());
+    }
+
+    @Test
+    void containsIndexedTracksOnly() {
+        assertTrue(index.contains(4L));
+        assertFalse(index.contains(5L));
+        assertFalse(index.contains(9_999_999_999L));
+        assertFalse(index.contains(-1L));
+
+        index.remove(4L);
+        assertFalse(index.contains(4L));
+    }
+}
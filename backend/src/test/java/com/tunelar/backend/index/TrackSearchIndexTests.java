@@ -0,0 +1,72 @@
+package com.tunelar.backend.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class TrackSearchIndexTests {
+
+    private TrackSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new TrackSearchIndex();
+        index.rebuild(List.of(
+                track(1L, "Dusty Piano Loop", "warm keys", List.of("loop", "piano")),
+                track(2L, "Trap Drums", "hard hitting piano-free drums", List.of("drum")),
+                track(3L, "Café Beats", null, List.of("beat"))));
+    }
+
+    private static TrackSnapshot track(Long id, String title, String description, List<String> tags) {
+        return new TrackSnapshot(id, 1L, title, description, LocalDateTime.now(), null, null, 30, "wav", tags);
+    }
+
+    @Test
+    void ranksTitleMatchesAboveDescriptionMatches() {
+        assertEquals(List.of(1L, 2L), index.search("piano", 0, 10).trackIds());
+    }
+
+    @Test
+    void requiresEveryTermAndMatchesLastTermAsPrefix() {
+        assertEquals(List.of(2L), index.search("hard dru", 0, 10).trackIds());
+        assertEquals(List.of(), index.search("hard piano loop", 0, 10).trackIds());
+    }
+
+    @Test
+    void foldsCaseAndAccents() {
+        assertEquals(List.of(3L), index.search("CAFE", 0, 10).trackIds());
+    }
+
+    @Test
+    void reindexReplacesPreviousVersion() {
+        index.index(track(3L, "Lofi Beats", null, List.of("beat")));
+        assertEquals(List.of(), index.search("cafe", 0, 10).trackIds());
+        assertEquals(List.of(3L), index.search("lofi", 0, 10).trackIds());
+
+        index.remove(3L);
+        assertEquals(List.of(), index.search("lofi", 0, 10).trackIds());
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void pagesThroughRankedResults() {
+        final TrackSearchIndex.Hits first = index.search("piano", 0, 1);
+        final TrackSearchIndex.Hits second = index.search("piano", 1, 1);
+
+        assertEquals(2, first.total());
+        assertEquals(List.of(1L), first.trackIds());
+        assertEquals(List.of(2L), second.trackIds());
+    }
+
+    @Test
+    void rejectsNegativeOffsetsAndAnswersFarOffsetsEmpty() {
+        assertThrows(IllegalArgumentException.class, () -> index.search("piano", -1, 10));
+        assertEquals(List.of(), index.search("piano", Integer.MAX_VALUE, 10).trackIds());
+        assertEquals(List.of(2L), index.search("piano", 1, Integer.MAX_VALUE).trackIds());
+    }
+}
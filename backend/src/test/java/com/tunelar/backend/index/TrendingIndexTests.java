@@ -0,0 +1,98 @@
+package com.tunelar.backend.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.tunelar.backend.counter.TrackCounts;
+
+class TrendingIndexTests {
+
+    private static final long HOUR = 3_600_000L;
+
+    @TempDir
+    private Path directory;
+
+    private TrendingIndex index;
+
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        index = trendingIndex();
+        now = System.currentTimeMillis();
+    }
+
+    private TrendingIndex trendingIndex() {
+        final TrendingIndex trending = new TrendingIndex(1, 2, 1, 3, directory.resolve("trending").toString());
+        trending.rebuild(List.of(track(1L, "loop"), track(2L, "loop"), track(3L, "drum"), track(4L, "loop")));
+        return trending;
+    }
+
+    private static TrackSnapshot track(Long id, String... tags) {
+        return new TrackSnapshot(id, 1L, "Track " + id, null, LocalDateTime.now(), null, null, 30, "wav",
+                List.of(tags));
+    }
+
+    @Test
+    void recentEventsOutweighOlderOnes() {
+        // three plays two half-lives ago are worth less than one play now
+        index.record(1L, 3, now - 2 * HOUR);
+        index.record(2L, 1, now);
+        index.record(3L, 1, now - HOUR);
+
+        assertEquals(List.of(2L, 1L), index.chart(null, 0, 10).trackIds());
+        assertEquals(List.of(2L, 1L), index.chart("LOOP", 0, 10).trackIds());
+        assertEquals(List.of(3L), index.chart("drum", 0, 10).trackIds());
+    }
+
+    @Test
+    void weighsFlushedDeltasAndIgnoresDeletedTracks() {
+        // a download weighs three plays
+        index.onFlushed(Map.of(1L, new TrackCounts(2, 0), 2L, new TrackCounts(0, 1), 99L, new TrackCounts(5, 5)));
+
+        assertEquals(List.of(2L, 1L), index.chart(null, 0, 10).trackIds());
+        assertEquals(3d, index.score(2L), 0.01);
+        assertEquals(0d, index.score(99L));
+    }
+
+    @Test
+    void refillsChartWhenTrackLeavesIt() {
+        index.record(1L, 3, now);
+        index.record(2L, 2, now);
+        index.record(4L, 1, now);
+        assertEquals(List.of(1L, 2L), index.chart("loop", 0, 10).trackIds());
+
+        index.index(track(1L, "drum"));
+        assertEquals(List.of(2L, 4L), index.chart("loop", 0, 10).trackIds());
+        assertEquals(List.of(1L), index.chart("drum", 0, 10).trackIds());
+
+        index.remove(2L);
+        assertEquals(List.of(1L, 4L), index.chart(null, 0, 10).trackIds());
+        assertEquals(List.of(4L), index.chart(null, 1, 10).trackIds());
+        assertEquals(List.of(), index.chart(null, Integer.MAX_VALUE, 10).trackIds());
+        assertThrows(IllegalArgumentException.class, () -> index.chart(null, -1, 10));
+    }
+
+    @Test
+    void restoresScoresFromSnapshot() {
+        index.record(3L, 1, now);
+        index.record(4L, 2, now);
+        index.snapshot();
+
+        final TrendingIndex restored = new TrendingIndex(1, 2, 1, 3, directory.resolve("trending").toString());
+        restored.restore();
+        restored.rebuild(List.of(track(3L, "drum"), track(4L, "loop")));
+
+        assertEquals(List.of(4L, 3L), restored.chart(null, 0, 10).trackIds());
+        assertEquals(2d, restored.score(4L), 0.01);
+    }
+}
@@ -0,0 +1,34 @@
+package com.tunelar.backend.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.springframework.test.web.servlet.ResultMatcher;
+
+/**
+ * MockMvc matchers asserting how many SQL statements a request may issue, based on
+ * the header written by {@link QueryBudgetFilter}.
+ */
+public final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    /**
+     * Asserts the request issued at most the given number of statements.
+     *
+     * @param maxStatements the statement budget of the request
+     * @return the matcher
+     */
+    public static ResultMatcher atMost(final int maxStatements) {
+        return result -> {
+            final String header = result.getResponse().getHeader(QueryBudgetFilter.QUERY_COUNT_HEADER);
+            assertNotNull(header, "Response has no " + QueryBudgetFilter.QUERY_COUNT_HEADER + " header");
+
+            final int statements = Integer.parseInt(header);
+            assertTrue(statements <= maxStatements, () -> result.getRequest().getMethod() + " "
+                    + result.getRequest().getRequestURI() + " issued " + statements
+                    + " statements, budget is " + maxStatements);
+        };
+    }
+}
@@ -0,0 +1,89 @@
+package com.tunelar.backend.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.service.AuthService;
+
+@IntegrationTest
+class QueryBudgetTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void loginLoadsUserOnce() throws Exception {
+        authService.register(new RegisterDto("Budget", "budget_login", "budget_login@tunelar.com", "password"));
+
+        // one select for the user, one for its roles
+        mockMvc.perform(post("/api/auth/login")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"usernameOrEmail\":\"budget_login\",\"password\":\"password\"}"))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void allUsersBudget() throws Exception {
+        authService.register(new RegisterDto("Budget", "budget_all", "budget_all@tunelar.com", "password"));
+
+        // one projection query, however many users and tracks there are
+        mockMvc.perform(get("/api/user/all"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(QueryBudget.atMost(1));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void allUsersStreamsNdjson() throws Exception {
+        authService.register(new RegisterDto("Budget", "budget_stream", "budget_stream@tunelar.com", "password"));
+        final long users = userRepository.count();
+
+        final MvcResult result = mockMvc.perform(get("/api/user/all").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(users, body.lines().count());
+        assertTrue(body.contains("\"username\":\"budget_stream\""));
+    }
+
+    @Test
+    @WithMockUser(roles = "ADMIN")
+    void userDetailBudget() throws Exception {
+        authService.register(new RegisterDto("Budget", "budget_detail", "budget_detail@tunelar.com", "password"));
+        final Long id = userRepository.findByUsername("budget_detail").orElseThrow().getId();
+
+        // the user joined with its roles, then the track count
+        mockMvc.perform(get("/api/user/byId/" + id))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.password").doesNotExist())
+                .andExpect(QueryBudget.atMost(2));
+    }
+}
@@ -0,0 +1,44 @@
+package com.tunelar.backend.monitoring;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.model.Tag;
+import com.tunelar.backend.repository.TagRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+@IntegrationTest
+class SecondLevelCacheTests {
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    void tagLookupByNameIsServedFromQueryCache() {
+        final Tag tag = new Tag();
+        tag.setName("cached_" + System.nanoTime());
+        tagRepository.save(tag);
+
+        tagRepository.findByNameIgnoreCase(tag.getName()).orElseThrow();
+        final QueryStats stats = QueryStats.begin();
+        try {
+            assertEquals(tag.getId(), tagRepository.findByNameIgnoreCase(tag.getName()).orElseThrow().getId());
+            assertEquals(0, stats.getStatementCount());
+        }
+        finally {
+            QueryStats.end();
+        }
+
+        final double hitRatio = meterRegistry.get("hibernate.cache.hit.ratio").tag("region", "tag-by-name")
+                .gauge().value();
+        assertTrue(hitRatio > 0);
+    }
+}
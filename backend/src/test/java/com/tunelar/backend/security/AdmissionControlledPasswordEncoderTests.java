@@ -0,0 +1,113 @@
+package com.tunelar.backend.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.tunelar.backend.exception.AuthThrottledException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AdmissionControlledPasswordEncoderTests {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private AdmissionControlledPasswordEncoder encoder;
+
+    /**
+     * Hashes by echoing the password, holding every call until released
+     */
+    private final PasswordEncoder blocking = new PasswordEncoder() {
+        @Override
+        public String encode(final CharSequence rawPassword) {
+            started.countDown();
+            try {
+                release.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return rawPassword.toString();
+        }
+
+        @Override
+        public boolean matches(final CharSequence rawPassword, final String encodedPassword) {
+            return encode(rawPassword).equals(encodedPassword);
+        }
+    };
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        encoder.destroy();
+    }
+
+    private AdmissionControlledPasswordEncoder encoder(final long timeoutMillis) {
+        // one hashing thread and one waiting slot
+        return new AdmissionControlledPasswordEncoder(blocking, 1, 1, timeoutMillis, 7, meterRegistry);
+    }
+
+    private double rejected() {
+        return meterRegistry.get("auth.password.rejected").counter().count();
+    }
+
+    @Test
+    void hashesOnPool() {
+        encoder = encoder(5_000);
+        release.countDown();
+
+        assertEquals("secret", encoder.encode("secret"));
+        assertTrue(encoder.matches("secret", "secret"));
+    }
+
+    @Test
+    void turnsAwayCallersWhenQueueIsFull() throws Exception {
+        encoder = encoder(10_000);
+        final CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> encoder.encode("a"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        final CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> encoder.encode("b"));
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("auth.password.queue.depth").gauge().value() < 1) {
+            assertTrue(System.nanoTime() < deadline, "second call never queued");
+            Thread.onSpinWait();
+        }
+
+        final AuthThrottledException busy = assertThrows(AuthThrottledException.class, () -> encoder.encode("c"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, busy.getStatus());
+        assertEquals(7L, busy.getRetryAfterSeconds());
+        assertEquals(1d, rejected());
+
+        release.countDown();
+        assertEquals("a", running.get(5, TimeUnit.SECONDS));
+        assertEquals("b", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void givesUpAfterTimeout() {
+        encoder = encoder(50);
+
+        final AuthThrottledException busy = assertThrows(AuthThrottledException.class,
+                () -> encoder.matches("a", "a"));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, busy.getStatus());
+        assertEquals(1d, rejected());
+    }
+}
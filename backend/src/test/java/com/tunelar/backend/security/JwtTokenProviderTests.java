@@ -0,0 +1,57 @@
+package com.tunelar.backend.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import io.jsonwebtoken.Claims;
+
+class JwtTokenProviderTests {
+
+    private JwtTokenProvider jwtTokenProvider;
+
+    @BeforeEach
+    void setUp() {
+        jwtTokenProvider = new JwtTokenProvider();
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtSecret", "test_jwt_secret_key_for_unit_tests");
+        ReflectionTestUtils.setField(jwtTokenProvider, "jwtExpirationDate", 60_000L);
+        jwtTokenProvider.init();
+    }
+
+    @Test
+    void tokenCarriesPrincipalClaims() {
+        final List<GrantedAuthority> authorities = List.of(new SimpleGrantedAuthority("ROLE_PROD"));
+        final UserPrincipal principal = new UserPrincipal(42L, "producer", "hash", authorities);
+        final String token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken(principal, null, authorities));
+
+        final Claims claims = jwtTokenProvider.parseClaims(token);
+        assertTrue(jwtTokenProvider.hasPrincipalClaims(claims));
+
+        final UserPrincipal parsed = jwtTokenProvider.getPrincipal(claims);
+        assertEquals(42L, parsed.getId());
+        assertEquals("producer", parsed.getUsername());
+        assertEquals(authorities, List.copyOf(parsed.getAuthorities()));
+        assertEquals("producer", jwtTokenProvider.getUsername(token));
+    }
+
+    @Test
+    void rejectsTamperedToken() {
+        final String token = jwtTokenProvider.generateToken(
+                new UsernamePasswordAuthenticationToken("producer", null, List.of()));
+
+        assertTrue(jwtTokenProvider.validateToken(token));
+        assertFalse(jwtTokenProvider.validateToken(token.substring(0, token.length() - 2) + "xx"));
+        assertNull(jwtTokenProvider.parseClaims("not-a-token"));
+    }
+}
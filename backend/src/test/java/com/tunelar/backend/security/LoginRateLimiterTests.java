@@ -0,0 +1,51 @@
+package com.tunelar.backend.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+
+import com.tunelar.backend.exception.AuthThrottledException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginRateLimiterTests {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private LoginRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        // two attempts per address and one per account, refilled once a minute
+        rateLimiter = new LoginRateLimiter(2, 1, 1, 1, 100, meterRegistry);
+    }
+
+    @Test
+    void limitsAccountIgnoringCase() {
+        rateLimiter.acquire("10.0.0.1", "alice");
+
+        final AuthThrottledException throttled = assertThrows(AuthThrottledException.class,
+                () -> rateLimiter.acquire("10.0.0.2", "ALICE"));
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, throttled.getStatus());
+        assertTrue(throttled.getRetryAfterSeconds() >= 1);
+        assertEquals(1d, meterRegistry.get("auth.rate.limited").tag("scope", "account").counter().count());
+
+        rateLimiter.acquire("10.0.0.3", "bob");
+    }
+
+    @Test
+    void limitsAddressAcrossAccounts() {
+        rateLimiter.acquire("10.0.0.1", "alice");
+        rateLimiter.acquire("10.0.0.1", "bob");
+
+        assertThrows(AuthThrottledException.class, () -> rateLimiter.acquire("10.0.0.1", null));
+        assertEquals(1d, meterRegistry.get("auth.rate.limited").tag("scope", "ip").counter().count());
+
+        rateLimiter.acquire("10.0.0.2", null);
+    }
+}
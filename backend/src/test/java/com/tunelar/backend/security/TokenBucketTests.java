@@ -0,0 +1,54 @@
+package com.tunelar.backend.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+class TokenBucketTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstUpToCapacity() {
+        final TokenBucket bucket = new TokenBucket(2, 60, 0L);
+
+        assertTrue(bucket.tryConsume(0L));
+        assertTrue(bucket.tryConsume(0L));
+        assertFalse(bucket.tryConsume(0L));
+    }
+
+    @Test
+    void refillsAtRateAndReportsWait() {
+        // one token per second
+        final TokenBucket bucket = new TokenBucket(1, 60, 0L);
+        assertTrue(bucket.tryConsume(0L));
+
+        assertEquals(1L, bucket.secondsUntilAvailable(0L));
+        assertFalse(bucket.tryConsume(SECOND / 2));
+        assertTrue(bucket.tryConsume(SECOND));
+    }
+
+    @Test
+    void roundsWaitUpToWholeSeconds() {
+        // one token every six seconds
+        final TokenBucket bucket = new TokenBucket(1, 10, 0L);
+        assertTrue(bucket.tryConsume(0L));
+
+        assertEquals(6L, bucket.secondsUntilAvailable(0L));
+        assertEquals(1L, bucket.secondsUntilAvailable(5 * SECOND + 1));
+    }
+
+    @Test
+    void neverRefillsPastCapacity() {
+        final TokenBucket bucket = new TokenBucket(2, 60, 0L);
+
+        final long later = 3600 * SECOND;
+        assertTrue(bucket.tryConsume(later));
+        assertTrue(bucket.tryConsume(later));
+        assertFalse(bucket.tryConsume(later));
+    }
+}
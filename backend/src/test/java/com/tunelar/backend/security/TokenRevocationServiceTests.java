@@ -0,0 +1,93 @@
+package com.tunelar.backend.security;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Date;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class TokenRevocationServiceTests {
+
+    private static final long LIFETIME = 60_000L;
+
+    private TokenRevocationService revocationService;
+
+    @BeforeEach
+    void setUp() {
+        revocationService = new TokenRevocationService(LIFETIME, new SimpleMeterRegistry());
+    }
+
+    private static Claims claims(String tokenId, Long userId, long issuedAt) {
+        return Jwts.claims()
+                .id(tokenId)
+                .issuedAt(new Date(issuedAt))
+                .add(JwtTokenProvider.USER_ID_CLAIM, userId)
+                .build();
+    }
+
+    private static Claims claimsWithMillis(String tokenId, Long userId, long issuedAt) {
+        return Jwts.claims()
+                .id(tokenId)
+                .issuedAt(new Date(issuedAt))
+                .add(JwtTokenProvider.USER_ID_CLAIM, userId)
+                .add(JwtTokenProvider.ISSUED_AT_MILLIS_CLAIM, issuedAt)
+                .build();
+    }
+
+    @Test
+    void revokesSingleTokenUntilItExpires() {
+        revocationService.revokeToken("a", 10_000L);
+
+        assertTrue(revocationService.isRevoked(claims("a", 1L, 0L)));
+        assertFalse(revocationService.isRevoked(claims("b", 1L, 0L)));
+
+        revocationService.purgeExpired(9_999L);
+        assertTrue(revocationService.isRevoked(claims("a", 1L, 0L)));
+
+        revocationService.purgeExpired(10_000L);
+        assertFalse(revocationService.isRevoked(claims("a", 1L, 0L)));
+    }
+
+    @Test
+    void watermarkRevokesOnlyEarlierTokensOfThatUser() {
+        revocationService.revokeAllForUser(1L, 5_000L);
+
+        assertTrue(revocationService.isRevoked(claims("a", 1L, 4_000L)));
+        assertFalse(revocationService.isRevoked(claims("b", 1L, 6_000L)));
+        assertFalse(revocationService.isRevoked(claims("c", 2L, 4_000L)));
+    }
+
+    @Test
+    void watermarkUsesMillisecondIssueTimeWhenPresent() {
+        revocationService.revokeAllForUser(1L, 5_200L);
+
+        assertTrue(revocationService.isRevoked(claimsWithMillis("a", 1L, 5_100L)));
+        assertFalse(revocationService.isRevoked(claimsWithMillis("b", 1L, 5_300L)));
+    }
+
+    @Test
+    void watermarkDoesNotRevokeSecondPrecisionTokenIssuedInSameSecond() {
+        revocationService.revokeAllForUser(1L, 5_200L);
+
+        assertFalse(revocationService.isRevoked(claims("a", 1L, 5_000L)));
+        assertTrue(revocationService.isRevoked(claims("b", 1L, 4_000L)));
+    }
+
+    @Test
+    void purgeKeepsNewerWatermark() {
+        revocationService.revokeAllForUser(1L, 5_000L);
+        revocationService.revokeAllForUser(1L, 20_000L);
+
+        revocationService.purgeExpired(5_000L + LIFETIME);
+        assertTrue(revocationService.isRevoked(claims("a", 1L, 19_000L)));
+
+        revocationService.purgeExpired(20_000L + LIFETIME);
+        assertFalse(revocationService.isRevoked(claims("a", 1L, 19_000L)));
+    }
+}
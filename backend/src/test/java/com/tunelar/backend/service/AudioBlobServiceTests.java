@@ -0,0 +1,146 @@
+package com.tunelar.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.audio.TestAudio;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.User;
+import com.tunelar.backend.repository.AudioBlobRepository;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.storage.StorageBackend;
+
+@IntegrationTest
+class AudioBlobServiceTests {
+
+    @Autowired
+    private UploadService uploadService;
+
+    @Autowired
+    private TrackService trackService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private AudioBlobRepository audioBlobRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private WaveformService waveformService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        final String username = "blobs_" + System.nanoTime();
+        authService.register(new RegisterDto("Blobs", username, username + "@tunelar.com", "password"));
+        user = userRepository.findByUsername(username).orElseThrow();
+    }
+
+    /**
+     * Half a second of noise no other upload shares
+     */
+    private static byte[] unique() {
+        final Random random = new Random(System.nanoTime());
+        return TestAudio.wav(8000, 1, 4000, frame -> random.nextDouble() - 0.5);
+    }
+
+    @Test
+    void storesIdenticalUploadsOnce() throws Exception {
+        // unique content, so no other test shares the blob
+        final byte[] audio = unique();
+        final String digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(audio));
+        final TrackUploadDto upload = new TrackUploadDto("One-shot", null, null, null, null, List.of());
+
+        final TrackDto first = uploadService.upload(user.getId(), upload, audio.length, null,
+                new ByteArrayInputStream(audio));
+        final TrackDto second = uploadService.upload(user.getId(), upload, audio.length, digest.toUpperCase(),
+                new ByteArrayInputStream(audio));
+        final TrackDto third = uploadService.upload(user.getId(), upload, -1, null, new ByteArrayInputStream(audio));
+
+        assertEquals(first.getFileUrl(), second.getFileUrl());
+        assertEquals(first.getFileUrl(), third.getFileUrl());
+        assertTrue(first.getFileUrl().contains(digest));
+        assertEquals(3L, audioBlobRepository.findById(digest).orElseThrow().getRefCount());
+
+        // a declared digest the content does not match is rejected without taking a reference
+        final byte[] tampered = audio.clone();
+        tampered[100]++;
+        final TunelarAPIException mismatch = assertThrows(TunelarAPIException.class, () -> uploadService
+                .upload(user.getId(), upload, audio.length, digest, new ByteArrayInputStream(tampered)));
+        assertEquals(HttpStatus.BAD_REQUEST, mismatch.getStatus());
+        assertEquals(3L, audioBlobRepository.findById(digest).orElseThrow().getRefCount());
+
+        final String key = first.getFileUrl().substring("/api/files/".length());
+        trackService.deleteTrack(first.getId(), user.getId(), false);
+        trackService.deleteTrack(second.getId(), user.getId(), false);
+        try (InputStream stored = storageBackend.get(key)) {
+            assertArrayEquals(audio, stored.readAllBytes());
+        }
+        assertThrows(TunelarAPIException.class, () -> trackService.deleteTrack(third.getId(), -1L, false));
+
+        // the peaks drawn in the background go with the blob, mapped or not
+        String waveformUrl = null;
+        for (int i = 0; i < 100 && waveformUrl == null; i++) {
+            Thread.sleep(50);
+            waveformUrl = trackRepository.findById(third.getId()).orElseThrow().getWaveformUrl();
+        }
+        final String peaks = waveformUrl.substring(waveformUrl.lastIndexOf('/') + 1);
+        assertEquals(8000, waveformService.slice(peaks, 0, 0, 10).sampleRate());
+
+        trackService.deleteTrack(third.getId(), user.getId(), false);
+        assertTrue(audioBlobRepository.findById(digest).isEmpty());
+        assertThrows(NoSuchFileException.class, () -> storageBackend.get(key).close());
+        assertThrows(ResourceNotFoundException.class, () -> waveformService.slice(peaks, 0, 0, 10));
+    }
+
+    @Test
+    void releasesAudioOfDeletedUsers() throws Exception {
+        final String username = "leaving_" + System.nanoTime();
+        authService.register(new RegisterDto("Leaving", username, username + "@tunelar.com", "password"));
+        final User leaving = userRepository.findByUsername(username).orElseThrow();
+
+        final byte[] audio = unique();
+        final TrackDto track = uploadService.upload(leaving.getId(),
+                new TrackUploadDto("Farewell", null, null, null, null, List.of()), audio.length, null,
+                new ByteArrayInputStream(audio));
+        final String key = track.getFileUrl().substring("/api/files/".length());
+        final String digest = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(audio));
+
+        authService.deleteUserById(leaving.getId());
+
+        assertTrue(trackRepository.findById(track.getId()).isEmpty());
+        assertTrue(audioBlobRepository.findById(digest).isEmpty());
+        assertThrows(NoSuchFileException.class, () -> storageBackend.get(key).close());
+    }
+}
@@ -0,0 +1,41 @@
+package com.tunelar.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.InternalAuthenticationServiceException;
+
+import com.tunelar.backend.dto.LoginDto;
+import com.tunelar.backend.exception.AuthThrottledException;
+import com.tunelar.backend.service.impl.AuthServiceImpl;
+
+class AuthServiceLoginTests {
+
+    private static AuthService authService(final AuthenticationManager authenticationManager) {
+        return new AuthServiceImpl(null, null, null, authenticationManager, null, null, null, null, null);
+    }
+
+    @Test
+    void unwrapsThrottlingDuringUserLookup() {
+        final AuthThrottledException busy = new AuthThrottledException(HttpStatus.SERVICE_UNAVAILABLE, "busy", 2);
+        final AuthService authService = authService(authentication -> {
+            throw new InternalAuthenticationServiceException(busy.getMessage(), busy);
+        });
+
+        assertSame(busy, assertThrows(AuthThrottledException.class,
+                () -> authService.login(new LoginDto("alice", "password"))));
+    }
+
+    @Test
+    void keepsOtherInternalFailures() {
+        final AuthService authService = authService(authentication -> {
+            throw new InternalAuthenticationServiceException("database down");
+        });
+
+        assertThrows(InternalAuthenticationServiceException.class,
+                () -> authService.login(new LoginDto("alice", "password")));
+    }
+}
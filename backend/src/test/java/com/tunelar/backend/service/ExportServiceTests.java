@@ -0,0 +1,89 @@
+package com.tunelar.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.config.ExportConnectionPool;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.model.User;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.repository.UserRepository;
+
+@IntegrationTest
+class ExportServiceTests {
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private ExportConnectionPool exportConnectionPool;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        final String username = "export_" + System.nanoTime();
+        authService.register(new RegisterDto("Export", username, username + "@tunelar.com", "password"));
+        final User user = userRepository.findByUsername(username).orElseThrow();
+
+        for (int i = 0; i < 3; i++) {
+            final Track track = new Track();
+            track.setTitle("Export " + i);
+            track.setFileUrl("/files/export-" + i);
+            track.setFileSize(1024L);
+            track.setFileType("wav");
+            track.setDuration(10 + i);
+            track.setUser(user);
+            created.add(trackRepository.save(track).getId());
+        }
+    }
+
+    @Test
+    void exportsEveryTrackAsOneLine() throws Exception {
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        exportService.exportTracks(output);
+
+        final List<String> lines = output.toString(StandardCharsets.UTF_8).lines().toList();
+        assertEquals(trackRepository.count(), lines.size());
+        for (final Long id : created) {
+            assertTrue(lines.stream().anyMatch(line -> line.startsWith("{\"id\":" + id + ",")));
+        }
+    }
+
+    @Test
+    void onlyExportConnectionsFetchThroughCursor() throws Exception {
+        try (Connection connection = exportConnectionPool.getConnection()) {
+            assertTrue(connection.getMetaData().getURL().contains("useCursorFetch=true"));
+        }
+        try (Connection connection = dataSource.getConnection()) {
+            assertFalse(connection.getMetaData().getURL().contains("useCursorFetch"));
+        }
+    }
+}
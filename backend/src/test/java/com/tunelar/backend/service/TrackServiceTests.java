@@ -0,0 +1,230 @@
+package com.tunelar.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.counter.TrackCounterBuffer;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackFilterDto;
+import com.tunelar.backend.dto.TrackPageDto;
+import com.tunelar.backend.dto.TrackSearchResultDto;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.Tag;
+import com.tunelar.backend.model.Track;
+import com.tunelar.backend.model.User;
+import com.tunelar.backend.repository.TagRepository;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.repository.UserRepository;
+
+@IntegrationTest
+class TrackServiceTests {
+
+    private static final int TRACKS = 7;
+
+    @Autowired
+    private TrackService trackService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private TagRepository tagRepository;
+
+    @Autowired
+    private TrackCounterBuffer counterBuffer;
+
+    private User user;
+
+    private final List<Long> created = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        final String username = "browse_" + System.nanoTime();
+        authService.register(new RegisterDto("Browse", username, username + "@tunelar.com", "password"));
+        user = userRepository.findByUsername(username).orElseThrow();
+
+        final Tag loop = tagRepository.findByNameIgnoreCase("loop").orElseGet(() -> {
+            final Tag tag = new Tag();
+            tag.setName("loop");
+            return tagRepository.save(tag);
+        });
+
+        for (int i = 0; i < TRACKS; i++) {
+            final Track track = new Track();
+            track.setTitle("Track " + i);
+            track.setFileUrl("/files/" + i);
+            track.setFileSize(1024L);
+            track.setFileType("wav");
+            track.setBpm(90 + i);
+            track.setDuration(10 + i);
+            track.setKey(i % 2 == 0 ? "A minor" : "C major");
+            track.setUser(user);
+            track.setTags(i % 2 == 0 ? Set.of(loop) : Set.of());
+            created.add(0, trackRepository.save(track).getId());
+        }
+    }
+
+    private TrackFilterDto byUser() {
+        final TrackFilterDto filter = new TrackFilterDto();
+        filter.setUserId(user.getId());
+        return filter;
+    }
+
+    @Test
+    void pagesCoverAllTracksNewestFirst() {
+        final List<Long> seen = new ArrayList<>();
+        String cursor = null;
+        do {
+            final TrackPageDto page = trackService.browse(byUser(), cursor, 3);
+            page.getTracks().forEach(track -> seen.add(track.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(created, seen);
+    }
+
+    @Test
+    void filtersByTag() {
+        final TrackFilterDto filter = byUser();
+        filter.setTags(List.of("LOOP"));
+        final TrackPageDto page = trackService.browse(filter, null, 20);
+
+        assertEquals(List.of(created.get(0), created.get(2), created.get(4), created.get(6)),
+                page.getTracks().stream().map(TrackDto::getId).toList());
+        assertNull(page.getNextCursor());
+
+        filter.setTags(List.of("loop", "no-such-tag"));
+        assertEquals(List.of(), trackService.browse(filter, null, 20).getTracks());
+
+        filter.setTags(null);
+        filter.setExcludeTags(List.of("loop"));
+        assertEquals(List.of(created.get(1), created.get(3), created.get(5)),
+                trackService.browse(filter, null, 20).getTracks().stream().map(TrackDto::getId).toList());
+    }
+
+    @Test
+    void filtersByTempoKeyAndBars() {
+        final TrackFilterDto filter = byUser();
+        filter.setBpmMin(91);
+        filter.setBpmMax(95);
+        filter.setKey("a MINOR");
+        // track i lasts 10 + i seconds at 90 + i BPM, so track 2 is 4.6 bars and track 4 is 5.5
+        filter.setMaxBars(5);
+
+        assertEquals(List.of(created.get(TRACKS - 1 - 2)),
+                trackService.browse(filter, null, 20).getTracks().stream().map(TrackDto::getId).toList());
+    }
+
+    @Test
+    void hugeMaxBarsMatchesPageAndFacets() {
+        final TrackFilterDto filter = byUser();
+        // Integer.MAX_VALUE * 240 overflows an int
+        filter.setMaxBars(Integer.MAX_VALUE);
+        final TrackPageDto page = trackService.browse(filter, null, 20);
+
+        assertEquals(created, page.getTracks().stream().map(TrackDto::getId).toList());
+        assertEquals(Map.of("A minor", 4, "C major", 3), page.getFacets().getKeys());
+    }
+
+    @Test
+    void firstPageCarriesFacetCounts() {
+        final TrackPageDto first = trackService.browse(byUser(), null, 2);
+        final TrackPageDto second = trackService.browse(byUser(), first.getNextCursor(), 2);
+
+        // counted over this user's tracks only
+        assertEquals(Map.of("A minor", 4, "C major", 3), first.getFacets().getKeys());
+        assertEquals(Map.of("90-94", 5, "95-99", 2), first.getFacets().getBpm());
+        assertEquals(Map.of("loop", 4), first.getFacets().getTags());
+        assertNull(second.getFacets());
+
+        final TrackFilterDto looped = byUser();
+        looped.setTags(List.of("LOOP"));
+        looped.setBpmMax(94);
+        final TrackPageDto narrowed = trackService.browse(looped, null, 2);
+        assertEquals(Map.of("A minor", 3), narrowed.getFacets().getKeys());
+        assertEquals(Map.of("90-94", 3), narrowed.getFacets().getBpm());
+        assertEquals(Map.of("wav", 3), narrowed.getFacets().getFileTypes());
+    }
+
+    @Test
+    void searchSeesCommittedTracks() {
+        final Track track = trackRepository.findById(created.get(0)).orElseThrow();
+        track.setTitle("Zyzzyva " + user.getUsername());
+        trackRepository.save(track);
+
+        final TrackSearchResultDto result = trackService.search("zyzzyva " + user.getUsername(), 0, 20);
+        assertEquals(List.of(track.getId()), result.getTracks().stream().map(TrackDto::getId).toList());
+        // a page far past the end is empty rather than a wrapped-around offset
+        assertTrue(trackService.search("zyzzyva " + user.getUsername(), Integer.MAX_VALUE / 10, 20).getTracks()
+                .isEmpty());
+
+        trackRepository.deleteById(track.getId());
+        assertEquals(0, trackService.search("zyzzyva " + user.getUsername(), 0, 20).getTotal());
+    }
+
+    @Test
+    void countsConcurrentPlaysAcrossFlushes() throws Exception {
+        final Long trackId = created.get(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 500; j++) {
+                        trackService.recordPlay(trackId);
+                    }
+                }));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        trackService.recordDownload(trackId);
+
+        final TrackFilterDto filter = byUser();
+        final TrackDto beforeFlush = trackService.browse(filter, null, 1).getTracks().get(0);
+        assertEquals(4000L, beforeFlush.getPlays());
+        assertEquals(1L, beforeFlush.getDownloads());
+
+        counterBuffer.flush();
+        final Track persisted = trackRepository.findById(trackId).orElseThrow();
+        assertEquals(4000L, persisted.getPlays());
+        assertEquals(1L, persisted.getDownloads());
+        assertEquals(4000L, trackService.browse(filter, null, 1).getTracks().get(0).getPlays());
+
+        assertThrows(ResourceNotFoundException.class, () -> trackService.recordPlay((long) Integer.MAX_VALUE));
+        assertThrows(ResourceNotFoundException.class, () -> trackService.recordPlay(9_999_999_999L));
+        assertThrows(ResourceNotFoundException.class, () -> trackService.recordDownload(9_999_999_999L));
+    }
+
+    @Test
+    void rejectsMalformedCursor() {
+        assertThrows(TunelarAPIException.class, () -> trackService.browse(new TrackFilterDto(), "not a cursor", 20));
+    }
+}
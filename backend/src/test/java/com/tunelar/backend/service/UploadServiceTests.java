@@ -0,0 +1,103 @@
+package com.tunelar.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.audio.TestAudio;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.User;
+import com.tunelar.backend.repository.TrackRepository;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.storage.StorageBackend;
+import com.tunelar.backend.waveform.WaveformSlice;
+
+@IntegrationTest
+class UploadServiceTests {
+
+    @Autowired
+    private UploadService uploadService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TrackRepository trackRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    @Autowired
+    private WaveformService waveformService;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        final String username = "upload_" + System.nanoTime();
+        authService.register(new RegisterDto("Upload", username, username + "@tunelar.com", "password"));
+        user = userRepository.findByUsername(username).orElseThrow();
+    }
+
+    @Test
+    void streamsUploadIntoStorage() throws Exception {
+        // two seconds of silence at 8 kHz
+        final byte[] wav = TestAudio.wav(8000, 1, 16_000, frame -> 0);
+        final TrackUploadDto upload = new TrackUploadDto("Upload", null, 120, "A minor", null, List.of("loop"));
+
+        final TrackDto track = uploadService.upload(user.getId(), upload, -1, null,
+                new ByteArrayInputStream(wav));
+
+        assertEquals("wav", track.getFileType());
+        assertEquals(wav.length, track.getFileSize());
+        assertEquals(2, track.getDuration());
+        assertEquals(List.of("loop"), track.getTags());
+        final String key = track.getFileUrl().substring("/api/files/".length());
+        try (InputStream stored = storageBackend.get(key)) {
+            assertArrayEquals(wav, stored.readAllBytes());
+        }
+
+        final TunelarAPIException unsupported = assertThrows(TunelarAPIException.class, () -> uploadService
+                .upload(user.getId(), upload, -1, null, new ByteArrayInputStream("not audio".getBytes())));
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, unsupported.getStatus());
+    }
+
+    @Test
+    void drawsWaveformOfUpload() throws Exception {
+        final byte[] wav = TestAudio.wav(8000, 1, 16_000, frame -> 0);
+        final TrackDto track = uploadService.upload(user.getId(),
+                new TrackUploadDto("Waveform", null, 120, "A minor", null, List.of()), -1, null,
+                new ByteArrayInputStream(wav));
+
+        // the waveform is drawn in the background; wait up to five seconds for it
+        String waveformUrl = trackRepository.findById(track.getId()).orElseThrow().getWaveformUrl();
+        for (int i = 0; i < 100 && waveformUrl == null; i++) {
+            Thread.sleep(50);
+            waveformUrl = trackRepository.findById(track.getId()).orElseThrow().getWaveformUrl();
+        }
+        assertNotNull(waveformUrl, "no waveform was drawn for the upload");
+
+        final WaveformSlice waveform = waveformService
+                .slice(waveformUrl.substring(waveformUrl.lastIndexOf('/') + 1), 0, 0, 1000);
+        assertEquals(8000, waveform.sampleRate());
+        assertEquals(63, waveform.buckets());
+        assertEquals(63 * 4, waveform.data().remaining());
+    }
+}
@@ -0,0 +1,167 @@
+package com.tunelar.backend.service;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.util.unit.DataSize;
+
+import com.tunelar.backend.IntegrationTest;
+import com.tunelar.backend.audio.TestAudio;
+import com.tunelar.backend.dto.RegisterDto;
+import com.tunelar.backend.dto.TrackDto;
+import com.tunelar.backend.dto.TrackUploadDto;
+import com.tunelar.backend.dto.UploadSessionCreateDto;
+import com.tunelar.backend.dto.UploadSessionDto;
+import com.tunelar.backend.exception.ResourceNotFoundException;
+import com.tunelar.backend.exception.TunelarAPIException;
+import com.tunelar.backend.model.User;
+import com.tunelar.backend.repository.UserRepository;
+import com.tunelar.backend.service.impl.UploadSessionServiceImpl;
+import com.tunelar.backend.storage.StorageBackend;
+
+@IntegrationTest
+class UploadSessionServiceTests {
+
+    @Autowired
+    private UploadSessionService uploadSessionService;
+
+    @Autowired
+    private AuthService authService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private StorageBackend storageBackend;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        final String username = "chunks_" + System.nanoTime();
+        authService.register(new RegisterDto("Chunks", username, username + "@tunelar.com", "password"));
+        user = userRepository.findByUsername(username).orElseThrow();
+    }
+
+    @Test
+    void assemblesChunksSentInParallel() throws Exception {
+        final int chunkSize = 64 * 1024;
+        final byte[] audio = TestAudio.wav(4000, 1, 5 * chunkSize / 2, frame -> Math.sin(frame * 0.37) / 2);
+        final TrackUploadDto upload = new TrackUploadDto("Stems", null, 120, "A minor", null, List.of());
+
+        final UploadSessionDto session = uploadSessionService.create(user.getId(),
+                new UploadSessionCreateDto((long) audio.length, chunkSize));
+        assertEquals(6, session.getChunks());
+
+        // the last chunk and the first are sent in parallel; the others are missing
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final List<Future<?>> futures = new ArrayList<>();
+            for (final int index : new int[] { 5, 0 }) {
+                futures.add(executor.submit(() -> uploadSessionService.putChunk(user.getId(), session.getId(),
+                        index, -1, new ByteArrayInputStream(audio, index * chunkSize, chunkSize))));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(List.of(0, 5), uploadSessionService.get(user.getId(), session.getId()).getReceived());
+        final TunelarAPIException incomplete = assertThrows(TunelarAPIException.class,
+                () -> uploadSessionService.commit(user.getId(), session.getId(), upload));
+        assertEquals(HttpStatus.CONFLICT, incomplete.getStatus());
+        assertThrows(TunelarAPIException.class, () -> uploadSessionService.putChunk(user.getId(), session.getId(),
+                1, chunkSize - 1, new ByteArrayInputStream(audio, chunkSize, chunkSize - 1)));
+
+        for (int index = 1; index < 5; index++) {
+            uploadSessionService.putChunk(user.getId(), session.getId(), index, chunkSize,
+                    new ByteArrayInputStream(audio, index * chunkSize, chunkSize));
+        }
+        final TrackDto track = uploadSessionService.commit(user.getId(), session.getId(), upload);
+
+        assertEquals(audio.length, track.getFileSize());
+        assertEquals(41, track.getDuration());
+        // measured while the assembled file was hashed
+        assertNotNull(track.getLoudness());
+        try (InputStream stored = storageBackend.get(track.getFileUrl().substring("/api/files/".length()))) {
+            assertArrayEquals(audio, stored.readAllBytes());
+        }
+        assertThrows(ResourceNotFoundException.class, () -> uploadSessionService.get(user.getId(), session.getId()));
+    }
+
+    @Test
+    void limitsOpenSessionsPerUserUnderConcurrency() throws Exception {
+        final UploadSessionCreateDto create = new UploadSessionCreateDto(1024L * 1024, 256 * 1024);
+        final List<Future<UploadSessionDto>> futures = new ArrayList<>();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> uploadSessionService.create(user.getId(), create)));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        final List<UploadSessionDto> opened = new ArrayList<>();
+        int refused = 0;
+        for (final Future<UploadSessionDto> future : futures) {
+            try {
+                opened.add(future.get());
+            }
+            catch (ExecutionException e) {
+                assertEquals(HttpStatus.TOO_MANY_REQUESTS, ((TunelarAPIException) e.getCause()).getStatus());
+                refused++;
+            }
+        }
+        assertEquals(4, opened.size());
+        assertEquals(4, refused);
+
+        // aborting gives the slot back
+        uploadSessionService.abort(user.getId(), opened.get(0).getId());
+        opened.set(0, uploadSessionService.create(user.getId(), create));
+        for (final UploadSessionDto session : opened) {
+            uploadSessionService.abort(user.getId(), session.getId());
+        }
+    }
+
+    @Test
+    void sharesStagingBudgetAcrossUsers(@TempDir final Path directory) throws Exception {
+        final UploadSessionServiceImpl sessions = new UploadSessionServiceImpl(null, directory.toString(),
+                DataSize.ofMegabytes(2), DataSize.ofMegabytes(1), DataSize.ofMegabytes(1), 4,
+                DataSize.ofMegabytes(3), Duration.ofHours(1));
+        final UploadSessionCreateDto create = new UploadSessionCreateDto(2L * 1024 * 1024, null);
+        try {
+            final UploadSessionDto first = sessions.create(1L, create);
+
+            final TunelarAPIException full = assertThrows(TunelarAPIException.class,
+                    () -> sessions.create(2L, create));
+            assertEquals(HttpStatus.INSUFFICIENT_STORAGE, full.getStatus());
+
+            sessions.abort(1L, first.getId());
+            sessions.create(2L, create);
+        }
+        finally {
+            sessions.closeAll();
+        }
+    }
+}
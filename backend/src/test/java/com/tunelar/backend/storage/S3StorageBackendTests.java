@@ -0,0 +1,144 @@
+package com.tunelar.backend.storage;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.NoSuchFileException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import org.testcontainers.containers.MinIOContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * Runs the S3 backend against MinIO, the local stand-in it is configured for with
+ * an endpoint and path-style access.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class S3StorageBackendTests {
+
+    private static final String BUCKET = "tunelar-test";
+
+    @Container
+    private static final MinIOContainer MINIO = new MinIOContainer("minio/minio:RELEASE.2024-12-18T13-15-44Z");
+
+    /**
+     * Used to create the bucket and inspect objects behind the backend's back
+     */
+    private static S3Client s3;
+
+    private static S3StorageBackend storage;
+
+    @BeforeAll
+    static void setUp() {
+        s3 = S3Client.builder()
+                .region(Region.US_EAST_1)
+                .endpointOverride(URI.create(MINIO.getS3URL()))
+                .forcePathStyle(true)
+                .credentialsProvider(StaticCredentialsProvider.create(
+                        AwsBasicCredentials.create(MINIO.getUserName(), MINIO.getPassword())))
+                .build();
+        s3.createBucket(request -> request.bucket(BUCKET));
+        storage = new S3StorageBackend(BUCKET, "us-east-1", MINIO.getS3URL(), true, MINIO.getUserName(),
+                MINIO.getPassword(), DataSize.ofBytes(S3StorageBackend.MIN_PART_SIZE));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        storage.close();
+        s3.close();
+    }
+
+    private static byte[] content(final int length) {
+        final byte[] content = new byte[length];
+        new Random(length).nextBytes(content);
+        return content;
+    }
+
+    private static byte[] read(final InputStream in) throws Exception {
+        try (in) {
+            return in.readAllBytes();
+        }
+    }
+
+    @Test
+    void putsContentOfKnownLength() throws Exception {
+        final byte[] content = content(1000);
+
+        assertEquals(1000, storage.put("known/a", new ByteArrayInputStream(content), 1000, "audio/wav"));
+        assertArrayEquals(content, read(storage.get("known/a")));
+        assertEquals("audio/wav", s3.headObject(request -> request.bucket(BUCKET).key("known/a")).contentType());
+    }
+
+    @Test
+    void putsContentOfUnknownLengthInParts() throws Exception {
+        // the first part is read into the buffer before the upload starts, the second is short
+        final byte[] content = content(S3StorageBackend.MIN_PART_SIZE + 1234);
+
+        assertEquals(content.length, storage.put("chunked/a", new ByteArrayInputStream(content), -1, "audio/wav"));
+        assertArrayEquals(content, read(storage.get("chunked/a")));
+        // multipart ETags end with the number of parts
+        assertTrue(s3.headObject(request -> request.bucket(BUCKET).key("chunked/a")).eTag().endsWith("-2\""));
+    }
+
+    @Test
+    void putsShortContentOfUnknownLengthInOnePut() throws Exception {
+        final byte[] content = content(4321);
+
+        assertEquals(4321, storage.put("chunked/b", new ByteArrayInputStream(content), -1, "audio/wav"));
+        assertArrayEquals(content, read(storage.get("chunked/b")));
+    }
+
+    @Test
+    void readsRange() throws Exception {
+        final byte[] content = content(2000);
+        storage.put("range/a", new ByteArrayInputStream(content), content.length, "audio/wav");
+
+        assertArrayEquals(Arrays.copyOfRange(content, 100, 600), read(storage.get("range/a", 100, 500)));
+        assertArrayEquals(Arrays.copyOfRange(content, 1999, 2000), read(storage.get("range/a", 1999, 1)));
+    }
+
+    @Test
+    void movesByCopyingWithinBucket() throws Exception {
+        final byte[] content = content(3000);
+        storage.put("move/source", new ByteArrayInputStream(content), content.length, "audio/wav");
+
+        storage.move("move/source", "move/target");
+
+        assertArrayEquals(content, read(storage.get("move/target")));
+        assertThrows(NoSuchFileException.class, () -> storage.get("move/source"));
+    }
+
+    @Test
+    void deletesObject() throws Exception {
+        storage.put("delete/a", new ByteArrayInputStream(content(10)), 10, "audio/wav");
+
+        storage.delete("delete/a");
+
+        assertThrows(NoSuchFileException.class, () -> storage.get("delete/a"));
+        // deleting a missing object is not an error
+        storage.delete("delete/a");
+    }
+
+    @Test
+    void reportsMissingKeyAsNoSuchFile() {
+        assertThrows(NoSuchFileException.class, () -> storage.get("missing/a"));
+        assertThrows(NoSuchFileException.class, () -> storage.get("missing/a", 0, 10));
+        assertThrows(NoSuchFileException.class, () -> storage.move("missing/a", "missing/b"));
+    }
+}
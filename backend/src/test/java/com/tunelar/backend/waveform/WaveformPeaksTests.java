@@ -0,0 +1,94 @@
+package com.tunelar.backend.waveform;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.tunelar.backend.audio.PcmDecoder;
+import com.tunelar.backend.audio.TestAudio;
+
+class WaveformPeaksTests {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * A 16-bit stereo WAV with a LIST chunk before the data, whose left channel
+     * ramps from 0 and whose right channel is the negated left
+     */
+    private static byte[] wav(final int frames) {
+        return TestAudio.withChunk(TestAudio.wav(48_000, 2, frames,
+                (frame, channel) -> (channel == 0 ? frame : -frame) / (double) Short.MAX_VALUE),
+                "LIST", "INFO".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void readsBucketsAcrossChannels() throws Exception {
+        final PcmPeakReader.Peaks peaks = PcmPeakReader.read(new ByteArrayInputStream(wav(1000)), 256);
+
+        assertEquals(48_000, peaks.sampleRate());
+        assertEquals(1000, peaks.frames());
+        assertEquals(4, peaks.buckets());
+        // bucket 1 holds frames 256..511; the last bucket is partial
+        assertEquals(-511, peaks.peaks()[2]);
+        assertEquals(511, peaks.peaks()[3]);
+        assertEquals(-999, peaks.peaks()[6]);
+        assertEquals(999, peaks.peaks()[7]);
+    }
+
+    @Test
+    void readsBigEndianAiff() throws Exception {
+        // 24-bit mono at 44100 Hz; the sample rate is an 80-bit extended float
+        final ByteBuffer aiff = ByteBuffer.allocate(12 + 26 + 16 + 6);
+        aiff.put("FORM".getBytes(StandardCharsets.US_ASCII)).putInt(aiff.capacity() - 8)
+                .put("AIFF".getBytes(StandardCharsets.US_ASCII));
+        aiff.put("COMM".getBytes(StandardCharsets.US_ASCII)).putInt(18).putShort((short) 1).putInt(2)
+                .putShort((short) 24).putShort((short) 0x400E).putLong(0xAC44000000000000L);
+        aiff.put("SSND".getBytes(StandardCharsets.US_ASCII)).putInt(8 + 6).putInt(0).putInt(0);
+        aiff.put(new byte[] { 0x40, 0x00, 0x00, (byte) 0xC0, 0x00, 0x00 });
+
+        final PcmPeakReader.Peaks peaks = PcmPeakReader.read(new ByteArrayInputStream(aiff.array()), 256);
+
+        assertEquals(44_100, peaks.sampleRate());
+        assertEquals(2, peaks.frames());
+        assertEquals(-0x4000, peaks.peaks()[0]);
+        assertEquals(0x4000, peaks.peaks()[1]);
+    }
+
+    @Test
+    void writesLevelsAndMapsSlices() throws Exception {
+        final PcmPeakReader.Peaks peaks = PcmPeakReader.read(new ByteArrayInputStream(wav(10_000)), 100);
+        final Path file = directory.resolve("ramp.peaks");
+        WaveformPeaks.write(file, peaks, 100, 10);
+
+        final WaveformPeaks mapped = WaveformPeaks.map(file);
+        // 100 buckets, then 25, 7, 2 and 1
+        assertEquals(5, mapped.levels());
+        assertEquals(100, mapped.buckets(0));
+        assertEquals(25, mapped.buckets(1));
+        assertEquals(1, mapped.buckets(4));
+        assertEquals(400, mapped.samplesPerBucket(1));
+        assertEquals(10_000, mapped.frames());
+
+        final ByteBuffer slice = mapped.slice(1, 24, 10);
+        assertEquals(WaveformPeaks.BUCKET_BYTES, slice.remaining());
+        assertEquals(-9999, slice.getShort(0));
+        assertEquals(9999, slice.getShort(2));
+        assertEquals(0, mapped.slice(0, 500, 10).remaining());
+        assertThrows(IllegalArgumentException.class, () -> mapped.slice(5, 0, 1));
+    }
+
+    @Test
+    void rejectsCompressedAudio() {
+        final byte[] flac = "fLaC and more bytes".getBytes(StandardCharsets.US_ASCII);
+        assertThrows(PcmDecoder.UnsupportedFormatException.class,
+                () -> PcmPeakReader.read(new ByteArrayInputStream(flac), 256));
+    }
+}